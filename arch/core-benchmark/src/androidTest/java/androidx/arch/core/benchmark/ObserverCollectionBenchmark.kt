@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.arch.core.benchmark
+
+import androidx.arch.core.internal.CopyOnWriteObserverList
+import androidx.arch.core.internal.FastSafeIterableMap
+import androidx.arch.core.internal.SafeIterableMap
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameters
+
+/**
+ * Compares the observer collections which can back LiveData and LifecycleRegistry, both when
+ * dispatching to every observer and when observers are added and removed.
+ */
+@RunWith(Parameterized::class)
+class ObserverCollectionBenchmark(private val size: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val observers = List(size) { Any() }
+    private var visited = 0
+
+    private val visitor = CopyOnWriteObserverList.Visitor<Any> { visited++ }
+
+    @Test
+    fun dispatch_safeIterableMap() {
+        val map = SafeIterableMap<Any, Any>()
+        observers.forEach { map.putIfAbsent(it, it) }
+        benchmarkRule.measureRepeated {
+            map.forEach { visited++ }
+        }
+    }
+
+    @Test
+    fun dispatch_fastSafeIterableMap() {
+        val map = FastSafeIterableMap<Any, Any>()
+        observers.forEach { map.putIfAbsent(it, it) }
+        benchmarkRule.measureRepeated {
+            val iterator = map.iteratorWithAdditions()
+            while (iterator.hasNext()) {
+                iterator.next()
+                visited++
+            }
+        }
+    }
+
+    @Test
+    fun dispatch_copyOnWriteObserverList() {
+        val list = CopyOnWriteObserverList<Any>()
+        observers.forEach { list.add(it) }
+        benchmarkRule.measureRepeated {
+            list.forEach(visitor)
+        }
+    }
+
+    @Test
+    fun addRemove_safeIterableMap() {
+        val map = SafeIterableMap<Any, Any>()
+        observers.forEach { map.putIfAbsent(it, it) }
+        val observer = Any()
+        benchmarkRule.measureRepeated {
+            map.putIfAbsent(observer, observer)
+            map.remove(observer)
+        }
+    }
+
+    @Test
+    fun addRemove_fastSafeIterableMap() {
+        val map = FastSafeIterableMap<Any, Any>()
+        observers.forEach { map.putIfAbsent(it, it) }
+        val observer = Any()
+        benchmarkRule.measureRepeated {
+            map.putIfAbsent(observer, observer)
+            map.remove(observer)
+        }
+    }
+
+    @Test
+    fun addRemove_copyOnWriteObserverList() {
+        val list = CopyOnWriteObserverList<Any>()
+        observers.forEach { list.add(it) }
+        val observer = Any()
+        benchmarkRule.measureRepeated {
+            list.add(observer)
+            list.remove(observer)
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameters(name = "size={0}")
+        fun parameters() = listOf(1, 10, 100, 1000)
+    }
+}
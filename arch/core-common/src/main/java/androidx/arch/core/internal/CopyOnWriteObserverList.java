@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.arch.core.internal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An insertion ordered set of observers, backed by an array which is copied on every
+ * modification.
+ * <p>
+ * Unlike {@link SafeIterableMap}, dispatching to the observers doesn't allocate: the visitor is
+ * called for each element of the array which was current when the dispatch started. Observers
+ * added during a dispatch are not visited by it, and observers removed during a dispatch are
+ * still visited, so callers which need to skip them must track that themselves.
+ * <p>
+ * It is thread safe: reads never block, and concurrent modifications retry instead of locking.
+ * Adding and removing an observer costs O(n), so it is meant for sets which are dispatched to
+ * much more often than they are modified.
+ *
+ * @param <E> Observer type
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public class CopyOnWriteObserverList<E> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final AtomicReference<Object[]> mElements = new AtomicReference<>(EMPTY);
+
+    /**
+     * Called for each observer during a dispatch.
+     *
+     * @param <E> Observer type
+     */
+    public interface Visitor<E> {
+        /**
+         * @param observer the observer to dispatch to
+         */
+        void visit(@NonNull E observer);
+    }
+
+    /**
+     * Adds the given observer at the end of the list, unless it is already present.
+     *
+     * @return {@code true} if the observer was added
+     */
+    public boolean add(@NonNull E observer) {
+        while (true) {
+            Object[] current = mElements.get();
+            if (indexOf(current, observer) >= 0) {
+                return false;
+            }
+            Object[] updated = new Object[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = observer;
+            if (mElements.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes the given observer.
+     *
+     * @return {@code true} if the observer was present
+     */
+    public boolean remove(@NonNull E observer) {
+        while (true) {
+            Object[] current = mElements.get();
+            int index = indexOf(current, observer);
+            if (index < 0) {
+                return false;
+            }
+            Object[] updated;
+            if (current.length == 1) {
+                updated = EMPTY;
+            } else {
+                updated = new Object[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, index);
+                System.arraycopy(current, index + 1, updated, index, updated.length - index);
+            }
+            if (mElements.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes all the observers.
+     */
+    public void clear() {
+        mElements.set(EMPTY);
+    }
+
+    /**
+     * @return {@code true} if the given observer is in the list
+     */
+    public boolean contains(@NonNull E observer) {
+        return indexOf(mElements.get(), observer) >= 0;
+    }
+
+    /**
+     * @return the number of observers
+     */
+    public int size() {
+        return mElements.get().length;
+    }
+
+    /**
+     * @return {@code true} if there are no observers
+     */
+    public boolean isEmpty() {
+        return mElements.get().length == 0;
+    }
+
+    /**
+     * Visits the observers in the order in which they were added.
+     *
+     * @param visitor the visitor to call for each observer
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(@NonNull Visitor<? super E> visitor) {
+        Object[] elements = mElements.get();
+        for (int i = 0; i < elements.length; i++) {
+            visitor.visit((E) elements[i]);
+        }
+    }
+
+    /**
+     * Visits the observers in the reverse of the order in which they were added.
+     *
+     * @param visitor the visitor to call for each observer
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachDescending(@NonNull Visitor<? super E> visitor) {
+        Object[] elements = mElements.get();
+        for (int i = elements.length - 1; i >= 0; i--) {
+            visitor.visit((E) elements[i]);
+        }
+    }
+
+    private static int indexOf(Object[] elements, Object observer) {
+        for (int i = 0; i < elements.length; i++) {
+            if (elements[i].equals(observer)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.internal.CopyOnWriteObserverList;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class CopyOnWriteObserverListTest {
+
+    @Test
+    public void testAdd() {
+        CopyOnWriteObserverList<Integer> list = new CopyOnWriteObserverList<>();
+        assertThat(list.add(1), is(true));
+        assertThat(list.add(2), is(true));
+        assertThat(list.add(1), is(false));
+        assertThat(list.size(), is(2));
+        assertThat(list.contains(2), is(true));
+        assertThat(list.contains(3), is(false));
+    }
+
+    @Test
+    public void testRemove() {
+        CopyOnWriteObserverList<Integer> list = from(1, 2, 3);
+        assertThat(list.remove(2), is(true));
+        assertThat(list.remove(2), is(false));
+        assertThat(collect(list), is(Arrays.asList(1, 3)));
+        list.remove(1);
+        list.remove(3);
+        assertThat(list.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testForEachDescending() {
+        CopyOnWriteObserverList<Integer> list = from(1, 2, 3);
+        final List<Integer> visited = new ArrayList<>();
+        list.forEachDescending(new CopyOnWriteObserverList.Visitor<Integer>() {
+            @Override
+            public void visit(@NonNull Integer observer) {
+                visited.add(observer);
+            }
+        });
+        assertThat(visited, is(Arrays.asList(3, 2, 1)));
+    }
+
+    @Test
+    public void testModificationsDuringDispatch() {
+        final CopyOnWriteObserverList<Integer> list = from(1, 2, 3);
+        final List<Integer> visited = new ArrayList<>();
+        list.forEach(new CopyOnWriteObserverList.Visitor<Integer>() {
+            @Override
+            public void visit(@NonNull Integer observer) {
+                visited.add(observer);
+                if (observer == 1) {
+                    list.remove(2);
+                    list.add(4);
+                }
+            }
+        });
+        // The dispatch only sees the observers which were present when it started.
+        assertThat(visited, is(Arrays.asList(1, 2, 3)));
+        assertThat(collect(list), is(Arrays.asList(1, 3, 4)));
+    }
+
+    @Test
+    public void testConcurrentAdds() throws InterruptedException {
+        final CopyOnWriteObserverList<Integer> list = new CopyOnWriteObserverList<>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 1000;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        list.add(offset + i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(list.size(), is(4000));
+    }
+
+    private static CopyOnWriteObserverList<Integer> from(Integer... elements) {
+        CopyOnWriteObserverList<Integer> list = new CopyOnWriteObserverList<>();
+        for (Integer element : elements) {
+            list.add(element);
+        }
+        return list;
+    }
+
+    private static List<Integer> collect(CopyOnWriteObserverList<Integer> list) {
+        final List<Integer> result = new ArrayList<>();
+        list.forEach(new CopyOnWriteObserverList.Visitor<Integer>() {
+            @Override
+            public void visit(@NonNull Integer observer) {
+                result.add(observer);
+            }
+        });
+        return result;
+    }
+}
@@ -30,6 +30,9 @@ import androidx.emoji.text.MetadataRepo;
  * bundled resources.
  * <p/>
  * <pre><code>EmojiCompat.init(new BundledEmojiCompatConfig(context));</code></pre>
+ * <p/>
+ * The emoji metadata is memory mapped from the font if the application stores it uncompressed,
+ * using {@code aaptOptions { noCompress 'ttf' }}, which makes loading it faster.
  *
  * @see EmojiCompat
  */
@@ -92,16 +92,72 @@ public class MetadataRepoTest {
         assertEquals(null, getNode(new int[]{1, 2, 3, 4, 5}));
     }
 
+    @Test
+    public void testPut_sameCodePoints_keepsLast() {
+        final int[] codePoint = new int[]{1, 2};
+        final EmojiMetadata metadata1 = new TestEmojiMetadata(codePoint);
+        final EmojiMetadata metadata2 = new TestEmojiMetadata(codePoint);
+
+        mMetadataRepo.put(metadata1);
+        mMetadataRepo.put(metadata2);
+
+        assertSame(metadata2, getNode(codePoint));
+    }
+
+    @Test
+    public void testPut_sequencesWithSameFirstCodePoint() {
+        final int[][] codePoints = new int[][]{
+                {0x1F469}, {0x1F469, 0x1F3FD}, {0x1F469, 0x200D, 0x1F4BB},
+                {0x1F469, 0x1F3FD, 0x200D, 0x1F4BB}, {0x1F469, 0x200D, 0x1F469, 0x200D, 0x1F467},
+                {0x1F468, 0x200D, 0x1F4BB}};
+        final EmojiMetadata[] metadata = new EmojiMetadata[codePoints.length];
+        for (int i = 0; i < codePoints.length; i++) {
+            metadata[i] = new TestEmojiMetadata(codePoints[i]);
+            mMetadataRepo.put(metadata[i]);
+        }
+
+        for (int i = 0; i < codePoints.length; i++) {
+            assertSame(metadata[i], getNode(codePoints[i]));
+        }
+        assertEquals(null, getNode(new int[]{0x1F469, 0x200D}));
+        assertEquals(null, getNode(new int[]{0x1F469, 0x200D, 0x1F469}));
+        assertEquals(null, getNode(new int[]{0x1F468}));
+    }
+
+    @Test
+    public void testPut_codePointsAcrossRootPages() {
+        final int[][] codePoints = new int[][]{
+                {0x23, 0x20E3}, {0xA9}, {0xFF}, {0x100}, {0x2764, 0xFE0F}, {0x1F600},
+                {0x1F1FA, 0x1F1F8}, {0x1F1FA, 0x1F1F3}, {0x1F9FF}, {0x10FFFF}};
+        final EmojiMetadata[] metadata = new EmojiMetadata[codePoints.length];
+        // Not in order, the trie sorts them.
+        for (int i = codePoints.length - 1; i >= 0; i--) {
+            metadata[i] = new TestEmojiMetadata(codePoints[i]);
+            mMetadataRepo.put(metadata[i]);
+        }
+
+        for (int i = 0; i < codePoints.length; i++) {
+            assertSame(metadata[i], getNode(codePoints[i]));
+        }
+        assertEquals(null, getNode(new int[]{0x22}));
+        assertEquals(null, getNode(new int[]{0x101}));
+        assertEquals(null, getNode(new int[]{0x1F601}));
+        assertEquals(null, getNode(new int[]{0x1F1FA}));
+        assertEquals(null, getNode(new int[]{0x1F1FA, 0x1F1F4}));
+        assertEquals(null, getNode(new int[]{Integer.MAX_VALUE}));
+    }
+
     final EmojiMetadata getNode(final int[] codepoints) {
-        return getNode(mMetadataRepo.getRootNode(), codepoints, 0);
+        return getNode(EmojiTrie.ROOT, codepoints, 0);
     }
 
-    final EmojiMetadata getNode(MetadataRepo.Node node, final int[] codepoints, int start) {
+    final EmojiMetadata getNode(int node, final int[] codepoints, int start) {
+        final EmojiTrie trie = mMetadataRepo.getTrie();
         if (codepoints.length < start) return null;
-        if (codepoints.length == start) return node.getData();
+        if (codepoints.length == start) return trie.getData(node);
 
-        final MetadataRepo.Node childNode = node.get(codepoints[start]);
-        if (childNode == null) return null;
+        final int childNode = trie.getChild(node, codepoints[start]);
+        if (childNode == EmojiTrie.NO_NODE) return null;
         return getNode(childNode, codepoints, start + 1);
     }
 }
@@ -16,8 +16,14 @@
 
 package androidx.emoji.widget;
 
+import static androidx.emoji.util.Emoji.CHAR_FITZPATRICK;
+import static androidx.emoji.util.Emoji.CHAR_MAN;
+import static androidx.emoji.util.Emoji.EMOJI_SKIN_MODIFIER;
+import static androidx.emoji.util.EmojiMatcher.hasEmojiAt;
+import static androidx.emoji.util.EmojiMatcher.hasEmojiCount;
 import static androidx.emoji.util.EmojiMatcher.sameCharSequence;
 
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -27,12 +33,18 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import android.text.Editable;
 import android.text.Spannable;
 import android.text.SpannableString;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
 import android.widget.EditText;
 
 import androidx.emoji.text.EmojiCompat;
+import androidx.emoji.text.EmojiSpan;
+import androidx.emoji.text.TestConfigBuilder;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SdkSuppress;
 import androidx.test.filters.SmallTest;
 
 import org.junit.Before;
@@ -66,6 +78,69 @@ public class EmojiTextWatcherTest {
         verify(mEmojiCompat, times(0)).registerInitCallback(any(EmojiCompat.InitCallback.class));
     }
 
+    @Test
+    public void testOnTextChanged_withVariationSelector_processesPrecedingText() {
+        final Spannable testString = new SpannableString("abc\u2764\uFE0F");
+        when(mEmojiCompat.getLoadState()).thenReturn(EmojiCompat.LOAD_STATE_SUCCEEDED);
+
+        mTextWatcher.onTextChanged(testString, 4, 0, 1);
+
+        verify(mEmojiCompat, times(1)).process(sameCharSequence(testString), eq(0), eq(5),
+                eq(Integer.MAX_VALUE), anyInt());
+    }
+
+    @Test
+    public void testGetProcessStart_stopsAtPreviousEmojiSpan() {
+        final Spannable testString = new SpannableString("a\uD83D\uDE00b\u2764\uFE0F");
+        testString.setSpan(mock(EmojiSpan.class), 1, 3, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+
+        assertEquals(3, EmojiTextWatcher.getProcessStart(testString, 5));
+    }
+
+    @Test
+    public void testGetProcessStart_withSkinTone_afterEmojiSpan() {
+        final Spannable testString = new SpannableString("a\uD83D\uDC4D\uD83C\uDFFD");
+        testString.setSpan(mock(EmojiSpan.class), 1, 3, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+
+        // the span touching the skin tone is processed again
+        assertEquals(1, EmojiTextWatcher.getProcessStart(testString, 3));
+    }
+
+    @Test
+    @SdkSuppress(minSdkVersion = 19)
+    public void testTextChange_withSkinTone_combinesWithPrecedingEmoji() {
+        EmojiCompat.reset(TestConfigBuilder.config());
+        final Editable editable = new SpannableStringBuilder();
+        editable.setSpan(mTextWatcher, 0, 0, Spanned.SPAN_INCLUSIVE_INCLUSIVE);
+
+        editable.append(new String(Character.toChars(CHAR_MAN)));
+        assertThat(editable, hasEmojiCount(1));
+
+        // typed as a separate edit, as a keyboard does after the base emoji
+        editable.append(new String(Character.toChars(CHAR_FITZPATRICK)));
+        assertThat(editable, hasEmojiCount(1));
+        assertThat(editable, hasEmojiAt(EMOJI_SKIN_MODIFIER, 0, editable.length()));
+    }
+
+    @Test
+    public void testGetProcessStart_isLimited() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < EmojiTextWatcher.MAX_LOOKBACK_LENGTH; i++) {
+            builder.append('a');
+        }
+        builder.append("\u2764\uFE0F");
+        final Spannable testString = new SpannableString(builder);
+
+        assertEquals(1, EmojiTextWatcher.getProcessStart(testString, testString.length() - 1));
+    }
+
+    @Test
+    public void testGetProcessStart_withOtherText_doesNotLookBack() {
+        final Spannable testString = new SpannableString("\u2764abc");
+
+        assertEquals(2, EmojiTextWatcher.getProcessStart(testString, 2));
+    }
+
     @Test
     public void testOnTextChanged_whenEmojiCompatLoading() {
         final Spannable testString = new SpannableString("abc");
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyObject;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -151,6 +152,34 @@ public class SpannableBuilderTest {
         verify(mWatcher, times(1)).afterTextChanged(any(Editable.class));
     }
 
+    @Test
+    public void testEndBatchEdit_firesChangedRangeOnly() {
+        final SpannableBuilder spannable = new SpannableBuilder(mClass, "123456");
+        spannable.setSpan(mWatcher, 0, spannable.length(), Spanned.SPAN_INCLUSIVE_INCLUSIVE);
+        reset(mWatcher);
+
+        spannable.beginBatchEdit();
+        spannable.setSpan(mock(EmojiSpan.class), 2, 4, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        spannable.endBatchEdit();
+
+        verify(mWatcher, times(1)).onTextChanged(same(spannable), eq(2), eq(2), eq(2));
+        verify((SpanWatcher) mWatcher, never()).onSpanAdded(any(Spannable.class),
+                any(EmojiSpan.class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testEndBatchEdit_withoutEmojiSpanChanges_doesNotFire() {
+        final SpannableBuilder spannable = new SpannableBuilder(mClass, "123456");
+        spannable.setSpan(mWatcher, 0, spannable.length(), Spanned.SPAN_INCLUSIVE_INCLUSIVE);
+        reset(mWatcher);
+
+        spannable.beginBatchEdit();
+        spannable.endBatchEdit();
+
+        verify(mWatcher, never()).onTextChanged(any(CharSequence.class), anyInt(), anyInt(),
+                anyInt());
+    }
+
     @Test
     public void testDoesNotBlockSpanCallbacks_forNonEmojiSpans() {
         final QuoteSpan span = mock(QuoteSpan.class);
@@ -115,7 +115,7 @@ final class EmojiProcessor {
     }
 
     EmojiMetadata getEmojiMetadata(@NonNull final CharSequence charSequence) {
-        final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getRootNode(),
+        final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getTrie(),
                 mUseEmojiAsDefaultStyle, mEmojiAsDefaultStyleExceptions);
         final int end = charSequence.length();
         int currentOffset = 0;
@@ -217,7 +217,7 @@ final class EmojiProcessor {
             }
             // add new ones
             int addedCount = 0;
-            final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getRootNode(),
+            final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getTrie(),
                     mUseEmojiAsDefaultStyle, mEmojiAsDefaultStyleExceptions);
 
             int currentOffset = start;
@@ -487,20 +487,20 @@ final class EmojiProcessor {
         private int mState = STATE_DEFAULT;
 
         /**
-         * Root of the trie
+         * Trie of the emoji codepoints, whose nodes are referred to by number.
          */
-        private final MetadataRepo.Node mRootNode;
+        private final EmojiTrie mTrie;
 
         /**
          * Pointer to the node after last codepoint.
          */
-        private MetadataRepo.Node mCurrentNode;
+        private int mCurrentNode = EmojiTrie.ROOT;
 
         /**
          * The node where ACTION_FLUSH is called. Required since after flush action is
          * returned mCurrentNode is reset to be the root.
          */
-        private MetadataRepo.Node mFlushNode;
+        private int mFlushNode = EmojiTrie.ROOT;
 
         /**
          * The code point that was checked.
@@ -522,10 +522,9 @@ final class EmojiProcessor {
          */
         private final int[] mEmojiAsDefaultStyleExceptions;
 
-        ProcessorSm(MetadataRepo.Node rootNode, boolean useEmojiAsDefaultStyle,
+        ProcessorSm(EmojiTrie trie, boolean useEmojiAsDefaultStyle,
                 int[] emojiAsDefaultStyleExceptions) {
-            mRootNode = rootNode;
-            mCurrentNode = rootNode;
+            mTrie = trie;
             mUseEmojiAsDefaultStyle = useEmojiAsDefaultStyle;
             mEmojiAsDefaultStyleExceptions = emojiAsDefaultStyleExceptions;
         }
@@ -533,10 +532,10 @@ final class EmojiProcessor {
         @Action
         int check(final int codePoint) {
             final int action;
-            MetadataRepo.Node node = mCurrentNode.get(codePoint);
+            final int node = mTrie.getChild(mCurrentNode, codePoint);
             switch (mState) {
                 case STATE_WALKING:
-                    if (node != null) {
+                    if (node != EmojiTrie.NO_NODE) {
                         mCurrentNode = node;
                         mCurrentDepth += 1;
                         action = ACTION_ADVANCE_END;
@@ -545,7 +544,7 @@ final class EmojiProcessor {
                             action = reset();
                         } else if (isEmojiStyle(codePoint)) {
                             action = ACTION_ADVANCE_END;
-                        } else if (mCurrentNode.getData() != null) {
+                        } else if (mTrie.getData(mCurrentNode) != null) {
                             if (mCurrentDepth == 1) {
                                 if (shouldUseEmojiPresentationStyleForSingleCodepoint()) {
                                     mFlushNode = mCurrentNode;
@@ -566,7 +565,7 @@ final class EmojiProcessor {
                     break;
                 case STATE_DEFAULT:
                 default:
-                    if (node == null) {
+                    if (node == EmojiTrie.NO_NODE) {
                         action = reset();
                     } else {
                         mState = STATE_WALKING;
@@ -584,7 +583,7 @@ final class EmojiProcessor {
         @Action
         private int reset() {
             mState = STATE_DEFAULT;
-            mCurrentNode = mRootNode;
+            mCurrentNode = EmojiTrie.ROOT;
             mCurrentDepth = 0;
             return ACTION_ADVANCE_BOTH;
         }
@@ -593,14 +592,14 @@ final class EmojiProcessor {
          * @return the metadata node when ACTION_FLUSH is returned
          */
         EmojiMetadata getFlushMetadata() {
-            return mFlushNode.getData();
+            return mTrie.getData(mFlushNode);
         }
 
         /**
          * @return current pointer to the metadata node in the trie
          */
         EmojiMetadata getCurrentMetadata() {
-            return mCurrentNode.getData();
+            return mTrie.getData(mCurrentNode);
         }
 
         /**
@@ -611,12 +610,12 @@ final class EmojiProcessor {
          * @return whether the current state requires an emoji to be added
          */
         boolean isInFlushableState() {
-            return mState == STATE_WALKING && mCurrentNode.getData() != null
+            return mState == STATE_WALKING && mTrie.getData(mCurrentNode) != null
                     && (mCurrentDepth > 1 || shouldUseEmojiPresentationStyleForSingleCodepoint());
         }
 
         private boolean shouldUseEmojiPresentationStyleForSingleCodepoint() {
-            if (mCurrentNode.getData().isDefaultEmoji()) {
+            if (mTrie.getData(mCurrentNode).isDefaultEmoji()) {
                 // The codepoint is emoji style by default.
                 return true;
             }
@@ -630,7 +629,7 @@ final class EmojiProcessor {
                 if (mEmojiAsDefaultStyleExceptions == null) {
                     return true;
                 }
-                final int codepoint = mCurrentNode.getData().getCodepointAt(0);
+                final int codepoint = mTrie.getData(mCurrentNode).getCodepointAt(0);
                 final int index = Arrays.binarySearch(mEmojiAsDefaultStyleExceptions, codepoint);
                 if (index < 0) {
                     // Index is negative, so the codepoint was not found in the array of exceptions.
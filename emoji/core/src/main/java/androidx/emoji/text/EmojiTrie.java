@@ -0,0 +1,396 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.emoji.text;
+
+import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.RestrictTo;
+import androidx.core.util.Preconditions;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable trie that maps emoji codepoint sequences to {@link EmojiMetadata}, stored in a few
+ * flat int arrays instead of one object per node.
+ * <p>
+ * Only the children of the root, one per distinct first codepoint, are known up front. The
+ * subtree under each of them is built the first time a lookup reaches it, so that loading the
+ * metadata does not walk every emoji, and text which does not contain a given emoji never pays
+ * for its sequences.
+ * <p>
+ * Within a subtree, nodes are numbered in breadth first order so that the children of a node have
+ * consecutive numbers, sorted by the codepoint which leads to them. Looking up a child is a binary
+ * search over those numbers. The root has over a thousand children, so its children are further
+ * bucketed by the high bits of their codepoint: since most of the text does not contain emojis,
+ * most lookups are misses at the root, which then cost a single array read.
+ *
+ * @hide
+ */
+@RestrictTo(LIBRARY_GROUP_PREFIX)
+@AnyThread
+@RequiresApi(19)
+final class EmojiTrie {
+    /**
+     * Node number of the root, which has no metadata.
+     */
+    static final int ROOT = 0;
+
+    /**
+     * Returned when a node has no child for a codepoint.
+     */
+    static final int NO_NODE = -1;
+
+    /**
+     * The root children are bucketed by {@code codepoint >>> ROOT_PAGE_SHIFT}.
+     */
+    private static final int ROOT_PAGE_SHIFT = 8;
+
+    /**
+     * A node number is the index of the root child it is under plus one, shifted by
+     * SUBTREE_SHIFT, combined with its number within the subtree of that child. The root child
+     * itself is number 0 in its subtree.
+     */
+    private static final int SUBTREE_SHIFT = 19;
+    private static final int MAX_SUBTREE_NODE_COUNT = 1 << SUBTREE_SHIFT;
+    private static final int MAX_ROOT_CHILD_COUNT = (1 << (31 - SUBTREE_SHIFT)) - 1;
+
+    /**
+     * The emojis a trie is built from, accessed by a single thread at a time.
+     */
+    interface Entries {
+        int size();
+
+        int getCodepointsLength(int index);
+
+        int getCodepointAt(int index, int position);
+
+        /**
+         * @return The metadata of the emoji at the given index, the same instance every time
+         */
+        @NonNull
+        EmojiMetadata getMetadata(int index);
+    }
+
+    private final Entries mEntries;
+
+    /**
+     * Sorted first codepoints of the emojis, one per root child.
+     */
+    private final int[] mRootCodepoints;
+
+    /**
+     * The root children whose codepoint is in page p are from {@code mRootPages[p]} to
+     * {@code mRootPages[p + 1]}, exclusive.
+     */
+    private final int[] mRootPages;
+
+    /**
+     * The emojis under root child r are {@code mRootEntries[mRootEntryStart[r]]} to
+     * {@code mRootEntries[mRootEntryStart[r + 1]]}, exclusive, in the order of the entries.
+     */
+    private final int[] mRootEntryStart;
+    private final int[] mRootEntries;
+
+    /**
+     * Subtree of each root child, null until it is first reached. Also the lock that the subtrees
+     * and the entries are accessed under.
+     */
+    private final AtomicReferenceArray<Subtree> mSubtrees;
+
+    /**
+     * Builds the trie of the given emojis. If several emojis have the same codepoints, the last
+     * one is kept.
+     */
+    EmojiTrie(@NonNull final EmojiMetadata[] metadata) {
+        this(new ArrayEntries(metadata));
+    }
+
+    /**
+     * Builds the root of the trie of the given emojis, which only reads their first codepoint. If
+     * several emojis have the same codepoints, the last one is kept.
+     */
+    EmojiTrie(@NonNull final Entries entries) {
+        mEntries = entries;
+        final int count = entries.size();
+        // Sorting the first codepoint along with the index keeps equal codepoints in index order.
+        final long[] firstCodepoints = new long[count];
+        for (int i = 0; i < count; i++) {
+            Preconditions.checkArgument(entries.getCodepointsLength(i) > 0,
+                    "invalid metadata codepoint length");
+            firstCodepoints[i] = ((long) entries.getCodepointAt(i, 0) << 32) | i;
+        }
+        Arrays.sort(firstCodepoints);
+
+        final int[] rootCodepoints = new int[count];
+        final int[] rootEntryStart = new int[count + 1];
+        mRootEntries = new int[count];
+        int rootChildCount = 0;
+        for (int i = 0; i < count; i++) {
+            final int codepoint = (int) (firstCodepoints[i] >>> 32);
+            if (rootChildCount == 0 || rootCodepoints[rootChildCount - 1] != codepoint) {
+                rootCodepoints[rootChildCount] = codepoint;
+                rootEntryStart[rootChildCount] = i;
+                rootChildCount++;
+            }
+            mRootEntries[i] = (int) firstCodepoints[i];
+        }
+        rootEntryStart[rootChildCount] = count;
+        Preconditions.checkState(rootChildCount <= MAX_ROOT_CHILD_COUNT,
+                "too many emoji start codepoints");
+
+        mRootCodepoints = Arrays.copyOf(rootCodepoints, rootChildCount);
+        mRootEntryStart = Arrays.copyOf(rootEntryStart, rootChildCount + 1);
+        mRootPages = buildRootPages(mRootCodepoints);
+        mSubtrees = new AtomicReferenceArray<>(rootChildCount);
+    }
+
+    private static int[] buildRootPages(final int[] rootCodepoints) {
+        final int rootChildCount = rootCodepoints.length;
+        final int pageCount = rootChildCount > 0
+                ? (rootCodepoints[rootChildCount - 1] >>> ROOT_PAGE_SHIFT) + 1 : 0;
+        final int[] pages = new int[pageCount + 1];
+        int child = 0;
+        for (int page = 0; page <= pageCount; page++) {
+            while (child < rootChildCount && (rootCodepoints[child] >>> ROOT_PAGE_SHIFT) < page) {
+                child++;
+            }
+            pages[page] = child;
+        }
+        return pages;
+    }
+
+    /**
+     * @return The child of the given node for the given codepoint, or {@link #NO_NODE}
+     */
+    int getChild(final int node, final int codepoint) {
+        if (node == ROOT) {
+            final int page = codepoint >>> ROOT_PAGE_SHIFT;
+            if (page >= mRootPages.length - 1) {
+                return NO_NODE;
+            }
+            final int child = binarySearch(mRootCodepoints, mRootPages[page],
+                    mRootPages[page + 1] - 1, codepoint);
+            return child == NO_NODE ? NO_NODE : (child + 1) << SUBTREE_SHIFT;
+        }
+        final Subtree subtree = getSubtree(node);
+        final int localNode = node & (MAX_SUBTREE_NODE_COUNT - 1);
+        final int child = binarySearch(subtree.mCodepoints, subtree.mFirstChild[localNode],
+                subtree.mFirstChild[localNode + 1] - 1, codepoint);
+        return child == NO_NODE ? NO_NODE : (node & ~(MAX_SUBTREE_NODE_COUNT - 1)) | child;
+    }
+
+    private static int binarySearch(final int[] codepoints, int low, int high,
+            final int codepoint) {
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midCodepoint = codepoints[mid];
+            if (midCodepoint < codepoint) {
+                low = mid + 1;
+            } else if (midCodepoint > codepoint) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * @return The emoji which ends at the given node, or null
+     */
+    @Nullable
+    EmojiMetadata getData(final int node) {
+        if (node == ROOT) {
+            return null;
+        }
+        return getSubtree(node).mData[node & (MAX_SUBTREE_NODE_COUNT - 1)];
+    }
+
+    /**
+     * @return All the emojis the trie was built from, in their order
+     */
+    @NonNull
+    EmojiMetadata[] getMetadata() {
+        synchronized (mSubtrees) {
+            final EmojiMetadata[] metadata = new EmojiMetadata[mEntries.size()];
+            for (int i = 0; i < metadata.length; i++) {
+                metadata[i] = mEntries.getMetadata(i);
+            }
+            return metadata;
+        }
+    }
+
+    private Subtree getSubtree(final int node) {
+        final int rootChild = (node >>> SUBTREE_SHIFT) - 1;
+        Subtree subtree = mSubtrees.get(rootChild);
+        if (subtree == null) {
+            synchronized (mSubtrees) {
+                subtree = mSubtrees.get(rootChild);
+                if (subtree == null) {
+                    subtree = new Subtree(mEntries, mRootEntries, mRootEntryStart[rootChild],
+                            mRootEntryStart[rootChild + 1]);
+                    mSubtrees.set(rootChild, subtree);
+                }
+            }
+        }
+        return subtree;
+    }
+
+    static int compareCodepoints(final int[] lhs, final int[] rhs) {
+        final int length = Math.min(lhs.length, rhs.length);
+        for (int i = 0; i < length; i++) {
+            if (lhs[i] != rhs[i]) {
+                return lhs[i] < rhs[i] ? -1 : 1;
+            }
+        }
+        return lhs.length - rhs.length;
+    }
+
+    /**
+     * The nodes under a child of the root, which is node 0, numbered in breadth first order.
+     */
+    private static final class Subtree {
+        /**
+         * Codepoint which leads to each node from its parent.
+         */
+        final int[] mCodepoints;
+
+        /**
+         * The children of node n are the nodes from {@code mFirstChild[n]} to
+         * {@code mFirstChild[n + 1]}, exclusive.
+         */
+        final int[] mFirstChild;
+
+        /**
+         * The emoji which ends at each node, or null.
+         */
+        final EmojiMetadata[] mData;
+
+        /**
+         * Builds the subtree of the emojis {@code entryIndices[start]} to
+         * {@code entryIndices[end]}, exclusive, which all have the same first codepoint.
+         */
+        Subtree(final Entries entries, final int[] entryIndices, final int start,
+                final int end) {
+            final int count = end - start;
+            final int[][] codepoints = new int[count][];
+            int maxNodeCount = 1;
+            for (int i = 0; i < count; i++) {
+                final int index = entryIndices[start + i];
+                final int length = entries.getCodepointsLength(index);
+                codepoints[i] = new int[length];
+                for (int j = 0; j < length; j++) {
+                    codepoints[i][j] = entries.getCodepointAt(index, j);
+                }
+                maxNodeCount += length - 1;
+            }
+            Preconditions.checkState(maxNodeCount <= MAX_SUBTREE_NODE_COUNT,
+                    "too many emojis with the same start codepoint");
+
+            // Sorted by codepoints, the emojis under a node are consecutive, and so are the ones
+            // under each of its children. The sort is stable, so the last of equal emojis stays
+            // last.
+            final Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer lhs, Integer rhs) {
+                    return compareCodepoints(codepoints[lhs], codepoints[rhs]);
+                }
+            });
+
+            int[] nodeCodepoints = new int[maxNodeCount];
+            int[] firstChild = new int[maxNodeCount + 1];
+            EmojiMetadata[] data = new EmojiMetadata[maxNodeCount];
+            // The range of sorted emojis under each node and its depth, only needed while
+            // building.
+            int[] rangeStart = new int[maxNodeCount];
+            int[] rangeEnd = new int[maxNodeCount];
+            int[] depths = new int[maxNodeCount];
+            nodeCodepoints[0] = count > 0 ? codepoints[0][0] : 0;
+            rangeEnd[0] = count;
+            depths[0] = 1;
+            int nodeCount = 1;
+            for (int node = 0; node < nodeCount; node++) {
+                final int depth = depths[node];
+                int i = rangeStart[node];
+                final int rangeEndIndex = rangeEnd[node];
+                // Emojis ending at this node sort before the longer ones.
+                while (i < rangeEndIndex && codepoints[order[i]].length == depth) {
+                    data[node] = entries.getMetadata(entryIndices[start + order[i]]);
+                    i++;
+                }
+                firstChild[node] = nodeCount;
+                while (i < rangeEndIndex) {
+                    final int codepoint = codepoints[order[i]][depth];
+                    final int child = nodeCount++;
+                    nodeCodepoints[child] = codepoint;
+                    depths[child] = depth + 1;
+                    rangeStart[child] = i;
+                    while (i < rangeEndIndex && codepoints[order[i]][depth] == codepoint) {
+                        i++;
+                    }
+                    rangeEnd[child] = i;
+                }
+            }
+            firstChild[nodeCount] = nodeCount;
+
+            mCodepoints = Arrays.copyOf(nodeCodepoints, nodeCount);
+            mFirstChild = Arrays.copyOf(firstChild, nodeCount + 1);
+            mData = Arrays.copyOf(data, nodeCount);
+        }
+    }
+
+    /**
+     * Entries backed by an array of metadata.
+     */
+    private static final class ArrayEntries implements Entries {
+        private final EmojiMetadata[] mMetadata;
+
+        ArrayEntries(final EmojiMetadata[] metadata) {
+            mMetadata = metadata;
+        }
+
+        @Override
+        public int size() {
+            return mMetadata.length;
+        }
+
+        @Override
+        public int getCodepointsLength(final int index) {
+            return mMetadata[index].getCodepointsLength();
+        }
+
+        @Override
+        public int getCodepointAt(final int index, final int position) {
+            return mMetadata[index].getCodepointAt(position);
+        }
+
+        @NonNull
+        @Override
+        public EmojiMetadata getMetadata(final int index) {
+            return mMetadata[index];
+        }
+    }
+}
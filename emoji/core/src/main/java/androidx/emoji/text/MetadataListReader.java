@@ -17,18 +17,23 @@ package androidx.emoji.text;
 
 import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
 
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.IntRange;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.text.emoji.flatbuffer.MetadataList;
 
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 /**
  * Reads the emoji metadata from a given InputStream or ByteBuffer.
@@ -96,7 +101,9 @@ class MetadataListReader {
     }
 
     /**
-     * Construct MetadataList from an asset.
+     * Construct MetadataList from an asset. The asset is memory mapped if it is stored
+     * uncompressed, so that only the parts of the metadata which are used are paged in. Otherwise
+     * the metadata is read into memory.
      *
      * @param assetManager AssetManager instance
      * @param assetPath asset manager path of the file that the Typeface and metadata will be
@@ -104,11 +111,39 @@ class MetadataListReader {
      */
     static MetadataList read(AssetManager assetManager, String assetPath)
             throws IOException {
+        final ByteBuffer mappedAsset = mmap(assetManager, assetPath);
+        if (mappedAsset != null) {
+            return read(mappedAsset);
+        }
         try (InputStream inputStream = assetManager.open(assetPath)) {
             return read(inputStream);
         }
     }
 
+    /**
+     * Memory maps an asset, which stays mapped after the file is closed.
+     *
+     * @return the mapped asset, or {@code null} if the asset is compressed and cannot be mapped
+     */
+    @Nullable
+    private static ByteBuffer mmap(AssetManager assetManager, String assetPath)
+            throws IOException {
+        final AssetFileDescriptor fileDescriptor;
+        try {
+            fileDescriptor = assetManager.openFd(assetPath);
+        } catch (FileNotFoundException e) {
+            // thrown for compressed assets
+            return null;
+        }
+        try (FileInputStream inputStream =
+                     new FileInputStream(fileDescriptor.getFileDescriptor())) {
+            return inputStream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    fileDescriptor.getStartOffset(), fileDescriptor.getLength());
+        } finally {
+            fileDescriptor.close();
+        }
+    }
+
     /**
      * Finds the start offset and length of the emoji metadata in the font.
      *
@@ -19,19 +19,21 @@ import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
 
 import android.content.res.AssetManager;
 import android.graphics.Typeface;
-import android.util.SparseArray;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
+import androidx.core.os.TraceCompat;
 import androidx.core.util.Preconditions;
+import androidx.text.emoji.flatbuffer.MetadataItem;
 import androidx.text.emoji.flatbuffer.MetadataList;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Class to hold the emoji metadata required to process and draw emojis.
@@ -39,10 +41,10 @@ import java.nio.ByteBuffer;
 @AnyThread
 @RequiresApi(19)
 public final class MetadataRepo {
-    /**
-     * The default children size of the root node.
-     */
-    private static final int DEFAULT_ROOT_SIZE = 1024;
+    private static final String S_TRACE_CREATE_REPO = "EmojiCompat.MetadataRepo.create";
+    private static final String S_TRACE_READ_METADATA = "EmojiCompat.MetadataRepo.readMetadata";
+    private static final String S_TRACE_CONSTRUCT_INDEX =
+            "EmojiCompat.MetadataRepo.constructIndex";
 
     /**
      * MetadataList that contains the emoji metadata.
@@ -51,14 +53,16 @@ public final class MetadataRepo {
 
     /**
      * char presentation of all EmojiMetadata's in a single array. All emojis we have are mapped to
-     * Private Use Area A, in the range U+F0000..U+FFFFD. Therefore each emoji takes 2 chars.
+     * Private Use Area A, in the range U+F0000..U+FFFFD. Therefore each emoji takes 2 chars. The
+     * chars of an emoji are filled in when its EmojiMetadata is created.
      */
     private final char[] mEmojiCharArray;
 
     /**
-     * Empty root node of the trie.
+     * Trie of the emoji codepoints, built lazily. Only replaced by {@link #put(EmojiMetadata)}, in
+     * tests.
      */
-    private final Node mRootNode;
+    private EmojiTrie mTrie;
 
     /**
      * Typeface to be used to render emojis.
@@ -74,7 +78,7 @@ public final class MetadataRepo {
     MetadataRepo() {
         mTypeface = null;
         mMetadataList = null;
-        mRootNode = new Node(DEFAULT_ROOT_SIZE);
+        mTrie = new EmojiTrie(new EmojiMetadata[0]);
         mEmojiCharArray = new char[0];
     }
 
@@ -88,7 +92,6 @@ public final class MetadataRepo {
             @NonNull final MetadataList metadataList) {
         mTypeface = typeface;
         mMetadataList = metadataList;
-        mRootNode = new Node(DEFAULT_ROOT_SIZE);
         mEmojiCharArray = new char[mMetadataList.listLength() * 2];
         constructIndex(mMetadataList);
     }
@@ -102,7 +105,12 @@ public final class MetadataRepo {
      */
     public static MetadataRepo create(@NonNull final Typeface typeface,
             @NonNull final InputStream inputStream) throws IOException {
-        return new MetadataRepo(typeface, MetadataListReader.read(inputStream));
+        try {
+            TraceCompat.beginSection(S_TRACE_CREATE_REPO);
+            return new MetadataRepo(typeface, readMetadata(inputStream));
+        } finally {
+            TraceCompat.endSection();
+        }
     }
 
     /**
@@ -114,11 +122,17 @@ public final class MetadataRepo {
      */
     public static MetadataRepo create(@NonNull final Typeface typeface,
             @NonNull final ByteBuffer byteBuffer) throws IOException {
-        return new MetadataRepo(typeface, MetadataListReader.read(byteBuffer));
+        try {
+            TraceCompat.beginSection(S_TRACE_CREATE_REPO);
+            return new MetadataRepo(typeface, readMetadata(byteBuffer));
+        } finally {
+            TraceCompat.endSection();
+        }
     }
 
     /**
-     * Construct MetadataRepo from an asset.
+     * Construct MetadataRepo from an asset. If the asset is stored uncompressed, the metadata is
+     * memory mapped rather than read into memory.
      *
      * @param assetManager AssetManager instance
      * @param assetPath asset manager path of the file that the Typeface and metadata will be
@@ -126,22 +140,53 @@ public final class MetadataRepo {
      */
     public static MetadataRepo create(@NonNull final AssetManager assetManager,
             final String assetPath) throws IOException {
-        final Typeface typeface = Typeface.createFromAsset(assetManager, assetPath);
-        return new MetadataRepo(typeface, MetadataListReader.read(assetManager, assetPath));
+        try {
+            TraceCompat.beginSection(S_TRACE_CREATE_REPO);
+            final Typeface typeface = Typeface.createFromAsset(assetManager, assetPath);
+            return new MetadataRepo(typeface, readMetadata(assetManager, assetPath));
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    private static MetadataList readMetadata(final InputStream inputStream) throws IOException {
+        try {
+            TraceCompat.beginSection(S_TRACE_READ_METADATA);
+            return MetadataListReader.read(inputStream);
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    private static MetadataList readMetadata(final ByteBuffer byteBuffer) throws IOException {
+        try {
+            TraceCompat.beginSection(S_TRACE_READ_METADATA);
+            return MetadataListReader.read(byteBuffer);
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    private static MetadataList readMetadata(final AssetManager assetManager,
+            final String assetPath) throws IOException {
+        try {
+            TraceCompat.beginSection(S_TRACE_READ_METADATA);
+            return MetadataListReader.read(assetManager, assetPath);
+        } finally {
+            TraceCompat.endSection();
+        }
     }
 
     /**
-     * Read emoji metadata list and construct the trie.
+     * Construct the root of the trie, which only reads the first codepoint of each emoji. The rest
+     * of the trie, and the EmojiMetadata, are created as the emojis are looked up.
      */
     private void constructIndex(final MetadataList metadataList) {
-        int length = metadataList.listLength();
-        for (int i = 0; i < length; i++) {
-            final EmojiMetadata metadata = new EmojiMetadata(this, i);
-            //since all emojis are mapped to a single codepoint in Private Use Area A they are 2
-            //chars wide
-            //noinspection ResultOfMethodCallIgnored
-            Character.toChars(metadata.getId(), mEmojiCharArray, i * 2);
-            put(metadata);
+        try {
+            TraceCompat.beginSection(S_TRACE_CONSTRUCT_INDEX);
+            mTrie = new EmojiTrie(new MetadataListEntries(this, metadataList));
+        } finally {
+            TraceCompat.endSection();
         }
     }
 
@@ -165,8 +210,8 @@ public final class MetadataRepo {
      * @hide
      */
     @RestrictTo(LIBRARY_GROUP_PREFIX)
-    Node getRootNode() {
-        return mRootNode;
+    EmojiTrie getTrie() {
+        return mTrie;
     }
 
     /**
@@ -186,61 +231,72 @@ public final class MetadataRepo {
     }
 
     /**
-     * Add an EmojiMetadata to the index.
+     * Add an EmojiMetadata to the index. The trie is immutable, so this rebuilds it, which is only
+     * fit for tests.
      *
      * @hide
      */
     @RestrictTo(LIBRARY_GROUP_PREFIX)
     @VisibleForTesting
     void put(@NonNull final EmojiMetadata data) {
-        Preconditions.checkNotNull(data, "emoji metadata cannot be null");
-        Preconditions.checkArgument(data.getCodepointsLength() > 0,
-                "invalid metadata codepoint length");
-
-        mRootNode.put(data, 0, data.getCodepointsLength() - 1);
+        checkMetadata(data);
+        final EmojiMetadata[] metadata = mTrie.getMetadata();
+        final EmojiMetadata[] newMetadata = Arrays.copyOf(metadata, metadata.length + 1);
+        newMetadata[metadata.length] = data;
+        mTrie = new EmojiTrie(newMetadata);
     }
 
     /**
-     * Trie node that holds mapping from emoji codepoint(s) to EmojiMetadata. A single codepoint
-     * emoji is represented by a child of the root node.
-     *
-     * @hide
+     * Reads the emojis straight from the MetadataList, and creates each EmojiMetadata once, when
+     * the trie first needs it.
      */
-    @RestrictTo(LIBRARY_GROUP_PREFIX)
-    static class Node {
-        private final SparseArray<Node> mChildren;
-        private EmojiMetadata mData;
+    private static final class MetadataListEntries implements EmojiTrie.Entries {
+        private final MetadataRepo mMetadataRepo;
+        private final MetadataList mMetadataList;
+        private final EmojiMetadata[] mMetadata;
+        // EmojiTrie accesses the entries from one thread at a time.
+        private final MetadataItem mMetadataItem = new MetadataItem();
 
-        private Node() {
-            this(1);
+        MetadataListEntries(final MetadataRepo metadataRepo, final MetadataList metadataList) {
+            mMetadataRepo = metadataRepo;
+            mMetadataList = metadataList;
+            mMetadata = new EmojiMetadata[metadataList.listLength()];
         }
 
-        @SuppressWarnings("WeakerAccess") /* synthetic access */
-        Node(final int defaultChildrenSize) {
-            mChildren = new SparseArray<>(defaultChildrenSize);
+        @Override
+        public int size() {
+            return mMetadata.length;
         }
 
-        Node get(final int key) {
-            return mChildren == null ? null : mChildren.get(key);
+        @Override
+        public int getCodepointsLength(final int index) {
+            return mMetadataList.list(mMetadataItem, index).codepointsLength();
         }
 
-        final EmojiMetadata getData() {
-            return mData;
+        @Override
+        public int getCodepointAt(final int index, final int position) {
+            return mMetadataList.list(mMetadataItem, index).codepoints(position);
         }
 
-        @SuppressWarnings("WeakerAccess") /* synthetic access */
-        void put(@NonNull final EmojiMetadata data, final int start, final int end) {
-            Node node = get(data.getCodepointAt(start));
-            if (node == null) {
-                node = new Node();
-                mChildren.put(data.getCodepointAt(start), node);
-            }
-
-            if (end > start) {
-                node.put(data, start + 1, end);
-            } else {
-                node.mData = data;
+        @NonNull
+        @Override
+        public EmojiMetadata getMetadata(final int index) {
+            EmojiMetadata metadata = mMetadata[index];
+            if (metadata == null) {
+                metadata = new EmojiMetadata(mMetadataRepo, index);
+                //since all emojis are mapped to a single codepoint in Private Use Area A they are
+                //2 chars wide
+                //noinspection ResultOfMethodCallIgnored
+                Character.toChars(metadata.getId(), mMetadataRepo.mEmojiCharArray, index * 2);
+                mMetadata[index] = metadata;
             }
+            return metadata;
         }
     }
+
+    private static void checkMetadata(final EmojiMetadata data) {
+        Preconditions.checkNotNull(data, "emoji metadata cannot be null");
+        Preconditions.checkArgument(data.getCodepointsLength() > 0,
+                "invalid metadata codepoint length");
+    }
 }
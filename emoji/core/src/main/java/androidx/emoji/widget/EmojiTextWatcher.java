@@ -20,24 +20,38 @@ import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
 import android.text.Editable;
 import android.text.Selection;
 import android.text.Spannable;
+import android.text.Spanned;
 import android.widget.EditText;
 
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.emoji.text.EmojiCompat;
 import androidx.emoji.text.EmojiCompat.InitCallback;
+import androidx.emoji.text.EmojiSpan;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 
 /**
  * TextWatcher used for an EditText.
+ * <p>
+ * Only the codepoints around each edit are processed. The text before the edit has already been
+ * processed, so the EmojiSpans in it mark where emojis start and end. Text typed right after an
+ * EmojiSpan is processed together with it by {@link EmojiCompat#process}, and text which can only
+ * continue an emoji sequence, such as a variation selector or a skin tone, is processed together
+ * with the codepoints typed before it, up to the previous EmojiSpan.
  *
  * @hide
  */
 @RestrictTo(LIBRARY_GROUP_PREFIX)
 @RequiresApi(19)
 final class EmojiTextWatcher implements android.text.TextWatcher {
+    /**
+     * Maximum number of chars before an edit which are processed again with it, longer than any
+     * emoji sequence.
+     */
+    static final int MAX_LOOKBACK_LENGTH = 16;
+
     private final EditText mEditText;
     private InitCallback mInitCallback;
     private int mMaxEmojiCount = EditTextAttributeHelper.MAX_EMOJI_COUNT;
@@ -76,7 +90,8 @@ final class EmojiTextWatcher implements android.text.TextWatcher {
             switch (EmojiCompat.get().getLoadState()){
                 case EmojiCompat.LOAD_STATE_SUCCEEDED:
                     final Spannable s = (Spannable) charSequence;
-                    EmojiCompat.get().process(s, start, start + after, mMaxEmojiCount,
+                    final int processStart = after > 0 ? getProcessStart(s, start) : start;
+                    EmojiCompat.get().process(s, processStart, start + after, mMaxEmojiCount,
                             mEmojiReplaceStrategy);
                     break;
                 case EmojiCompat.LOAD_STATE_LOADING:
@@ -90,6 +105,60 @@ final class EmojiTextWatcher implements android.text.TextWatcher {
         }
     }
 
+    /**
+     * Returns where to start processing text inserted at the given offset. If the inserted text
+     * starts with a codepoint which can only continue an emoji sequence, the codepoints before it
+     * are processed again back to the previous EmojiSpan, which anchors the emojis before it. An
+     * EmojiSpan ending at the offset is processed again as well, since the inserted codepoint
+     * may continue its emoji.
+     */
+    static int getProcessStart(final Spanned text, final int start) {
+        if (start == 0 || start >= text.length()
+                || !isSequenceContinuation(Character.codePointAt(text, start))) {
+            return start;
+        }
+        int processStart = Math.max(0, start - MAX_LOOKBACK_LENGTH);
+        final int anchor = getAnchor(text, processStart, start);
+        if (anchor >= 0) {
+            processStart = anchor;
+        } else if (processStart > 0
+                && Character.isLowSurrogate(text.charAt(processStart))
+                && Character.isHighSurrogate(text.charAt(processStart - 1))) {
+            processStart++;
+        }
+        return processStart;
+    }
+
+    /**
+     * Returns the end of the last EmojiSpan before the given end, or its start if it ends at the
+     * given end, or -1 if there is no such span.
+     */
+    private static int getAnchor(final Spanned text, final int start, final int end) {
+        int lastStart = -1;
+        int lastEnd = -1;
+        final EmojiSpan[] spans = text.getSpans(start, end, EmojiSpan.class);
+        for (int i = 0; i < spans.length; i++) {
+            final int spanEnd = Math.min(end, text.getSpanEnd(spans[i]));
+            if (spanEnd > lastEnd) {
+                lastEnd = spanEnd;
+                lastStart = text.getSpanStart(spans[i]);
+            }
+        }
+        return lastEnd == end ? lastStart : lastEnd;
+    }
+
+    /**
+     * Returns whether the codepoint cannot start an emoji but can continue one: zero width joiner,
+     * variation selector, combining enclosing keycap, skin tone modifier or tag.
+     */
+    private static boolean isSequenceContinuation(final int codePoint) {
+        return codePoint == 0x200D
+                || codePoint == 0xFE0F
+                || codePoint == 0x20E3
+                || (codePoint >= 0x1F3FB && codePoint <= 0x1F3FF)
+                || (codePoint >= 0xE0020 && codePoint <= 0xE007F);
+    }
+
     @Override
     public void beforeTextChanged(CharSequence s, int start, int count, int after) {
         // do nothing
@@ -41,7 +41,8 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <p>
  * During a span change event WatcherWrapper’s functions are fired, it checks if the span is an
  * EmojiSpan, and prevents the ChangeWatcher being fired for that span. WatcherWrapper informs
- * ChangeWatcher only once at the end of the edit. Important point is, the block operation is
+ * ChangeWatcher only once at the end of the edit, for the range where EmojiSpans changed, so that
+ * only the lines around the edit are laid out again. Important point is, the block operation is
  * applied only for EmojiSpans. Therefore any other span change operation works the same way as in
  * the framework.
  *
@@ -258,6 +259,9 @@ public final class SpannableBuilder extends SpannableStringBuilder {
     @RestrictTo(LIBRARY_GROUP_PREFIX)
     public void beginBatchEdit() {
         blockWatchers();
+        for (int i = 0; i < mWatchers.size(); i++) {
+            mWatchers.get(i).clearChangedRange();
+        }
     }
 
     /**
@@ -288,12 +292,11 @@ public final class SpannableBuilder extends SpannableStringBuilder {
     }
 
     /**
-     * Unblock all watcher wrapper events. Called by editing operations, namely
-     * {@link SpannableStringBuilder#replace(int, int, CharSequence)}.
+     * Informs the watchers of the range where EmojiSpans changed during the batch edit, if any.
      */
     private void fireWatchers() {
         for (int i = 0; i < mWatchers.size(); i++) {
-            mWatchers.get(i).onTextChanged(this, 0, this.length(), this.length());
+            mWatchers.get(i).fireChangedRange(this);
         }
     }
 
@@ -363,6 +366,9 @@ public final class SpannableBuilder extends SpannableStringBuilder {
         @SuppressWarnings("WeakerAccess") /* synthetic access */
         final Object mObject;
         private final AtomicInteger mBlockCalls = new AtomicInteger(0);
+        // Range of the EmojiSpans which were added, removed or changed while calls were blocked.
+        private int mChangedStart = Integer.MAX_VALUE;
+        private int mChangedEnd = -1;
 
         WatcherWrapper(Object object) {
             this.mObject = object;
@@ -390,6 +396,7 @@ public final class SpannableBuilder extends SpannableStringBuilder {
         @Override
         public void onSpanAdded(Spannable text, Object what, int start, int end) {
             if (mBlockCalls.get() > 0 && isEmojiSpan(what)) {
+                addChangedRange(start, end);
                 return;
             }
             ((SpanWatcher) mObject).onSpanAdded(text, what, start, end);
@@ -402,6 +409,7 @@ public final class SpannableBuilder extends SpannableStringBuilder {
         @Override
         public void onSpanRemoved(Spannable text, Object what, int start, int end) {
             if (mBlockCalls.get() > 0 && isEmojiSpan(what)) {
+                addChangedRange(start, end);
                 return;
             }
             ((SpanWatcher) mObject).onSpanRemoved(text, what, start, end);
@@ -415,6 +423,8 @@ public final class SpannableBuilder extends SpannableStringBuilder {
         public void onSpanChanged(Spannable text, Object what, int ostart, int oend, int nstart,
                 int nend) {
             if (mBlockCalls.get() > 0 && isEmojiSpan(what)) {
+                addChangedRange(ostart, oend);
+                addChangedRange(nstart, nend);
                 return;
             }
             ((SpanWatcher) mObject).onSpanChanged(text, what, ostart, oend, nstart, nend);
@@ -428,6 +438,29 @@ public final class SpannableBuilder extends SpannableStringBuilder {
             mBlockCalls.decrementAndGet();
         }
 
+        private void addChangedRange(final int start, final int end) {
+            mChangedStart = Math.min(mChangedStart, start);
+            mChangedEnd = Math.max(mChangedEnd, end);
+        }
+
+        final void clearChangedRange() {
+            mChangedStart = Integer.MAX_VALUE;
+            mChangedEnd = -1;
+        }
+
+        /**
+         * Informs the wrapped watcher that the text in the changed range was replaced by itself,
+         * which makes DynamicLayout lay out the lines of that range again.
+         */
+        final void fireChangedRange(final Spannable text) {
+            final int start = Math.max(0, mChangedStart);
+            final int end = Math.min(text.length(), mChangedEnd);
+            clearChangedRange();
+            if (start < end) {
+                onTextChanged(text, start, end - start, end - start);
+            }
+        }
+
         private boolean isEmojiSpan(final Object span) {
             return span instanceof EmojiSpan;
         }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.emoji.benchmark
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.emoji.bundled.BundledEmojiCompatConfig
+import androidx.emoji.text.EmojiCompat
+import androidx.emoji.text.MetadataRepo
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import org.junit.Assert.assertEquals
+import org.junit.BeforeClass
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures loading the emoji metadata, which builds the emoji trie, and processing long messages,
+ * which walks the trie for every codepoint.
+ */
+@LargeTest
+@SdkSuppress(minSdkVersion = 19)
+@RunWith(AndroidJUnit4::class)
+class EmojiProcessBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @Test
+    fun createMetadataRepo() {
+        val assets = ApplicationProvider.getApplicationContext<Context>().assets
+        benchmarkRule.measureRepeated {
+            MetadataRepo.create(assets, FONT_NAME)
+        }
+    }
+
+    @Test
+    fun process_textOnly() {
+        val text = "The quick brown fox jumps over the lazy dog. ".repeat(100)
+        benchmarkRule.measureRepeated {
+            EmojiCompat.get().process(text)
+        }
+    }
+
+    @Test
+    fun process_mixed() {
+        // Single codepoint, variation selector, skin tone, keycap, flag and ZWJ sequences.
+        val text = ("Hello 😀 world ❤️ see you 👍🏽 " +
+            "at 1️⃣ 🇺🇸 👩‍💻! ").repeat(50)
+        benchmarkRule.measureRepeated {
+            EmojiCompat.get().process(text, 0, text.length, Int.MAX_VALUE,
+                EmojiCompat.REPLACE_STRATEGY_ALL)
+        }
+    }
+
+    companion object {
+        private const val FONT_NAME = "NotoColorEmojiCompat.ttf"
+
+        @JvmStatic
+        @BeforeClass
+        fun initEmojiCompat() {
+            val latch = CountDownLatch(1)
+            val config = BundledEmojiCompatConfig(ApplicationProvider.getApplicationContext())
+                .registerInitCallback(object : EmojiCompat.InitCallback() {
+                    override fun onInitialized() {
+                        latch.countDown()
+                    }
+                })
+            EmojiCompat.init(config)
+            latch.await(10, TimeUnit.SECONDS)
+            assertEquals(EmojiCompat.LOAD_STATE_SUCCEEDED, EmojiCompat.get().loadState)
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.benchmark
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.Color
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.exifinterface.media.ExifBatchReader
+import androidx.exifinterface.media.ExifInterface
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.AfterClass
+import org.junit.BeforeClass
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Measures reading a few tags from a corpus of JPEG images, as when indexing a media library,
+ * with an [ExifInterface] per image and with an [ExifBatchReader].
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class ExifBatchReaderBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @Test
+    fun exifInterface() {
+        benchmarkRule.measureRepeated {
+            for (file in files) {
+                val exif = ExifInterface(file)
+                for (tag in TAGS) {
+                    exif.getAttribute(tag)
+                }
+            }
+        }
+    }
+
+    @Test
+    fun exifInterface_someTags() {
+        benchmarkRule.measureRepeated {
+            for (file in files) {
+                val exif = ExifInterface(file, TAGS)
+                for (tag in TAGS) {
+                    exif.getAttribute(tag)
+                }
+            }
+        }
+    }
+
+    @Test
+    fun batchReader() {
+        val reader = ExifBatchReader(TAGS)
+        benchmarkRule.measureRepeated {
+            reader.readFiles(files)
+        }
+    }
+
+    @Test
+    fun batchReader_parallel() {
+        val reader = ExifBatchReader(TAGS)
+        benchmarkRule.measureRepeated {
+            reader.readFiles(files, executor, PARALLELISM)
+        }
+    }
+
+    companion object {
+        private const val IMAGE_COUNT = 100
+        private const val IMAGE_SIZE = 512
+        private const val PARALLELISM = 4
+
+        private val TAGS = setOf(
+            ExifInterface.TAG_ORIENTATION,
+            ExifInterface.TAG_DATETIME_ORIGINAL,
+            ExifInterface.TAG_MAKE,
+            ExifInterface.TAG_MODEL,
+            ExifInterface.TAG_GPS_LATITUDE,
+            ExifInterface.TAG_GPS_LONGITUDE
+        )
+
+        private lateinit var directory: File
+        private lateinit var files: List<File>
+        private lateinit var executor: ExecutorService
+
+        @JvmStatic
+        @BeforeClass
+        fun createCorpus() {
+            val context = ApplicationProvider.getApplicationContext<Context>()
+            directory = File(context.cacheDir, "exif-benchmark")
+            directory.mkdirs()
+            val bitmap = Bitmap.createBitmap(IMAGE_SIZE, IMAGE_SIZE, Bitmap.Config.ARGB_8888)
+            files = (0 until IMAGE_COUNT).map { i ->
+                bitmap.eraseColor(Color.rgb(i, 255 - i, i * 2 % 256))
+                val file = File(directory, "image$i.jpg")
+                file.outputStream().use { bitmap.compress(Bitmap.CompressFormat.JPEG, 90, it) }
+                ExifInterface(file).apply {
+                    setAttribute(ExifInterface.TAG_ORIENTATION, (i % 8 + 1).toString())
+                    setAttribute(ExifInterface.TAG_DATETIME_ORIGINAL, "2020:01:01 12:00:00")
+                    setAttribute(ExifInterface.TAG_MAKE, "Make")
+                    setAttribute(ExifInterface.TAG_MODEL, "Model $i")
+                    setAttribute(ExifInterface.TAG_EXPOSURE_TIME, "0.01")
+                    setAttribute(ExifInterface.TAG_F_NUMBER, "2.8")
+                    setAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION, "Image $i")
+                    setLatLong(37.0 + i / 100.0, -122.0 - i / 100.0)
+                    saveAttributes()
+                }
+                file
+            }
+            bitmap.recycle()
+            executor = Executors.newFixedThreadPool(PARALLELISM)
+        }
+
+        @JvmStatic
+        @AfterClass
+        fun deleteCorpus() {
+            executor.shutdown()
+            directory.deleteRecursively()
+        }
+    }
+}
@@ -53,6 +53,7 @@ import org.junit.runner.RunWith;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.Closeable;
+import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileDescriptor;
@@ -63,8 +64,16 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -759,6 +768,184 @@ public class ExifInterfaceTest {
         assertEquals(isoValue, exif.getAttribute(newTag));
     }
 
+    @Test
+    @LargeTest
+    public void testSaveAttributes_inPlace() throws IOException {
+        File imageFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_MM);
+        ExifInterface exif = new ExifInterface(imageFile);
+        exif.saveAttributes();
+        final long length = imageFile.length();
+
+        // Changing a value of the same size is saved within the Exif segment.
+        exif = new ExifInterface(imageFile);
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION,
+                Integer.toString(ExifInterface.ORIENTATION_ROTATE_270));
+        exif.setAttribute(ExifInterface.TAG_MAKE, "abc");
+        exif.saveAttributes();
+        assertEquals(length, imageFile.length());
+
+        exif = new ExifInterface(imageFile);
+        assertEquals(ExifInterface.ORIENTATION_ROTATE_270,
+                exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, 0));
+        assertEquals("abc", exif.getAttribute(ExifInterface.TAG_MAKE));
+
+        // Values which do not fit in the segment are saved by rewriting the file.
+        final char[] description = new char[4096];
+        Arrays.fill(description, 'a');
+        exif.setAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION, new String(description));
+        exif.saveAttributes();
+        assertTrue(imageFile.length() > length);
+
+        exif = new ExifInterface(imageFile);
+        assertEquals(new String(description),
+                exif.getAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION));
+        assertEquals(ExifInterface.ORIENTATION_ROTATE_270,
+                exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, 0));
+        Bitmap bitmap = BitmapFactory.decodeFile(imageFile.getAbsolutePath());
+        assertNotNull(bitmap);
+    }
+
+    @Test
+    @LargeTest
+    public void testReadSomeTags() throws IOException {
+        final Set<String> tags = new HashSet<>(Arrays.asList(ExifInterface.TAG_ORIENTATION,
+                ExifInterface.TAG_DATETIME, ExifInterface.TAG_GPS_LATITUDE,
+                ExifInterface.TAG_ISO_SPEED_RATINGS));
+        final String[] fileNames = {JPEG_WITH_EXIF_BYTE_ORDER_II, JPEG_WITH_EXIF_BYTE_ORDER_MM,
+                JPEG_WITH_EXIF_WITH_XMP, DNG_WITH_EXIF_WITH_XMP, PNG_WITH_EXIF_BYTE_ORDER_II,
+                WEBP_WITH_EXIF};
+        for (String fileName : fileNames) {
+            File imageFile = getFileFromExternalDir(fileName);
+            ExifInterface expected = new ExifInterface(imageFile);
+            ExifInterface exif = new ExifInterface(imageFile, tags);
+            for (String tag : tags) {
+                assertEquals(fileName + " " + tag, expected.getAttribute(tag),
+                        exif.getAttribute(tag));
+            }
+            assertNull(fileName, exif.getAttribute(ExifInterface.TAG_EXPOSURE_TIME));
+            assertFalse(fileName, exif.hasThumbnail());
+
+            InputStream in = null;
+            try {
+                in = new BufferedInputStream(new FileInputStream(imageFile));
+                exif = new ExifInterface(in, tags);
+                assertEquals(fileName, expected.getAttributeInt(ExifInterface.TAG_ORIENTATION, 0),
+                        exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, -1));
+            } finally {
+                closeQuietly(in);
+            }
+        }
+    }
+
+    @Test
+    @SmallTest
+    public void testReadSomeTags_cannotSave() throws IOException {
+        File imageFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        ExifInterface exif = new ExifInterface(imageFile,
+                Collections.singleton(ExifInterface.TAG_ORIENTATION));
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION,
+                Integer.toString(ExifInterface.ORIENTATION_ROTATE_90));
+        try {
+            exif.saveAttributes();
+            fail("Saving attributes should fail when only some tags were read.");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    @LargeTest
+    public void testExifBatchReader() throws Exception {
+        final Set<String> tags = new HashSet<>(Arrays.asList(ExifInterface.TAG_ORIENTATION,
+                ExifInterface.TAG_DATETIME, ExifInterface.TAG_GPS_LATITUDE,
+                ExifInterface.TAG_MAKE, ExifInterface.TAG_IMAGE_WIDTH));
+        final List<File> files = new ArrayList<>();
+        for (String fileName : IMAGE_FILENAMES) {
+            files.add(getFileFromExternalDir(fileName));
+        }
+        files.add(getFileFromExternalDir("missing.jpg"));
+
+        final ExifBatchReader reader = new ExifBatchReader(tags);
+        final List<ExifBatchReader.Result> results = reader.readFiles(files);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        final List<ExifBatchReader.Result> parallelResults;
+        try {
+            parallelResults = reader.readFiles(files, executor, 3);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(files.size(), results.size());
+        assertEquals(files.size(), parallelResults.size());
+        for (int i = 0; i < IMAGE_FILENAMES.length; i++) {
+            ExifInterface expected = new ExifInterface(files.get(i));
+            assertTrue(IMAGE_FILENAMES[i], results.get(i).isSuccessful());
+            for (String tag : tags) {
+                assertEquals(IMAGE_FILENAMES[i] + " " + tag, expected.getAttribute(tag),
+                        results.get(i).getAttribute(tag));
+                assertEquals(IMAGE_FILENAMES[i] + " " + tag, expected.getAttribute(tag),
+                        parallelResults.get(i).getAttribute(tag));
+            }
+            assertEquals(IMAGE_FILENAMES[i],
+                    expected.getAttributeInt(ExifInterface.TAG_ORIENTATION, -1),
+                    results.get(i).getAttributeInt(ExifInterface.TAG_ORIENTATION, -1));
+            assertNull(results.get(i).getAttribute(ExifInterface.TAG_EXPOSURE_TIME));
+        }
+        assertFalse(results.get(files.size() - 1).isSuccessful());
+        assertFalse(parallelResults.get(files.size() - 1).isSuccessful());
+    }
+
+    @Test
+    @SmallTest
+    public void testExifBatchReader_corruptFiles() throws Exception {
+        final File image = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        final byte[] imageData = new byte[(int) image.length()];
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(image);
+            new DataInputStream(in).readFully(imageData);
+        } finally {
+            closeQuietly(in);
+        }
+        final File truncated = getFileFromExternalDir("truncated.jpg");
+        final File notAnImage = getFileFromExternalDir("not_an_image.jpg");
+        writeFile(truncated, Arrays.copyOf(imageData, 100));
+        writeFile(notAnImage, "This is not an image".getBytes(Charset.forName("US-ASCII")));
+
+        try {
+            final ExifBatchReader reader = new ExifBatchReader(
+                    Collections.singleton(ExifInterface.TAG_ORIENTATION));
+            final List<ExifBatchReader.Result> results =
+                    reader.readFiles(Arrays.asList(image, truncated, notAnImage));
+
+            assertTrue(results.get(0).isSuccessful());
+            assertFalse(results.get(1).isSuccessful());
+            assertNull(results.get(1).getAttribute(ExifInterface.TAG_ORIENTATION));
+            assertFalse(results.get(2).isSuccessful());
+            assertNull(results.get(2).getAttribute(ExifInterface.TAG_ORIENTATION));
+        } finally {
+            truncated.delete();
+            notAnImage.delete();
+        }
+    }
+
+    @Test
+    @SmallTest
+    public void testExifBatchReader_fileDescriptors() throws Exception {
+        final ExifBatchReader reader = new ExifBatchReader(
+                Collections.singleton(ExifInterface.TAG_ORIENTATION));
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II));
+            List<ExifBatchReader.Result> results =
+                    reader.readFileDescriptors(Collections.singletonList(in.getFD()));
+            assertEquals(ExifInterface.ORIENTATION_ROTATE_90, results.get(0).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED));
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
     private void printExifTagsAndValues(String fileName, ExifInterface exifInterface) {
         // Prints thumbnail information.
         if (exifInterface.hasThumbnail()) {
@@ -1215,6 +1402,16 @@ public class ExifInterfaceTest {
         return (short) ((ch1 << 8) + (ch2));
     }
 
+    private void writeFile(File file, byte[] data) throws IOException {
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            out.write(data);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
     private File getFileFromExternalDir(String fileName) {
         return new File(getApplicationContext().getExternalFilesDir(Environment.DIRECTORY_PICTURES),
                 fileName);
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.media;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads a fixed set of Exif tags from many images, such as when indexing a media library.
+ * <p>
+ * This is equivalent to creating an {@link ExifInterface} with
+ * {@link ExifInterface#ExifInterface(File, Set)} for each image and calling
+ * {@link ExifInterface#getAttribute(String)} for each tag, but the buffer which the image data
+ * is read through is reused from one image to the next, and only the values of the given tags
+ * are kept. Images can also be read in parallel on an {@link Executor}.
+ * <p>
+ * An instance of this class is immutable and can be shared between threads.
+ */
+public final class ExifBatchReader {
+    private static final String TAG = "ExifBatchReader";
+    private static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
+
+    // Initial size of the buffer which image data is read through.
+    private static final int BUFFER_SIZE = 8192;
+    // The buffer grows to the size of the data which is parsed, so that parsing can seek back.
+    // Larger buffers are dropped after each image rather than being kept.
+    private static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
+    private final String[] mTags;
+    private final Map<String, Integer> mTagIndices;
+    private final Set<String> mTagsToRead;
+
+    /**
+     * Creates a reader for the given Exif tags.
+     *
+     * @param tags the names of the tags to read, such as {@link ExifInterface#TAG_ORIENTATION}
+     * @throws NullPointerException if tags is null
+     */
+    public ExifBatchReader(@NonNull Set<String> tags) {
+        if (tags == null) {
+            throw new NullPointerException("tags cannot be null");
+        }
+        mTags = tags.toArray(new String[0]);
+        final Map<String, Integer> tagIndices = new HashMap<>(mTags.length * 2);
+        for (int i = 0; i < mTags.length; i++) {
+            tagIndices.put(mTags[i], i);
+        }
+        mTagIndices = Collections.unmodifiableMap(tagIndices);
+        mTagsToRead = Collections.unmodifiableSet(ExifInterface.createTagsToRead(tags));
+    }
+
+    /**
+     * Reads the tags from the given image files, one after another on the calling thread.
+     *
+     * @param files the image files to read
+     * @return the results, in the same order as the files
+     * @throws NullPointerException if files is null
+     */
+    @NonNull
+    public List<Result> readFiles(@NonNull List<File> files) {
+        if (files == null) {
+            throw new NullPointerException("files cannot be null");
+        }
+        return readAll(new FileSource(files));
+    }
+
+    /**
+     * Reads the tags from the given image files on the given executor. Up to the given number of
+     * files are read at the same time, each with its own buffer. This method blocks until all of
+     * the files have been read.
+     *
+     * @param files the image files to read
+     * @param executor the executor to read the files on
+     * @param parallelism the maximum number of files to read at the same time
+     * @return the results, in the same order as the files
+     * @throws NullPointerException if files or executor is null
+     * @throws IllegalArgumentException if parallelism is less than 1
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    @NonNull
+    public List<Result> readFiles(@NonNull List<File> files, @NonNull Executor executor,
+            int parallelism) throws InterruptedException {
+        if (files == null) {
+            throw new NullPointerException("files cannot be null");
+        }
+        return readAll(new FileSource(files), executor, parallelism);
+    }
+
+    /**
+     * Reads the tags from the given image file descriptors, one after another on the calling
+     * thread. The file descriptors are read from their current offsets and are not closed.
+     *
+     * @param fileDescriptors the file descriptors of the image data
+     * @return the results, in the same order as the file descriptors
+     * @throws NullPointerException if fileDescriptors is null
+     */
+    @NonNull
+    public List<Result> readFileDescriptors(@NonNull List<FileDescriptor> fileDescriptors) {
+        if (fileDescriptors == null) {
+            throw new NullPointerException("fileDescriptors cannot be null");
+        }
+        return readAll(new FileDescriptorSource(fileDescriptors));
+    }
+
+    /**
+     * Reads the tags from the given image file descriptors on the given executor. See
+     * {@link #readFiles(List, Executor, int)}. The file descriptors are read from their current
+     * offsets and are not closed.
+     *
+     * @param fileDescriptors the file descriptors of the image data
+     * @param executor the executor to read the file descriptors on
+     * @param parallelism the maximum number of file descriptors to read at the same time
+     * @return the results, in the same order as the file descriptors
+     * @throws NullPointerException if fileDescriptors or executor is null
+     * @throws IllegalArgumentException if parallelism is less than 1
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    @NonNull
+    public List<Result> readFileDescriptors(@NonNull List<FileDescriptor> fileDescriptors,
+            @NonNull Executor executor, int parallelism) throws InterruptedException {
+        if (fileDescriptors == null) {
+            throw new NullPointerException("fileDescriptors cannot be null");
+        }
+        return readAll(new FileDescriptorSource(fileDescriptors), executor, parallelism);
+    }
+
+    private List<Result> readAll(Source source) {
+        final Result[] results = new Result[source.size()];
+        final ReusableBufferedInputStream in = new ReusableBufferedInputStream();
+        for (int i = 0; i < results.length; i++) {
+            results[i] = source.read(in, i);
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    private List<Result> readAll(final Source source, @NonNull Executor executor,
+            int parallelism) throws InterruptedException {
+        if (executor == null) {
+            throw new NullPointerException("executor cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        final Result[] results = new Result[source.size()];
+        final int workerCount = Math.min(parallelism, results.length);
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final ReusableBufferedInputStream in = new ReusableBufferedInputStream();
+                    try {
+                        int index;
+                        while (failure.get() == null
+                                && (index = nextIndex.getAndIncrement()) < results.length) {
+                            results[index] = source.read(in, index);
+                        }
+                    } catch (RuntimeException | Error e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        done.await();
+        final Throwable throwable = failure.get();
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    Result read(ReusableBufferedInputStream in, FileInputStream fileInputStream) {
+        try {
+            in.setInputStream(fileInputStream);
+            final ExifInterface exifInterface = ExifInterface.createForBatch(in,
+                    fileInputStream.getFD(), mTagsToRead);
+            final String[] values = new String[mTags.length];
+            for (int i = 0; i < mTags.length; i++) {
+                values[i] = exifInterface.getAttribute(mTags[i]);
+            }
+            return new Result(mTagIndices, values);
+        } catch (IOException e) {
+            if (DEBUG) {
+                Log.d(TAG, "Failed to read image", e);
+            }
+            return new Result(mTagIndices, null);
+        } finally {
+            in.setInputStream(null);
+        }
+    }
+
+    private interface Source {
+        int size();
+
+        Result read(ReusableBufferedInputStream in, int index);
+    }
+
+    private final class FileSource implements Source {
+        private final List<File> mFiles;
+
+        FileSource(List<File> files) {
+            mFiles = new ArrayList<>(files);
+        }
+
+        @Override
+        public int size() {
+            return mFiles.size();
+        }
+
+        @Override
+        public Result read(ReusableBufferedInputStream in, int index) {
+            FileInputStream fileInputStream = null;
+            try {
+                fileInputStream = new FileInputStream(mFiles.get(index));
+            } catch (IOException e) {
+                if (DEBUG) {
+                    Log.d(TAG, "Failed to open " + mFiles.get(index), e);
+                }
+                return new Result(mTagIndices, null);
+            }
+            try {
+                return ExifBatchReader.this.read(in, fileInputStream);
+            } finally {
+                try {
+                    fileInputStream.close();
+                } catch (IOException e) {
+                    // Nothing to do, the values have been read.
+                }
+            }
+        }
+    }
+
+    private final class FileDescriptorSource implements Source {
+        private final List<FileDescriptor> mFileDescriptors;
+
+        FileDescriptorSource(List<FileDescriptor> fileDescriptors) {
+            mFileDescriptors = new ArrayList<>(fileDescriptors);
+        }
+
+        @Override
+        public int size() {
+            return mFileDescriptors.size();
+        }
+
+        @Override
+        public Result read(ReusableBufferedInputStream in, int index) {
+            // The stream is not closed, since closing it would close the file descriptor.
+            return ExifBatchReader.this.read(in, new FileInputStream(mFileDescriptors.get(index)));
+        }
+    }
+
+    /**
+     * A {@link BufferedInputStream} which keeps its buffer when it is pointed at another input
+     * stream.
+     */
+    static final class ReusableBufferedInputStream extends BufferedInputStream {
+        ReusableBufferedInputStream() {
+            super(null, BUFFER_SIZE);
+        }
+
+        /**
+         * Starts reading from the given input stream, dropping the buffered data of the previous
+         * one.
+         */
+        void setInputStream(@Nullable InputStream in) {
+            this.in = in;
+            pos = 0;
+            count = 0;
+            markpos = -1;
+            marklimit = 0;
+            if (buf.length > MAX_REUSED_BUFFER_SIZE) {
+                buf = new byte[BUFFER_SIZE];
+            }
+        }
+
+        @Override
+        public void close() {
+            // The buffer is kept for the next input stream, which is closed by its owner.
+        }
+    }
+
+    /**
+     * The values of the tags which were read from an image by {@link ExifBatchReader}.
+     */
+    public static final class Result {
+        private final Map<String, Integer> mTagIndices;
+        @Nullable
+        private final String[] mValues;
+
+        Result(Map<String, Integer> tagIndices, @Nullable String[] values) {
+            mTagIndices = tagIndices;
+            mValues = values;
+        }
+
+        /**
+         * Returns whether the image could be read. Images which could not be opened, and corrupt,
+         * truncated or unsupported images, are unsuccessful, with no attributes. Images which
+         * could be read but contain no Exif data are successful, with no attributes.
+         */
+        public boolean isSuccessful() {
+            return mValues != null;
+        }
+
+        /**
+         * Returns the value of the specified tag as returned by
+         * {@link ExifInterface#getAttribute(String)}, or {@code null} if the image has no such
+         * tag, could not be read, or the tag is not one which the {@link ExifBatchReader} reads.
+         *
+         * @param tag the name of the tag.
+         */
+        @Nullable
+        public String getAttribute(@NonNull String tag) {
+            if (tag == null) {
+                throw new NullPointerException("tag shouldn't be null");
+            }
+            final Integer index = mTagIndices.get(tag);
+            if (mValues == null || index == null) {
+                return null;
+            }
+            return mValues[index];
+        }
+
+        /**
+         * Returns the integer value of the specified tag. If there is no such tag or the value
+         * is not an integer, the default value is returned.
+         *
+         * @param tag the name of the tag.
+         * @param defaultValue the value to return if the tag is not available.
+         */
+        public int getAttributeInt(@NonNull String tag, int defaultValue) {
+            final String value = getAttribute(tag);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+    }
+}
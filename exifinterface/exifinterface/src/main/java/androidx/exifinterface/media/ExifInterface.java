@@ -51,10 +51,12 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
@@ -3782,6 +3784,17 @@ public class ExifInterface {
     private static final HashSet<String> sTagSetForCompatibility = new HashSet<>(Arrays.asList(
             TAG_F_NUMBER, TAG_DIGITAL_ZOOM_RATIO, TAG_EXPOSURE_TIME, TAG_SUBJECT_DISTANCE,
             TAG_GPS_TIMESTAMP));
+    // Tags which are used to find the images of raw files and to tell their formats apart, so that
+    // they are read from raw files even when other tags are requested.
+    private static final HashSet<String> sTagSetForParsing = new HashSet<>(Arrays.asList(
+            TAG_NEW_SUBFILE_TYPE, TAG_SUBFILE_TYPE, TAG_IMAGE_WIDTH, TAG_IMAGE_LENGTH,
+            TAG_BITS_PER_SAMPLE, TAG_COMPRESSION, TAG_PHOTOMETRIC_INTERPRETATION, TAG_MAKE,
+            TAG_MODEL, TAG_STRIP_OFFSETS, TAG_STRIP_BYTE_COUNTS, TAG_JPEG_INTERCHANGE_FORMAT,
+            TAG_JPEG_INTERCHANGE_FORMAT_LENGTH, TAG_PIXEL_X_DIMENSION, TAG_PIXEL_Y_DIMENSION,
+            TAG_MAKER_NOTE, TAG_DNG_VERSION, TAG_DEFAULT_CROP_SIZE, TAG_ORF_THUMBNAIL_IMAGE,
+            TAG_ORF_PREVIEW_IMAGE_START, TAG_ORF_PREVIEW_IMAGE_LENGTH, TAG_ORF_ASPECT_FRAME,
+            TAG_RW2_SENSOR_BOTTOM_BORDER, TAG_RW2_SENSOR_LEFT_BORDER, TAG_RW2_SENSOR_RIGHT_BORDER,
+            TAG_RW2_SENSOR_TOP_BORDER, TAG_RW2_JPG_FROM_RAW));
     // Mappings from tag number to IFD type for pointer tags.
     @SuppressWarnings("unchecked")
     private static final HashMap<Integer, Integer> sExifPointerTagMap = new HashMap();
@@ -3819,6 +3832,13 @@ public class ExifInterface {
     static final byte MARKER_APP1 = (byte) 0xe1;
     private static final byte MARKER_COM = (byte) 0xfe;
     static final byte MARKER_EOI = (byte) 0xd9;
+    // The length field of a JPEG segment includes itself.
+    private static final int MAX_JPEG_SEGMENT_LENGTH = 0xffff;
+    // Offset of the length field of the Exif segment of the JPEG files written by this class,
+    // after the SOI and APP1 markers.
+    private static final int JPEG_EXIF_SEGMENT_OFFSET = 4;
+    // Number of bytes reserved after the Exif data of the JPEG files written by this class.
+    private static final int JPEG_EXIF_PADDING_LENGTH = 512;
 
     // Supported Image File Types
     private static final int IMAGE_TYPE_UNKNOWN = 0;
@@ -3879,6 +3899,10 @@ public class ExifInterface {
     private int mThumbnailCompression;
     // Used to indicate offset from the start of the original input stream to EXIF data
     private int mOffsetToExifData;
+    // Offset and length of the Exif segment of a JPEG file, from its length field, or -1 if the
+    // file has more than one Exif segment.
+    private int mJpegExifSegmentOffset;
+    private int mJpegExifSegmentLength;
     private int mOrfMakerNoteOffset;
     private int mOrfThumbnailOffset;
     private int mOrfThumbnailLength;
@@ -3886,6 +3910,13 @@ public class ExifInterface {
     // XMP data can be contained as either part of the EXIF data (tag number 700), or as a
     // separate data marker (a separate MARKER_APP1).
     private boolean mXmpIsFromSeparateMarker;
+    // Names of the tags to read, or null to read all of them.
+    private Set<String> mTagsToRead;
+    // Whether the tags which are used to parse raw files should be read as well.
+    private boolean mReadTagsForParsing;
+    // The exception which stopped the parsing of the image data, if any. Only kept for
+    // ExifBatchReader, ExifInterface itself ignores it for compatibility.
+    private IOException mParsingException;
 
     // Pattern to check non zero timestamp
     private static final Pattern sNonZeroTimePattern = Pattern.compile(".*[1-9].*");
@@ -3937,34 +3968,69 @@ public class ExifInterface {
         if (fileDescriptor == null) {
             throw new NullPointerException("fileDescriptor cannot be null");
         }
-        mAssetInputStream = null;
-        mFilename = null;
+        initForFileDescriptor(fileDescriptor);
+    }
 
-        boolean isFdDuped = false;
-        if (Build.VERSION.SDK_INT >= 21 && isSeekableFD(fileDescriptor)) {
-            mSeekableFileDescriptor = fileDescriptor;
-            // Keep the original file descriptor in order to save attributes when it's seekable.
-            // Otherwise, just close the given file descriptor after reading it because the save
-            // feature won't be working.
-            try {
-                fileDescriptor = Os.dup(fileDescriptor);
-                isFdDuped = true;
-            } catch (Exception e) {
-                throw new IOException("Failed to duplicate file descriptor", e);
-            }
-        } else {
-            mSeekableFileDescriptor = null;
+    /**
+     * Reads only the given Exif tags from the specified image file.
+     * <p>
+     * The entries of the other tags are skipped without reading their values, along with the tag
+     * groups which contain none of the given tags, and the thumbnail. This makes it cheaper to
+     * read a few tags, such as {@link #TAG_ORIENTATION}, from many images. The other tags are
+     * reported as missing, and {@link #hasThumbnail()} returns false. Attributes cannot be saved
+     * with {@link #saveAttributes()}, since the other tags would be lost.
+     *
+     * @param file the file of the image data
+     * @param tags the names of the tags to read
+     * @throws NullPointerException if file or tags is null
+     * @throws IOException if an I/O error occurs while retrieving file descriptor via
+     *         {@link FileInputStream#getFD()}.
+     */
+    public ExifInterface(@NonNull File file, @NonNull Set<String> tags) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file cannot be null");
         }
-        FileInputStream in = null;
-        try {
-            in = new FileInputStream(fileDescriptor);
-            loadAttributes(in);
-        } finally {
-            closeQuietly(in);
-            if (isFdDuped) {
-                closeFileDescriptor(fileDescriptor);
-            }
+        mTagsToRead = createTagsToRead(tags);
+        initForFilename(file.getAbsolutePath());
+    }
+
+    /**
+     * Reads only the given Exif tags from the specified image file descriptor. See
+     * {@link #ExifInterface(File, Set)} for the tags which are read. This constructor will not
+     * rewind the offset of the given file descriptor. Developers should close the file descriptor
+     * after use.
+     *
+     * @param fileDescriptor the file descriptor of the image data
+     * @param tags the names of the tags to read
+     * @throws NullPointerException if file descriptor or tags is null
+     * @throws IOException if an error occurs while duplicating the file descriptor via
+     *         {@link Os#dup(FileDescriptor)}.
+     */
+    public ExifInterface(@NonNull FileDescriptor fileDescriptor, @NonNull Set<String> tags)
+            throws IOException {
+        if (fileDescriptor == null) {
+            throw new NullPointerException("fileDescriptor cannot be null");
         }
+        mTagsToRead = createTagsToRead(tags);
+        initForFileDescriptor(fileDescriptor);
+    }
+
+    /**
+     * Reads only the given Exif tags from the specified image input stream. See
+     * {@link #ExifInterface(File, Set)} for the tags which are read. The given input stream will
+     * proceed from its current position. Developers should close the input stream after use.
+     * This constructor is not intended to be used with an input stream that performs any
+     * networking operations.
+     *
+     * @param inputStream the input stream that contains the image data
+     * @param tags the names of the tags to read
+     * @throws NullPointerException if the input stream or tags is null
+     * @throws IOException if an I/O error occurs while retrieving file descriptor via
+     *         {@link FileInputStream#getFD()}.
+     */
+    public ExifInterface(@NonNull InputStream inputStream, @NonNull Set<String> tags)
+            throws IOException {
+        this(inputStream, STREAM_TYPE_FULL_IMAGE_DATA, createTagsToRead(tags));
     }
 
     /**
@@ -3994,9 +4060,15 @@ public class ExifInterface {
      */
     public ExifInterface(@NonNull InputStream inputStream, @ExifStreamType int streamType)
             throws IOException {
+        this(inputStream, streamType, null);
+    }
+
+    private ExifInterface(InputStream inputStream, @ExifStreamType int streamType,
+            @Nullable Set<String> tagsToRead) throws IOException {
         if (inputStream == null) {
             throw new NullPointerException("inputStream cannot be null");
         }
+        mTagsToRead = tagsToRead;
         mFilename = null;
 
         boolean shouldBeExifDataOnly = (streamType == STREAM_TYPE_EXIF_DATA_ONLY);
@@ -4025,6 +4097,33 @@ public class ExifInterface {
         loadAttributes(inputStream);
     }
 
+    private ExifInterface(Set<String> tagsToRead) {
+        mTagsToRead = tagsToRead;
+    }
+
+    /**
+     * Reads the given Exif tags from a buffered input stream, which is not closed. Used by
+     * {@link ExifBatchReader} to share the buffer of the stream across images.
+     *
+     * @param in the buffered input stream of the image data
+     * @param fileDescriptor the file descriptor the stream reads from, or {@code null}
+     * @param tagsToRead the tags to read, as returned by {@link #createTagsToRead(Set)}
+     * @throws IOException if the image data is corrupt, truncated or not a supported format
+     */
+    static ExifInterface createForBatch(@NonNull BufferedInputStream in,
+            @Nullable FileDescriptor fileDescriptor, @NonNull Set<String> tagsToRead)
+            throws IOException {
+        final ExifInterface exifInterface = new ExifInterface(tagsToRead);
+        if (fileDescriptor != null && isSeekableFD(fileDescriptor)) {
+            exifInterface.mSeekableFileDescriptor = fileDescriptor;
+        }
+        exifInterface.loadBufferedAttributes(in);
+        if (exifInterface.mParsingException != null) {
+            throw exifInterface.mParsingException;
+        }
+        return exifInterface;
+    }
+
     /**
      * Returns whether ExifInterface currently supports reading data from the specified mime type
      * or not.
@@ -4512,6 +4611,56 @@ public class ExifInterface {
         }
     }
 
+    /**
+     * Returns the names of the tags to read for the given requested tags, including the tags which
+     * the requested ones are derived from.
+     */
+    @SuppressWarnings("deprecation")
+    static Set<String> createTagsToRead(Set<String> tags) {
+        if (tags == null) {
+            throw new NullPointerException("tags cannot be null");
+        }
+        final Set<String> tagsToRead = new HashSet<>(tags);
+        if (tags.contains(TAG_ISO_SPEED_RATINGS)) {
+            tagsToRead.add(TAG_PHOTOGRAPHIC_SENSITIVITY);
+        }
+        if (tags.contains(TAG_PHOTOGRAPHIC_SENSITIVITY)
+                || tags.contains(TAG_ISO_SPEED_RATINGS)) {
+            // Used for RW2 files without the Exif tag.
+            tagsToRead.add(TAG_RW2_ISO);
+        }
+        if (tags.contains(TAG_IMAGE_WIDTH) || tags.contains(TAG_IMAGE_LENGTH)) {
+            // Preferred over the size of the primary image, see validateImages().
+            tagsToRead.add(TAG_PIXEL_X_DIMENSION);
+            tagsToRead.add(TAG_PIXEL_Y_DIMENSION);
+        }
+        if (tags.contains(TAG_DATETIME)) {
+            // Used when the image has no DateTime tag, see addDefaultValuesForCompatibility().
+            tagsToRead.add(TAG_DATETIME_ORIGINAL);
+        }
+        return tagsToRead;
+    }
+
+    // Returns whether the value of the given tag should be read from the image.
+    private boolean shouldReadTag(String tagName) {
+        return mTagsToRead == null || mTagsToRead.contains(tagName)
+                || (mReadTagsForParsing && sTagSetForParsing.contains(tagName));
+    }
+
+    // Returns whether the given IFD may contain tags to read, so that it should be parsed.
+    private boolean shouldReadIfd(@IfdType int ifdType) {
+        if (mTagsToRead == null) {
+            return true;
+        }
+        for (ExifTag tag : EXIF_TAGS[ifdType]) {
+            if (shouldReadTag(tag.name)) {
+                return true;
+            }
+        }
+        // The interoperability IFD can only be found through the Exif IFD.
+        return ifdType == IFD_TYPE_EXIF && shouldReadIfd(IFD_TYPE_INTEROPERABILITY);
+    }
+
     /**
      * This function decides which parser to read the image data according to the given input stream
      * type and the content of the input stream.
@@ -4520,6 +4669,17 @@ public class ExifInterface {
         if (in == null) {
             throw new NullPointerException("inputstream shouldn't be null");
         }
+        if (!mIsExifDataOnly) {
+            in = new BufferedInputStream(in, SIGNATURE_CHECK_SIZE);
+        }
+        loadBufferedAttributes(in);
+    }
+
+    /**
+     * Same as {@link #loadAttributes(InputStream)}, for an input stream which is already a
+     * {@link BufferedInputStream}.
+     */
+    private void loadBufferedAttributes(@NonNull InputStream in) {
         try {
             // Initialize mAttributes.
             for (int i = 0; i < EXIF_TAGS.length; ++i) {
@@ -4528,10 +4688,14 @@ public class ExifInterface {
 
             // Check file type
             if (!mIsExifDataOnly) {
-                in = new BufferedInputStream(in, SIGNATURE_CHECK_SIZE);
                 mMimeType = getMimeType((BufferedInputStream) in);
             }
 
+            // Raw files need more tags than the requested ones to find their images.
+            mReadTagsForParsing = mTagsToRead != null && !mIsExifDataOnly
+                    && mMimeType != IMAGE_TYPE_JPEG && mMimeType != IMAGE_TYPE_HEIF
+                    && mMimeType != IMAGE_TYPE_PNG && mMimeType != IMAGE_TYPE_WEBP;
+
             // Create byte-ordered input stream
             ByteOrderedDataInputStream inputStream = new ByteOrderedDataInputStream(in);
 
@@ -4590,6 +4754,7 @@ public class ExifInterface {
         } catch (IOException e) {
             // Ignore exceptions in order to keep the compatibility with the old versions of
             // ExifInterface.
+            mParsingException = e;
             if (DEBUG) {
                 Log.w(TAG, "Invalid image: ExifInterface got an unsupported image format file"
                         + "(ExifInterface supports JPEG and some RAW image formats only) "
@@ -4637,6 +4802,10 @@ public class ExifInterface {
      * other. It's best to use {@link #setAttribute(String,String)} to set all attributes to write
      * and make a single call rather than multiple calls for each attribute.
      * <p>
+     * For JPEG files, the Exif data is overwritten in place when it fits in the original Exif
+     * segment, which avoids copying the file. Some room is reserved in the Exif segment of the
+     * JPEG files written by this method, so that later changes are more likely to fit.
+     * <p>
      * This method is supported for JPEG, PNG and WebP files.
      * <p class="note">
      * Note: after calling this method, any attempts to obtain range information
@@ -4657,6 +4826,10 @@ public class ExifInterface {
             throw new IOException(
                     "ExifInterface does not support saving attributes for the current input.");
         }
+        if (mTagsToRead != null) {
+            throw new IOException(
+                    "ExifInterface does not support saving attributes when only some were read.");
+        }
 
         // Remember the fact that we've changed the file on disk from what was
         // originally parsed, meaning we can't answer range questions
@@ -4665,6 +4838,11 @@ public class ExifInterface {
         // Keep the thumbnail in memory
         mThumbnailBytes = getThumbnail();
 
+        if (mMimeType == IMAGE_TYPE_JPEG && saveJpegAttributesInPlace()) {
+            mThumbnailBytes = null;
+            return;
+        }
+
         FileInputStream in = null;
         FileOutputStream out = null;
         File originalFile = null;
@@ -4687,7 +4865,7 @@ public class ExifInterface {
                 Os.lseek(mSeekableFileDescriptor, 0, OsConstants.SEEK_SET);
                 in = new FileInputStream(mSeekableFileDescriptor);
                 out = new FileOutputStream(tempFile);
-                copy(in, out);
+                copyRemaining(in, out);
             }
         } catch (Exception e) {
             throw new IOException("Failed to copy original file to temp file", e);
@@ -4709,14 +4887,17 @@ public class ExifInterface {
                 Os.lseek(mSeekableFileDescriptor, 0, OsConstants.SEEK_SET);
                 out = new FileOutputStream(mSeekableFileDescriptor);
             }
-            bufferedIn = new BufferedInputStream(in);
-            bufferedOut = new BufferedOutputStream(out);
             if (mMimeType == IMAGE_TYPE_JPEG) {
-                saveJpegAttributes(bufferedIn, bufferedOut);
-            } else if (mMimeType == IMAGE_TYPE_PNG) {
-                savePngAttributes(bufferedIn, bufferedOut);
-            } else if (mMimeType == IMAGE_TYPE_WEBP) {
-                saveWebpAttributes(bufferedIn, bufferedOut);
+                // Not buffered, so that the image data can be transferred between the files.
+                saveJpegAttributes(in, out);
+            } else {
+                bufferedIn = new BufferedInputStream(in);
+                bufferedOut = new BufferedOutputStream(out);
+                if (mMimeType == IMAGE_TYPE_PNG) {
+                    savePngAttributes(bufferedIn, bufferedOut);
+                } else if (mMimeType == IMAGE_TYPE_WEBP) {
+                    saveWebpAttributes(bufferedIn, bufferedOut);
+                }
             }
         } catch (Exception e) {
             if (mFilename != null) {
@@ -4729,6 +4910,8 @@ public class ExifInterface {
         } finally {
             closeQuietly(bufferedIn);
             closeQuietly(bufferedOut);
+            closeQuietly(in);
+            closeQuietly(out);
             tempFile.delete();
         }
 
@@ -5214,6 +5397,37 @@ public class ExifInterface {
         }
     }
 
+    private void initForFileDescriptor(FileDescriptor fileDescriptor) throws IOException {
+        mAssetInputStream = null;
+        mFilename = null;
+
+        boolean isFdDuped = false;
+        if (Build.VERSION.SDK_INT >= 21 && isSeekableFD(fileDescriptor)) {
+            mSeekableFileDescriptor = fileDescriptor;
+            // Keep the original file descriptor in order to save attributes when it's seekable.
+            // Otherwise, just close the given file descriptor after reading it because the save
+            // feature won't be working.
+            try {
+                fileDescriptor = Os.dup(fileDescriptor);
+                isFdDuped = true;
+            } catch (Exception e) {
+                throw new IOException("Failed to duplicate file descriptor", e);
+            }
+        } else {
+            mSeekableFileDescriptor = null;
+        }
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(fileDescriptor);
+            loadAttributes(in);
+        } finally {
+            closeQuietly(in);
+            if (isFdDuped) {
+                closeFileDescriptor(fileDescriptor);
+            }
+        }
+    }
+
     private static double convertRationalLatLonToDouble(String rationalString, String ref) {
         try {
             String [] parts = rationalString.split(",", -1);
@@ -5507,6 +5721,7 @@ public class ExifInterface {
         in.setByteOrder(ByteOrder.BIG_ENDIAN);
 
         int bytesRead = 0;
+        boolean hasReadExif = false;
 
         byte marker;
         if ((marker = in.readByte()) != MARKER) {
@@ -5558,9 +5773,15 @@ public class ExifInterface {
                         mOffsetToExifData = offsetToJpeg
                                 + /* offset to EXIF from JPEG start */ start
                                 + IDENTIFIER_EXIF_APP1.length;
+                        if (mMimeType == IMAGE_TYPE_JPEG) {
+                            // Only a single Exif segment can be overwritten in place.
+                            mJpegExifSegmentOffset = mJpegExifSegmentOffset == 0 ? start - 2 : -1;
+                            mJpegExifSegmentLength = bytes.length + 2;
+                        }
                         readExifSegment(value, imageType);
 
                         setThumbnailData(new ByteOrderedDataInputStream(value));
+                        hasReadExif = true;
                     } else if (startsWith(bytes, IDENTIFIER_XMP_APP1)) {
                         // See XMP Specification Part 3: Storage in Files, 1.1.3 JPEG, Table 6
                         final int offset = start + IDENTIFIER_XMP_APP1.length;
@@ -5568,7 +5789,7 @@ public class ExifInterface {
                                 IDENTIFIER_XMP_APP1.length, bytes.length);
                         // TODO: check if ignoring separate XMP data when tag 700 already exists is
                         //  valid.
-                        if (getAttribute(TAG_XMP) == null) {
+                        if (shouldReadTag(TAG_XMP) && getAttribute(TAG_XMP) == null) {
                             mAttributes[IFD_TYPE_PRIMARY].put(TAG_XMP, new ExifAttribute(
                                     IFD_FORMAT_BYTE, value.length, offset, value));
                             mXmpIsFromSeparateMarker = true;
@@ -5578,6 +5799,10 @@ public class ExifInterface {
                 }
 
                 case MARKER_COM: {
+                    if (!shouldReadTag(TAG_USER_COMMENT)) {
+                        // Skipped below.
+                        break;
+                    }
                     byte[] bytes = new byte[length];
                     if (in.read(bytes) != length) {
                         throw new IOException("Invalid exif");
@@ -5625,11 +5850,21 @@ public class ExifInterface {
                 throw new IOException("Invalid JPEG segment");
             }
             bytesRead += length;
+            if (hasReadExif && !shouldReadJpegSegmentsAfterExif()) {
+                break;
+            }
         }
         // Restore original byte order
         in.setByteOrder(mExifByteOrder);
     }
 
+    // Returns whether the tags to read may be found in the JPEG segments after the Exif segment.
+    private boolean shouldReadJpegSegmentsAfterExif() {
+        return mTagsToRead == null || mReadTagsForParsing || shouldReadTag(TAG_IMAGE_WIDTH)
+                || shouldReadTag(TAG_IMAGE_LENGTH) || shouldReadTag(TAG_XMP)
+                || shouldReadTag(TAG_USER_COMMENT);
+    }
+
     private void getRawAttributes(ByteOrderedDataInputStream in) throws IOException {
         // Parse TIFF Headers. See JEITA CP-3451C Section 4.5.2. Table 1.
         parseTiffHeaders(in, in.available());
@@ -6209,6 +6444,100 @@ public class ExifInterface {
         }
     }
 
+    /**
+     * Overwrites the Exif segment of the JPEG file with the attributes when they fit in it, so that
+     * the rest of the file is neither read nor written. The Exif data is padded with zeros up to
+     * the length of the segment.
+     *
+     * @return whether the attributes were saved
+     */
+    private boolean saveJpegAttributesInPlace() throws IOException {
+        if (mJpegExifSegmentOffset <= 0) {
+            return false;
+        }
+        final ByteArrayOutputStream segmentStream =
+                new ByteArrayOutputStream(mJpegExifSegmentLength);
+        final int length = writeJpegExifSegment(
+                new ByteOrderedDataOutputStream(segmentStream, ByteOrder.BIG_ENDIAN), 0);
+        if (length > mJpegExifSegmentLength) {
+            return false;
+        }
+        final byte[] segment = Arrays.copyOf(segmentStream.toByteArray(), mJpegExifSegmentLength);
+        segment[0] = (byte) (mJpegExifSegmentLength >>> 8);
+        segment[1] = (byte) mJpegExifSegmentLength;
+
+        // The file is checked to still have the segment where it was read from.
+        final ByteBuffer expectedHeader = ByteBuffer.allocate(4 + IDENTIFIER_EXIF_APP1.length);
+        expectedHeader.put(MARKER).put(MARKER_APP1).put(segment, 0, 2).put(IDENTIFIER_EXIF_APP1);
+        final ByteBuffer header = ByteBuffer.allocate(expectedHeader.capacity());
+        final long headerOffset = mJpegExifSegmentOffset - 2;
+
+        RandomAccessFile file = null;
+        FileInputStream in = null;
+        FileOutputStream out = null;
+        try {
+            final FileChannel inChannel;
+            final FileChannel outChannel;
+            if (mFilename != null) {
+                file = new RandomAccessFile(mFilename, "rw");
+                inChannel = file.getChannel();
+                outChannel = inChannel;
+            } else {
+                in = new FileInputStream(mSeekableFileDescriptor);
+                out = new FileOutputStream(mSeekableFileDescriptor);
+                inChannel = in.getChannel();
+                outChannel = out.getChannel();
+            }
+            while (header.hasRemaining()) {
+                if (inChannel.read(header, headerOffset + header.position()) < 0) {
+                    return false;
+                }
+            }
+            expectedHeader.flip();
+            header.flip();
+            if (!header.equals(expectedHeader)) {
+                if (DEBUG) {
+                    Log.d(TAG, "The Exif segment has moved since it was read.");
+                }
+                return false;
+            }
+            final ByteBuffer buffer = ByteBuffer.wrap(segment);
+            while (buffer.hasRemaining()) {
+                outChannel.write(buffer, mJpegExifSegmentOffset + buffer.position());
+            }
+        } finally {
+            closeQuietly(file);
+            closeQuietly(in);
+            closeQuietly(out);
+        }
+        return true;
+    }
+
+    /**
+     * Writes the Exif APP1 segment of a JPEG image, from its length field, without the XMP data
+     * which is stored in a separate segment.
+     *
+     * @return the length of the segment
+     */
+    private int writeJpegExifSegment(ByteOrderedDataOutputStream dataOutputStream,
+            int paddingLength) throws IOException {
+        // Remove XMP data if it is from a separate marker (IDENTIFIER_XMP_APP1, not
+        // IDENTIFIER_EXIF_APP1)
+        // Will re-add it later after the rest of the file is written
+        ExifAttribute xmpAttribute = null;
+        if (getAttribute(TAG_XMP) != null && mXmpIsFromSeparateMarker) {
+            xmpAttribute = mAttributes[IFD_TYPE_PRIMARY].remove(TAG_XMP);
+        }
+
+        final int length = writeExifSegment(dataOutputStream, paddingLength);
+
+        // Re-add previously removed XMP data.
+        if (xmpAttribute != null) {
+            mAttributes[IFD_TYPE_PRIMARY].put(TAG_XMP, xmpAttribute);
+        }
+        return length;
+    }
+
     // Stores a new JPEG image with EXIF attributes into a given output stream.
     private void saveJpegAttributes(InputStream inputStream, OutputStream outputStream)
             throws IOException {
@@ -6218,8 +6547,8 @@ public class ExifInterface {
                     + ", outputStream: " + outputStream + ")");
         }
         DataInputStream dataInputStream = new DataInputStream(inputStream);
-        ByteOrderedDataOutputStream dataOutputStream =
-                new ByteOrderedDataOutputStream(outputStream, ByteOrder.BIG_ENDIAN);
+        ByteOrderedDataOutputStream dataOutputStream = new ByteOrderedDataOutputStream(
+                new BufferedOutputStream(outputStream), ByteOrder.BIG_ENDIAN);
         if (dataInputStream.readByte() != MARKER) {
             throw new IOException("Invalid marker");
         }
@@ -6229,23 +6558,13 @@ public class ExifInterface {
         }
         dataOutputStream.writeByte(MARKER_SOI);
 
-        // Remove XMP data if it is from a separate marker (IDENTIFIER_XMP_APP1, not
-        // IDENTIFIER_EXIF_APP1)
-        // Will re-add it later after the rest of the file is written
-        ExifAttribute xmpAttribute = null;
-        if (getAttribute(TAG_XMP) != null && mXmpIsFromSeparateMarker) {
-            xmpAttribute = mAttributes[IFD_TYPE_PRIMARY].remove(TAG_XMP);
-        }
-
-        // Write EXIF APP1 segment
+        // Write EXIF APP1 segment, with room for the Exif data to grow so that later changes can
+        // be saved in place.
         dataOutputStream.writeByte(MARKER);
         dataOutputStream.writeByte(MARKER_APP1);
-        writeExifSegment(dataOutputStream);
-
-        // Re-add previously removed XMP data.
-        if (xmpAttribute != null) {
-            mAttributes[IFD_TYPE_PRIMARY].put(TAG_XMP, xmpAttribute);
-        }
+        mJpegExifSegmentLength = writeJpegExifSegment(dataOutputStream, JPEG_EXIF_PADDING_LENGTH);
+        mJpegExifSegmentOffset = JPEG_EXIF_SEGMENT_OFFSET;
+        mOffsetToExifData = JPEG_EXIF_SEGMENT_OFFSET + 2 + IDENTIFIER_EXIF_APP1.length;
 
         byte[] bytes = new byte[4096];
 
@@ -6294,8 +6613,9 @@ public class ExifInterface {
                 case MARKER_SOS: {
                     dataOutputStream.writeByte(MARKER);
                     dataOutputStream.writeByte(marker);
+                    dataOutputStream.flush();
                     // Copy all the remaining data
-                    copy(dataInputStream, dataOutputStream);
+                    copyRemaining(inputStream, outputStream);
                     return;
                 }
                 default: {
@@ -6775,6 +7095,10 @@ public class ExifInterface {
                 if (DEBUG) {
                     Log.d(TAG, "Skip the tag entry since tag number is not defined: " + tagNumber);
                 }
+            } else if (!shouldReadTag(tag.name) && !sExifPointerTagMap.containsKey(tagNumber)) {
+                if (DEBUG) {
+                    Log.d(TAG, "Skip the tag entry since it is not read: " + tag.name);
+                }
             } else if (dataFormat <= 0 || dataFormat >= IFD_FORMAT_BYTES_PER_FORMAT.length) {
                 if (DEBUG) {
                     Log.d(TAG, "Skip the tag entry since data format is invalid: " + dataFormat);
@@ -6886,7 +7210,12 @@ public class ExifInterface {
                 // Check if the next IFD offset
                 // 1. Exists within the boundaries of the input stream
                 // 2. Does not point to a previously read IFD.
-                if (offset > 0L && offset < dataInputStream.mLength) {
+                if (!shouldReadIfd(nextIfdType)) {
+                    if (DEBUG) {
+                        Log.d(TAG, "Skip jump into the IFD since it has no tags to read: "
+                                + "IfdType " + nextIfdType);
+                    }
+                } else if (offset > 0L && offset < dataInputStream.mLength) {
                     if (!mAttributesOffsets.contains((int) offset)) {
                         dataInputStream.seek(offset);
                         readImageFileDirectory(dataInputStream, nextIfdType);
@@ -6946,12 +7275,17 @@ public class ExifInterface {
             // 2. Does not point to a previously read IFD.
             if (nextIfdOffset > 0L && nextIfdOffset < dataInputStream.mLength) {
                 if (!mAttributesOffsets.contains(nextIfdOffset)) {
-                    dataInputStream.seek(nextIfdOffset);
                     if (mAttributes[IFD_TYPE_THUMBNAIL].isEmpty()) {
                         // Do not overwrite thumbnail IFD data if it alreay exists.
-                        readImageFileDirectory(dataInputStream, IFD_TYPE_THUMBNAIL);
+                        if (shouldReadIfd(IFD_TYPE_THUMBNAIL)) {
+                            dataInputStream.seek(nextIfdOffset);
+                            readImageFileDirectory(dataInputStream, IFD_TYPE_THUMBNAIL);
+                        }
                     } else if (mAttributes[IFD_TYPE_PREVIEW].isEmpty()) {
-                        readImageFileDirectory(dataInputStream, IFD_TYPE_PREVIEW);
+                        if (shouldReadIfd(IFD_TYPE_PREVIEW)) {
+                            dataInputStream.seek(nextIfdOffset);
+                            readImageFileDirectory(dataInputStream, IFD_TYPE_PREVIEW);
+                        }
                     }
                 } else {
                     if (DEBUG) {
@@ -7007,6 +7341,10 @@ public class ExifInterface {
 
     // Sets thumbnail offset & length attributes based on JpegInterchangeFormat or StripOffsets tags
     private void setThumbnailData(ByteOrderedDataInputStream in) throws IOException {
+        if (mTagsToRead != null) {
+            // The thumbnail is not read along with some tags only.
+            return;
+        }
         HashMap thumbnailData = mAttributes[IFD_TYPE_THUMBNAIL];
 
         ExifAttribute compressionAttribute =
@@ -7322,6 +7660,13 @@ public class ExifInterface {
 
     // Writes an Exif segment into the given output stream.
     private int writeExifSegment(ByteOrderedDataOutputStream dataOutputStream) throws IOException {
+        return writeExifSegment(dataOutputStream, 0);
+    }
+
+    // Writes an Exif segment into the given output stream, followed by the given number of zeros
+    // as long as the segment stays within the maximum length of a JPEG segment.
+    private int writeExifSegment(ByteOrderedDataOutputStream dataOutputStream, int paddingLength)
+            throws IOException {
         // The following variables are for calculating each IFD tag group size in bytes.
         int[] ifdOffsets = new int[EXIF_TAGS.length];
         int[] ifdDataSizes = new int[EXIF_TAGS.length];
@@ -7402,6 +7747,8 @@ public class ExifInterface {
             // Add 8 bytes for APP1 size and identifier data
             totalSize += 8;
         }
+        paddingLength = Math.max(0, Math.min(paddingLength, MAX_JPEG_SEGMENT_LENGTH - totalSize));
+        totalSize += paddingLength;
         if (DEBUG) {
             for (int i = 0; i < EXIF_TAGS.length; ++i) {
                 Log.d(TAG, String.format("index: %d, offsets: %d, tag count: %d, data sizes: %d, "
@@ -7507,6 +7854,10 @@ public class ExifInterface {
             dataOutputStream.write(getThumbnailBytes());
         }
 
+        for (int i = 0; i < paddingLength; ++i) {
+            dataOutputStream.writeByte(0);
+        }
+
         // For WebP files, add a single padding byte at end if chunk size is odd
         if (mMimeType == IMAGE_TYPE_WEBP && totalSize % 2 == 1) {
             dataOutputStream.writeByte(0);
@@ -8011,6 +8362,30 @@ public class ExifInterface {
         return total;
     }
 
+    /**
+     * Copies the rest of {@code in} to {@code out}, between their file channels when both are
+     * files so that the bytes are not copied through the heap. Neither stream is closed.
+     */
+    private static void copyRemaining(InputStream in, OutputStream out) throws IOException {
+        if (in instanceof FileInputStream && out instanceof FileOutputStream) {
+            final FileChannel inChannel = ((FileInputStream) in).getChannel();
+            final FileChannel outChannel = ((FileOutputStream) out).getChannel();
+            final long size = inChannel.size();
+            long position = inChannel.position();
+            while (position < size) {
+                final long transferred =
+                        inChannel.transferTo(position, size - position, outChannel);
+                if (transferred <= 0) {
+                    throw new IOException("Failed to transfer the remaining bytes");
+                }
+                position += transferred;
+            }
+            inChannel.position(position);
+        } else {
+            copy(in, out);
+        }
+    }
+
     /**
      * Copies the given number of the bytes from {@code in} to {@code out}. Neither stream is
      * closed.
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+/**
+ * A lookup table of {@link GeneratedAdapter}s, generated by {@code lifecycle-compiler} when the
+ * {@code androidx.lifecycle.adapterIndex} annotation processor option is set.
+ * <p>
+ * Indexes are discovered through {@link java.util.ServiceLoader} the first time
+ * {@link Lifecycling} needs to adapt an observer, which lets {@link Lifecycling} create adapters
+ * for indexed observers without looking up adapter classes or scanning observer classes
+ * reflectively.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public abstract class GeneratedAdapterIndex {
+
+    /**
+     * @param observerClassName The binary name of an observer class, as returned by
+     *                          {@link Class#getName()}
+     * @return {@code true} if this index can create the adapters for the observer class
+     */
+    public abstract boolean containsObserver(@NonNull String observerClassName);
+
+    /**
+     * Creates the {@link GeneratedAdapter}s for an observer whose class is in this index.
+     *
+     * @param observerClassName The binary name of the observer class
+     * @param observer          The observer
+     * @return The adapters which dispatch events to the observer
+     */
+    @NonNull
+    public abstract GeneratedAdapter[] createAdapters(@NonNull String observerClassName,
+            @NonNull Object observer);
+}
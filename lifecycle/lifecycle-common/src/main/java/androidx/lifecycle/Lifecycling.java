@@ -19,6 +19,7 @@ package androidx.lifecycle;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -27,6 +28,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 
 /**
  * Internal class to handle lifecycle conversion etc.
@@ -40,8 +43,9 @@ public class Lifecycling {
     private static final int GENERATED_CALLBACK = 2;
 
     private static Map<Class<?>, Integer> sCallbackCache = new HashMap<>();
-    private static Map<Class<?>, List<Constructor<? extends GeneratedAdapter>>> sClassToAdapters =
-            new HashMap<>();
+    private static Map<Class<?>, List<AdapterFactory>> sClassToAdapters = new HashMap<>();
+    // Loaded lazily, the first time an observer needs to be adapted.
+    private static List<GeneratedAdapterIndex> sAdapterIndexes;
 
     // Left for binary compatibility when lifecycle-common goes up 2.1 as transitive dep
     // but lifecycle-runtime stays 2.0
@@ -82,22 +86,79 @@ public class Lifecycling {
         final Class<?> klass = object.getClass();
         int type = getObserverConstructorType(klass);
         if (type == GENERATED_CALLBACK) {
-            List<Constructor<? extends GeneratedAdapter>> constructors =
-                    sClassToAdapters.get(klass);
-            if (constructors.size() == 1) {
-                GeneratedAdapter generatedAdapter = createGeneratedAdapter(
-                        constructors.get(0), object);
-                return new SingleGeneratedAdapterObserver(generatedAdapter);
+            List<AdapterFactory> factories = sClassToAdapters.get(klass);
+            List<GeneratedAdapter> adapters = new ArrayList<>(factories.size());
+            for (int i = 0; i < factories.size(); i++) {
+                factories.get(i).createAdapters(object, adapters);
             }
-            GeneratedAdapter[] adapters = new GeneratedAdapter[constructors.size()];
-            for (int i = 0; i < constructors.size(); i++) {
-                adapters[i] = createGeneratedAdapter(constructors.get(i), object);
+            if (adapters.size() == 1) {
+                return new SingleGeneratedAdapterObserver(adapters.get(0));
             }
-            return new CompositeGeneratedAdaptersObserver(adapters);
+            return new CompositeGeneratedAdaptersObserver(
+                    adapters.toArray(new GeneratedAdapter[adapters.size()]));
         }
         return new ReflectiveGenericLifecycleObserver(object);
     }
 
+    /**
+     * Registers a {@link GeneratedAdapterIndex} in addition to the ones which are discovered
+     * through {@link ServiceLoader}. This should be called before any observer of a class in the
+     * index is added to a {@link Lifecycle}.
+     *
+     * @param index The index to register
+     */
+    public static void registerAdapterIndex(@NonNull GeneratedAdapterIndex index) {
+        getAdapterIndexes().add(index);
+        // Observer classes may have been resolved without this index.
+        sCallbackCache.clear();
+        sClassToAdapters.clear();
+    }
+
+    private static List<GeneratedAdapterIndex> getAdapterIndexes() {
+        if (sAdapterIndexes == null) {
+            List<GeneratedAdapterIndex> indexes = new ArrayList<>();
+            try {
+                // This exact form lets R8 replace the lookup with the indexes it finds in
+                // META-INF/services, so that no jar is scanned at runtime.
+                for (GeneratedAdapterIndex index : ServiceLoader.load(
+                        GeneratedAdapterIndex.class,
+                        GeneratedAdapterIndex.class.getClassLoader())) {
+                    indexes.add(index);
+                }
+            } catch (ServiceConfigurationError e) {
+                // A broken index only means falling back to looking up adapters by name.
+            }
+            sAdapterIndexes = indexes;
+        }
+        return sAdapterIndexes;
+    }
+
+    /**
+     * Forgets the registered indexes and the observer classes which were resolved with them.
+     */
+    @VisibleForTesting
+    static void resetAdapterIndexes() {
+        sAdapterIndexes = null;
+        sCallbackCache.clear();
+        sClassToAdapters.clear();
+    }
+
+    @Nullable
+    private static GeneratedAdapterIndex findAdapterIndex(Class<?> klass) {
+        List<GeneratedAdapterIndex> indexes = getAdapterIndexes();
+        if (indexes.isEmpty()) {
+            return null;
+        }
+        String name = klass.getName();
+        for (int i = 0; i < indexes.size(); i++) {
+            GeneratedAdapterIndex index = indexes.get(i);
+            if (index.containsObserver(name)) {
+                return index;
+            }
+        }
+        return null;
+    }
+
     private static GeneratedAdapter createGeneratedAdapter(
             Constructor<? extends GeneratedAdapter> constructor, Object object) {
         //noinspection TryWithIdenticalCatches
@@ -149,6 +210,14 @@ public class Lifecycling {
     }
 
     private static int resolveObserverCallbackType(Class<?> klass) {
+        // Indexed observers don't need any reflective lookups.
+        GeneratedAdapterIndex index = findAdapterIndex(klass);
+        if (index != null) {
+            sClassToAdapters.put(klass, Collections.<AdapterFactory>singletonList(
+                    new IndexAdapterFactory(index, klass.getName())));
+            return GENERATED_CALLBACK;
+        }
+
         // anonymous class bug:35073837
         if (klass.getCanonicalName() == null) {
             return REFLECTIVE_CALLBACK;
@@ -156,8 +225,8 @@ public class Lifecycling {
 
         Constructor<? extends GeneratedAdapter> constructor = generatedConstructor(klass);
         if (constructor != null) {
-            sClassToAdapters.put(klass, Collections
-                    .<Constructor<? extends GeneratedAdapter>>singletonList(constructor));
+            sClassToAdapters.put(klass, Collections.<AdapterFactory>singletonList(
+                    new ConstructorAdapterFactory(constructor)));
             return GENERATED_CALLBACK;
         }
 
@@ -167,12 +236,12 @@ public class Lifecycling {
         }
 
         Class<?> superclass = klass.getSuperclass();
-        List<Constructor<? extends GeneratedAdapter>> adapterConstructors = null;
+        List<AdapterFactory> adapterFactories = null;
         if (isLifecycleParent(superclass)) {
             if (getObserverConstructorType(superclass) == REFLECTIVE_CALLBACK) {
                 return REFLECTIVE_CALLBACK;
             }
-            adapterConstructors = new ArrayList<>(sClassToAdapters.get(superclass));
+            adapterFactories = new ArrayList<>(sClassToAdapters.get(superclass));
         }
 
         for (Class<?> intrface : klass.getInterfaces()) {
@@ -182,13 +251,13 @@ public class Lifecycling {
             if (getObserverConstructorType(intrface) == REFLECTIVE_CALLBACK) {
                 return REFLECTIVE_CALLBACK;
             }
-            if (adapterConstructors == null) {
-                adapterConstructors = new ArrayList<>();
+            if (adapterFactories == null) {
+                adapterFactories = new ArrayList<>();
             }
-            adapterConstructors.addAll(sClassToAdapters.get(intrface));
+            adapterFactories.addAll(sClassToAdapters.get(intrface));
         }
-        if (adapterConstructors != null) {
-            sClassToAdapters.put(klass, adapterConstructors);
+        if (adapterFactories != null) {
+            sClassToAdapters.put(klass, adapterFactories);
             return GENERATED_CALLBACK;
         }
 
@@ -208,4 +277,39 @@ public class Lifecycling {
 
     private Lifecycling() {
     }
+
+    /**
+     * Creates the {@link GeneratedAdapter}s for an observer.
+     */
+    private abstract static class AdapterFactory {
+        abstract void createAdapters(Object object, List<GeneratedAdapter> out);
+    }
+
+    private static class ConstructorAdapterFactory extends AdapterFactory {
+        private final Constructor<? extends GeneratedAdapter> mConstructor;
+
+        ConstructorAdapterFactory(Constructor<? extends GeneratedAdapter> constructor) {
+            mConstructor = constructor;
+        }
+
+        @Override
+        void createAdapters(Object object, List<GeneratedAdapter> out) {
+            out.add(createGeneratedAdapter(mConstructor, object));
+        }
+    }
+
+    private static class IndexAdapterFactory extends AdapterFactory {
+        private final GeneratedAdapterIndex mIndex;
+        private final String mObserverClassName;
+
+        IndexAdapterFactory(GeneratedAdapterIndex index, String observerClassName) {
+            mIndex = index;
+            mObserverClassName = observerClassName;
+        }
+
+        @Override
+        void createAdapters(Object object, List<GeneratedAdapter> out) {
+            Collections.addAll(out, mIndex.createAdapters(mObserverClassName, object));
+        }
+    }
 }
@@ -33,6 +33,7 @@ import androidx.lifecycle.observers.InterfaceImpl1;
 import androidx.lifecycle.observers.InterfaceImpl2;
 import androidx.lifecycle.observers.InterfaceImpl3;
 
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -40,6 +41,11 @@ import org.junit.runners.JUnit4;
 @RunWith(JUnit4.class)
 public class LifecyclingTest {
 
+    @After
+    public void tearDown() {
+        Lifecycling.resetAdapterIndexes();
+    }
+
     @Test
     public void testDerivedWithNewLfMethodsNoGeneratedAdapter() {
         LifecycleEventObserver callback = lifecycleEventObserver(new DerivedWithNewMethods());
@@ -86,6 +92,26 @@ public class LifecyclingTest {
         assertThat(callback1, instanceOf(SingleGeneratedAdapterObserver.class));
     }
 
+    @Test
+    public void testIndexedObserver() {
+        Lifecycling.registerAdapterIndex(new TestAdapterIndex());
+        IndexedObserver observer = new IndexedObserver();
+        LifecycleEventObserver callback = lifecycleEventObserver(observer);
+        assertThat(callback, instanceOf(SingleGeneratedAdapterObserver.class));
+        callback.onStateChanged(new DefaultLifecycleOwner(), Lifecycle.Event.ON_START);
+        assertThat(observer.mEvents, is(1));
+    }
+
+    @Test
+    public void testDerivedFromIndexedObserver() {
+        Lifecycling.registerAdapterIndex(new TestAdapterIndex());
+        DerivedFromIndexedObserver observer = new DerivedFromIndexedObserver();
+        LifecycleEventObserver callback = lifecycleEventObserver(observer);
+        assertThat(callback, instanceOf(SingleGeneratedAdapterObserver.class));
+        callback.onStateChanged(new DefaultLifecycleOwner(), Lifecycle.Event.ON_START);
+        assertThat(observer.mEvents, is(1));
+    }
+
     // MUST BE HERE TILL Lifecycle 3.0.0 release for back-compatibility with other modules
     @SuppressWarnings("deprecation")
     @Test
@@ -192,6 +218,41 @@ public class LifecyclingTest {
     }
 
 
+    static class IndexedObserver implements LifecycleObserver {
+        int mEvents;
+
+        @OnLifecycleEvent(ON_ANY)
+        public void onAny() {
+            throw new IllegalStateException("Indexed observers must be called through their "
+                    + "adapter");
+        }
+    }
+
+    static class DerivedFromIndexedObserver extends IndexedObserver {
+    }
+
+    static class TestAdapterIndex extends GeneratedAdapterIndex {
+        @Override
+        public boolean containsObserver(@NonNull String observerClassName) {
+            return observerClassName.equals(IndexedObserver.class.getName());
+        }
+
+        @NonNull
+        @Override
+        public GeneratedAdapter[] createAdapters(@NonNull String observerClassName,
+                @NonNull final Object observer) {
+            return new GeneratedAdapter[]{new GeneratedAdapter() {
+                @Override
+                public void callMethods(LifecycleOwner source, Lifecycle.Event event,
+                        boolean onAny, MethodCallsLogger logger) {
+                    if (!onAny) {
+                        ((IndexedObserver) observer).mEvents++;
+                    }
+                }
+            }};
+        }
+    }
+
     static class DefaultLifecycleOwner implements LifecycleOwner {
         @NonNull
         @Override
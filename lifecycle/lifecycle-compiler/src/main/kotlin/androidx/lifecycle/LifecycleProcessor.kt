@@ -22,17 +22,53 @@ import javax.annotation.processing.SupportedAnnotationTypes
 import javax.lang.model.SourceVersion
 import javax.lang.model.element.TypeElement
 
+/**
+ * Name of the processor option which enables the generation of a
+ * [GeneratedAdapterIndex]. Its value is the fully qualified name of the index class.
+ */
+const val ADAPTER_INDEX_OPTION = "androidx.lifecycle.adapterIndex"
+
+private const val GRADLE_ISOLATING = "org.gradle.annotation.processing.isolating"
+private const val GRADLE_AGGREGATING = "org.gradle.annotation.processing.aggregating"
+
 @SupportedAnnotationTypes("androidx.lifecycle.OnLifecycleEvent")
 class LifecycleProcessor : AbstractProcessor() {
+    private val indexedAdapters = mutableListOf<TypeElement>()
+    private var indexWritten = false
+
     override fun process(
         annotations: MutableSet<out TypeElement>,
         roundEnv: RoundEnvironment
     ): Boolean {
+        val indexName = processingEnv.options[ADAPTER_INDEX_OPTION]
         val input = collectAndVerifyInput(processingEnv, roundEnv)
-        writeModels(transformToOutput(processingEnv, input), processingEnv)
+        val adapters = transformToOutput(processingEnv, input)
+        writeModels(adapters, processingEnv, generateFactory = indexName != null)
+        if (indexName != null && !indexWritten) {
+            indexedAdapters.addAll(adapters.map { it.type })
+            // Sources created in the last round are not processed and make javac warn, so the
+            // index is written in the first round without new observers instead. Observers
+            // which only appear after that are still found through their adapter's name.
+            if (adapters.isEmpty() && !roundEnv.processingOver()) {
+                writeAdapterIndex(indexName, indexedAdapters, processingEnv)
+                indexWritten = true
+            }
+        }
         return true
     }
 
+    override fun getSupportedOptions(): Set<String> {
+        // The index depends on every observer in the compilation, which makes the processor
+        // aggregating rather than isolating when it is enabled.
+        val indexEnabled = processingEnv?.options?.containsKey(ADAPTER_INDEX_OPTION) == true
+        val incrementalMode = if (indexEnabled) {
+            GRADLE_AGGREGATING
+        } else {
+            GRADLE_ISOLATING
+        }
+        return setOf(ADAPTER_INDEX_OPTION, incrementalMode)
+    }
+
     override fun getSupportedSourceVersion(): SourceVersion {
         return SourceVersion.latest()
     }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle
+
+import androidx.lifecycle.model.getAdapterName
+import com.squareup.javapoet.ArrayTypeName
+import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.JavaFile
+import com.squareup.javapoet.MethodSpec
+import com.squareup.javapoet.ParameterSpec
+import com.squareup.javapoet.TypeName
+import com.squareup.javapoet.TypeSpec
+import javax.annotation.processing.ProcessingEnvironment
+import javax.lang.model.element.Modifier
+import javax.lang.model.element.TypeElement
+import javax.tools.StandardLocation
+
+private val T = "\$T"
+private val N = "\$N"
+private val S = "\$S"
+
+private val STRING_PARAM: ParameterSpec = ParameterSpec.builder(
+        ClassName.get(String::class.java), "observerClassName").build()
+private val OBSERVER_PARAM: ParameterSpec = ParameterSpec.builder(
+        TypeName.OBJECT, "observer").build()
+
+/**
+ * Writes a [GeneratedAdapterIndex] named [indexName] which creates the adapters of [types],
+ * and registers it as a service so that [Lifecycling] can find it at runtime.
+ */
+fun writeAdapterIndex(
+    indexName: String,
+    types: List<TypeElement>,
+    processingEnv: ProcessingEnvironment
+) {
+    val indexClass = ClassName.bestGuess(indexName)
+    // Sorted, so that the output doesn't depend on the order of processing rounds.
+    val entries = types
+            .map { processingEnv.elementUtils.getBinaryName(it).toString() to it }
+            .sortedBy { it.first }
+
+    val containsMethod = MethodSpec.methodBuilder("containsObserver")
+            .addAnnotation(Override::class.java)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(TypeName.BOOLEAN)
+            .addParameter(STRING_PARAM)
+            .apply {
+                beginControlFlow("switch ($N)", STRING_PARAM)
+                entries.forEach { (name, _) -> addCode("case $S:\n", name) }
+                if (entries.isNotEmpty()) {
+                    addStatement("\$>return true\$<")
+                }
+                addCode("default:\n")
+                addStatement("\$>return false\$<")
+                endControlFlow()
+            }.build()
+
+    val adapterArray = ArrayTypeName.of(GeneratedAdapter::class.java)
+    val createMethod = MethodSpec.methodBuilder("createAdapters")
+            .addAnnotation(Override::class.java)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(adapterArray)
+            .addParameter(STRING_PARAM)
+            .addParameter(OBSERVER_PARAM)
+            .apply {
+                beginControlFlow("switch ($N)", STRING_PARAM)
+                entries.forEach { (name, type) ->
+                    val adapterClass = ClassName.get(type.getPackageQName(),
+                            getAdapterName(type))
+                    addCode("case $S:\n", name)
+                    addStatement("\$>return new $T {$T.$N($N)}\$<", adapterArray, adapterClass,
+                            FACTORY_METHOD, OBSERVER_PARAM)
+                }
+                addCode("default:\n")
+                addStatement("\$>throw new $T($N)\$<",
+                        IllegalArgumentException::class.java, STRING_PARAM)
+                endControlFlow()
+            }.build()
+
+    val indexTypeSpecBuilder = TypeSpec.classBuilder(indexClass)
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .superclass(ClassName.get(GeneratedAdapterIndex::class.java))
+            .addMethod(containsMethod)
+            .addMethod(createMethod)
+    types.forEach { indexTypeSpecBuilder.addOriginatingElement(it) }
+    addGeneratedAnnotationIfAvailable(indexTypeSpecBuilder, processingEnv)
+
+    JavaFile.builder(indexClass.packageName(), indexTypeSpecBuilder.build())
+            .build().writeTo(processingEnv.filer)
+
+    val originatingElements = types.toTypedArray()
+    val serviceFile = "META-INF/services/${GeneratedAdapterIndex::class.java.name}"
+    processingEnv.filer.createResource(StandardLocation.CLASS_OUTPUT, "", serviceFile,
+            *originatingElements).openWriter().use { it.write("$indexName\n") }
+
+    // The index is only ever instantiated by ServiceLoader, so it has to be kept explicitly.
+    val keepRule = """# Generated keep rule for Lifecycle adapter index.
+        |-keep class $indexName {
+        |    <init>();
+        |}
+        |""".trimMargin()
+    processingEnv.filer.createResource(StandardLocation.CLASS_OUTPUT, "",
+            "META-INF/proguard/$indexName.pro", *originatingElements)
+            .openWriter().use { it.write(keepRule) }
+}
@@ -32,8 +32,12 @@ import javax.lang.model.element.Modifier
 import javax.lang.model.element.TypeElement
 import javax.tools.StandardLocation
 
-fun writeModels(infos: List<AdapterClass>, processingEnv: ProcessingEnvironment) {
-    infos.forEach({ writeAdapter(it, processingEnv) })
+fun writeModels(
+    infos: List<AdapterClass>,
+    processingEnv: ProcessingEnvironment,
+    generateFactory: Boolean = false
+) {
+    infos.forEach({ writeAdapter(it, processingEnv, generateFactory) })
 }
 
 private val GENERATED_PACKAGE = "javax.annotation"
@@ -56,7 +60,13 @@ private val METHODS_LOGGER: ParameterSpec = ParameterSpec.builder(
 
 private const val HAS_LOGGER_VAR = "hasLogger"
 
-private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnvironment) {
+internal const val FACTORY_METHOD = "create"
+
+private fun writeAdapter(
+    adapter: AdapterClass,
+    processingEnv: ProcessingEnvironment,
+    generateFactory: Boolean
+) {
     val receiverField: FieldSpec = FieldSpec.builder(ClassName.get(adapter.type), "mReceiver",
             Modifier.FINAL).build()
     val dispatchMethodBuilder = MethodSpec.methodBuilder("callMethods")
@@ -113,6 +123,19 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
             .build()
 
     val adapterName = getAdapterName(adapter.type)
+    // The index lives in a different package, so it can't call the constructor directly.
+    val factoryMethods = if (generateFactory) {
+        val objectParam = ParameterSpec.builder(TypeName.OBJECT, "receiver").build()
+        listOf(MethodSpec.methodBuilder(FACTORY_METHOD)
+                .returns(ClassName.get(GeneratedAdapter::class.java))
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(objectParam)
+                .addStatement("return new $L(($T) $N)", adapterName,
+                        ClassName.get(adapter.type), objectParam)
+                .build())
+    } else {
+        emptyList()
+    }
     val adapterTypeSpecBuilder = TypeSpec.classBuilder(adapterName)
             .addModifiers(Modifier.PUBLIC)
             .addSuperinterface(ClassName.get(GeneratedAdapter::class.java))
@@ -120,6 +143,7 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
             .addMethod(constructor)
             .addMethod(dispatchMethod)
             .addMethods(syntheticMethods)
+            .addMethods(factoryMethods)
             .addOriginatingElement(adapter.type)
 
     addGeneratedAnnotationIfAvailable(adapterTypeSpecBuilder, processingEnv)
@@ -130,7 +154,7 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
     generateKeepRule(adapter.type, processingEnv)
 }
 
-private fun addGeneratedAnnotationIfAvailable(
+internal fun addGeneratedAnnotationIfAvailable(
     adapterTypeSpecBuilder: TypeSpec.Builder,
     processingEnv: ProcessingEnvironment
 ) {
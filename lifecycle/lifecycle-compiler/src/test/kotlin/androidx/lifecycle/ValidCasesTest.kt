@@ -110,6 +110,27 @@ class ValidCasesTest {
                 .and().generatesProGuardRule("bar.DifferentPackagesDerived2.pro")
     }
 
+    @Test
+    fun testAdapterIndex() {
+        JavaSourcesSubject.assertThat(load("foo.InheritanceOk2", ""))
+                .withCompilerOptions("-A$ADAPTER_INDEX_OPTION=foo.TestAdapterIndex")
+                .processedWith(LifecycleProcessor())
+                .compilesWithoutError().and().generatesSources(
+                        load("foo.TestAdapterIndex", "expected")
+                )
+                .and().generatesProGuardRule("foo.TestAdapterIndex.pro")
+                .and().generatesFileNamed(StandardLocation.CLASS_OUTPUT, "",
+                        "META-INF/services/androidx.lifecycle.GeneratedAdapterIndex")
+    }
+
+    @Test
+    fun testAdapterIndexWithoutWarnings() {
+        JavaSourcesSubject.assertThat(load("foo.InheritanceOk2", ""))
+                .withCompilerOptions("-A$ADAPTER_INDEX_OPTION=foo.TestAdapterIndex")
+                .processedWith(LifecycleProcessor())
+                .compilesWithoutWarnings()
+    }
+
     private fun <T> CompileTester.GeneratedPredicateClause<T>.generatesProGuardRule(name: String):
             CompileTester.SuccessfulFileClause<T> {
         return generatesFileNamed(StandardLocation.CLASS_OUTPUT, "", "META-INF/proguard/$name")
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foo;
+
+import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterIndex;
+import java.lang.IllegalArgumentException;
+import java.lang.Object;
+import java.lang.Override;
+import java.lang.String;
+import javax.annotation.Generated;
+
+@Generated("androidx.lifecycle.LifecycleProcessor")
+public final class TestAdapterIndex extends GeneratedAdapterIndex {
+  @Override
+  public boolean containsObserver(String observerClassName) {
+    switch (observerClassName) {
+      case "foo.InheritanceOk2Base":
+      case "foo.InheritanceOk2Derived":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public GeneratedAdapter[] createAdapters(String observerClassName, Object observer) {
+    switch (observerClassName) {
+      case "foo.InheritanceOk2Base":
+        return new GeneratedAdapter[] {InheritanceOk2Base_LifecycleAdapter.create(observer)};
+      case "foo.InheritanceOk2Derived":
+        return new GeneratedAdapter[] {InheritanceOk2Derived_LifecycleAdapter.create(observer)};
+      default:
+        throw new IllegalArgumentException(observerClassName);
+    }
+  }
+}
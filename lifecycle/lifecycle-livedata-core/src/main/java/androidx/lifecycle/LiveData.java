@@ -278,6 +278,9 @@ public abstract class LiveData<T> {
      * <p>
      * If you called this method multiple times before a main thread executed a posted task, only
      * the last value would be dispatched.
+     * <p>
+     * If {@link LiveDataBatching} is enabled, the value is dispatched together with the values
+     * posted to other LiveData instances, at the start of the next frame.
      *
      * @param value The new value
      */
@@ -290,6 +293,10 @@ public abstract class LiveData<T> {
         if (!postTask) {
             return;
         }
+        if (LiveDataBatching.isEnabled()) {
+            LiveDataBatching.post(mPostValueRunnable);
+            return;
+        }
         ArchTaskExecutor.getInstance().postToMainThread(mPostValueRunnable);
     }
 
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import android.os.Build;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import androidx.arch.core.executor.ArchTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Controls whether values set with {@link LiveData#postValue(Object)} are delivered in batches.
+ * <p>
+ * By default, every {@link LiveData} which has a value posted schedules its own task on the main
+ * thread. When batching is enabled, the values posted to all {@link LiveData}s are instead
+ * collected and delivered together at the start of the next frame, so that many updates only cost
+ * one main thread task and one layout pass.
+ * <p>
+ * Batching keeps the guarantees of {@link LiveData#postValue(Object)}: each {@link LiveData}
+ * delivers the last value posted to it, and {@link LiveData}s are dispatched in the order in which
+ * their values were first posted. A value posted while a batch is being dispatched is delivered
+ * in the next batch.
+ */
+public final class LiveDataBatching {
+
+    private static volatile boolean sEnabled;
+
+    private static final Object sLock = new Object();
+    // Guarded by sLock.
+    private static List<Runnable> sPending = new ArrayList<>();
+    // Guarded by sLock.
+    private static boolean sScheduled;
+
+    @Nullable
+    private static Executor sFrameExecutor;
+
+    private static final Runnable sDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            List<Runnable> batch;
+            synchronized (sLock) {
+                batch = sPending;
+                sPending = new ArrayList<>();
+                sScheduled = false;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).run();
+            }
+        }
+    };
+
+    private static final Runnable sScheduleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Executor frameExecutor = sFrameExecutor;
+            if (frameExecutor != null) {
+                frameExecutor.execute(sDispatchRunnable);
+            } else if (Build.VERSION.SDK_INT >= 16) {
+                Api16Impl.postFrameCallback(sDispatchRunnable);
+            } else {
+                sDispatchRunnable.run();
+            }
+        }
+    };
+
+    /**
+     * Enables or disables the batching of values posted with
+     * {@link LiveData#postValue(Object)}. Values which are already pending are still delivered.
+     *
+     * @param enabled {@code true} to deliver posted values in frame-aligned batches
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * @return {@code true} if values posted with {@link LiveData#postValue(Object)} are delivered
+     * in batches
+     */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Replaces the {@link Choreographer} frame callback which dispatches a batch. The executor is
+     * invoked on the main thread.
+     */
+    @VisibleForTesting
+    static void setFrameExecutor(@Nullable Executor frameExecutor) {
+        sFrameExecutor = frameExecutor;
+    }
+
+    /**
+     * Adds a {@link LiveData}'s pending value dispatch to the next batch.
+     */
+    static void post(@NonNull Runnable dispatch) {
+        boolean schedule;
+        synchronized (sLock) {
+            sPending.add(dispatch);
+            schedule = !sScheduled;
+            sScheduled = true;
+        }
+        if (schedule) {
+            // Choreographer is bound to the thread it is obtained on, so the frame callback has
+            // to be registered from the main thread.
+            ArchTaskExecutor.getInstance().postToMainThread(sScheduleRunnable);
+        }
+    }
+
+    private LiveDataBatching() {
+    }
+
+    @RequiresApi(16)
+    private static class Api16Impl {
+        static void postFrameCallback(final Runnable runnable) {
+            Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    runnable.run();
+                }
+            });
+        }
+
+        private Api16Impl() {
+        }
+    }
+}
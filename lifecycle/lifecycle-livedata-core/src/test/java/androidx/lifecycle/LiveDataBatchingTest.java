@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+@RunWith(JUnit4.class)
+public class LiveDataBatchingTest {
+
+    @Rule
+    public InstantTaskExecutorRule mInstantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private final List<Runnable> mFrameCallbacks = new ArrayList<>();
+    private final List<String> mDispatched = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        LiveDataBatching.setFrameExecutor(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                mFrameCallbacks.add(command);
+            }
+        });
+        LiveDataBatching.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        LiveDataBatching.setEnabled(false);
+        LiveDataBatching.setFrameExecutor(null);
+    }
+
+    @Test
+    public void postValue_isDeliveredOnNextFrame() {
+        MutableLiveData<String> first = observed("first");
+        MutableLiveData<String> second = observed("second");
+
+        first.postValue("a");
+        second.postValue("b");
+        assertThat(mDispatched.isEmpty(), is(true));
+        // Both LiveData instances share one frame callback.
+        assertThat(mFrameCallbacks.size(), is(1));
+
+        runFrame();
+        assertThat(mDispatched, is(Arrays.asList("first:a", "second:b")));
+    }
+
+    @Test
+    public void postValue_keepsLastValueAndFirstPostOrder() {
+        MutableLiveData<String> first = observed("first");
+        MutableLiveData<String> second = observed("second");
+
+        second.postValue("a");
+        first.postValue("b");
+        second.postValue("c");
+
+        runFrame();
+        assertThat(mDispatched, is(Arrays.asList("second:c", "first:b")));
+    }
+
+    @Test
+    public void postValueDuringDispatch_isDeliveredInNextBatch() {
+        final MutableLiveData<String> second = observed("second");
+        MutableLiveData<String> first = new MutableLiveData<>();
+        first.observeForever(new Observer<String>() {
+            @Override
+            public void onChanged(@Nullable String value) {
+                mDispatched.add("first:" + value);
+                second.postValue(value);
+            }
+        });
+
+        first.postValue("a");
+        runFrame();
+        assertThat(mDispatched, is(Arrays.asList("first:a")));
+
+        runFrame();
+        assertThat(mDispatched, is(Arrays.asList("first:a", "second:a")));
+    }
+
+    @Test
+    public void disabled_postsImmediately() {
+        LiveDataBatching.setEnabled(false);
+        MutableLiveData<String> liveData = observed("liveData");
+
+        liveData.postValue("a");
+        assertThat(mFrameCallbacks.isEmpty(), is(true));
+        assertThat(mDispatched, is(Arrays.asList("liveData:a")));
+    }
+
+    private MutableLiveData<String> observed(final String name) {
+        MutableLiveData<String> liveData = new MutableLiveData<>();
+        liveData.observeForever(new Observer<String>() {
+            @Override
+            public void onChanged(@Nullable String value) {
+                mDispatched.add(name + ":" + value);
+            }
+        });
+        return liveData;
+    }
+
+    private void runFrame() {
+        assertThat(mFrameCallbacks.size(), is(1));
+        Runnable frameCallback = mFrameCallbacks.remove(0);
+        frameCallback.run();
+    }
+}
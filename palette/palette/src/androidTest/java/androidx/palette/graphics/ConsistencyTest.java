@@ -16,11 +16,13 @@
 
 package androidx.palette.graphics;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import android.graphics.Bitmap;
 
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SdkSuppress;
 import androidx.test.filters.SmallTest;
 
 import org.junit.Test;
@@ -46,6 +48,48 @@ public class ConsistencyTest {
         }
     }
 
+    @Test
+    @SmallTest
+    public void testGeneratorConsistency() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final Palette.Generator generator = new Palette.Generator();
+
+        for (int i = 0; i < NUMBER_TRIALS; i++) {
+            // Alternate between sizes, so that the reused buffers hold stale data.
+            final Palette.Builder builder = i % 2 == 0
+                    ? Palette.from(bitmap)
+                    : Palette.from(bitmap).setRegion(0, 0, bitmap.getWidth() / 2,
+                            bitmap.getHeight() / 2);
+            final Palette.Builder expectedBuilder = i % 2 == 0
+                    ? Palette.from(bitmap)
+                    : Palette.from(bitmap).setRegion(0, 0, bitmap.getWidth() / 2,
+                            bitmap.getHeight() / 2);
+            assetPalettesEqual(expectedBuilder.generate(), generator.generate(builder));
+        }
+    }
+
+    @Test
+    @SmallTest
+    @SdkSuppress(minSdkVersion = 24)
+    public void testParallelHistogram() {
+        final int pixelCount = ColorCutQuantizer.PARALLEL_HISTOGRAM_MIN_PIXELS * 2 + 1;
+        final int[] pixels = new int[pixelCount];
+        for (int i = 0; i < pixelCount; i++) {
+            pixels[i] = 0xFF000000 | (i * 0x9E3779B1);
+        }
+        final int[] expected = new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+        ColorCutQuantizer.countColors(pixels, 0, pixelCount, expected);
+
+        final int[] parallel = new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+        ColorCutQuantizer.HistogramTask.countColorsInParallel(pixels, pixelCount, parallel, null);
+        assertArrayEquals(expected, parallel);
+
+        final int[] reused = new Palette.Generator().obtainHistogram();
+        ColorCutQuantizer.HistogramTask.countColorsInParallel(pixels, pixelCount, reused,
+                new Palette.Generator());
+        assertArrayEquals(expected, reused);
+    }
+
     private static void assetPalettesEqual(Palette p1, Palette p2) {
         assertEquals(p1.getVibrantSwatch(), p2.getVibrantSwatch());
         assertEquals(p1.getLightVibrantSwatch(), p2.getLightVibrantSwatch());
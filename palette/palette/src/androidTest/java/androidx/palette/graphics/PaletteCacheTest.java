@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class PaletteCacheTest {
+    private static final int[] PIXELS = {Color.RED, Color.RED, Color.GREEN, Color.BLUE};
+
+    private File mDirectory;
+
+    @Before
+    public void setup() {
+        mDirectory = new File(ApplicationProvider.getApplicationContext().getCacheDir(),
+                "palette-cache-test");
+        new PaletteCache(1, mDirectory).clear();
+    }
+
+    @After
+    public void tearDown() {
+        new PaletteCache(1, mDirectory).clear();
+    }
+
+    @Test
+    public void testGenerate_matchesBuilder() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final PaletteCache cache = new PaletteCache(4);
+
+        final Palette expected = Palette.from(bitmap).generate();
+        final Palette first = cache.generate(Palette.from(bitmap));
+        final Palette second = cache.generate(Palette.from(bitmap));
+
+        assertEquals(expected.getSwatches(), first.getSwatches());
+        assertEquals(expected.getSwatches(), second.getSwatches());
+        assertEquals(expected.getVibrantSwatch(), second.getVibrantSwatch());
+        assertEquals(expected.getDarkMutedSwatch(), second.getDarkMutedSwatch());
+    }
+
+    @Test
+    public void testGetSwatches_fromMemory() {
+        final PaletteCache cache = new PaletteCache(4);
+        final List<Palette.Swatch> swatches = createSwatches();
+
+        assertNull(cache.getSwatches(createKey(16, Palette.DEFAULT_FILTER)));
+        cache.putSwatches(createKey(16, Palette.DEFAULT_FILTER), swatches);
+
+        assertEquals(swatches, cache.getSwatches(createKey(16, Palette.DEFAULT_FILTER)));
+        assertNull(cache.getSwatches(createKey(8, Palette.DEFAULT_FILTER)));
+    }
+
+    @Test
+    public void testGetSwatches_fromDisk() {
+        final List<Palette.Swatch> swatches = createSwatches();
+        new PaletteCache(4, mDirectory).putSwatches(createKey(16, Palette.DEFAULT_FILTER),
+                swatches);
+
+        final PaletteCache cache = new PaletteCache(4, mDirectory);
+        assertEquals(swatches, cache.getSwatches(createKey(16, Palette.DEFAULT_FILTER)));
+    }
+
+    @Test
+    public void testGetSwatches_customFilter_notStoredOnDisk() {
+        final Palette.Filter filter = new Palette.Filter() {
+            @Override
+            public boolean isAllowed(int rgb, @NonNull float[] hsl) {
+                return true;
+            }
+        };
+        final PaletteCache cache = new PaletteCache(4, mDirectory);
+        cache.putSwatches(createKey(16, filter), createSwatches());
+
+        assertNotNull(cache.getSwatches(createKey(16, filter)));
+        assertNull(new PaletteCache(4, mDirectory).getSwatches(createKey(16, filter)));
+    }
+
+    @Test
+    public void testPutSwatches_trimsDisk() {
+        final PaletteCache cache = new PaletteCache(2, mDirectory);
+        for (int i = 0; i < 4; i++) {
+            final PaletteCache.Key key = new PaletteCache.Key(new int[]{i}, 1, 16, null);
+            cache.putSwatches(key, createSwatches());
+        }
+
+        assertEquals(2, mDirectory.list().length);
+    }
+
+    private static PaletteCache.Key createKey(int maxColors, Palette.Filter filter) {
+        return new PaletteCache.Key(PIXELS, PIXELS.length, maxColors,
+                new Palette.Filter[]{filter});
+    }
+
+    private static List<Palette.Swatch> createSwatches() {
+        return Arrays.asList(new Palette.Swatch(Color.RED, 2), new Palette.Swatch(Color.GREEN, 1),
+                new Palette.Swatch(Color.BLUE, 1));
+    }
+}
@@ -17,8 +17,10 @@
 package androidx.palette.graphics;
 
 import android.graphics.Color;
+import android.os.Build;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 import androidx.core.graphics.ColorUtils;
 
 import java.util.ArrayList;
@@ -27,6 +29,9 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * An color quantizer based on the Median-cut algorithm, but optimized for picking out distinct
@@ -49,6 +54,15 @@ final class ColorCutQuantizer {
     private static final int QUANTIZE_WORD_WIDTH = 5;
     private static final int QUANTIZE_WORD_MASK = (1 << QUANTIZE_WORD_WIDTH) - 1;
 
+    static final int HISTOGRAM_SIZE = 1 << (QUANTIZE_WORD_WIDTH * 3);
+
+    /**
+     * Images with fewer pixels have their histogram built on the calling thread, as splitting the
+     * work would cost more than it saves. The default resize area is well below this.
+     */
+    static final int PARALLEL_HISTOGRAM_MIN_PIXELS = 256 * 256;
+    private static final int PARALLEL_HISTOGRAM_MIN_PIXELS_PER_TASK = 128 * 128;
+
     final int[] mColors;
     final int[] mHistogram;
     final List<Palette.Swatch> mQuantizedColors;
@@ -60,19 +74,21 @@ final class ColorCutQuantizer {
      * Constructor.
      *
      * @param pixels histogram representing an image's pixel data
+     * @param pixelCount The number of pixels at the start of {@code pixels} to quantize.
      * @param maxColors The maximum number of colors that should be in the result palette.
      * @param filters Set of filters to use in the quantization stage
+     * @param generator Generator whose buffers to use, or null to allocate new ones
      */
-    ColorCutQuantizer(int[] pixels, int maxColors, @Nullable Palette.Filter[] filters) {
+    ColorCutQuantizer(int[] pixels, int pixelCount, int maxColors,
+            @Nullable Palette.Filter[] filters, @Nullable Palette.Generator generator) {
         mFilters = filters;
 
-        final int[] hist = mHistogram = new int[1 << (QUANTIZE_WORD_WIDTH * 3)];
-        for (int i = 0; i < pixels.length; i++) {
-            final int quantizedColor = quantizeFromRgb888(pixels[i]);
-            // Now update the pixel value to the quantized value
-            pixels[i] = quantizedColor;
-            // And update the histogram
-            hist[quantizedColor]++;
+        final int[] hist = mHistogram = generator != null
+                ? generator.obtainHistogram() : new int[HISTOGRAM_SIZE];
+        if (pixelCount >= PARALLEL_HISTOGRAM_MIN_PIXELS && Build.VERSION.SDK_INT >= 24) {
+            HistogramTask.countColorsInParallel(pixels, pixelCount, hist, generator);
+        } else {
+            countColors(pixels, 0, pixelCount, hist);
         }
 
         // Now let's count the number of distinct colors
@@ -109,6 +125,71 @@ final class ColorCutQuantizer {
         }
     }
 
+    /**
+     * Adds the quantized colors of the pixels from start to end, exclusive, to the histogram.
+     */
+    static void countColors(int[] pixels, int start, int end, int[] hist) {
+        for (int i = start; i < end; i++) {
+            hist[quantizeFromRgb888(pixels[i])]++;
+        }
+    }
+
+    /**
+     * Counts the colors of a range of pixels into its own histogram, on the common fork/join pool.
+     */
+    @RequiresApi(24)
+    static final class HistogramTask extends RecursiveAction {
+        private final int[] mPixels;
+        private final int mStart;
+        private final int mEnd;
+        private final int[] mHistogram;
+
+        HistogramTask(int[] pixels, int start, int end, int[] hist) {
+            mPixels = pixels;
+            mStart = start;
+            mEnd = end;
+            mHistogram = hist;
+        }
+
+        @Override
+        protected void compute() {
+            ColorCutQuantizer.countColors(mPixels, mStart, mEnd, mHistogram);
+        }
+
+        /**
+         * Splits the pixels, which are in row order, into contiguous ranges, one per available
+         * thread, counts each range into its own histogram and then adds them up into
+         * {@code hist}.
+         */
+        static void countColorsInParallel(int[] pixels, int pixelCount, int[] hist,
+                @Nullable Palette.Generator generator) {
+            final int taskCount = Math.max(1, Math.min(ForkJoinPool.commonPool().getParallelism(),
+                    pixelCount / PARALLEL_HISTOGRAM_MIN_PIXELS_PER_TASK));
+            final HistogramTask[] tasks = new HistogramTask[taskCount];
+            for (int i = 0; i < taskCount; i++) {
+                final int start = (int) ((long) pixelCount * i / taskCount);
+                final int end = (int) ((long) pixelCount * (i + 1) / taskCount);
+                final int[] taskHist;
+                if (i == 0) {
+                    taskHist = hist;
+                } else if (generator != null) {
+                    taskHist = generator.obtainPartialHistogram(i - 1);
+                } else {
+                    taskHist = new int[HISTOGRAM_SIZE];
+                }
+                tasks[i] = new HistogramTask(pixels, start, end, taskHist);
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            for (int i = 1; i < taskCount; i++) {
+                final int[] taskHist = tasks[i].mHistogram;
+                for (int color = 0; color < HISTOGRAM_SIZE; color++) {
+                    hist[color] += taskHist[color];
+                }
+            }
+        }
+    }
+
     /**
      * @return the list of quantized colors
      */
@@ -68,6 +68,9 @@ import java.util.List;
  *     }
  * });
  * </pre>
+ * <p>
+ * When generating palettes for many images, such as the covers in a gallery, a {@link Generator}
+ * can be used to reuse the buffers from one image to the next.
  */
 public final class Palette {
 
@@ -776,6 +779,18 @@ public final class Palette {
          */
         @NonNull
         public Palette generate() {
+            return generate(null, null);
+        }
+
+        /**
+         * Generates the palette, using the buffers of the given generator and the swatches in the
+         * given cache if they are not null.
+         *
+         * @param generator generator whose buffers to use, or null to allocate new ones
+         * @param cache cache to look the swatches up in and to add them to, or null
+         */
+        @NonNull
+        Palette generate(@Nullable Generator generator, @Nullable PaletteCache cache) {
             List<Swatch> swatches;
 
             if (mBitmap != null) {
@@ -797,18 +812,36 @@ public final class Palette {
                             bitmap.getHeight());
                 }
 
-                // Now generate a quantizer from the Bitmap
-                final ColorCutQuantizer quantizer = new ColorCutQuantizer(
-                        getPixelsFromBitmap(bitmap),
-                        mMaxColors,
-                        mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]));
+                final int pixelCount = region != null
+                        ? region.width() * region.height()
+                        : bitmap.getWidth() * bitmap.getHeight();
+                final int[] pixels = getPixelsFromBitmap(bitmap, pixelCount, generator);
 
                 // If created a new bitmap, recycle it
                 if (bitmap != mBitmap) {
                     bitmap.recycle();
                 }
 
-                swatches = quantizer.getQuantizedColors();
+                final Filter[] filters =
+                        mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]);
+                PaletteCache.Key key = null;
+                List<Swatch> cachedSwatches = null;
+                if (cache != null) {
+                    key = new PaletteCache.Key(pixels, pixelCount, mMaxColors, filters);
+                    cachedSwatches = cache.getSwatches(key);
+                }
+
+                if (cachedSwatches != null) {
+                    swatches = cachedSwatches;
+                } else {
+                    // Now generate a quantizer from the pixels
+                    final ColorCutQuantizer quantizer = new ColorCutQuantizer(pixels, pixelCount,
+                            mMaxColors, filters, generator);
+                    swatches = quantizer.getQuantizedColors();
+                    if (cache != null && key != null) {
+                        cache.putSwatches(key, swatches);
+                    }
+                }
             } else if (mSwatches != null) {
                 // Else we're using the provided swatches
                 swatches = mSwatches;
@@ -859,29 +892,26 @@ public final class Palette {
             }.executeOnExecutor(android.os.AsyncTask.THREAD_POOL_EXECUTOR, mBitmap);
         }
 
-        private int[] getPixelsFromBitmap(Bitmap bitmap) {
-            final int bitmapWidth = bitmap.getWidth();
-            final int bitmapHeight = bitmap.getHeight();
-            final int[] pixels = new int[bitmapWidth * bitmapHeight];
-            bitmap.getPixels(pixels, 0, bitmapWidth, 0, 0, bitmapWidth, bitmapHeight);
-
+        /**
+         * Reads the pixels of the region, or of the whole bitmap if there is no region, into the
+         * first {@code pixelCount} elements of the returned array.
+         */
+        private int[] getPixelsFromBitmap(Bitmap bitmap, int pixelCount,
+                @Nullable Generator generator) {
+            final int[] pixels = generator != null
+                    ? generator.obtainPixels(pixelCount) : new int[pixelCount];
             if (mRegion == null) {
-                // If we don't have a region, return all of the pixels
-                return pixels;
+                // If we don't have a region, read all of the pixels
+                final int bitmapWidth = bitmap.getWidth();
+                bitmap.getPixels(pixels, 0, bitmapWidth, 0, 0, bitmapWidth, bitmap.getHeight());
             } else {
-                // If we do have a region, lets create a subset array containing only the region's
-                // pixels
+                // If we do have a region, only read the region's pixels rather than copying them
+                // out of all of the pixels
                 final int regionWidth = mRegion.width();
-                final int regionHeight = mRegion.height();
-                // pixels contains all of the pixels, so we need to iterate through each row and
-                // copy the regions pixels into a new smaller array
-                final int[] subsetPixels = new int[regionWidth * regionHeight];
-                for (int row = 0; row < regionHeight; row++) {
-                    System.arraycopy(pixels, ((row + mRegion.top) * bitmapWidth) + mRegion.left,
-                            subsetPixels, row * regionWidth, regionWidth);
-                }
-                return subsetPixels;
+                bitmap.getPixels(pixels, 0, regionWidth, mRegion.left, mRegion.top, regionWidth,
+                        mRegion.height());
             }
+            return pixels;
         }
 
         /**
@@ -914,6 +944,61 @@ public final class Palette {
         }
     }
 
+    /**
+     * Generates palettes from {@link Builder builders}, keeping the buffers which hold the pixels
+     * and the color histogram from one bitmap to the next. Generating the palettes of many bitmaps
+     * with the same generator then does not allocate these buffers for each bitmap.
+     * <p>
+     * A generator is not thread safe, each thread generating palettes should use its own.
+     */
+    public static final class Generator {
+        @Nullable private int[] mPixels;
+        @Nullable private int[] mHistogram;
+        private final List<int[]> mPartialHistograms = new ArrayList<>();
+
+        /**
+         * Generates the palette described by the given builder.
+         */
+        @NonNull
+        public Palette generate(@NonNull Builder builder) {
+            return builder.generate(this, null);
+        }
+
+        /**
+         * @return an array of at least {@code count} elements, with unspecified contents
+         */
+        int[] obtainPixels(int count) {
+            if (mPixels == null || mPixels.length < count) {
+                mPixels = new int[count];
+            }
+            return mPixels;
+        }
+
+        /**
+         * @return an empty histogram
+         */
+        int[] obtainHistogram() {
+            if (mHistogram == null) {
+                mHistogram = new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+            } else {
+                Arrays.fill(mHistogram, 0);
+            }
+            return mHistogram;
+        }
+
+        /**
+         * @return an empty histogram, to count a part of the pixels on another thread
+         */
+        int[] obtainPartialHistogram(int index) {
+            while (mPartialHistograms.size() <= index) {
+                mPartialHistograms.add(new int[ColorCutQuantizer.HISTOGRAM_SIZE]);
+            }
+            final int[] histogram = mPartialHistograms.get(index);
+            Arrays.fill(histogram, 0);
+            return histogram;
+        }
+    }
+
     /**
      * A Filter provides a mechanism for exercising fine-grained control over which colors
      * are valid within a resulting {@link Palette}.
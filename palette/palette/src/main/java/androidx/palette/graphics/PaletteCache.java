@@ -0,0 +1,320 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Caches the swatches of the palettes generated from bitmaps, so that generating the palette of
+ * the same image again, such as album art shown on several screens, skips the quantization.
+ * <p>
+ * Entries are keyed by a hash of the pixels which would be quantized, after the bitmap is resized
+ * and cropped to the region, along with the maximum color count and the filters, which are
+ * compared by identity. The targets are not part of the key, since they are only matched against
+ * the swatches after these are looked up.
+ * <p>
+ * The most recently used entries are kept in memory. If the cache is given a directory, entries
+ * are also stored in small files there, so that they survive process restarts. Only the palettes
+ * generated with the default filter, or without filters, are stored on disk, since other filters
+ * cannot be told apart from one process to the next.
+ * <p>
+ * This class is thread safe. Generating a palette still reads the pixels of the bitmap, so it
+ * should be done on a background thread, like {@link Palette.Builder#generate()}.
+ */
+public final class PaletteCache {
+    private static final String LOG_TAG = "PaletteCache";
+
+    private static final int FILE_FORMAT_VERSION = 1;
+    private static final String FILE_SUFFIX = ".palette";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    // Swatches as pairs of RGB color and population.
+    private final LruCache<Key, int[]> mMemoryCache;
+    @Nullable private final File mDirectory;
+    private final int mMaxSize;
+    private final Object mDiskLock = new Object();
+
+    /**
+     * Creates a cache which keeps the swatches of up to {@code maxSize} palettes in memory.
+     */
+    public PaletteCache(int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * Creates a cache which keeps the swatches of up to {@code maxSize} palettes in memory, and as
+     * many in the given directory.
+     *
+     * @param directory directory which is only used by this cache, such as a subdirectory of
+     *                  {@link android.content.Context#getCacheDir()}, or null to only keep the
+     *                  palettes in memory
+     */
+    public PaletteCache(int maxSize, @Nullable File directory) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        mMemoryCache = new LruCache<>(maxSize);
+        mDirectory = directory;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Generates the palette described by the given builder, looking its swatches up in this
+     * cache first.
+     */
+    @NonNull
+    public Palette generate(@NonNull Palette.Builder builder) {
+        return builder.generate(null, this);
+    }
+
+    /**
+     * Removes all the palettes from memory and from the directory.
+     */
+    public void clear() {
+        mMemoryCache.evictAll();
+        if (mDirectory != null) {
+            synchronized (mDiskLock) {
+                for (File file : listFiles(mDirectory)) {
+                    if (!file.delete()) {
+                        Log.w(LOG_TAG, "Unable to delete " + file);
+                    }
+                }
+            }
+        }
+    }
+
+    @Nullable
+    List<Palette.Swatch> getSwatches(@NonNull Key key) {
+        int[] swatches = mMemoryCache.get(key);
+        if (swatches == null && mDirectory != null && key.mPersistable) {
+            swatches = read(new File(mDirectory, key.getFileName()));
+            if (swatches != null) {
+                mMemoryCache.put(key, swatches);
+            }
+        }
+        if (swatches == null) {
+            return null;
+        }
+        // New swatches every time, since they compute their text colors lazily.
+        final List<Palette.Swatch> result = new ArrayList<>(swatches.length / 2);
+        for (int i = 0; i < swatches.length; i += 2) {
+            result.add(new Palette.Swatch(swatches[i], swatches[i + 1]));
+        }
+        return result;
+    }
+
+    void putSwatches(@NonNull Key key, @NonNull List<Palette.Swatch> swatches) {
+        final int[] packed = new int[swatches.size() * 2];
+        for (int i = 0; i < swatches.size(); i++) {
+            packed[i * 2] = swatches.get(i).getRgb();
+            packed[i * 2 + 1] = swatches.get(i).getPopulation();
+        }
+        mMemoryCache.put(key, packed);
+        if (mDirectory != null && key.mPersistable) {
+            write(mDirectory, key.getFileName(), packed);
+        }
+    }
+
+    @Nullable
+    private int[] read(File file) {
+        synchronized (mDiskLock) {
+            if (!file.exists()) {
+                return null;
+            }
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                if (in.readInt() != FILE_FORMAT_VERSION) {
+                    throw new IOException("Unknown format");
+                }
+                final int count = in.readInt();
+                if (count < 0 || count > ColorCutQuantizer.HISTOGRAM_SIZE) {
+                    throw new IOException("Invalid swatch count " + count);
+                }
+                final int[] swatches = new int[count * 2];
+                for (int i = 0; i < swatches.length; i++) {
+                    swatches[i] = in.readInt();
+                }
+                // Keeps the most recently used files when trimming.
+                //noinspection ResultOfMethodCallIgnored
+                file.setLastModified(System.currentTimeMillis());
+                return swatches;
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Unable to read " + file, e);
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+                return null;
+            } finally {
+                closeQuietly(in);
+            }
+        }
+    }
+
+    private void write(File directory, String fileName, int[] swatches) {
+        synchronized (mDiskLock) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                Log.w(LOG_TAG, "Unable to create " + directory);
+                return;
+            }
+            // Written to a temporary file first, so that a crash cannot leave a truncated entry.
+            final File tempFile = new File(directory, fileName + TEMP_FILE_SUFFIX);
+            DataOutputStream out = null;
+            try {
+                out = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(tempFile)));
+                out.writeInt(FILE_FORMAT_VERSION);
+                out.writeInt(swatches.length / 2);
+                for (int value : swatches) {
+                    out.writeInt(value);
+                }
+                out.close();
+                out = null;
+                if (!tempFile.renameTo(new File(directory, fileName))) {
+                    throw new IOException("Unable to rename " + tempFile);
+                }
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Unable to write " + fileName, e);
+                closeQuietly(out);
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+                return;
+            }
+            trim(directory);
+        }
+    }
+
+    /**
+     * Deletes the least recently used files beyond the maximum size.
+     */
+    private void trim(File directory) {
+        final File[] files = listFiles(directory);
+        if (files.length <= mMaxSize) {
+            return;
+        }
+        final long[] lastModified = new long[files.length];
+        final Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                final long lhsModified = lastModified[lhs];
+                final long rhsModified = lastModified[rhs];
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length - mMaxSize; i++) {
+            //noinspection ResultOfMethodCallIgnored
+            files[order[i]].delete();
+        }
+    }
+
+    private static File[] listFiles(File directory) {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        final List<File> result = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (file.getName().endsWith(FILE_SUFFIX)) {
+                result.add(file);
+            }
+        }
+        return result.toArray(new File[result.size()]);
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing left to do with it.
+            }
+        }
+    }
+
+    /**
+     * Identifies the swatches quantized from some pixels.
+     */
+    static final class Key {
+        private final long mHash;
+        private final int mMaxColors;
+        @Nullable private final Palette.Filter[] mFilters;
+        // Whether the filters are the same in every process, so that the entry can be stored.
+        final boolean mPersistable;
+
+        Key(int[] pixels, int pixelCount, int maxColors, @Nullable Palette.Filter[] filters) {
+            // FNV-1a over whole pixels, then mixed so that every bit of the hash depends on them.
+            long hash = 0xCBF29CE484222325L;
+            for (int i = 0; i < pixelCount; i++) {
+                hash = (hash ^ pixels[i]) * 0x100000001B3L;
+            }
+            hash = (hash ^ pixelCount) * 0x100000001B3L;
+            hash ^= hash >>> 33;
+            hash *= 0xFF51AFD7ED558CCDL;
+            hash ^= hash >>> 33;
+            mHash = hash;
+            mMaxColors = maxColors;
+            mFilters = filters;
+            mPersistable = filters == null
+                    || (filters.length == 1 && filters[0] == Palette.DEFAULT_FILTER);
+        }
+
+        String getFileName() {
+            return Long.toHexString(mHash) + '-' + mMaxColors + '-'
+                    + (mFilters == null ? "none" : "default") + FILE_SUFFIX;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return mHash == key.mHash && mMaxColors == key.mMaxColors
+                    && Arrays.equals(mFilters, key.mFilters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (int) (mHash ^ (mHash >>> 32)) + mMaxColors;
+        }
+    }
+}
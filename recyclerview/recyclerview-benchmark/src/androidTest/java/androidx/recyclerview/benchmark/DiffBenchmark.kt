@@ -25,6 +25,7 @@ import org.junit.Rule
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.junit.runners.Parameterized
+import kotlin.random.Random
 
 @LargeTest
 @RunWith(Parameterized::class)
@@ -38,7 +39,11 @@ class DiffBenchmark(
     @Test
     fun runDiff() {
         benchmarkRule.measureRepeated {
-            val result = DiffUtil.calculateDiff(input.callback, input.detectMoves)
+            val result = if (input.keyed) {
+                DiffUtil.calculateKeyedDiff(input.callback, input.detectMoves)
+            } else {
+                DiffUtil.calculateDiff(input.callback, input.detectMoves)
+            }
             if (input.dispatchUpdates) {
                 result.dispatchUpdatesTo(dummyUpdateCallback)
             }
@@ -102,8 +107,24 @@ class DiffBenchmark(
                 name = "move_from_end_to_beginning",
                 before = (0..1000).toList(),
                 after = (900..1000).toList() + (0..899).toList()
+            ),
+            Input(
+                name = "shuffle",
+                before = (0..1000).toList(),
+                // fixed seed, so that every run diffs the same lists
+                after = (0..1000).shuffled(Random(0))
+            ),
+            Input(
+                name = "mostly_equal",
+                before = (0..1000).toList(),
+                after = (0..1000).filterNot { it % 100 == 50 } + (2000..2009)
             )
         ).flatMap {
+            listOf(
+                it,
+                it.copy(keyed = true)
+            )
+        }.flatMap {
             listOf(
                 it,
                 it.copy(detectMoves = false)
@@ -121,9 +142,14 @@ class DiffBenchmark(
         val before: List<Int>,
         val after: List<Int>,
         val dispatchUpdates: Boolean = true,
-        val detectMoves: Boolean = true
+        val detectMoves: Boolean = true,
+        val keyed: Boolean = false
     ) {
-        val callback = object : DiffUtil.Callback() {
+        val callback = object : DiffUtil.KeyedCallback() {
+            override fun getOldItemKey(oldItemPosition: Int): Any = before[oldItemPosition]
+
+            override fun getNewItemKey(newItemPosition: Int): Any = after[newItemPosition]
+
             override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) =
                 before[oldItemPosition] == after[newItemPosition]
 
@@ -136,6 +162,7 @@ class DiffBenchmark(
         }
 
         override fun toString() = name +
+                "_keyed_$keyed" +
                 "_dispatchUpdates_$dispatchUpdates" +
                 "_detectMoves_$detectMoves" +
                 "_size_[${before.size}_${after.size}]"
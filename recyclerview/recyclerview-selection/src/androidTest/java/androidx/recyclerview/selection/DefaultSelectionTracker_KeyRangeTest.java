@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.selection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.selection.SelectionTracker.SelectionPredicate;
+import androidx.recyclerview.selection.testing.TestSelectionObserver;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class DefaultSelectionTracker_KeyRangeTest {
+
+    private static final int ITEM_COUNT = 200000;
+
+    private ItemKeyProvider<Long> mKeyProvider;
+    private DefaultSelectionTracker<Long> mTracker;
+    private TestSelectionObserver<Long> mListener;
+
+    @Before
+    public void setUp() {
+        mKeyProvider = new ItemKeyProvider<Long>(
+                ItemKeyProvider.SCOPE_MAPPED) {
+            @Override
+            public @Nullable Long getKey(int position) {
+                return (long) position;
+            }
+
+            @Override
+            public int getPosition(@NonNull Long key) {
+                return (int) (long) key;
+            }
+        };
+        SelectionPredicate<Long> predicate = new SelectionPredicate<Long>() {
+            @Override
+            public boolean canSetStateForKey(@NonNull Long key, boolean nextState) {
+                // Every thousandth item can't be selected.
+                return !nextState || key % 1000 != 999;
+            }
+
+            @Override
+            public boolean canSetStateAtPosition(int position, boolean nextState) {
+                return true;
+            }
+
+            @Override
+            public boolean canSelectMultiple() {
+                return true;
+            }
+        };
+        mTracker = new DefaultSelectionTracker<>(
+                "test-selection", mKeyProvider, predicate,
+                StorageStrategy.createLongRangeStorage());
+        mListener = TestSelectionObserver.createLenientObserver();
+        mTracker.addObserver(mListener);
+    }
+
+    @Test
+    public void testSelectAll_StoresRanges() {
+        assertTrue(mTracker.setKeyRangeSelected(0L, (long) ITEM_COUNT - 1, true));
+
+        mListener.assertSelectionChanged();
+        assertEquals(ITEM_COUNT - ITEM_COUNT / 1000, mTracker.getSelection().size());
+        assertTrue(mTracker.isSelected(0L));
+        assertFalse(mTracker.isSelected(999L));
+        assertEquals(ITEM_COUNT / 1000,
+                ((LongRangeSet) mTracker.getSelection().mSelection).getRangeCount());
+    }
+
+    @Test
+    public void testSelectAll_NotifiesOnce() {
+        mTracker.setKeyRangeSelected(0L, (long) ITEM_COUNT - 1, true);
+
+        mListener.assertKeyRangeChangeCount(1);
+        mListener.assertNoItemStateChanged();
+    }
+
+    @Test
+    public void testSelectAll_PredicateAllowsRange_StoresOneRange() {
+        DefaultSelectionTracker<Long> tracker = new DefaultSelectionTracker<>(
+                "test-selection", mKeyProvider, SelectionPredicates.<Long>createSelectAnything(),
+                StorageStrategy.createLongRangeStorage());
+        TestSelectionObserver<Long> listener = TestSelectionObserver.createLenientObserver();
+        tracker.addObserver(listener);
+
+        assertTrue(tracker.setKeyRangeSelected(0L, Long.MAX_VALUE, true));
+
+        assertTrue(tracker.isSelected(Long.MAX_VALUE));
+        assertEquals(1, ((LongRangeSet) tracker.getSelection().mSelection).getRangeCount());
+        listener.assertKeyRangeChangeCount(1);
+        listener.assertSelectionChanged();
+    }
+
+    @Test
+    public void testSelectRange_Unchanged_DoesNotNotifyRange() {
+        mTracker.setKeyRangeSelected(0L, 99L, true);
+        mListener.reset();
+
+        assertFalse(mTracker.setKeyRangeSelected(10L, 19L, true));
+
+        mListener.assertKeyRangeChangeCount(0);
+    }
+
+    @Test
+    public void testDeselectRange() {
+        mTracker.setKeyRangeSelected(0L, 99L, true);
+        mListener.reset();
+
+        assertTrue(mTracker.setKeyRangeSelected(10L, 19L, false));
+        assertFalse(mTracker.setKeyRangeSelected(10L, 19L, false));
+
+        assertEquals(90, mTracker.getSelection().size());
+        assertFalse(mTracker.isSelected(15L));
+        assertEquals(2, ((LongRangeSet) mTracker.getSelection().mSelection).getRangeCount());
+    }
+
+    @Test
+    public void testClearSelection() {
+        mTracker.setKeyRangeSelected(0L, (long) ITEM_COUNT - 1, true);
+
+        assertTrue(mTracker.clearSelection());
+
+        assertFalse(mTracker.hasSelection());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testStringKeys_Unsupported() {
+        SelectionTracker<String> tracker = new DefaultSelectionTracker<>(
+                "test-selection",
+                new ItemKeyProvider<String>(ItemKeyProvider.SCOPE_MAPPED) {
+                    @Override
+                    public @Nullable String getKey(int position) {
+                        return String.valueOf(position);
+                    }
+
+                    @Override
+                    public int getPosition(@NonNull String key) {
+                        return Integer.parseInt(key);
+                    }
+                },
+                SelectionPredicates.<String>createSelectAnything(),
+                StorageStrategy.createStringStorage());
+        tracker.setKeyRangeSelected("0", "9", true);
+    }
+}
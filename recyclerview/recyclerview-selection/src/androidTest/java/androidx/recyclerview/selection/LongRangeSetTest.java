@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.selection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public final class LongRangeSetTest {
+
+    private final LongRangeSet mSet = new LongRangeSet();
+
+    @Test
+    public void testAdjacentKeysShareRange() {
+        for (long key = 0; key < 200000; key++) {
+            mSet.add(key);
+        }
+        assertEquals(1, mSet.getRangeCount());
+        assertEquals(200000, mSet.size());
+        assertTrue(mSet.contains(0L));
+        assertTrue(mSet.contains(199999L));
+        assertFalse(mSet.contains(200000L));
+    }
+
+    @Test
+    public void testAddRange_MergesOverlappingRanges() {
+        mSet.addRange(10, 20);
+        mSet.addRange(30, 40);
+        mSet.addRange(50, 60);
+        assertEquals(3, mSet.getRangeCount());
+
+        assertEquals(18, mSet.addRange(15, 52));
+        assertEquals(1, mSet.getRangeCount());
+        assertEquals(10, mSet.getRangeStart(0));
+        assertEquals(60, mSet.getRangeEnd(0));
+        assertEquals(51, mSet.size());
+    }
+
+    @Test
+    public void testRemoveRange_SplitsRange() {
+        mSet.addRange(0, 99);
+        assertEquals(10, mSet.removeRange(40, 49));
+        assertEquals(2, mSet.getRangeCount());
+        assertEquals(39, mSet.getRangeEnd(0));
+        assertEquals(50, mSet.getRangeStart(1));
+        assertEquals(90, mSet.size());
+
+        assertTrue(mSet.remove(0L));
+        assertFalse(mSet.remove(0L));
+        assertEquals(1, mSet.getRangeStart(0));
+    }
+
+    @Test
+    public void testIterator_RemovesKeys() {
+        mSet.addRange(0, 9);
+        Iterator<Long> iterator = mSet.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(5, mSet.getRangeCount());
+        assertEquals("[1, 3, 5, 7, 9]", mSet.toString());
+    }
+
+    @Test
+    public void testEqualsOtherSets() {
+        TreeSet<Long> expected = new TreeSet<>();
+        expected.add(3L);
+        expected.add(4L);
+        expected.add(8L);
+        mSet.addRange(3, 4);
+        mSet.add(8L);
+        assertEquals(expected, mSet);
+        assertEquals(mSet, expected);
+        assertEquals(expected.hashCode(), mSet.hashCode());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(11);
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 5000; i++) {
+            long first = random.nextInt(500);
+            long last = first + random.nextInt(20);
+            long count = 0;
+            if (random.nextBoolean()) {
+                for (long key = first; key <= last; key++) {
+                    count += expected.add(key) ? 1 : 0;
+                }
+                assertEquals(count, mSet.addRange(first, last));
+            } else {
+                for (long key = first; key <= last; key++) {
+                    count += expected.remove(key) ? 1 : 0;
+                }
+                assertEquals(count, mSet.removeRange(first, last));
+            }
+            assertEquals(expected.size(), mSet.size());
+        }
+        assertEquals(expected, mSet);
+    }
+}
@@ -33,6 +33,7 @@ public class TestSelectionObserver<K> extends SelectionObserver<K> {
     private boolean mSelectionCleared = false;
     private boolean mSelectionReset = false;
     private boolean mSelectionRestored = false;
+    private int mKeyRangeChangeCount = 0;
     private boolean mStrict = true;
 
     /**
@@ -49,6 +50,7 @@ public class TestSelectionObserver<K> extends SelectionObserver<K> {
         mSelected.clear();
         mSelectionChanged = false;
         mSelectionReset = false;
+        mKeyRangeChangeCount = 0;
     }
 
     @Override
@@ -66,6 +68,11 @@ public class TestSelectionObserver<K> extends SelectionObserver<K> {
         }
     }
 
+    @Override
+    public void onKeyRangeStateChanged(@NonNull K firstKey, @NonNull K lastKey) {
+        mKeyRangeChangeCount++;
+    }
+
     @Override
     protected void onSelectionCleared() {
         mSelectionCleared = true;
@@ -126,4 +133,12 @@ public class TestSelectionObserver<K> extends SelectionObserver<K> {
     public void assertSelectionRestored() {
         assertTrue(mSelectionRestored);
     }
+
+    public void assertKeyRangeChangeCount(int expected) {
+        assertEquals(expected, mKeyRangeChangeCount);
+    }
+
+    public void assertNoItemStateChanged() {
+        assertTrue(mSelected.isEmpty());
+    }
 }
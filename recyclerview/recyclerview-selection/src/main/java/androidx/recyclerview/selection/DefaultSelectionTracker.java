@@ -55,7 +55,7 @@ public class DefaultSelectionTracker<K> extends SelectionTracker<K> implements R
     private static final String TAG = "DefaultSelectionTracker";
     private static final String EXTRA_SELECTION_PREFIX = "androidx.recyclerview.selection";
 
-    private final Selection<K> mSelection = new Selection<>();
+    private final Selection<K> mSelection;
     private final List<SelectionObserver<K>> mObservers = new ArrayList<>(1);
     private final ItemKeyProvider<K> mKeyProvider;
     private final SelectionPredicate<K> mSelectionPredicate;
@@ -92,6 +92,7 @@ public class DefaultSelectionTracker<K> extends SelectionTracker<K> implements R
         mKeyProvider = keyProvider;
         mSelectionPredicate = selectionPredicate;
         mStorage = storage;
+        mSelection = storage.createSelection();
 
         mRangeCallbacks = new RangeCallbacks();
 
@@ -158,6 +159,77 @@ public class DefaultSelectionTracker<K> extends SelectionTracker<K> implements R
         return changed;
     }
 
+    @Override
+    public boolean setKeyRangeSelected(@NonNull K firstKey, @NonNull K lastKey, boolean selected) {
+        if (!(firstKey instanceof Long) || !(lastKey instanceof Long)) {
+            throw new UnsupportedOperationException("Key ranges are only supported for Long keys.");
+        }
+        long first = (Long) firstKey;
+        long last = (Long) lastKey;
+        checkArgument(first <= last);
+
+        boolean changed;
+        if (mSelection.mSelection instanceof LongRangeSet) {
+            LongRangeSet keys = (LongRangeSet) mSelection.mSelection;
+            if (mSelectionPredicate.canSetStateForKeyRange(firstKey, lastKey, selected)) {
+                changed = setRangeState(keys, first, last, selected) > 0;
+            } else {
+                changed = setRangeStateChecked(keys, first, last, selected);
+            }
+        } else {
+            changed = false;
+            for (long value = first; ; value++) {
+                K key = (K) Long.valueOf(value);
+                changed |= selected
+                        ? canSetState(key, true) && mSelection.add(key)
+                        : canSetState(key, false) && mSelection.remove(key);
+                if (value == last) {
+                    break;
+                }
+            }
+        }
+
+        if (changed) {
+            notifyKeyRangeStateChanged(firstKey, lastKey);
+        }
+        notifySelectionChanged();
+        return changed;
+    }
+
+    /**
+     * Sets the state of the keys of the range which the predicate allows to be set, one run of
+     * consecutive allowed keys at a time.
+     */
+    private boolean setRangeStateChecked(
+            @NonNull LongRangeSet keys, long first, long last, boolean selected) {
+        long changedCount = 0;
+        long runStart = first;
+        boolean inRun = false;
+        for (long value = first; ; value++) {
+            if (canSetState((K) Long.valueOf(value), selected)) {
+                if (!inRun) {
+                    runStart = value;
+                    inRun = true;
+                }
+            } else if (inRun) {
+                changedCount += setRangeState(keys, runStart, value - 1, selected);
+                inRun = false;
+            }
+            if (value == last) {
+                break;
+            }
+        }
+        if (inRun) {
+            changedCount += setRangeState(keys, runStart, last, selected);
+        }
+        return changedCount > 0;
+    }
+
+    private static long setRangeState(
+            @NonNull LongRangeSet keys, long first, long last, boolean selected) {
+        return selected ? keys.addRange(first, last) : keys.removeRange(first, last);
+    }
+
     @Override
     public boolean clearSelection() {
         if (!hasSelection()) {
@@ -191,9 +263,9 @@ public class DefaultSelectionTracker<K> extends SelectionTracker<K> implements R
     private Selection<K> clearSelectionQuietly() {
         mRange = null;
 
-        MutableSelection<K> prevSelection = new MutableSelection<>();
+        Selection<K> prevSelection = mStorage.createSelection();
         if (hasSelection()) {
-            copySelection(prevSelection);
+            prevSelection.copyFrom(mSelection);
             mSelection.clear();
         }
 
@@ -436,6 +508,16 @@ public class DefaultSelectionTracker<K> extends SelectionTracker<K> implements R
         }
     }
 
+    /**
+     * Notifies registered listeners when the state of a range of keys has been set at once.
+     */
+    private void notifyKeyRangeStateChanged(@NonNull K firstKey, @NonNull K lastKey) {
+        int lastListenerIndex = mObservers.size() - 1;
+        for (int i = lastListenerIndex; i >= 0; i--) {
+            mObservers.get(i).onKeyRangeStateChanged(firstKey, lastKey);
+        }
+    }
+
     private void notifySelectionCleared() {
         for (SelectionObserver<K> observer : mObservers) {
             observer.onSelectionCleared();
@@ -112,6 +112,23 @@ public class EventBridge {
                 }
             });
         }
+
+        /**
+         * Called when the state of a range of keys has been set at once. The positions of the
+         * keys aren't necessarily consecutive, so every item is rebound with one notification.
+         */
+        @Override
+        public void onKeyRangeStateChanged(@NonNull K firstKey, @NonNull K lastKey) {
+            if (VERBOSE) Log.v(TAG, "RANGE " + firstKey + ".." + lastKey + " CHANGED");
+
+            mRunner.accept(new Runnable() {
+                @Override
+                public void run() {
+                    mAdapter.notifyItemRangeChanged(0, mAdapter.getItemCount(),
+                            SelectionTracker.SELECTION_CHANGED_MARKER);
+                }
+            });
+        }
     }
 
     private EventBridge() {
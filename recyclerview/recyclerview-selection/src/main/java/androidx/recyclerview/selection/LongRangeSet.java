@@ -0,0 +1,361 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.selection;
+
+import static androidx.core.util.Preconditions.checkArgument;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of {@link Long} keys stored as sorted, non-overlapping and non-adjacent ranges of
+ * consecutive keys, so that it takes memory in proportion to the number of ranges instead of the
+ * number of keys. Used by {@link StorageStrategy#createLongRangeStorage()}.
+ *
+ * <p>
+ * Looking up, adding or removing a key costs O(log r), where r is the number of ranges, plus
+ * the cost of shifting the ranges after it when a range is created or removed. Keys are iterated
+ * in ascending order, not in insertion order.
+ */
+final class LongRangeSet extends AbstractSet<Long> {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    // First and last key of each range, both inclusive.
+    private long[] mStarts = new long[INITIAL_CAPACITY];
+    private long[] mEnds = new long[INITIAL_CAPACITY];
+    private int mRangeCount;
+    private long mKeyCount;
+    private int mModCount;
+
+    LongRangeSet() {
+    }
+
+    /**
+     * @return The number of ranges the keys are stored in
+     */
+    int getRangeCount() {
+        return mRangeCount;
+    }
+
+    /**
+     * @return The first key of the range at the given index
+     */
+    long getRangeStart(int index) {
+        checkRangeIndex(index);
+        return mStarts[index];
+    }
+
+    /**
+     * @return The last key of the range at the given index
+     */
+    long getRangeEnd(int index) {
+        checkRangeIndex(index);
+        return mEnds[index];
+    }
+
+    /**
+     * @return The number of keys in the set, which unlike {@link #size()} is not capped at
+     * {@link Integer#MAX_VALUE}
+     */
+    long getKeyCount() {
+        return mKeyCount;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(mKeyCount, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mRangeCount == 0;
+    }
+
+    @Override
+    public boolean contains(@Nullable Object o) {
+        if (!(o instanceof Long)) {
+            return false;
+        }
+        long key = (Long) o;
+        int index = floor(key);
+        return index >= 0 && mEnds[index] >= key;
+    }
+
+    @Override
+    public boolean add(@NonNull Long key) {
+        return addRange(key, key) > 0;
+    }
+
+    @Override
+    public boolean remove(@Nullable Object o) {
+        if (!(o instanceof Long)) {
+            return false;
+        }
+        long key = (Long) o;
+        return removeRange(key, key) > 0;
+    }
+
+    @Override
+    public boolean addAll(@NonNull Collection<? extends Long> c) {
+        if (!(c instanceof LongRangeSet)) {
+            return super.addAll(c);
+        }
+        LongRangeSet other = (LongRangeSet) c;
+        boolean changed = false;
+        for (int i = 0; i < other.mRangeCount; i++) {
+            changed |= addRange(other.mStarts[i], other.mEnds[i]) > 0;
+        }
+        return changed;
+    }
+
+    @Override
+    public void clear() {
+        mRangeCount = 0;
+        mKeyCount = 0;
+        mModCount++;
+    }
+
+    /**
+     * Adds every key between {@code first} and {@code last}, inclusive.
+     *
+     * @return The number of keys which were not in the set already
+     */
+    long addRange(long first, long last) {
+        checkArgument(first <= last);
+        // Ranges which overlap or touch the new one are merged into it.
+        int from = first == Long.MIN_VALUE ? 0 : firstEndingAtOrAfter(first - 1);
+        int to = (last == Long.MAX_VALUE ? mRangeCount : floor(last + 1) + 1);
+        long previousKeyCount = mKeyCount;
+        long start = first;
+        long end = last;
+        if (from < to) {
+            start = Math.min(start, mStarts[from]);
+            end = Math.max(end, mEnds[to - 1]);
+            for (int i = from; i < to; i++) {
+                mKeyCount -= mEnds[i] - mStarts[i] + 1;
+            }
+        }
+        replace(from, to, 1);
+        mStarts[from] = start;
+        mEnds[from] = end;
+        mKeyCount += end - start + 1;
+        return mKeyCount - previousKeyCount;
+    }
+
+    /**
+     * Removes every key between {@code first} and {@code last}, inclusive.
+     *
+     * @return The number of keys which were in the set
+     */
+    long removeRange(long first, long last) {
+        checkArgument(first <= last);
+        int from = firstEndingAtOrAfter(first);
+        int to = floor(last) + 1;
+        if (from >= to) {
+            return 0;
+        }
+        long previousKeyCount = mKeyCount;
+        // The ranges at both ends may only be partly removed.
+        long headStart = mStarts[from];
+        long tailEnd = mEnds[to - 1];
+        for (int i = from; i < to; i++) {
+            mKeyCount -= mEnds[i] - mStarts[i] + 1;
+        }
+        boolean keepHead = headStart < first;
+        boolean keepTail = tailEnd > last;
+        replace(from, to, (keepHead ? 1 : 0) + (keepTail ? 1 : 0));
+        int index = from;
+        if (keepHead) {
+            mStarts[index] = headStart;
+            mEnds[index] = first - 1;
+            mKeyCount += first - headStart;
+            index++;
+        }
+        if (keepTail) {
+            mStarts[index] = last + 1;
+            mEnds[index] = tailEnd;
+            mKeyCount += tailEnd - last;
+        }
+        return previousKeyCount - mKeyCount;
+    }
+
+    @Override
+    public @NonNull Iterator<Long> iterator() {
+        return new KeyIterator();
+    }
+
+    @Override
+    public int hashCode() {
+        // Same as AbstractSet, without boxing every key.
+        int hashCode = 0;
+        for (int i = 0; i < mRangeCount; i++) {
+            for (long key = mStarts[i]; ; key++) {
+                hashCode += (int) (key ^ (key >>> 32));
+                if (key == mEnds[i]) {
+                    break;
+                }
+            }
+        }
+        return hashCode;
+    }
+
+    @Override
+    public @NonNull String toString() {
+        StringBuilder buffer = new StringBuilder(mRangeCount * 16 + 2);
+        buffer.append('[');
+        for (int i = 0; i < mRangeCount; i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(mStarts[i]);
+            if (mEnds[i] != mStarts[i]) {
+                buffer.append("..").append(mEnds[i]);
+            }
+        }
+        return buffer.append(']').toString();
+    }
+
+    /**
+     * @return The index of the last range which starts at or before the key, or -1 if there is
+     * none
+     */
+    private int floor(long key) {
+        int lo = 0;
+        int hi = mRangeCount - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (mStarts[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo - 1;
+    }
+
+    /**
+     * @return The index of the first range which ends at or after the key, or the number of
+     * ranges if there is none
+     */
+    private int firstEndingAtOrAfter(long key) {
+        int lo = 0;
+        int hi = mRangeCount - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (mEnds[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Replaces the ranges from {@code from} to {@code to}, exclusive, with {@code count} ranges
+     * which the caller must then set.
+     */
+    private void replace(int from, int to, int count) {
+        final int newRangeCount = mRangeCount - (to - from) + count;
+        if (newRangeCount > mStarts.length) {
+            int capacity = Math.max(newRangeCount, mStarts.length * 2);
+            long[] starts = new long[capacity];
+            long[] ends = new long[capacity];
+            System.arraycopy(mStarts, 0, starts, 0, from);
+            System.arraycopy(mEnds, 0, ends, 0, from);
+            System.arraycopy(mStarts, to, starts, from + count, mRangeCount - to);
+            System.arraycopy(mEnds, to, ends, from + count, mRangeCount - to);
+            mStarts = starts;
+            mEnds = ends;
+        } else if (to - from != count) {
+            System.arraycopy(mStarts, to, mStarts, from + count, mRangeCount - to);
+            System.arraycopy(mEnds, to, mEnds, from + count, mRangeCount - to);
+        }
+        mRangeCount = newRangeCount;
+        mModCount++;
+    }
+
+    private void checkRangeIndex(int index) {
+        if (index < 0 || index >= mRangeCount) {
+            throw new IndexOutOfBoundsException(
+                    "Invalid range index " + index + ", range count is " + mRangeCount);
+        }
+    }
+
+    private final class KeyIterator implements Iterator<Long> {
+        private int mRange;
+        private long mNext;
+        private long mLast;
+        private boolean mCanRemove;
+        private int mExpectedModCount = mModCount;
+
+        KeyIterator() {
+            if (mRangeCount > 0) {
+                mNext = mStarts[0];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mRange < mRangeCount;
+        }
+
+        @Override
+        public Long next() {
+            if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            mLast = mNext;
+            mCanRemove = true;
+            if (mNext == mEnds[mRange]) {
+                mRange++;
+                if (mRange < mRangeCount) {
+                    mNext = mStarts[mRange];
+                }
+            } else {
+                mNext++;
+            }
+            return mLast;
+        }
+
+        @Override
+        public void remove() {
+            if (!mCanRemove) {
+                throw new IllegalStateException();
+            }
+            if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            mCanRemove = false;
+            final boolean hasNext = hasNext();
+            removeRange(mLast, mLast);
+            mExpectedModCount = mModCount;
+            // Removing the key may have split or removed a range, find where the next key is now.
+            mRange = hasNext ? firstEndingAtOrAfter(mNext) : mRangeCount;
+        }
+    }
+}
@@ -76,6 +76,15 @@ public class Selection<K> implements Iterable<K> {
         mProvisionalSelection = new LinkedHashSet<>();
     }
 
+    /**
+     * Used by {@link StorageStrategy} to create a selection with a custom representation of the
+     * primary and provisional selections.
+     */
+    Selection(@NonNull Set<K> selection, @NonNull Set<K> provisionalSelection) {
+        mSelection = selection;
+        mProvisionalSelection = provisionalSelection;
+    }
+
     /**
      * @return true if the position is currently selected.
      */
@@ -46,6 +46,12 @@ public final class SelectionPredicates {
                 return true;
             }
 
+            @Override
+            public boolean canSetStateForKeyRange(
+                    @NonNull K firstKey, @NonNull K lastKey, boolean nextState) {
+                return true;
+            }
+
             @Override
             public boolean canSelectMultiple() {
                 return true;
@@ -35,6 +35,8 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.RecyclerView.AdapterDataObserver;
 import androidx.recyclerview.widget.RecyclerView.OnItemTouchListener;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -165,6 +167,66 @@ public abstract class SelectionTracker<K> {
      */
     public abstract boolean setItemsSelected(@NonNull Iterable<K> keys, boolean selected);
 
+    /**
+     * Sets the selected state of every item whose key is between {@code firstKey} and
+     * {@code lastKey}, inclusive, if permitted after consulting SelectionPredicate. Only supported
+     * for {@link Long} keys.
+     *
+     * <p>
+     * Unlike {@link #setItemsSelected(Iterable, boolean)}, this doesn't need a collection of
+     * every key. Combined with {@link StorageStrategy#createLongRangeStorage()}, selecting every
+     * item of a large list whose keys are consecutive only costs the memory of one range.
+     *
+     * <p>
+     * The tracker created by {@link Builder} notifies observers of the change with one call to
+     * {@link SelectionObserver#onKeyRangeStateChanged(Object, Object)}, rather than one call to
+     * {@link SelectionObserver#onItemStateChanged(Object, boolean)} per key. The default
+     * implementation passes the keys to {@link #setItemsSelected(Iterable, boolean)} one by one,
+     * without collecting them.
+     *
+     * @return true if the selection changed.
+     * @throws UnsupportedOperationException if the keys are not {@link Long} keys.
+     */
+    public boolean setKeyRangeSelected(@NonNull K firstKey, @NonNull K lastKey, boolean selected) {
+        if (!(firstKey instanceof Long) || !(lastKey instanceof Long)) {
+            throw new UnsupportedOperationException("Key ranges are only supported for Long keys.");
+        }
+        final long first = (Long) firstKey;
+        final long last = (Long) lastKey;
+        checkArgument(first <= last);
+
+        return setItemsSelected(new Iterable<K>() {
+            @Override
+            public @NonNull Iterator<K> iterator() {
+                return new Iterator<K>() {
+                    private long mNext = first;
+                    private boolean mDone;
+
+                    @Override
+                    public boolean hasNext() {
+                        return !mDone;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public K next() {
+                        if (mDone) {
+                            throw new NoSuchElementException();
+                        }
+                        // Checked rather than iterating to last + 1, which may overflow.
+                        mDone = mNext == last;
+                        return (K) Long.valueOf(mNext++);
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        }, selected);
+    }
+
     /**
      * Attempts to select an item.
      *
@@ -305,6 +367,17 @@ public abstract class SelectionTracker<K> {
         public void onItemStateChanged(@NonNull K key, boolean selected) {
         }
 
+        /**
+         * Called when the state of the keys between {@code firstKey} and {@code lastKey},
+         * inclusive, has been set at once by
+         * {@link SelectionTracker#setKeyRangeSelected(Object, Object, boolean)}.
+         * {@link #onItemStateChanged(K, boolean)} will *not* be called for the individual keys,
+         * some of which may not have changed. Use {@link SelectionTracker#isSelected(Object)} to
+         * find the state of a key.
+         */
+        public void onKeyRangeStateChanged(@NonNull K firstKey, @NonNull K lastKey) {
+        }
+
         /**
          * Called when Selection is cleared.
          * TODO(smckay): Make public in a future public API.
@@ -369,6 +442,26 @@ public abstract class SelectionTracker<K> {
          */
         public abstract boolean canSetStateAtPosition(int position, boolean nextState);
 
+        /**
+         * Validates a change to selection for every key between {@code firstKey} and
+         * {@code lastKey}, inclusive, as set by
+         * {@link SelectionTracker#setKeyRangeSelected(Object, Object, boolean)}.
+         *
+         * <p>
+         * The default implementation returns false, in which case
+         * {@link #canSetStateForKey(Object, boolean)} is consulted for each key. Override this
+         * to let a large range be set without validating its keys one by one.
+         *
+         * @param firstKey  the first key of the range
+         * @param lastKey   the last key of the range
+         * @param nextState the next potential selected/unselected state
+         * @return true if every key of the range can be set to {@code nextState}.
+         */
+        public boolean canSetStateForKeyRange(
+                @NonNull K firstKey, @NonNull K lastKey, boolean nextState) {
+            return false;
+        }
+
         /**
          * Permits restriction to single selection mode. Single selection mode has
          * unique behaviors in that it'll deselect an item already selected
@@ -31,7 +31,7 @@ import java.util.ArrayList;
  * Strategy for storing keys in saved state. Extend this class when using custom
  * key types that aren't supported by default. Prefer use of builtin storage strategies:
  * {@link #createStringStorage()}, {@link #createLongStorage()},
- * {@link #createParcelableStorage(Class)}.
+ * {@link #createLongRangeStorage()}, {@link #createParcelableStorage(Class)}.
  *
  * <p>
  * See
@@ -53,6 +53,9 @@ public abstract class StorageStrategy<K> {
     @VisibleForTesting
     static final String SELECTION_KEY_TYPE = "androidx.recyclerview.selection.type";
 
+    @VisibleForTesting
+    static final String SELECTION_RANGES = "androidx.recyclerview.selection.ranges";
+
     private final Class<K> mType;
 
     /**
@@ -83,6 +86,14 @@ public abstract class StorageStrategy<K> {
         return mType.getCanonicalName();
     }
 
+    /**
+     * Creates the empty {@link Selection} which a {@link SelectionTracker} using this strategy
+     * stores its selection in.
+     */
+    @NonNull Selection<K> createSelection() {
+        return new Selection<>();
+    }
+
     /**
      * @return StorageStrategy suitable for use with {@link Parcelable} keys
      * (like {@link android.net.Uri}).
@@ -106,6 +117,24 @@ public abstract class StorageStrategy<K> {
         return new LongStorageStrategy();
     }
 
+    /**
+     * Returns a StorageStrategy suitable for use with {@link Long} keys, which stores the
+     * selection as ranges of consecutive keys, both in memory and in saved state. Large
+     * selections of consecutive keys, such as the ones made with
+     * {@link SelectionTracker#setKeyRangeSelected(Object, Object, boolean)} or by selecting
+     * every item of a list whose keys are its positions, then cost memory in proportion to the
+     * number of ranges instead of the number of keys.
+     *
+     * <p>
+     * Unlike with {@link #createLongStorage()}, the keys of the selection are iterated in
+     * ascending order instead of the order in which they were selected.
+     *
+     * @return StorageStrategy suitable for use with {@link Long} keys.
+     */
+    public static @NonNull StorageStrategy<Long> createLongRangeStorage() {
+        return new LongRangeStorageStrategy();
+    }
+
     private static class StringStorageStrategy extends StorageStrategy<String> {
 
         StringStorageStrategy() {
@@ -187,6 +216,69 @@ public abstract class StorageStrategy<K> {
         }
     }
 
+    private static class LongRangeStorageStrategy extends StorageStrategy<Long> {
+
+        LongRangeStorageStrategy() {
+            super(Long.class);
+        }
+
+        @Override
+        @NonNull Selection<Long> createSelection() {
+            return new Selection<Long>(new LongRangeSet(), new LongRangeSet());
+        }
+
+        @Override
+        public @Nullable Selection<Long> asSelection(@NonNull Bundle state) {
+            String keyType = state.getString(SELECTION_KEY_TYPE, null);
+            if (keyType == null || !keyType.equals(getKeyTypeName())) {
+                return null;
+            }
+
+            Selection<Long> selection = createSelection();
+            LongRangeSet ranges = (LongRangeSet) selection.mSelection;
+            @Nullable long[] stored = state.getLongArray(SELECTION_RANGES);
+            if (stored != null) {
+                for (int i = 0; i + 1 < stored.length; i += 2) {
+                    ranges.addRange(stored[i], stored[i + 1]);
+                }
+                return selection;
+            }
+
+            // Also restore selections saved by the LongStorageStrategy.
+            stored = state.getLongArray(SELECTION_ENTRIES);
+            if (stored == null) {
+                return null;
+            }
+            for (long key : stored) {
+                ranges.add(key);
+            }
+            return selection;
+        }
+
+        @Override
+        public @NonNull Bundle asBundle(@NonNull Selection<Long> selection) {
+
+            Bundle bundle = new Bundle();
+            bundle.putString(SELECTION_KEY_TYPE, getKeyTypeName());
+
+            LongRangeSet ranges;
+            if (selection.mSelection instanceof LongRangeSet) {
+                ranges = (LongRangeSet) selection.mSelection;
+            } else {
+                ranges = new LongRangeSet();
+                ranges.addAll(selection.mSelection);
+            }
+            long[] value = new long[ranges.getRangeCount() * 2];
+            for (int i = 0; i < ranges.getRangeCount(); i++) {
+                value[i * 2] = ranges.getRangeStart(i);
+                value[i * 2 + 1] = ranges.getRangeEnd(i);
+            }
+            bundle.putLongArray(SELECTION_RANGES, value);
+
+            return bundle;
+        }
+    }
+
     private static class ParcelableStorageStrategy<K extends Parcelable>
             extends StorageStrategy<K> {
 
@@ -21,6 +21,7 @@ import androidx.testutils.TestExecutor
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotSame
 import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
 import org.junit.Assert.fail
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -345,6 +346,53 @@ class AsyncListDifferTest {
         verifyNoMoreInteractions(listener)
     }
 
+    @Test
+    fun submitListLatestWins() {
+        var diffCount = 0
+        val countingDiffer = AsyncListDiffer(IGNORE_CALLBACK,
+                AsyncDifferConfig.Builder(STRING_DIFF_CALLBACK)
+                        .setMainThreadExecutor(mMainThread)
+                        .setBackgroundThreadExecutor { command ->
+                            diffCount++
+                            mBackgroundThread.execute(command)
+                        }
+                        .build())
+        countingDiffer.submitList(listOf("a", "b"))
+        countingDiffer.submitList(listOf("a", "b", "c"))
+        countingDiffer.submitList(listOf("a", "b", "d"))
+        countingDiffer.submitList(listOf("a", "b", "e"))
+        // only the latest list is diffed
+        assertEquals(1, diffCount)
+        assertEquals(1, countingDiffer.pendingDiffCount)
+
+        drain()
+        assertEquals(listOf("a", "b", "e"), countingDiffer.currentList)
+        assertEquals(0, countingDiffer.pendingDiffCount)
+        assertTrue(countingDiffer.lastDiffCalculationTimeNanos >= 0)
+        assertTrue(countingDiffer.lastDiffQueueTimeNanos >= 0)
+    }
+
+    @Test
+    fun supersededDiffIsDiscarded() {
+        val callback = mock(ListUpdateCallback::class.java)
+        val differ = createDiffer(callback)
+        differ.submitList(listOf("a", "b"))
+        verify(callback).onInserted(0, 2)
+        assertEquals(-1, differ.lastDiffCalculationTimeNanos)
+
+        // start the first diff, but hold back its result
+        differ.submitList(listOf("c", "d"))
+        mBackgroundThread.executeAll()
+        differ.submitList(listOf("a", "b", "c"))
+        assertEquals(2, differ.pendingDiffCount)
+
+        drain()
+        verify(callback).onInserted(2, 1)
+        verifyNoMoreInteractions(callback)
+        assertEquals(listOf("a", "b", "c"), differ.currentList)
+        assertEquals(0, differ.pendingDiffCount)
+    }
+
     private fun drain() {
         var executed: Boolean
         do {
@@ -105,6 +105,44 @@ public class AsyncListUtilTest {
         scrollAndExpectTiles(0, "scroll back to top, all pages should reload", 0, 10, 20);
     }
 
+    @Test
+    public void tileCaching_flushesLeastRecentlyRequiredTile() throws Throwable {
+        scrollAndExpectTiles(75, "scroll to the bottom", 70, 80, 90);
+        scrollAndExpectTiles(40, "scroll up", 40, 50, 60);
+
+        mDataCallback.mCacheSize = 9;
+        // Tiles 0 and 10 have been out of range the longest, and 0 is the furthest one.
+        scrollAndExpectTiles(25, "scroll up more, tile 0 should be flushed", 30);
+        scrollAndExpectTiles(0, "back at top, tile 0 should reload", 0);
+        // Now tiles 70, 80 and 90 have been out of range the longest.
+        scrollAndExpectTiles(75, "back at the bottom, tile 90 should reload", 90);
+    }
+
+    @Test
+    public void tileCaching_respectsMaxCachedSize() throws Throwable {
+        // Each tile has a size of 10 by default, so at most 6 tiles fit.
+        mDataCallback.mMaxCachedSize = 60;
+        scrollAndExpectTiles(25, "next screen", 30, 40);
+        scrollAndExpectTiles(50, "scroll down more, tiles 0 and 10 should be flushed",
+                50, 60, 70);
+        scrollAndExpectTiles(0, "back at top, tiles 0 and 10 should reload", 0, 10);
+    }
+
+    @Test
+    public void staleTilesAreNotLoaded() throws Throwable {
+        mDataCallback.mBlockedTileStart = 50;
+        scrollAndExpectTiles(50, "start loading tile 50", 50);
+
+        // Move the requested range away while tile 50 is loading, without posting the new range
+        // to the background thread, so that tiles 60 and 70 are still requested.
+        mAsyncListUtil.mRequestedRange = AsyncListUtil.packRange(0, 24);
+        mDataCallback.mBlockedTileLatch.countDown();
+        new CountDownLatch(1).await(500, TimeUnit.MILLISECONDS);
+
+        assertLoadedItemsOnUiThread("no tiles out of the requested range should be loaded",
+                0, 50, 30);
+    }
+
     @Test
     public void dataRefresh() throws Throwable {
         mViewCallback.expectDataSetChanged(40);
@@ -189,9 +227,14 @@ public class AsyncListUtilTest {
 
     private class TestDataCallback extends AsyncListUtil.DataCallback<String> {
         private int mCacheSize = 10;
+        private int mMaxCachedSize = Integer.MAX_VALUE;
 
         int mDataItemCount = 100;
 
+        // Filling this tile waits for the latch, after counting it as filled.
+        volatile int mBlockedTileStart = -1;
+        final CountDownLatch mBlockedTileLatch = new CountDownLatch(1);
+
         final PositionSetLatch mTilesFilledLatch = new PositionSetLatch("filled");
 
         @Override
@@ -200,6 +243,13 @@ public class AsyncListUtilTest {
                 assertEquals(Math.min(TILE_SIZE, mDataItemCount - startPosition), itemCount);
                 mTilesFilledLatch.countDown(startPosition);
             }
+            if (startPosition == mBlockedTileStart) {
+                try {
+                    mBlockedTileLatch.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
             for (int i = 0; i < itemCount; i++) {
                 data[i] = "item #" + startPosition;
             }
@@ -215,6 +265,11 @@ public class AsyncListUtilTest {
             return mCacheSize;
         }
 
+        @Override
+        public int getMaxCachedSize() {
+            return mMaxCachedSize;
+        }
+
         public void expectTiles(int... positions) {
             synchronized (mTilesFilledLatch) {
                 mTilesFilledLatch.expect(positions);
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class AsyncListUtilViewCallbackTest {
+    private final AsyncListUtil.ViewCallback mViewCallback = new AsyncListUtil.ViewCallback() {
+        @Override
+        public void getItemRangeInto(@NonNull int[] outRange) {
+        }
+
+        @Override
+        public void onDataRefresh() {
+        }
+
+        @Override
+        public void onItemLoaded(int position) {
+        }
+    };
+
+    @Test
+    public void noVelocity() {
+        assertArrayEquals(new int[]{50, 299},
+                extend(AsyncListUtil.ViewCallback.HINT_SCROLL_ASC, 0));
+        assertArrayEquals(new int[]{50, 249},
+                extend(AsyncListUtil.ViewCallback.HINT_SCROLL_NONE, 800));
+    }
+
+    @Test
+    public void slowScroll() {
+        // 100 items per second only scroll 50 items into view, less than the default range.
+        assertArrayEquals(new int[]{50, 299},
+                extend(AsyncListUtil.ViewCallback.HINT_SCROLL_ASC, 100));
+        assertArrayEquals(new int[]{0, 249},
+                extend(AsyncListUtil.ViewCallback.HINT_SCROLL_DESC, -100));
+    }
+
+    @Test
+    public void fastScroll() {
+        assertArrayEquals(new int[]{50, 599},
+                extend(AsyncListUtil.ViewCallback.HINT_SCROLL_ASC, 800));
+        assertArrayEquals(new int[]{-300, 249},
+                extend(AsyncListUtil.ViewCallback.HINT_SCROLL_DESC, -800));
+    }
+
+    @Test
+    public void fling_cappedToVisibleRanges() {
+        assertArrayEquals(new int[]{50, 599},
+                extend(AsyncListUtil.ViewCallback.HINT_SCROLL_ASC, 100000));
+    }
+
+    @Test
+    public void velocityAgainstHint_ignored() {
+        assertArrayEquals(new int[]{50, 299},
+                extend(AsyncListUtil.ViewCallback.HINT_SCROLL_ASC, -800));
+    }
+
+    private int[] extend(int scrollHint, float velocity) {
+        int[] outRange = new int[2];
+        mViewCallback.extendRangeInto(new int[]{100, 199}, outRange, scrollHint, velocity);
+        return outRange;
+    }
+}
@@ -1058,6 +1058,99 @@ public class GridLayoutManagerTest extends BaseGridLayoutManagerTest {
                         0));
     }
 
+    @Test
+    public void spanLookupCacheBlocks() {
+        final int[] sizes = new int[1000];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = 1 + (i * 7) % 3;
+        }
+        final GridLayoutManager.SpanSizeLookup ssl = new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return sizes[position];
+            }
+        };
+        final GridLayoutManager.SpanSizeLookup uncached = new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return sizes[position];
+            }
+        };
+        ssl.setSpanIndexCacheEnabled(true);
+        ssl.setSpanGroupIndexCacheEnabled(true);
+
+        ssl.getCachedSpanIndex(999, 4);
+        ssl.getCachedSpanGroupIndex(999, 4);
+        assertEquals(960, GridLayoutManager.SpanSizeLookup.findFirstKeyLessThan(
+                ssl.mSpanIndexCache, 999));
+        assertEquals(448, GridLayoutManager.SpanSizeLookup.findFirstKeyLessThan(
+                ssl.mSpanGroupIndexCache, 500));
+        for (int i = sizes.length - 1; i >= 0; i--) {
+            assertEquals(uncached.getSpanIndex(i, 4), ssl.getCachedSpanIndex(i, 4));
+            assertEquals(uncached.getSpanGroupIndex(i, 4), ssl.getCachedSpanGroupIndex(i, 4));
+        }
+
+        // Changing the size of an item only invalidates the values from its position.
+        sizes[300] = 4;
+        ssl.invalidateCachesFrom(300);
+        assertEquals(299, GridLayoutManager.SpanSizeLookup.findFirstKeyLessThan(
+                ssl.mSpanIndexCache, 1000));
+        assertEquals(299, GridLayoutManager.SpanSizeLookup.findFirstKeyLessThan(
+                ssl.mSpanGroupIndexCache, 1000));
+        for (int i = 0; i < sizes.length; i++) {
+            assertEquals(uncached.getSpanIndex(i, 4), ssl.getCachedSpanIndex(i, 4));
+            assertEquals(uncached.getSpanGroupIndex(i, 4), ssl.getCachedSpanGroupIndex(i, 4));
+        }
+    }
+
+    @Test
+    public void adapterChangesCallOverriddenInvalidateMethods() {
+        final int[] invalidateCounts = new int[2];
+        final GridLayoutManager.SpanSizeLookup ssl = new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return 1;
+            }
+
+            @Override
+            public void invalidateSpanIndexCache() {
+                super.invalidateSpanIndexCache();
+                invalidateCounts[0]++;
+            }
+
+            @Override
+            public void invalidateSpanGroupIndexCache() {
+                super.invalidateSpanGroupIndexCache();
+                invalidateCounts[1]++;
+            }
+        };
+        ssl.setSpanIndexCacheEnabled(true);
+        ssl.setSpanGroupIndexCacheEnabled(true);
+        GridLayoutManager glm = new GridLayoutManager(getActivity(), 3);
+        glm.setSpanSizeLookup(ssl);
+
+        glm.onItemsAdded(null, 10, 1);
+        glm.onItemsRemoved(null, 10, 1);
+        glm.onItemsUpdated(null, 10, 1, null);
+        glm.onItemsMoved(null, 10, 20, 1);
+        assertEquals(4, invalidateCounts[0]);
+        assertEquals(4, invalidateCounts[1]);
+
+        // The default implementations still keep the values before the changed position.
+        ssl.getCachedSpanIndex(5, 3);
+        ssl.getCachedSpanIndex(15, 3);
+        ssl.getCachedSpanGroupIndex(5, 3);
+        ssl.getCachedSpanGroupIndex(15, 3);
+        glm.onItemsAdded(null, 10, 1);
+        assertEquals(5, ssl.mSpanIndexCache.keyAt(ssl.mSpanIndexCache.size() - 1));
+        assertEquals(5, ssl.mSpanGroupIndexCache.keyAt(ssl.mSpanGroupIndexCache.size() - 1));
+
+        glm.onItemsChanged(null);
+        assertEquals(0, ssl.mSpanIndexCache.size());
+        assertEquals(0, ssl.mSpanGroupIndexCache.size());
+        assertEquals(6, invalidateCounts[0]);
+    }
+
     public void spanLookupTest(boolean enableCache) {
         final GridLayoutManager.SpanSizeLookup ssl
                 = new GridLayoutManager.SpanSizeLookup() {
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class ItemPreparerTest {
+    private final List<Runnable> mPendingTasks = new ArrayList<>();
+    private final Executor mExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mPendingTasks.add(command);
+        }
+    };
+    private final PreparingAdapter mAdapter = new PreparingAdapter();
+    private int mPreparedCallbackCount;
+    private final ItemPreparer mPreparer = new ItemPreparer(mExecutor, new Runnable() {
+        @Override
+        public void run() {
+            mPreparedCallbackCount++;
+        }
+    });
+
+    @Test
+    public void prepareAndTake() {
+        mPreparer.prepare(mAdapter, 3);
+        assertFalse(mPreparer.isPrepared(3));
+        assertNull(mPreparer.take(3));
+
+        runPendingTasks();
+        assertTrue(mPreparer.isPrepared(3));
+        assertEquals("data3", mPreparer.take(3));
+        assertFalse(mPreparer.isPrepared(3));
+        assertNull(mPreparer.take(3));
+    }
+
+    @Test
+    public void prepared_runsCallback() {
+        mPreparer.prepare(mAdapter, 3);
+        assertEquals(0, mPreparedCallbackCount);
+        runPendingTasks();
+        assertEquals(1, mPreparedCallbackCount);
+    }
+
+    @Test
+    public void invalidated_doesNotRunCallback() {
+        mPreparer.prepare(mAdapter, 3);
+        mPreparer.invalidate();
+        runPendingTasks();
+        assertEquals(0, mPreparedCallbackCount);
+    }
+
+    @Test
+    public void prepareTwice_preparesOnce() {
+        mPreparer.prepare(mAdapter, 3);
+        mPreparer.prepare(mAdapter, 3);
+        runPendingTasks();
+        mPreparer.prepare(mAdapter, 3);
+        assertEquals(0, mPendingTasks.size());
+        assertEquals(1, mAdapter.mPrepareCount);
+    }
+
+    @Test
+    public void nullData_isPrepared() {
+        mPreparer.prepare(mAdapter, PreparingAdapter.NO_DATA_POSITION);
+        runPendingTasks();
+        assertTrue(mPreparer.isPrepared(PreparingAdapter.NO_DATA_POSITION));
+        assertNull(mPreparer.take(PreparingAdapter.NO_DATA_POSITION));
+        assertFalse(mPreparer.isPrepared(PreparingAdapter.NO_DATA_POSITION));
+    }
+
+    @Test
+    public void failedPreparation_isPreparedWithoutData() {
+        mPreparer.prepare(mAdapter, PreparingAdapter.THROWING_POSITION);
+        runPendingTasks();
+        assertTrue(mPreparer.isPrepared(PreparingAdapter.THROWING_POSITION));
+        assertNull(mPreparer.take(PreparingAdapter.THROWING_POSITION));
+    }
+
+    @Test
+    public void concatAdapter_preparedByWrappedAdapter() {
+        PreparingAdapter second = new PreparingAdapter();
+        ConcatAdapter concatAdapter = new ConcatAdapter(mAdapter, second);
+
+        mPreparer.prepare(concatAdapter, mAdapter.getItemCount() + 3);
+        runPendingTasks();
+
+        assertEquals(0, mAdapter.mPrepareCount);
+        assertEquals(1, second.mPrepareCount);
+        assertEquals("data3", mPreparer.take(mAdapter.getItemCount() + 3));
+    }
+
+    @Test
+    public void invalidate_discardsPreparedAndPending() {
+        mPreparer.prepare(mAdapter, 1);
+        runPendingTasks();
+        mPreparer.prepare(mAdapter, 2);
+        mPreparer.invalidate();
+        runPendingTasks();
+        assertFalse(mPreparer.isPrepared(1));
+        assertFalse(mPreparer.isPrepared(2));
+    }
+
+    @Test
+    public void trim_dropsFurthest() {
+        for (int i = 0; i <= ItemPreparer.MAX_PREPARED_ITEMS; i++) {
+            mPreparer.prepare(mAdapter, i);
+        }
+        runPendingTasks();
+        // The last result to arrive was for the highest position.
+        assertFalse(mPreparer.isPrepared(0));
+        for (int i = 1; i <= ItemPreparer.MAX_PREPARED_ITEMS; i++) {
+            assertTrue(mPreparer.isPrepared(i));
+        }
+    }
+
+    private void runPendingTasks() {
+        List<Runnable> tasks = new ArrayList<>(mPendingTasks);
+        mPendingTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        // Results are delivered on the main thread.
+        getInstrumentation().waitForIdleSync();
+    }
+
+    private static class PreparingAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        static final int NO_DATA_POSITION = 100;
+        static final int THROWING_POSITION = 101;
+        int mPrepareCount;
+
+        @Nullable
+        @Override
+        public Object onPrepareData(int position) {
+            mPrepareCount++;
+            if (position == THROWING_POSITION) {
+                throw new IllegalStateException("Failed to prepare " + position);
+            }
+            return position == NO_DATA_POSITION ? null : "data" + position;
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                int viewType) {
+            return new RecyclerView.ViewHolder(new View(parent.getContext())) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 200;
+        }
+    }
+}
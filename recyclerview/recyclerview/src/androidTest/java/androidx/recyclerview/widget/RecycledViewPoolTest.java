@@ -31,10 +31,16 @@ import androidx.annotation.NonNull;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.SmallTest;
+import androidx.test.platform.app.InstrumentationRegistry;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 @SmallTest
 @RunWith(AndroidJUnit4.class)
 public class RecycledViewPoolTest {
@@ -138,6 +144,138 @@ public class RecycledViewPoolTest {
         assertThat(pool.getRecycledViewCount(1), is(equalTo(clears ? 0 : 1)));
     }
 
+    @Test
+    public void prewarm_fillsPoolUpToCount() {
+        final RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        final RecyclerView recyclerView = makePrewarmRecyclerView(pool);
+        final QueueExecutor executor = new QueueExecutor();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                pool.prewarm(recyclerView, 1, 3, executor);
+                // ViewHolders which are still being created count towards the target.
+                pool.prewarm(recyclerView, 1, 3, executor);
+            }
+        });
+        assertEquals(3, executor.mTasks.size());
+
+        executor.runAll();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertEquals(3, pool.getRecycledViewCount(1));
+        assertEquals(1, pool.getRecycledView(1).getItemViewType());
+    }
+
+    @Test
+    public void prewarm_limitedByMaxRecycledViews() {
+        final RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        final RecyclerView recyclerView = makePrewarmRecyclerView(pool);
+        pool.setMaxRecycledViews(1, 2);
+        pool.putRecycledView(makeHolder(1));
+        final QueueExecutor executor = new QueueExecutor();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                pool.prewarm(recyclerView, 1, 10, executor);
+            }
+        });
+        assertEquals(1, executor.mTasks.size());
+    }
+
+    @Test
+    public void prewarm_clearDiscardsPendingViewHolders() {
+        final RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        final RecyclerView recyclerView = makePrewarmRecyclerView(pool);
+        final QueueExecutor executor = new QueueExecutor();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                pool.prewarm(recyclerView, 1, 2, executor);
+                pool.clear();
+            }
+        });
+
+        executor.runAll();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertEquals(0, pool.getRecycledViewCount(1));
+    }
+
+    @Test
+    public void prewarm_slowestViewTypesFirst() {
+        final RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        final RecyclerView recyclerView = makePrewarmRecyclerView(pool);
+        pool.setMaxRecycledViews(1, 1);
+        pool.setMaxRecycledViews(2, 1);
+        pool.setMaxRecycledViews(3, 1);
+        pool.factorInCreateTime(1, 100);
+        pool.factorInCreateTime(2, 300);
+        pool.factorInCreateTime(3, 200);
+        // Never created, so not prewarmed.
+        pool.setMaxRecycledViews(4, 1);
+        final QueueExecutor executor = new QueueExecutor();
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                pool.prewarm(recyclerView, executor);
+            }
+        });
+
+        executor.runAll();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        PrewarmAdapter adapter = (PrewarmAdapter) recyclerView.getAdapter();
+        assertEquals(Arrays.asList(2, 3, 1), adapter.mCreatedTypes);
+        assertEquals(0, pool.getRecycledViewCount(4));
+    }
+
+    private RecyclerView makePrewarmRecyclerView(RecyclerView.RecycledViewPool pool) {
+        RecyclerView recyclerView = new RecyclerView(ApplicationProvider.getApplicationContext());
+        recyclerView.setRecycledViewPool(pool);
+        recyclerView.setAdapter(new PrewarmAdapter());
+        return recyclerView;
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            for (Runnable task : mTasks) {
+                task.run();
+            }
+            mTasks.clear();
+        }
+    }
+
+    private static class PrewarmAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        final List<Integer> mCreatedTypes = new ArrayList<>();
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            mCreatedTypes.add(viewType);
+            return new MockViewHolder(parent.getContext());
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+
     private static class MockViewHolder extends RecyclerView.ViewHolder {
         MockViewHolder(Context context) {
             super(new View(context));
@@ -16,6 +16,8 @@
 
 package androidx.recyclerview.widget;
 
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
@@ -59,6 +61,7 @@ import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 @MediumTest
@@ -176,6 +179,86 @@ public class RecyclerViewCacheTest {
         }
     }
 
+    @Test
+    public void prefetchDefersBindUntilPrepared() {
+        RecyclerView.LayoutManager prefetchingLayoutManager = new RecyclerView.LayoutManager() {
+            @Override
+            public RecyclerView.LayoutParams generateDefaultLayoutParams() {
+                return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                        ViewGroup.LayoutParams.WRAP_CONTENT);
+            }
+
+            @Override
+            public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state,
+                    LayoutPrefetchRegistry prefetchManager) {
+                // Not needed for the next frame, so prefetch may wait for them to be prepared.
+                prefetchManager.addPosition(0, 100);
+                prefetchManager.addPosition(1, 100);
+            }
+
+            @Override
+            public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+            }
+        };
+        mRecyclerView.setLayoutManager(prefetchingLayoutManager);
+
+        final List<Object> boundData = new ArrayList<>();
+        mRecyclerView.setAdapter(new RecyclerView.Adapter<RecyclerView.ViewHolder>() {
+            @Override
+            public Object onPrepareData(int position) {
+                if (position == 1) {
+                    throw new IllegalStateException("Failed to prepare " + position);
+                }
+                return "data" + position;
+            }
+
+            @NonNull
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                    int viewType) {
+                return new RecyclerView.ViewHolder(new View(getContext())) {};
+            }
+
+            @Override
+            public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+                boundData.add(holder.getPreparedData());
+            }
+
+            @Override
+            public int getItemCount() {
+                return 10;
+            }
+        });
+        final List<Runnable> prepareTasks = new ArrayList<>();
+        mRecyclerView.setItemPrepareExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                prepareTasks.add(command);
+            }
+        });
+
+        layout(320, 320);
+
+        // Nothing is bound until the data of the items is prepared.
+        mRecyclerView.mGapWorker.prefetch(RecyclerView.FOREVER_NS);
+        assertTrue(boundData.isEmpty());
+        assertTrue(mRecycler.mCachedViews.isEmpty());
+        assertEquals(2, prepareTasks.size());
+
+        for (Runnable task : prepareTasks) {
+            task.run();
+        }
+        // Results are delivered on the main thread.
+        getInstrumentation().waitForIdleSync();
+
+        // The item whose preparation failed is bound in full rather than deferred again.
+        mRecyclerView.mGapWorker.prefetch(RecyclerView.FOREVER_NS);
+        assertEquals(2, boundData.size());
+        assertTrue(boundData.contains("data0"));
+        assertTrue(boundData.contains(null));
+        CacheUtils.verifyCacheContainsPrefetchedPositions(mRecyclerView, 0, 1);
+    }
+
     @Test
     public void prefetchItemsNotEvictedWithInserts() {
         mRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), 3));
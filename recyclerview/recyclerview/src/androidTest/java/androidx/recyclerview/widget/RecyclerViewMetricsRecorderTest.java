@@ -0,0 +1,211 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class RecyclerViewMetricsRecorderTest {
+
+    @Test
+    public void buckets() {
+        assertEquals(0, RecyclerViewMetricsRecorder.getBucket(0));
+        assertEquals(0, RecyclerViewMetricsRecorder.getBucket(999));
+        assertEquals(1, RecyclerViewMetricsRecorder.getBucket(1000));
+        assertEquals(2, RecyclerViewMetricsRecorder.getBucket(2000));
+        assertEquals(2, RecyclerViewMetricsRecorder.getBucket(3999));
+        assertEquals(3, RecyclerViewMetricsRecorder.getBucket(4000));
+        assertEquals(RecyclerViewMetricsRecorder.BUCKET_COUNT - 1,
+                RecyclerViewMetricsRecorder.getBucket(Long.MAX_VALUE));
+        for (int i = 0; i < RecyclerViewMetricsRecorder.BUCKET_COUNT; i++) {
+            assertEquals(i, RecyclerViewMetricsRecorder.getBucket(
+                    RecyclerViewMetricsRecorder.getBucketLowerBoundNs(i)));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void bucketLowerBound_invalid() {
+        RecyclerViewMetricsRecorder.getBucketLowerBoundNs(RecyclerViewMetricsRecorder.BUCKET_COUNT);
+    }
+
+    @Test
+    public void recordsPerViewType() {
+        RecyclerViewMetricsRecorder recorder = new RecyclerViewMetricsRecorder();
+        RecyclerView recyclerView = new RecyclerView(ApplicationProvider.getApplicationContext());
+        recorder.onViewHolderCreated(recyclerView, 2, 1500);
+        recorder.onViewHolderBound(recyclerView, 2, 500);
+        recorder.onRecycledViewPoolLookup(recyclerView, 2, false);
+        recorder.onRecycledViewPoolLookup(recyclerView, 1, true);
+        recorder.onPrefetch(recyclerView, 1, true);
+        recorder.onPrefetch(recyclerView, 1, false);
+        recorder.onPrefetch(recyclerView, 1, false);
+        recorder.onLayoutCompleted(recyclerView, 5000);
+
+        assertArrayEquals(new int[]{1, 2}, recorder.getViewTypes());
+        assertEquals(1, recorder.getCreateTimeHistogram(2)[1]);
+        assertEquals(1, recorder.getBindTimeHistogram(2)[0]);
+        assertEquals(0, recorder.getPoolHitCount(2));
+        assertEquals(1, recorder.getPoolMissCount(2));
+        assertEquals(1, recorder.getPoolHitCount(1));
+        assertEquals(1, recorder.getPrefetchCompletedCount(1));
+        assertEquals(2, recorder.getPrefetchMissedCount(1));
+        assertEquals(1, recorder.getLayoutTimeHistogram()[3]);
+
+        recorder.reset();
+        assertArrayEquals(new int[0], recorder.getViewTypes());
+        assertArrayEquals(new long[RecyclerViewMetricsRecorder.BUCKET_COUNT],
+                recorder.getLayoutTimeHistogram());
+    }
+
+    @Test
+    @UiThreadTest
+    public void layout_reportsCreateBindAndLayout() {
+        RecyclerView recyclerView = new RecyclerView(ApplicationProvider.getApplicationContext());
+        recyclerView.setLayoutManager(
+                new LinearLayoutManager(ApplicationProvider.getApplicationContext()));
+        recyclerView.setAdapter(new TestAdapter(3));
+        RecyclerViewMetricsRecorder recorder = new RecyclerViewMetricsRecorder();
+        recyclerView.addMetricsListener(recorder);
+
+        layout(recyclerView);
+
+        assertArrayEquals(new int[]{0, 1}, recorder.getViewTypes());
+        assertEquals(2, sum(recorder.getCreateTimeHistogram(0)));
+        assertEquals(2, sum(recorder.getBindTimeHistogram(0)));
+        assertEquals(2, recorder.getPoolMissCount(0));
+        assertEquals(1, sum(recorder.getCreateTimeHistogram(1)));
+        assertEquals(1, recorder.getPoolMissCount(1));
+        assertEquals(1, sum(recorder.getLayoutTimeHistogram()));
+
+        recyclerView.removeMetricsListener(recorder);
+        recyclerView.requestLayout();
+        layout(recyclerView);
+
+        assertEquals(1, sum(recorder.getLayoutTimeHistogram()));
+    }
+
+    @Test
+    @UiThreadTest
+    public void listenersRemovedDuringCallback_areNotifiedOfThatCallback() {
+        final RecyclerView recyclerView =
+                new RecyclerView(ApplicationProvider.getApplicationContext());
+        recyclerView.setLayoutManager(
+                new LinearLayoutManager(ApplicationProvider.getApplicationContext()));
+        recyclerView.setAdapter(new TestAdapter(3));
+        final RecyclerViewMetricsRecorder recorder = new RecyclerViewMetricsRecorder();
+        recyclerView.addMetricsListener(recorder);
+        // Notified before the recorder, and removes both listeners.
+        recyclerView.addMetricsListener(new RecyclerView.MetricsListener() {
+            @Override
+            public void onViewHolderCreated(@NonNull RecyclerView view, int viewType,
+                    long durationNs) {
+                recyclerView.removeMetricsListener(recorder);
+                recyclerView.removeMetricsListener(this);
+            }
+        });
+
+        layout(recyclerView);
+
+        assertArrayEquals(new int[]{0}, recorder.getViewTypes());
+        assertEquals(1, sum(recorder.getCreateTimeHistogram(0)));
+        assertEquals(0, sum(recorder.getLayoutTimeHistogram()));
+    }
+
+    @Test
+    @UiThreadTest
+    public void listenerAddedDuringLayout_doesNotReportThatLayout() {
+        final RecyclerView recyclerView =
+                new RecyclerView(ApplicationProvider.getApplicationContext());
+        recyclerView.setLayoutManager(
+                new LinearLayoutManager(ApplicationProvider.getApplicationContext()));
+        final RecyclerViewMetricsRecorder recorder = new RecyclerViewMetricsRecorder();
+        recyclerView.setAdapter(new TestAdapter(3) {
+            @NonNull
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                    int viewType) {
+                recyclerView.addMetricsListener(recorder);
+                return super.onCreateViewHolder(parent, viewType);
+            }
+        });
+
+        layout(recyclerView);
+
+        assertEquals(0, sum(recorder.getLayoutTimeHistogram()));
+    }
+
+    private static void layout(RecyclerView recyclerView) {
+        recyclerView.measure(
+                View.MeasureSpec.makeMeasureSpec(100, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(100, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, 100, 100);
+    }
+
+    private static long sum(long[] histogram) {
+        long sum = 0;
+        for (long count : histogram) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    private static class TestAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        private final int mItemCount;
+
+        TestAdapter(int itemCount) {
+            mItemCount = itemCount;
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return position % 2;
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                int viewType) {
+            View view = new View(parent.getContext());
+            view.setLayoutParams(new RecyclerView.LayoutParams(100, 10));
+            return new RecyclerView.ViewHolder(view) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return mItemCount;
+        }
+    }
+}
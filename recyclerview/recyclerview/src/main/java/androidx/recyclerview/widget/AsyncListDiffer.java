@@ -26,6 +26,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Helper for computing the difference between two lists via {@link DiffUtil} on a background
@@ -200,6 +202,33 @@ public class AsyncListDiffer<T> {
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     int mMaxScheduledGeneration;
 
+    // Set when the diff of the max generation is superseded, so that it stops as soon as possible
+    @Nullable
+    private AtomicBoolean mCancelLatestDiff;
+
+    // The diff waiting for a background thread. Newer diffs replace it, so that each differ has at
+    // most one diff waiting in the background executor's queue.
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    final AtomicReference<PendingDiff> mPendingDiff = new AtomicReference<>();
+
+    private final Runnable mRunPendingDiff = new Runnable() {
+        @Override
+        public void run() {
+            PendingDiff pendingDiff = mPendingDiff.getAndSet(null);
+            if (pendingDiff != null) {
+                pendingDiff.run();
+            }
+        }
+    };
+
+    // Scheduled diffs which have neither been latched nor discarded yet
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    int mScheduledDiffCount;
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    long mLastDiffQueueTimeNanos = -1;
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    long mLastDiffCalculationTimeNanos = -1;
+
     /**
      * Get the current List - any diffing to present this list has already been computed and
      * dispatched via the ListUpdateCallback.
@@ -252,6 +281,11 @@ public class AsyncListDiffer<T> {
             @Nullable final Runnable commitCallback) {
         // incrementing generation means any currently-running diffs are discarded when they finish
         final int runGeneration = ++mMaxScheduledGeneration;
+        // so let them finish early
+        if (mCancelLatestDiff != null) {
+            mCancelLatestDiff.set(true);
+            mCancelLatestDiff = null;
+        }
 
         if (newList == mList) {
             // nothing to do (Note - still had to inc generation, since may have ongoing work)
@@ -285,75 +319,51 @@ public class AsyncListDiffer<T> {
             return;
         }
 
-        final List<T> oldList = mList;
-        mConfig.getBackgroundThreadExecutor().execute(new Runnable() {
-            @Override
-            public void run() {
-                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
-                    @Override
-                    public int getOldListSize() {
-                        return oldList.size();
-                    }
-
-                    @Override
-                    public int getNewListSize() {
-                        return newList.size();
-                    }
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        mCancelLatestDiff = cancelled;
+        mScheduledDiffCount++;
+        PendingDiff superseded = mPendingDiff.getAndSet(new PendingDiff(mList, newList,
+                commitCallback, runGeneration, cancelled));
+        if (superseded == null) {
+            mConfig.getBackgroundThreadExecutor().execute(mRunPendingDiff);
+        } else {
+            // the superseded diff never started, and the runnable which was scheduled for it will
+            // run this one instead
+            mScheduledDiffCount--;
+        }
+    }
 
-                    @Override
-                    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-                        T oldItem = oldList.get(oldItemPosition);
-                        T newItem = newList.get(newItemPosition);
-                        if (oldItem != null && newItem != null) {
-                            return mConfig.getDiffCallback().areItemsTheSame(oldItem, newItem);
-                        }
-                        // If both items are null we consider them the same.
-                        return oldItem == null && newItem == null;
-                    }
+    /**
+     * Returns the number of diffs which were scheduled by {@link #submitList(List)}, and which
+     * have neither been dispatched nor discarded yet.
+     * <p>
+     * When lists are submitted faster than they can be diffed, only the latest one is diffed and
+     * the others are discarded, so this stays small.
+     *
+     * @return The number of pending diffs.
+     */
+    public int getPendingDiffCount() {
+        return mScheduledDiffCount;
+    }
 
-                    @Override
-                    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                        T oldItem = oldList.get(oldItemPosition);
-                        T newItem = newList.get(newItemPosition);
-                        if (oldItem != null && newItem != null) {
-                            return mConfig.getDiffCallback().areContentsTheSame(oldItem, newItem);
-                        }
-                        if (oldItem == null && newItem == null) {
-                            return true;
-                        }
-                        // There is an implementation bug if we reach this point. Per the docs, this
-                        // method should only be invoked when areItemsTheSame returns true. That
-                        // only occurs when both items are non-null or both are null and both of
-                        // those cases are handled above.
-                        throw new AssertionError();
-                    }
+    /**
+     * Returns how long the last completed diff waited in the background executor's queue before
+     * it started, or -1 if no diff completed yet.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getLastDiffQueueTimeNanos() {
+        return mLastDiffQueueTimeNanos;
+    }
 
-                    @Nullable
-                    @Override
-                    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
-                        T oldItem = oldList.get(oldItemPosition);
-                        T newItem = newList.get(newItemPosition);
-                        if (oldItem != null && newItem != null) {
-                            return mConfig.getDiffCallback().getChangePayload(oldItem, newItem);
-                        }
-                        // There is an implementation bug if we reach this point. Per the docs, this
-                        // method should only be invoked when areItemsTheSame returns true AND
-                        // areContentsTheSame returns false. That only occurs when both items are
-                        // non-null which is the only case handled above.
-                        throw new AssertionError();
-                    }
-                });
-
-                mMainThreadExecutor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (mMaxScheduledGeneration == runGeneration) {
-                            latchList(newList, result, commitCallback);
-                        }
-                    }
-                });
-            }
-        });
+    /**
+     * Returns how long it took to calculate the last completed diff, or -1 if no diff completed
+     * yet. Diffs which were cancelled because a newer list was submitted are not counted.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getLastDiffCalculationTimeNanos() {
+        return mLastDiffCalculationTimeNanos;
     }
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
@@ -402,4 +412,105 @@ public class AsyncListDiffer<T> {
     public void removeListListener(@NonNull ListListener<T> listener) {
         mListeners.remove(listener);
     }
+
+    /**
+     * A diff between two lists, which is calculated on a background thread and then applied on
+     * the main thread, unless it is superseded.
+     */
+    private class PendingDiff implements Runnable {
+        private final List<T> mOldList;
+        private final List<T> mNewList;
+        @Nullable
+        private final Runnable mCommitCallback;
+        private final int mRunGeneration;
+        private final AtomicBoolean mCancelled;
+        private final long mScheduledTimeNanos = System.nanoTime();
+
+        PendingDiff(List<T> oldList, List<T> newList, @Nullable Runnable commitCallback,
+                int runGeneration, AtomicBoolean cancelled) {
+            mOldList = oldList;
+            mNewList = newList;
+            mCommitCallback = commitCallback;
+            mRunGeneration = runGeneration;
+            mCancelled = cancelled;
+        }
+
+        @Override
+        public void run() {
+            final List<T> oldList = mOldList;
+            final List<T> newList = mNewList;
+            final long startTimeNanos = System.nanoTime();
+            final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                @Override
+                public int getOldListSize() {
+                    return oldList.size();
+                }
+
+                @Override
+                public int getNewListSize() {
+                    return newList.size();
+                }
+
+                @Override
+                public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                    T oldItem = oldList.get(oldItemPosition);
+                    T newItem = newList.get(newItemPosition);
+                    if (oldItem != null && newItem != null) {
+                        return mConfig.getDiffCallback().areItemsTheSame(oldItem, newItem);
+                    }
+                    // If both items are null we consider them the same.
+                    return oldItem == null && newItem == null;
+                }
+
+                @Override
+                public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                    T oldItem = oldList.get(oldItemPosition);
+                    T newItem = newList.get(newItemPosition);
+                    if (oldItem != null && newItem != null) {
+                        return mConfig.getDiffCallback().areContentsTheSame(oldItem, newItem);
+                    }
+                    if (oldItem == null && newItem == null) {
+                        return true;
+                    }
+                    // There is an implementation bug if we reach this point. Per the docs, this
+                    // method should only be invoked when areItemsTheSame returns true. That
+                    // only occurs when both items are non-null or both are null and both of
+                    // those cases are handled above.
+                    throw new AssertionError();
+                }
+
+                @Nullable
+                @Override
+                public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                    T oldItem = oldList.get(oldItemPosition);
+                    T newItem = newList.get(newItemPosition);
+                    if (oldItem != null && newItem != null) {
+                        return mConfig.getDiffCallback().getChangePayload(oldItem, newItem);
+                    }
+                    // There is an implementation bug if we reach this point. Per the docs, this
+                    // method should only be invoked when areItemsTheSame returns true AND
+                    // areContentsTheSame returns false. That only occurs when both items are
+                    // non-null which is the only case handled above.
+                    throw new AssertionError();
+                }
+            }, true, mCancelled);
+            final long endTimeNanos = System.nanoTime();
+
+            mMainThreadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mScheduledDiffCount--;
+                    if (result == null) {
+                        // cancelled, a newer list was submitted
+                        return;
+                    }
+                    mLastDiffQueueTimeNanos = startTimeNanos - mScheduledTimeNanos;
+                    mLastDiffCalculationTimeNanos = endTimeNanos - startTimeNanos;
+                    if (mMaxScheduledGeneration == mRunGeneration) {
+                        latchList(newList, result, mCommitCallback);
+                    }
+                }
+            });
+        }
+    }
 }
@@ -16,8 +16,8 @@
 
 package androidx.recyclerview.widget;
 
+import android.os.SystemClock;
 import android.util.Log;
-import android.util.SparseBooleanArray;
 import android.util.SparseIntArray;
 
 import androidx.annotation.NonNull;
@@ -51,6 +51,10 @@ public class AsyncListUtil<T> {
 
     static final boolean DEBUG = false;
 
+    // How far ahead of a fast scroll tiles are loaded, in time, and at most in visible ranges.
+    private static final int SCROLL_LOOKAHEAD_MS = 500;
+    private static final int MAX_SCROLL_LOOKAHEAD_RANGES = 4;
+
     final Class<T> mTClass;
     final int mTileSize;
     final DataCallback<T> mDataCallback;
@@ -67,6 +71,13 @@ public class AsyncListUtil<T> {
 
     boolean mAllowScrollHints;
     private int mScrollHint = ViewCallback.HINT_SCROLL_NONE;
+    // In items per second, negative when scrolling in descending order.
+    private float mScrollVelocity;
+    private long mPrevRangeUptimeMs;
+
+    // The latest extended range, packed by packRange() so that the background thread can read it
+    // atomically and drop the tiles which the range moved away from while they were loading.
+    volatile long mRequestedRange = packRange(0, Integer.MAX_VALUE);
 
     int mItemCount = 0;
 
@@ -196,18 +207,35 @@ public class AsyncListUtil<T> {
             mScrollHint = ViewCallback.HINT_SCROLL_ASC;
         }
 
+        final long now = SystemClock.uptimeMillis();
+        if (mScrollHint == ViewCallback.HINT_SCROLL_NONE) {
+            mScrollVelocity = 0;
+        } else {
+            final long elapsedMs = Math.max(1, now - mPrevRangeUptimeMs);
+            final float velocity = (mTmpRange[0] - mPrevRange[0]) * 1000f / elapsedMs;
+            // The range moves by whole items, so smooth the velocity while the direction holds.
+            mScrollVelocity = mScrollVelocity * velocity > 0
+                    ? (mScrollVelocity + velocity) / 2 : velocity;
+        }
+        mPrevRangeUptimeMs = now;
+
         mPrevRange[0] = mTmpRange[0];
         mPrevRange[1] = mTmpRange[1];
 
-        mViewCallback.extendRangeInto(mTmpRange, mTmpRangeExtended, mScrollHint);
+        mViewCallback.extendRangeInto(mTmpRange, mTmpRangeExtended, mScrollHint, mScrollVelocity);
         mTmpRangeExtended[0] = Math.min(mTmpRange[0], Math.max(mTmpRangeExtended[0], 0));
         mTmpRangeExtended[1] =
                 Math.max(mTmpRange[1], Math.min(mTmpRangeExtended[1], mItemCount - 1));
+        mRequestedRange = packRange(mTmpRangeExtended[0], mTmpRangeExtended[1]);
 
         mBackgroundProxy.updateRange(mTmpRange[0], mTmpRange[1],
                 mTmpRangeExtended[0], mTmpRangeExtended[1], mScrollHint);
     }
 
+    static long packRange(int start, int end) {
+        return ((long) start << 32) | (end & 0xFFFFFFFFL);
+    }
+
     private final ThreadUtil.MainThreadCallback<T>
             mMainThreadCallback = new ThreadUtil.MainThreadCallback<T>() {
         @Override
@@ -295,11 +323,16 @@ public class AsyncListUtil<T> {
 
         private TileList.Tile<T> mRecycledRoot;
 
-        final SparseBooleanArray mLoadedTiles = new SparseBooleanArray();
+        // Keyed by tile start, the value is the last range update which required the tile.
+        final SparseIntArray mLoadedTiles = new SparseIntArray();
+        // Keyed by tile start, the value is the size of the tile, see DataCallback#sizeOfTile.
+        final SparseIntArray mLoadedTileSizes = new SparseIntArray();
+        private int mLoadedSize;
 
         private int mGeneration;
         private int mItemCount;
 
+        private int mRangeUpdateCount;
         private int mFirstRequiredTileStart;
         private int mLastRequiredTileStart;
 
@@ -307,6 +340,8 @@ public class AsyncListUtil<T> {
         public void refresh(int generation) {
             mGeneration = generation;
             mLoadedTiles.clear();
+            mLoadedTileSizes.clear();
+            mLoadedSize = 0;
             mItemCount = mDataCallback.refreshData();
             mMainThreadProxy.updateItemCount(mGeneration, mItemCount);
         }
@@ -333,6 +368,15 @@ public class AsyncListUtil<T> {
                         mFirstRequiredTileStart, mLastRequiredTileStart);
             }
 
+            mRangeUpdateCount++;
+            for (int i = 0; i < mLoadedTiles.size(); i++) {
+                final int tileStart = mLoadedTiles.keyAt(i);
+                if (mFirstRequiredTileStart <= tileStart && tileStart <= mLastRequiredTileStart) {
+                    // Replaces the value in place, the keys don't move.
+                    mLoadedTiles.put(tileStart, mRangeUpdateCount);
+                }
+            }
+
             // All pending tile requests are removed by ThreadUtil at this point.
             // Re-request all required tiles in the most optimal order.
             if (scrollHint == ViewCallback.HINT_SCROLL_DESC) {
@@ -369,12 +413,28 @@ public class AsyncListUtil<T> {
                 }
                 return;
             }
+            if (!isTileRequested(position)) {
+                if (DEBUG) {
+                    log("skipping tile @%d, out of the requested range", position);
+                }
+                return;
+            }
             TileList.Tile<T> tile = acquireTile();
             tile.mStartPosition = position;
             tile.mItemCount = Math.min(mTileSize, mItemCount - tile.mStartPosition);
             mDataCallback.fillData(tile.mItems, tile.mStartPosition, tile.mItemCount);
-            flushTileCache(scrollHint);
-            addTile(tile);
+            if (!isTileRequested(position)) {
+                // The range moved away while the tile was loading, don't evict a cached tile
+                // which may still be needed for this one.
+                if (DEBUG) {
+                    log("dropping tile @%d, out of the requested range", position);
+                }
+                recycleTile(tile);
+                return;
+            }
+            final int size = mDataCallback.sizeOfTile(tile.mItems, tile.mItemCount);
+            flushTileCache(scrollHint, size);
+            addTile(tile, size);
         }
 
         @Override
@@ -398,11 +458,24 @@ public class AsyncListUtil<T> {
         }
 
         private boolean isTileLoaded(int position) {
-            return mLoadedTiles.get(position);
+            return mLoadedTiles.indexOfKey(position) >= 0;
         }
 
-        private void addTile(TileList.Tile<T> tile) {
-            mLoadedTiles.put(tile.mStartPosition, true);
+        /**
+         * Checks the tile against the range most recently requested on the main thread, which
+         * may not have reached the background thread yet.
+         */
+        private boolean isTileRequested(int position) {
+            final long range = mRequestedRange;
+            final int start = (int) (range >> 32);
+            final int end = (int) range;
+            return position + mTileSize > start && position <= end;
+        }
+
+        private void addTile(TileList.Tile<T> tile, int size) {
+            mLoadedTiles.put(tile.mStartPosition, mRangeUpdateCount);
+            mLoadedTileSizes.put(tile.mStartPosition, size);
+            mLoadedSize += size;
             mMainThreadProxy.addTile(mGeneration, tile);
             if (DEBUG) {
                 log("loaded tile @%d, total tiles: %d", tile.mStartPosition, mLoadedTiles.size());
@@ -411,29 +484,59 @@ public class AsyncListUtil<T> {
 
         private void removeTile(int position) {
             mLoadedTiles.delete(position);
+            mLoadedSize -= mLoadedTileSizes.get(position);
+            mLoadedTileSizes.delete(position);
             mMainThreadProxy.removeTile(mGeneration, position);
             if (DEBUG) {
                 log("flushed tile @%d, total tiles: %s", position, mLoadedTiles.size());
             }
         }
 
-        private void flushTileCache(int scrollHint) {
+        private void flushTileCache(int scrollHint, int newTileSize) {
             final int cacheSizeLimit = mDataCallback.getMaxCachedTiles();
-            while (mLoadedTiles.size() >= cacheSizeLimit) {
-                int firstLoadedTileStart = mLoadedTiles.keyAt(0);
-                int lastLoadedTileStart = mLoadedTiles.keyAt(mLoadedTiles.size() - 1);
-                int startMargin = mFirstRequiredTileStart - firstLoadedTileStart;
-                int endMargin = lastLoadedTileStart - mLastRequiredTileStart;
-                if (startMargin > 0 && (startMargin >= endMargin ||
-                        (scrollHint == ViewCallback.HINT_SCROLL_ASC))) {
-                    removeTile(firstLoadedTileStart);
-                } else if (endMargin > 0 && (startMargin < endMargin ||
-                        (scrollHint == ViewCallback.HINT_SCROLL_DESC))){
-                    removeTile(lastLoadedTileStart);
-                } else {
-                    // Could not flush on either side, bail out.
+            final int maxCachedSize = mDataCallback.getMaxCachedSize();
+            // Makes room for a new tile of the given size, in both tiles and size.
+            while (mLoadedTiles.size() >= cacheSizeLimit
+                    || mLoadedSize > maxCachedSize - newTileSize) {
+                // Flush the least recently required tile. Among tiles last required by the same
+                // range update, prefer the ones behind the scroll direction, then the furthest.
+                int flushIndex = -1;
+                boolean flushBehind = false;
+                int flushDistance = 0;
+                for (int i = 0; i < mLoadedTiles.size(); i++) {
+                    final int tileStart = mLoadedTiles.keyAt(i);
+                    final boolean behind;
+                    final int distance;
+                    if (tileStart < mFirstRequiredTileStart) {
+                        behind = scrollHint == ViewCallback.HINT_SCROLL_ASC;
+                        distance = mFirstRequiredTileStart - tileStart;
+                    } else if (tileStart > mLastRequiredTileStart) {
+                        behind = scrollHint == ViewCallback.HINT_SCROLL_DESC;
+                        distance = tileStart - mLastRequiredTileStart;
+                    } else {
+                        continue;
+                    }
+                    if (flushIndex == -1) {
+                        flushIndex = i;
+                        flushBehind = behind;
+                        flushDistance = distance;
+                        continue;
+                    }
+                    final int lastRequired = mLoadedTiles.valueAt(i);
+                    final int flushLastRequired = mLoadedTiles.valueAt(flushIndex);
+                    if (lastRequired < flushLastRequired || (lastRequired == flushLastRequired
+                            && (behind && !flushBehind
+                            || behind == flushBehind && distance > flushDistance))) {
+                        flushIndex = i;
+                        flushBehind = behind;
+                        flushDistance = distance;
+                    }
+                }
+                if (flushIndex == -1) {
+                    // All the tiles are required, bail out.
                     return;
                 }
+                removeTile(mLoadedTiles.keyAt(flushIndex));
             }
         }
 
@@ -502,6 +605,9 @@ public class AsyncListUtil<T> {
          * <p>
          * However, if the tile size is 20, then the maximum number of cached tiles will be 10.
          * <p>
+         * When the cache is full, the tile which has been out of the extended range for the
+         * longest time is discarded first.
+         * <p>
          * The default implementation returns 10.
          *
          * @return Maximum cache size.
@@ -510,6 +616,47 @@ public class AsyncListUtil<T> {
         public int getMaxCachedTiles() {
             return 10;
         }
+
+        /**
+         * Returns the limit of the total size of the cached tiles, as measured by
+         * {@link #sizeOfTile(Object[], int)}. This bounds the memory held by the cache when the
+         * size of the data items varies, in addition to {@link #getMaxCachedTiles()}.
+         *
+         * <p>
+         * As with {@link #getMaxCachedTiles()}, the tiles required to cover the range returned
+         * by {@link ViewCallback#extendRangeInto(int[], int[], int)} are kept even if their total
+         * size exceeds this limit. When the limit is reached, the tile which has been out of the
+         * extended range for the longest time is discarded first.
+         * <p>
+         * The default implementation returns {@link Integer#MAX_VALUE}, so that only the number
+         * of tiles is limited.
+         *
+         * @return Maximum total size of the cached tiles.
+         */
+        @WorkerThread
+        public int getMaxCachedSize() {
+            return Integer.MAX_VALUE;
+        }
+
+        /**
+         * Returns the size of a loaded tile, counted against {@link #getMaxCachedSize()}. The
+         * unit is up to the implementation, for example an estimate of the bytes held by the
+         * items, as long as it is the same as the unit of {@link #getMaxCachedSize()}. The size
+         * of a tile must not change while it is cached.
+         *
+         * <p>
+         * The default implementation returns the item count.
+         *
+         * @param data Array of data items filled by {@link #fillData}. Should not be accessed
+         *             beyond <code>itemCount</code>.
+         * @param itemCount The data item count.
+         *
+         * @return Size of the tile.
+         */
+        @WorkerThread
+        public int sizeOfTile(@NonNull T[] data, int itemCount) {
+            return itemCount;
+        }
     }
 
     /**
@@ -580,6 +727,42 @@ public class AsyncListUtil<T> {
             outRange[1] = range[1] + (scrollHint == HINT_SCROLL_ASC ? fullRange : halfRange);
         }
 
+        /**
+         * Compute a wider range of items that will be loaded for smoother scrolling, knowing the
+         * scroll velocity. This is the method {@link AsyncListUtil} calls.
+         *
+         * <p>
+         * The default implementation calls {@link #extendRangeInto(int[], int[], int)}, then
+         * makes sure that the range covers, in the scroll direction, the items which will scroll
+         * into view in the next 500 milliseconds at the current velocity, up to 4 times the
+         * length of the visible range. This keeps a fast fling from outrunning the loading of
+         * tiles, while slow scrolls get the same range as before.
+         * <p>
+         * For example, if <code>range</code> is <code>{100, 199}</code>, <code>scrollHint</code>
+         * is {@link #HINT_SCROLL_ASC} and <code>velocity</code> is 800 items per second, then
+         * <code>outRange</code> will be <code>{50, 599}</code>.
+         *
+         * @param range Visible item range.
+         * @param outRange Extended range.
+         * @param scrollHint The scroll direction hint.
+         * @param velocity The scroll velocity, in items per second. It is positive when
+         *                 scrolling in ascending order, negative when scrolling in descending
+         *                 order, and 0 when unknown.
+         */
+        @UiThread
+        public void extendRangeInto(@NonNull int[] range, @NonNull int[] outRange, int scrollHint,
+                float velocity) {
+            extendRangeInto(range, outRange, scrollHint);
+            final int fullRange = range[1] - range[0] + 1;
+            final int lookahead = (int) Math.min(Math.abs(velocity) * SCROLL_LOOKAHEAD_MS / 1000,
+                    (float) fullRange * MAX_SCROLL_LOOKAHEAD_RANGES);
+            if (scrollHint == HINT_SCROLL_ASC && velocity > 0) {
+                outRange[1] = Math.max(outRange[1], range[1] + lookahead);
+            } else if (scrollHint == HINT_SCROLL_DESC && velocity < 0) {
+                outRange[0] = Math.min(outRange[0], range[0] - lookahead);
+            }
+        }
+
         /**
          * Called when the entire data set has changed.
          */
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A list which stores its items in chunks of at most {@link #CHUNK_CAPACITY} items, used by
+ * {@link SortedList#STORAGE_MODE_CHUNKED}.
+ * <p>
+ * Inserting or removing an item only moves the items of one chunk, and the chunk which contains
+ * an index is found in O(log n) through an {@link ItemCountIndex} of the chunk sizes. A full chunk
+ * is split in two, and a chunk which becomes small is merged with its neighbour.
+ *
+ * @param <T> Item type
+ */
+@SuppressWarnings("unchecked")
+class ChunkedArray<T> {
+    static final int CHUNK_CAPACITY = 256;
+    private static final int MERGE_THRESHOLD = CHUNK_CAPACITY / 4;
+
+    private final ArrayList<Object[]> mChunks = new ArrayList<>();
+    private final ItemCountIndex mChunkSizes = new ItemCountIndex();
+
+    // Result of the last locate() call, to avoid allocating.
+    private int mLocatedChunk;
+    private int mLocatedOffset;
+
+    int size() {
+        return mChunkSizes.getTotal();
+    }
+
+    int getChunkCount() {
+        return mChunks.size();
+    }
+
+    /**
+     * @return The backing array of the given chunk, only the first {@link #getChunkSize(int)}
+     * items of which are valid
+     */
+    Object[] getChunk(int chunk) {
+        return mChunks.get(chunk);
+    }
+
+    int getChunkSize(int chunk) {
+        return mChunkSizes.get(chunk);
+    }
+
+    /**
+     * @return The index of the first item of the given chunk
+     */
+    int getChunkStart(int chunk) {
+        return mChunkSizes.countBefore(chunk);
+    }
+
+    T get(int index) {
+        locate(index);
+        return (T) mChunks.get(mLocatedChunk)[mLocatedOffset];
+    }
+
+    void set(int index, T item) {
+        locate(index);
+        mChunks.get(mLocatedChunk)[mLocatedOffset] = item;
+    }
+
+    void add(int index, T item) {
+        final int size = size();
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException(
+                    "cannot add item to " + index + " because size is " + size);
+        }
+        if (index == size) {
+            append(item);
+            return;
+        }
+        locate(index);
+        int chunkIndex = mLocatedChunk;
+        int offset = mLocatedOffset;
+        int chunkSize = mChunkSizes.get(chunkIndex);
+        if (chunkSize == CHUNK_CAPACITY) {
+            // Split the chunk in half and insert into the half which contains the index.
+            final int half = CHUNK_CAPACITY / 2;
+            Object[] chunk = mChunks.get(chunkIndex);
+            Object[] next = new Object[CHUNK_CAPACITY];
+            System.arraycopy(chunk, half, next, 0, CHUNK_CAPACITY - half);
+            Arrays.fill(chunk, half, CHUNK_CAPACITY, null);
+            mChunks.add(chunkIndex + 1, next);
+            mChunkSizes.set(chunkIndex, half);
+            mChunkSizes.insert(chunkIndex + 1, CHUNK_CAPACITY - half);
+            if (offset > half) {
+                chunkIndex++;
+                offset -= half;
+                chunkSize = CHUNK_CAPACITY - half;
+            } else {
+                chunkSize = half;
+            }
+        }
+        Object[] chunk = mChunks.get(chunkIndex);
+        System.arraycopy(chunk, offset, chunk, offset + 1, chunkSize - offset);
+        chunk[offset] = item;
+        mChunkSizes.set(chunkIndex, chunkSize + 1);
+    }
+
+    /**
+     * Adds {@code count} items of the given array, starting at {@code start}, to the end of the
+     * list.
+     */
+    void addAll(Object[] items, int start, int count) {
+        int end = start + count;
+        int chunkCount = mChunks.size();
+        if (chunkCount > 0) {
+            // Fill up the last chunk first.
+            int last = chunkCount - 1;
+            int lastSize = mChunkSizes.get(last);
+            int copied = Math.min(CHUNK_CAPACITY - lastSize, count);
+            System.arraycopy(items, start, mChunks.get(last), lastSize, copied);
+            mChunkSizes.set(last, lastSize + copied);
+            start += copied;
+        }
+        while (start < end) {
+            int copied = Math.min(CHUNK_CAPACITY, end - start);
+            Object[] chunk = new Object[CHUNK_CAPACITY];
+            System.arraycopy(items, start, chunk, 0, copied);
+            mChunks.add(chunk);
+            mChunkSizes.insert(mChunks.size() - 1, copied);
+            start += copied;
+        }
+    }
+
+    T remove(int index) {
+        locate(index);
+        final int chunkIndex = mLocatedChunk;
+        final int offset = mLocatedOffset;
+        final Object[] chunk = mChunks.get(chunkIndex);
+        final int chunkSize = mChunkSizes.get(chunkIndex) - 1;
+        T removed = (T) chunk[offset];
+        System.arraycopy(chunk, offset + 1, chunk, offset, chunkSize - offset);
+        chunk[chunkSize] = null;
+        mChunkSizes.set(chunkIndex, chunkSize);
+        if (chunkSize == 0) {
+            removeChunk(chunkIndex);
+        } else if (chunkSize < MERGE_THRESHOLD) {
+            if (chunkIndex + 1 < mChunks.size()) {
+                mergeIfSmall(chunkIndex);
+            } else if (chunkIndex > 0) {
+                mergeIfSmall(chunkIndex - 1);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the items from the given index to the end of the list.
+     */
+    void removeFrom(int index) {
+        if (index == size()) {
+            return;
+        }
+        locate(index);
+        int chunkIndex = mLocatedChunk;
+        if (mLocatedOffset > 0) {
+            int chunkSize = mChunkSizes.get(chunkIndex);
+            Arrays.fill(mChunks.get(chunkIndex), mLocatedOffset, chunkSize, null);
+            mChunkSizes.set(chunkIndex, mLocatedOffset);
+            chunkIndex++;
+        }
+        for (int i = mChunks.size() - 1; i >= chunkIndex; i--) {
+            removeChunk(i);
+        }
+    }
+
+    void clear() {
+        for (int i = mChunks.size() - 1; i >= 0; i--) {
+            removeChunk(i);
+        }
+    }
+
+    private void append(T item) {
+        final int last = mChunks.size() - 1;
+        if (last >= 0) {
+            int lastSize = mChunkSizes.get(last);
+            if (lastSize < CHUNK_CAPACITY) {
+                mChunks.get(last)[lastSize] = item;
+                mChunkSizes.set(last, lastSize + 1);
+                return;
+            }
+        }
+        // Start a new chunk instead of splitting the last one, so that lists which are filled
+        // in order are not left half empty.
+        Object[] chunk = new Object[CHUNK_CAPACITY];
+        chunk[0] = item;
+        mChunks.add(chunk);
+        mChunkSizes.insert(last + 1, 1);
+    }
+
+    /**
+     * Merges the chunk at the given index with the next one if they both fit in half a chunk.
+     */
+    private void mergeIfSmall(int chunkIndex) {
+        final int size = mChunkSizes.get(chunkIndex);
+        final int nextSize = mChunkSizes.get(chunkIndex + 1);
+        if (size + nextSize > CHUNK_CAPACITY / 2) {
+            return;
+        }
+        System.arraycopy(mChunks.get(chunkIndex + 1), 0, mChunks.get(chunkIndex), size, nextSize);
+        mChunkSizes.set(chunkIndex, size + nextSize);
+        removeChunk(chunkIndex + 1);
+    }
+
+    private void removeChunk(int chunkIndex) {
+        mChunks.remove(chunkIndex);
+        mChunkSizes.remove(chunkIndex);
+    }
+
+    private void locate(int index) {
+        final int chunkIndex = mChunkSizes.indexOf(index);
+        if (index < 0 || chunkIndex == -1) {
+            throw new IndexOutOfBoundsException(
+                    "Asked to get item at " + index + " but size is " + size());
+        }
+        mLocatedChunk = chunkIndex;
+        mLocatedOffset = index - mChunkSizes.countBefore(chunkIndex);
+    }
+}
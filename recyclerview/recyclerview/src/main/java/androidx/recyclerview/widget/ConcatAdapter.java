@@ -226,6 +226,21 @@ public final class ConcatAdapter extends Adapter<ViewHolder> {
         return mController.getItemId(position);
     }
 
+    /**
+     * @return The adapter which the item at the given position comes from
+     */
+    @NonNull
+    Adapter<? extends ViewHolder> getWrappedAdapter(int position) {
+        return mController.getWrappedAdapter(position);
+    }
+
+    /**
+     * @return The position of the item at the given position in the adapter it comes from
+     */
+    int getWrappedPosition(int position) {
+        return mController.getWrappedPosition(position);
+    }
+
     /**
      * Internal method called by the ConcatAdapterController.
      */
@@ -68,6 +68,12 @@ class ConcatAdapterController implements NestedAdapterWrapper.Callback {
 
     private List<NestedAdapterWrapper> mWrappers = new ArrayList<>();
 
+    /**
+     * Item counts of {@link #mWrappers}, so that global positions can be mapped to local ones
+     * without walking the list of wrappers.
+     */
+    private final ItemCountIndex mItemCountIndex = new ItemCountIndex();
+
     // keep one of these around so that we can return wrapper & position w/o allocation ¯\_(ツ)_/¯
     private WrapperAndLocalPosition mReusableHolder = new WrapperAndLocalPosition();
 
@@ -123,6 +129,21 @@ class ConcatAdapterController implements NestedAdapterWrapper.Callback {
         return -1;
     }
 
+    private void updateWrapperIndices(int fromIndex) {
+        final int limit = mWrappers.size();
+        for (int i = fromIndex; i < limit; i++) {
+            mWrappers.get(i).mIndex = i;
+        }
+    }
+
+    /**
+     * Wrappers update their cached item count before they dispatch an event, so this should be
+     * called first thing when handling one.
+     */
+    private void syncItemCount(NestedAdapterWrapper wrapper) {
+        mItemCountIndex.set(wrapper.mIndex, wrapper.getCachedItemCount());
+    }
+
     /**
      * return true if added, false otherwise.
      *
@@ -160,6 +181,8 @@ class ConcatAdapterController implements NestedAdapterWrapper.Callback {
         NestedAdapterWrapper wrapper = new NestedAdapterWrapper(adapter, this,
                 mViewTypeStorage, mStableIdStorage.createStableIdLookup());
         mWrappers.add(index, wrapper);
+        mItemCountIndex.insert(index, wrapper.getCachedItemCount());
+        updateWrapperIndices(index);
         // notify attach for all recyclerview
         for (WeakReference<RecyclerView> reference : mAttachedRecyclerViews) {
             RecyclerView recyclerView = reference.get();
@@ -187,6 +210,8 @@ class ConcatAdapterController implements NestedAdapterWrapper.Callback {
         NestedAdapterWrapper wrapper = mWrappers.get(index);
         int offset = countItemsBefore(wrapper);
         mWrappers.remove(index);
+        mItemCountIndex.remove(index);
+        updateWrapperIndices(index);
         mConcatAdapter.notifyItemRangeRemoved(offset, wrapper.getCachedItemCount());
         // notify detach for all recyclerviews
         for (WeakReference<RecyclerView> reference : mAttachedRecyclerViews) {
@@ -201,15 +226,7 @@ class ConcatAdapterController implements NestedAdapterWrapper.Callback {
     }
 
     private int countItemsBefore(NestedAdapterWrapper wrapper) {
-        int count = 0;
-        for (NestedAdapterWrapper item : mWrappers) {
-            if (item != wrapper) {
-                count += item.getCachedItemCount();
-            } else {
-                break;
-            }
-        }
-        return count;
+        return mItemCountIndex.countBefore(wrapper.mIndex);
     }
 
     public long getItemId(int globalPosition) {
@@ -221,6 +238,7 @@ class ConcatAdapterController implements NestedAdapterWrapper.Callback {
 
     @Override
     public void onChanged(@NonNull NestedAdapterWrapper wrapper) {
+        syncItemCount(wrapper);
         // TODO should we notify more cleverly, maybe in v2
         mConcatAdapter.notifyDataSetChanged();
         calculateAndUpdateStateRestorationPolicy();
@@ -250,6 +268,7 @@ class ConcatAdapterController implements NestedAdapterWrapper.Callback {
     @Override
     public void onItemRangeInserted(@NonNull NestedAdapterWrapper nestedAdapterWrapper,
             int positionStart, int itemCount) {
+        syncItemCount(nestedAdapterWrapper);
         final int offset = countItemsBefore(nestedAdapterWrapper);
         mConcatAdapter.notifyItemRangeInserted(
                 positionStart + offset,
@@ -260,6 +279,7 @@ class ConcatAdapterController implements NestedAdapterWrapper.Callback {
     @Override
     public void onItemRangeRemoved(@NonNull NestedAdapterWrapper nestedAdapterWrapper,
             int positionStart, int itemCount) {
+        syncItemCount(nestedAdapterWrapper);
         int offset = countItemsBefore(nestedAdapterWrapper);
         mConcatAdapter.notifyItemRangeRemoved(
                 positionStart + offset,
@@ -305,12 +325,7 @@ class ConcatAdapterController implements NestedAdapterWrapper.Callback {
     }
 
     public int getTotalCount() {
-        // should we cache this as well ?
-        int total = 0;
-        for (NestedAdapterWrapper wrapper : mWrappers) {
-            total += wrapper.getCachedItemCount();
-        }
-        return total;
+        return mItemCountIndex.getTotal();
     }
 
     public int getItemViewType(int globalPosition) {
@@ -320,6 +335,21 @@ class ConcatAdapterController implements NestedAdapterWrapper.Callback {
         return itemViewType;
     }
 
+    @NonNull
+    public Adapter<ViewHolder> getWrappedAdapter(int globalPosition) {
+        WrapperAndLocalPosition wrapperAndPos = findWrapperAndLocalPosition(globalPosition);
+        Adapter<ViewHolder> adapter = wrapperAndPos.mWrapper.adapter;
+        releaseWrapperAndLocalPosition(wrapperAndPos);
+        return adapter;
+    }
+
+    public int getWrappedPosition(int globalPosition) {
+        WrapperAndLocalPosition wrapperAndPos = findWrapperAndLocalPosition(globalPosition);
+        int localPosition = wrapperAndPos.mLocalPosition;
+        releaseWrapperAndLocalPosition(wrapperAndPos);
+        return localPosition;
+    }
+
     public ViewHolder onCreateViewHolder(ViewGroup parent, int globalViewType) {
         NestedAdapterWrapper wrapper = mViewTypeStorage.getWrapperForGlobalType(globalViewType);
         return wrapper.onCreateViewHolder(parent, globalViewType);
@@ -340,18 +370,12 @@ class ConcatAdapterController implements NestedAdapterWrapper.Callback {
             mReusableHolder.mInUse = true;
             result = mReusableHolder;
         }
-        int localPosition = globalPosition;
-        for (NestedAdapterWrapper wrapper : mWrappers) {
-            if (wrapper.getCachedItemCount() > localPosition) {
-                result.mWrapper = wrapper;
-                result.mLocalPosition = localPosition;
-                break;
-            }
-            localPosition -= wrapper.getCachedItemCount();
-        }
-        if (result.mWrapper == null) {
+        final int index = mItemCountIndex.indexOf(globalPosition);
+        if (index == -1) {
             throw new IllegalArgumentException("Cannot find wrapper for " + globalPosition);
         }
+        result.mWrapper = mWrappers.get(index);
+        result.mLocalPosition = globalPosition - mItemCountIndex.countBefore(index);
         return result;
     }
 
@@ -26,8 +26,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * DiffUtil is a utility class that calculates the difference between two lists and outputs a
@@ -74,6 +76,10 @@ import java.util.List;
  *     <li>1000 items and 200 modifications without moves: 13.54 ms, median: 13.36 ms
  * </ul>
  * <p>
+ * If every item in each list has a unique key, {@link #calculateKeyedDiff(KeyedCallback, boolean)}
+ * computes the diff in close to linear time regardless of the number of changes, at the cost of
+ * not always producing the minimal number of updates.
+ * <p>
  * Due to implementation constraints, the max size of the list can be 2^26.
  *
  * @see ListAdapter
@@ -121,6 +127,24 @@ public class DiffUtil {
      */
     @NonNull
     public static DiffResult calculateDiff(@NonNull Callback cb, boolean detectMoves) {
+        //noinspection ConstantConditions
+        return calculateDiff(cb, detectMoves, null);
+    }
+
+    /**
+     * Calculates the list of update operations that can covert one list into the other one, and
+     * gives up as soon as possible once {@code cancelled} is set.
+     *
+     * @param cb The callback that acts as a gateway to the backing list data
+     * @param detectMoves True if DiffUtil should try to detect moved items, false otherwise.
+     * @param cancelled Set to true to abandon the calculation, from any thread
+     *
+     * @return A DiffResult that contains the information about the edit sequence to convert the
+     * old list into the new list, or {@code null} if the calculation was cancelled.
+     */
+    @Nullable
+    static DiffResult calculateDiff(@NonNull Callback cb, boolean detectMoves,
+            @Nullable AtomicBoolean cancelled) {
         final int oldSize = cb.getOldListSize();
         final int newSize = cb.getNewListSize();
 
@@ -143,7 +167,10 @@ public class DiffUtil {
         final List<Range> rangePool = new ArrayList<>();
         while (!stack.isEmpty()) {
             final Range range = stack.remove(stack.size() - 1);
-            final Snake snake = midPoint(range, cb, forward, backward);
+            final Snake snake = midPoint(range, cb, forward, backward, cancelled);
+            if (isCancelled(cancelled)) {
+                return null;
+            }
             if (snake != null) {
                 // if it has a diagonal, save it
                 if (snake.diagonalSize() > 0) {
@@ -174,9 +201,188 @@ public class DiffUtil {
         // sort snakes
         Collections.sort(diagonals, DIAGONAL_COMPARATOR);
 
-        return new DiffResult(cb, diagonals,
+        final DiffResult result = new DiffResult(cb, diagonals,
                 forward.backingData(), backward.backingData(),
-                detectMoves);
+                detectMoves, null, cancelled);
+        return isCancelled(cancelled) ? null : result;
+    }
+
+    static boolean isCancelled(@Nullable AtomicBoolean cancelled) {
+        return cancelled != null && cancelled.get();
+    }
+
+    /**
+     * Calculates the list of update operations that can covert one list into the other one, by
+     * matching items with their keys rather than with Myers' algorithm.
+     *
+     * @param cb The callback that acts as a gateway to the backing list data
+     * @return A DiffResult that contains the information about the edit sequence to convert the
+     * old list into the new list.
+     * @see #calculateKeyedDiff(KeyedCallback, boolean)
+     */
+    @NonNull
+    public static DiffResult calculateKeyedDiff(@NonNull KeyedCallback cb) {
+        return calculateKeyedDiff(cb, true);
+    }
+
+    /**
+     * Calculates the list of update operations that can covert one list into the other one, by
+     * matching items with their keys rather than with Myers' algorithm.
+     * <p>
+     * After skipping the items which are the same at the start and at the end of both lists,
+     * the remaining items are matched through a hash of their keys, and the longest sequence of
+     * matched items which keeps its order is left in place. This takes
+     * <code>O(N log N)</code> time in the worst case, and <code>O(N)</code> when the items keep
+     * their order, regardless of the number of updates. The result may contain more moves than
+     * the one of {@link #calculateDiff(Callback, boolean)}, but it dispatches updates the same
+     * way.
+     * <p>
+     * The keys must be unique within each list. If a key is repeated, this falls back to
+     * {@link #calculateDiff(Callback, boolean)}.
+     *
+     * @param cb The callback that acts as a gateway to the backing list data
+     * @param detectMoves True if DiffUtil should dispatch items whose position changed as moves,
+     *                    false to dispatch them as removals and additions.
+     *
+     * @return A DiffResult that contains the information about the edit sequence to convert the
+     * old list into the new list.
+     */
+    @NonNull
+    public static DiffResult calculateKeyedDiff(@NonNull KeyedCallback cb, boolean detectMoves) {
+        final int oldSize = cb.getOldListSize();
+        final int newSize = cb.getNewListSize();
+
+        // skip the common prefix and suffix, which is all there is to many updates
+        int prefix = 0;
+        final int minSize = Math.min(oldSize, newSize);
+        while (prefix < minSize && cb.areItemsTheSame(prefix, prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < minSize - prefix
+                && cb.areItemsTheSame(oldSize - suffix - 1, newSize - suffix - 1)) {
+            suffix++;
+        }
+        final int oldEnd = oldSize - suffix;
+        final int newEnd = newSize - suffix;
+
+        // match the remaining items by key
+        final HashMap<Object, Integer> newPositions = new HashMap<>(
+                Math.max(16, (newEnd - prefix) * 4 / 3 + 1));
+        for (int y = prefix; y < newEnd; y++) {
+            if (newPositions.put(cb.getNewItemKey(y), y) != null) {
+                return calculateDiff(cb, detectMoves);
+            }
+        }
+        // oldToNew[x - prefix] is the new position of old item x, or NO_POSITION
+        final int[] oldToNew = new int[oldEnd - prefix];
+        final boolean[] matchedNew = new boolean[newEnd - prefix];
+        for (int x = prefix; x < oldEnd; x++) {
+            final Integer y = newPositions.get(cb.getOldItemKey(x));
+            if (y == null) {
+                oldToNew[x - prefix] = DiffResult.NO_POSITION;
+            } else if (matchedNew[y - prefix]) {
+                return calculateDiff(cb, detectMoves);
+            } else {
+                matchedNew[y - prefix] = true;
+                oldToNew[x - prefix] = y;
+            }
+        }
+
+        // the longest increasing subsequence of matches stays in place, everything else moves
+        final boolean[] inPlace = longestIncreasingSubsequence(oldToNew);
+        final List<Diagonal> diagonals = new ArrayList<>();
+        int runX = 0;
+        int runY = 0;
+        int runSize = prefix;
+        int[] moves = null;
+        for (int i = 0; i < oldToNew.length; i++) {
+            final int y = oldToNew[i];
+            if (y == DiffResult.NO_POSITION) {
+                continue;
+            }
+            final int x = i + prefix;
+            if (inPlace[i]) {
+                if (runSize > 0 && runX + runSize == x && runY + runSize == y) {
+                    runSize++;
+                } else {
+                    if (runSize > 0) {
+                        diagonals.add(new Diagonal(runX, runY, runSize));
+                    }
+                    runX = x;
+                    runY = y;
+                    runSize = 1;
+                }
+            } else if (detectMoves) {
+                if (moves == null) {
+                    moves = new int[oldSize];
+                    Arrays.fill(moves, DiffResult.NO_POSITION);
+                }
+                moves[x] = y;
+            }
+        }
+        if (suffix > 0) {
+            if (runSize > 0 && runX + runSize == oldEnd && runY + runSize == newEnd) {
+                runSize += suffix;
+            } else {
+                if (runSize > 0) {
+                    diagonals.add(new Diagonal(runX, runY, runSize));
+                }
+                runX = oldEnd;
+                runY = newEnd;
+                runSize = suffix;
+            }
+        }
+        if (runSize > 0) {
+            diagonals.add(new Diagonal(runX, runY, runSize));
+        }
+
+        return new DiffResult(cb, diagonals, new int[oldSize], new int[newSize], detectMoves,
+                moves, null);
+    }
+
+    /**
+     * Finds the longest strictly increasing subsequence of the given values with patience
+     * sorting, ignoring {@link DiffResult#NO_POSITION}s.
+     *
+     * @return whether each value is part of the subsequence
+     */
+    private static boolean[] longestIncreasingSubsequence(int[] values) {
+        final boolean[] result = new boolean[values.length];
+        // tails[k] is the index of the smallest value ending a subsequence of length k + 1
+        final int[] tails = new int[values.length];
+        final int[] previous = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            final int value = values[i];
+            if (value == DiffResult.NO_POSITION) {
+                continue;
+            }
+            int low = 0;
+            int high = length;
+            // when the items keep their order, each value extends the longest subsequence
+            if (length > 0 && values[tails[length - 1]] < value) {
+                low = length;
+            } else {
+                while (low < high) {
+                    final int mid = (low + high) >>> 1;
+                    if (values[tails[mid]] < value) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            result[i] = true;
+        }
+        return result;
     }
 
     /**
@@ -187,7 +393,8 @@ public class DiffUtil {
             Range range,
             Callback cb,
             CenteredArray forward,
-            CenteredArray backward) {
+            CenteredArray backward,
+            @Nullable AtomicBoolean cancelled) {
         if (range.oldSize() < 1 || range.newSize() < 1) {
             return null;
         }
@@ -195,6 +402,10 @@ public class DiffUtil {
         forward.set(1, range.oldListStart);
         backward.set(1, range.oldListEnd);
         for (int d = 0; d < max; d++) {
+            // each step costs O(d), so this is where a large diff spends most of its time
+            if (isCancelled(cancelled)) {
+                return null;
+            }
             Snake snake = forward(range, cb, forward, backward, d);
             if (snake != null) {
                 return snake;
@@ -397,6 +608,41 @@ public class DiffUtil {
         }
     }
 
+    /**
+     * A {@link Callback} for lists whose items have unique keys, which can be used with
+     * {@link DiffUtil#calculateKeyedDiff(KeyedCallback, boolean)}.
+     * <p>
+     * Keys are compared with {@link Object#equals(Object)} and {@link Object#hashCode()}, so they
+     * are typically the ids of the items.
+     */
+    public abstract static class KeyedCallback extends Callback {
+        /**
+         * Returns the key of an item in the old list. The key must be unique within the old list.
+         *
+         * @param oldItemPosition The position of the item in the old list
+         * @return The key of the item.
+         */
+        @NonNull
+        public abstract Object getOldItemKey(int oldItemPosition);
+
+        /**
+         * Returns the key of an item in the new list. The key must be unique within the new list.
+         *
+         * @param newItemPosition The position of the item in the new list
+         * @return The key of the item.
+         */
+        @NonNull
+        public abstract Object getNewItemKey(int newItemPosition);
+
+        /**
+         * Default implementation compares the keys of the two items.
+         */
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return getOldItemKey(oldItemPosition).equals(getNewItemKey(newItemPosition));
+        }
+    }
+
     /**
      * Callback for calculating the diff between two non-null items in a list.
      * <p>
@@ -662,6 +908,23 @@ public class DiffUtil {
          */
         DiffResult(Callback callback, List<Diagonal> diagonals, int[] oldItemStatuses,
                 int[] newItemStatuses, boolean detectMoves) {
+            this(callback, diagonals, oldItemStatuses, newItemStatuses, detectMoves, null, null);
+        }
+
+        /**
+         * @param callback        The callback that was used to calculate the diff
+         * @param diagonals       Matches between the two lists
+         * @param oldItemStatuses An int[] that can be re-purposed to keep metadata
+         * @param newItemStatuses An int[] that can be re-purposed to keep metadata
+         * @param detectMoves     True if this DiffResult will try to detect moved items
+         * @param moves           The new position of each moved old item, or {@code NO_POSITION},
+         *                        if the moves are already known. Otherwise, they are searched for
+         *                        if {@code detectMoves} is true.
+         * @param cancelled       If set, the search for moves stops, leaving an incomplete result
+         */
+        DiffResult(Callback callback, List<Diagonal> diagonals, int[] oldItemStatuses,
+                int[] newItemStatuses, boolean detectMoves, @Nullable int[] moves,
+                @Nullable AtomicBoolean cancelled) {
             mDiagonals = diagonals;
             mOldItemStatuses = oldItemStatuses;
             mNewItemStatuses = newItemStatuses;
@@ -672,7 +935,7 @@ public class DiffUtil {
             mNewListSize = callback.getNewListSize();
             mDetectMoves = detectMoves;
             addEdgeDiagonals();
-            findMatchingItems();
+            findMatchingItems(moves, cancelled);
         }
 
         /**
@@ -694,7 +957,8 @@ public class DiffUtil {
          * If moves are requested, we'll also try to do an n^2 search between additions and
          * removals to find moves.
          */
-        private void findMatchingItems() {
+        private void findMatchingItems(@Nullable int[] moves,
+                @Nullable AtomicBoolean cancelled) {
             for (Diagonal diagonal : mDiagonals) {
                 for (int offset = 0; offset < diagonal.size; offset++) {
                     int posX = diagonal.x + offset;
@@ -706,18 +970,36 @@ public class DiffUtil {
                 }
             }
             // now all matches are marked, lets look for moves
-            if (mDetectMoves) {
+            if (moves != null) {
+                markMoves(moves);
+            } else if (mDetectMoves) {
                 // traverse each addition / removal from the end of the list, find matching
                 // addition removal from before
-                findMoveMatches();
+                findMoveMatches(cancelled);
             }
         }
 
-        private void findMoveMatches() {
+        private void markMoves(int[] moves) {
+            for (int posX = 0; posX < moves.length; posX++) {
+                final int posY = moves[posX];
+                if (posY != NO_POSITION) {
+                    final boolean contentsMatching = mCallback.areContentsTheSame(posX, posY);
+                    final int changeFlag = contentsMatching ? FLAG_MOVED_NOT_CHANGED
+                            : FLAG_MOVED_CHANGED;
+                    mOldItemStatuses[posX] = (posY << FLAG_OFFSET) | changeFlag;
+                    mNewItemStatuses[posY] = (posX << FLAG_OFFSET) | changeFlag;
+                }
+            }
+        }
+
+        private void findMoveMatches(@Nullable AtomicBoolean cancelled) {
             // for each removal, find matching addition
             int posX = 0;
             for (Diagonal diagonal : mDiagonals) {
                 while (posX < diagonal.x) {
+                    if (isCancelled(cancelled)) {
+                        return;
+                    }
                     if (mOldItemStatuses[posX] == 0) {
                         // there is a removal, find matching addition from the rest
                         findMatchingAddition(posX);
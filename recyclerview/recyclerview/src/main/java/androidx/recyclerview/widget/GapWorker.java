@@ -187,6 +187,17 @@ final class GapWorker implements Runnable {
         recyclerView.mPrefetchRegistry.setPrefetchVector(prefetchDx, prefetchDy);
     }
 
+    /**
+     * Schedule a prefetch pass in the direction of the latest traversal, to bind the items which
+     * were deferred until their data was prepared.
+     */
+    void postFromPreparer(RecyclerView recyclerView) {
+        if (recyclerView.isAttachedToWindow() && mPostTimeNs == 0) {
+            mPostTimeNs = recyclerView.getNanoTime();
+            recyclerView.post(this);
+        }
+    }
+
     static Comparator<Task> sTaskComparator = new Comparator<Task>() {
         @Override
         public int compare(Task lhs, Task rhs) {
@@ -274,6 +285,41 @@ final class GapWorker implements Runnable {
         return false;
     }
 
+    private static boolean isPrefetchPositionCached(RecyclerView view, int position) {
+        final ArrayList<RecyclerView.ViewHolder> cachedViews = view.mRecycler.mCachedViews;
+        for (int i = 0; i < cachedViews.size(); i++) {
+            RecyclerView.ViewHolder holder = cachedViews.get(i);
+            if (holder.mPosition == position && !holder.isInvalid()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts preparing the data of the item at the given position in the background, if the view
+     * has an {@link ItemPreparer} and the item is neither attached nor cached already.
+     *
+     * @return Whether to skip prefetching the item until its data is prepared
+     */
+    private static boolean deferUntilPrepared(RecyclerView view, int position) {
+        final ItemPreparer preparer = view.mItemPreparer;
+        if (preparer == null
+                || isPrefetchPositionAttached(view, position)
+                || isPrefetchPositionCached(view, position)) {
+            return false;
+        }
+        final int offsetPosition = view.mAdapterHelper.findPositionOffset(position);
+        if (offsetPosition < 0 || offsetPosition >= view.mAdapter.getItemCount()
+                || preparer.isPrepared(offsetPosition)) {
+            return false;
+        }
+        // Bound by the prefetch pass which the preparer posts once done, or by layout if the item
+        // is needed before that.
+        preparer.prepare(view.mAdapter, offsetPosition);
+        return true;
+    }
+
     private RecyclerView.ViewHolder prefetchPositionWithDeadline(RecyclerView view,
             int position, long deadlineNs) {
         if (isPrefetchPositionAttached(view, position)) {
@@ -288,6 +334,9 @@ final class GapWorker implements Runnable {
             holder = recycler.tryGetViewHolderForPositionByDeadline(
                     position, false, deadlineNs);
 
+            if (view.mMetricsListeners != null) {
+                dispatchPrefetchMetrics(view, position, holder);
+            }
             if (holder != null) {
                 if (holder.isBound() && !holder.isInvalid()) {
                     // Only give the view a chance to go into the cache if binding succeeded
@@ -307,6 +356,21 @@ final class GapWorker implements Runnable {
         return holder;
     }
 
+    private static void dispatchPrefetchMetrics(RecyclerView view, int position,
+            @Nullable RecyclerView.ViewHolder holder) {
+        if (holder != null) {
+            view.dispatchOnPrefetch(holder.getItemViewType(),
+                    holder.isBound() && !holder.isInvalid());
+        } else {
+            // Creating the holder would have missed the deadline, so look up the type it would
+            // have had.
+            int offsetPosition = view.mAdapterHelper.findPositionOffset(position);
+            if (offsetPosition >= 0 && offsetPosition < view.mAdapter.getItemCount()) {
+                view.dispatchOnPrefetch(view.mAdapter.getItemViewType(offsetPosition), false);
+            }
+        }
+    }
+
     private void prefetchInnerRecyclerViewWithDeadline(@Nullable RecyclerView innerView,
             long deadlineNs) {
         if (innerView == null) {
@@ -341,6 +405,9 @@ final class GapWorker implements Runnable {
     }
 
     private void flushTaskWithDeadline(Task task, long deadlineNs) {
+        if (!task.immediate && deferUntilPrepared(task.view, task.position)) {
+            return;
+        }
         long taskDeadlineNs = task.immediate ? RecyclerView.FOREVER_NS : deadlineNs;
         RecyclerView.ViewHolder holder = prefetchPositionWithDeadline(task.view,
                 task.position, taskDeadlineNs);
@@ -197,8 +197,7 @@ public class GridLayoutManager extends LinearLayoutManager {
 
     @Override
     public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
-        mSpanSizeLookup.invalidateSpanIndexCache();
-        mSpanSizeLookup.invalidateSpanGroupIndexCache();
+        mSpanSizeLookup.invalidateCachesFrom(positionStart);
     }
 
     @Override
@@ -209,21 +208,18 @@ public class GridLayoutManager extends LinearLayoutManager {
 
     @Override
     public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
-        mSpanSizeLookup.invalidateSpanIndexCache();
-        mSpanSizeLookup.invalidateSpanGroupIndexCache();
+        mSpanSizeLookup.invalidateCachesFrom(positionStart);
     }
 
     @Override
     public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount,
             Object payload) {
-        mSpanSizeLookup.invalidateSpanIndexCache();
-        mSpanSizeLookup.invalidateSpanGroupIndexCache();
+        mSpanSizeLookup.invalidateCachesFrom(positionStart);
     }
 
     @Override
     public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
-        mSpanSizeLookup.invalidateSpanIndexCache();
-        mSpanSizeLookup.invalidateSpanGroupIndexCache();
+        mSpanSizeLookup.invalidateCachesFrom(Math.min(from, to));
     }
 
     @Override
@@ -843,9 +839,21 @@ public class GridLayoutManager extends LinearLayoutManager {
      */
     public abstract static class SpanSizeLookup {
 
+        /**
+         * While walking over the items to compute a span index or a span group index, the
+         * default implementations cache the result for every position which is a multiple of
+         * this, so that a later lookup at any position only walks from the closest such
+         * position, whichever order positions are asked in.
+         */
+        static final int CACHE_BLOCK_SIZE = 64;
+
         final SparseIntArray mSpanIndexCache = new SparseIntArray();
         final SparseIntArray mSpanGroupIndexCache = new SparseIntArray();
 
+        // The first position whose cached values are cleared by the invalidate methods, which is
+        // only set while an adapter change that affects part of the data set is handled.
+        private int mInvalidatedPosition = 0;
+
         private boolean mCacheSpanIndices = false;
         private boolean mCacheSpanGroupIndices = false;
 
@@ -891,18 +899,48 @@ public class GridLayoutManager extends LinearLayoutManager {
 
         /**
          * Clears the span index cache. GridLayoutManager automatically calls this method when
-         * adapter changes occur.
+         * adapter changes occur. When the change only affects part of the data set, the default
+         * implementation keeps the cached values of the positions before the change.
          */
         public void invalidateSpanIndexCache() {
-            mSpanIndexCache.clear();
+            removeKeysFrom(mSpanIndexCache, mInvalidatedPosition);
         }
 
         /**
          * Clears the span group index cache. GridLayoutManager automatically calls this method
-         * when adapter changes occur.
+         * when adapter changes occur. When the change only affects part of the data set, the
+         * default implementation keeps the cached values of the positions before the change.
          */
         public void invalidateSpanGroupIndexCache() {
-            mSpanGroupIndexCache.clear();
+            removeKeysFrom(mSpanGroupIndexCache, mInvalidatedPosition);
+        }
+
+        /**
+         * Invalidates the caches after an adapter change at the given position, through the
+         * public invalidate methods so that subclasses which override them are still notified.
+         * The span index and span group index of an item only depend on the items before it, so
+         * the default implementations only clear the values of the given position and of the
+         * positions after it.
+         */
+        void invalidateCachesFrom(int position) {
+            mInvalidatedPosition = position;
+            try {
+                invalidateSpanIndexCache();
+                invalidateSpanGroupIndexCache();
+            } finally {
+                mInvalidatedPosition = 0;
+            }
+        }
+
+        private static void removeKeysFrom(SparseIntArray cache, int position) {
+            if (position == 0) {
+                cache.clear();
+                return;
+            }
+            // Removing from the end doesn't move any of the remaining entries.
+            for (int i = cache.size() - 1; i >= 0 && cache.keyAt(i) >= position; i--) {
+                cache.removeAt(i);
+            }
         }
 
         /**
@@ -957,7 +995,8 @@ public class GridLayoutManager extends LinearLayoutManager {
          * ({@link #setSpanIndexCacheEnabled(boolean)}) for better performance. When caching is
          * disabled, default implementation traverses all items from 0 to
          * <code>position</code>. When caching is enabled, it calculates from the closest cached
-         * value before the <code>position</code>.
+         * value before the <code>position</code>, and caches the span index of every 64th item
+         * on the way so that later lookups never walk over more than 64 items.
          * <p>
          * If you override this method, you need to make sure it is consistent with
          * {@link #getSpanSize(int)}. GridLayoutManager does not call this method for
@@ -989,6 +1028,9 @@ public class GridLayoutManager extends LinearLayoutManager {
             }
             for (int i = startPos; i < position; i++) {
                 int size = getSpanSize(i);
+                if (mCacheSpanIndices && i % CACHE_BLOCK_SIZE == 0 && i > 0) {
+                    mSpanIndexCache.put(i, span + size <= spanCount ? span : 0);
+                }
                 span += size;
                 if (span == spanCount) {
                     span = 0;
@@ -1030,6 +1072,12 @@ public class GridLayoutManager extends LinearLayoutManager {
          * <p>
          * For example, if grid has 3 columns and each item occupies 1 span, span group index
          * for item 1 will be 0, item 5 will be 1.
+         * <p>
+         * When span group index caching is enabled
+         * ({@link #setSpanGroupIndexCacheEnabled(boolean)}), the default implementation
+         * calculates from the closest cached value before the position, and caches the span group
+         * index of every 64th item on the way. Enable span index caching as well so that the span
+         * index of the cached item doesn't have to be calculated from the first item.
          *
          * @param adapterPosition The position in adapter
          * @param spanCount The total number of spans in the grid
@@ -1055,6 +1103,9 @@ public class GridLayoutManager extends LinearLayoutManager {
             int positionSpanSize = getSpanSize(adapterPosition);
             for (int i = start; i < adapterPosition; i++) {
                 int size = getSpanSize(i);
+                if (mCacheSpanGroupIndices && i % CACHE_BLOCK_SIZE == 0 && i > 0) {
+                    mSpanGroupIndexCache.put(i, span + size <= spanCount ? group : group + 1);
+                }
                 span += size;
                 if (span == spanCount) {
                     span = 0;
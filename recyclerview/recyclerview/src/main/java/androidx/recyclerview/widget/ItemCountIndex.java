@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the item counts of a list of groups of items in a Fenwick tree, so that the number of
+ * items before a group and the group which contains a global position can be found in O(log n),
+ * where n is the number of groups. The groups are the adapters of a {@link ConcatAdapter}, or the
+ * chunks of a {@link ChunkedArray}.
+ * <p>
+ * Changing the item count of a group costs O(log n), and so does adding or removing the last
+ * group. Inserting or removing any other group rebuilds the tree in O(n), which is no worse
+ * than updating the list of groups itself.
+ */
+class ItemCountIndex {
+    // Item count of each group, by index.
+    private int[] mCounts = new int[8];
+    // 1-based Fenwick tree over mCounts, mTree[i] is the sum of the mCounts ending at i - 1
+    // whose length is the lowest set bit of i.
+    private int[] mTree = new int[9];
+    private int mSize;
+    private int mTotal;
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @return The sum of all the item counts
+     */
+    int getTotal() {
+        return mTotal;
+    }
+
+    int get(int index) {
+        checkIndex(index);
+        return mCounts[index];
+    }
+
+    /**
+     * Inserts a group with the given item count at the given index.
+     */
+    void insert(int index, int count) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + mSize);
+        }
+        if (mSize == mCounts.length) {
+            int[] counts = new int[mSize * 2];
+            System.arraycopy(mCounts, 0, counts, 0, mSize);
+            mCounts = counts;
+            mTree = Arrays.copyOf(mTree, counts.length + 1);
+        }
+        if (index == mSize) {
+            // Appending doesn't change any existing node, only the new one needs computing.
+            int node = mSize + 1;
+            mTree[node] = count + countBefore(mSize) - countBefore(node - (node & -node));
+            mCounts[mSize] = count;
+            mSize++;
+            mTotal += count;
+            return;
+        }
+        System.arraycopy(mCounts, index, mCounts, index + 1, mSize - index);
+        mCounts[index] = count;
+        mSize++;
+        rebuild();
+    }
+
+    /**
+     * Removes the group at the given index.
+     */
+    void remove(int index) {
+        checkIndex(index);
+        if (index == mSize - 1) {
+            // No other node covers the last one.
+            mTotal -= mCounts[index];
+            mCounts[index] = 0;
+            mTree[mSize] = 0;
+            mSize--;
+            return;
+        }
+        System.arraycopy(mCounts, index + 1, mCounts, index, mSize - index - 1);
+        mSize--;
+        mCounts[mSize] = 0;
+        rebuild();
+    }
+
+    /**
+     * Updates the item count of the group at the given index.
+     */
+    void set(int index, int count) {
+        checkIndex(index);
+        int delta = count - mCounts[index];
+        if (delta == 0) {
+            return;
+        }
+        mCounts[index] = count;
+        mTotal += delta;
+        for (int i = index + 1; i <= mSize; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    /**
+     * @return The sum of the item counts of the groups before the given index
+     */
+    int countBefore(int index) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + mSize);
+        }
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the group which contains the given global position, skipping groups which are
+     * empty.
+     *
+     * @return The index of the group, or {@code -1} if the position is not smaller than the
+     * total item count
+     */
+    int indexOf(int position) {
+        if (position >= mTotal) {
+            return -1;
+        }
+        // Find the largest prefix whose sum is not greater than the position, one bit at a time.
+        int index = 0;
+        int remaining = position;
+        for (int step = Integer.highestOneBit(Math.max(mSize, 1)); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= mSize && mTree[next] <= remaining) {
+                index = next;
+                remaining -= mTree[next];
+            }
+        }
+        return index;
+    }
+
+    private void rebuild() {
+        mTotal = 0;
+        mTree[0] = 0;
+        for (int i = 1; i <= mSize; i++) {
+            mTree[i] = mCounts[i - 1];
+            mTotal += mCounts[i - 1];
+        }
+        for (int i = mSize + 1; i < mTree.length; i++) {
+            mTree[i] = 0;
+        }
+        for (int i = 1; i <= mSize; i++) {
+            int parent = i + (i & -i);
+            if (parent <= mSize) {
+                mTree[parent] += mTree[i];
+            }
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + mSize);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs {@link RecyclerView.Adapter#onPrepareData(int)} on a background executor for the positions
+ * which {@link GapWorker} is about to prefetch, and keeps the results on the main thread until
+ * the positions are bound.
+ * <p>
+ * Any change to the adapter discards the results, including the ones which are still being
+ * prepared, since their positions may no longer match.
+ */
+final class ItemPreparer {
+    private static final String TAG = "ItemPreparer";
+    // Stands for a null result, so that it can be told apart from one which is not ready.
+    private static final Object NULL_DATA = new Object();
+    // Results beyond this are dropped, starting with the furthest from the latest one.
+    static final int MAX_PREPARED_ITEMS = 16;
+
+    private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
+    private final Executor mExecutor;
+    // Run on the main thread whenever a result arrives, so that the item gets prefetched.
+    private final Runnable mOnPreparedCallback;
+    // Adapter position to prepared data, or to null while the data is being prepared.
+    private final SparseArray<Object> mItems = new SparseArray<>();
+    // Number of mItems which are prepared, as opposed to being prepared.
+    private int mPreparedCount;
+    private int mGeneration;
+
+    ItemPreparer(Executor executor, Runnable onPreparedCallback) {
+        mExecutor = executor;
+        mOnPreparedCallback = onPreparedCallback;
+    }
+
+    /**
+     * @return Whether the data of the given position was prepared, and not taken yet
+     */
+    boolean isPrepared(int position) {
+        return mItems.get(position) != null;
+    }
+
+    /**
+     * Starts preparing the data of the given position, unless it is already prepared or being
+     * prepared.
+     */
+    void prepare(RecyclerView.Adapter<?> adapter, final int position) {
+        if (mItems.indexOfKey(position) >= 0) {
+            return;
+        }
+        // The items of a ConcatAdapter are prepared by the adapters they come from. These are
+        // looked up here, since the positions of a ConcatAdapter may only be read on the main
+        // thread.
+        RecyclerView.Adapter<?> preparingAdapter = adapter;
+        int preparingPosition = position;
+        while (preparingAdapter instanceof ConcatAdapter) {
+            final ConcatAdapter concatAdapter = (ConcatAdapter) preparingAdapter;
+            preparingAdapter = concatAdapter.getWrappedAdapter(preparingPosition);
+            preparingPosition = concatAdapter.getWrappedPosition(preparingPosition);
+        }
+        mItems.put(position, null);
+        final RecyclerView.Adapter<?> finalAdapter = preparingAdapter;
+        final int finalPosition = preparingPosition;
+        final int generation = mGeneration;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Object data;
+                try {
+                    data = finalAdapter.onPrepareData(finalPosition);
+                } catch (RuntimeException e) {
+                    // A result is still posted, or prefetch would wait for it forever. The item
+                    // is then bound in full, as if it had nothing to prepare.
+                    Log.w(TAG, "Failed to prepare the data of position " + position, e);
+                    data = null;
+                }
+                final Object result = data;
+                mMainThreadHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPrepared(generation, position, result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Removes the prepared data of the given position, to be bound.
+     *
+     * @return The data, or null if it was not prepared or is not ready yet
+     */
+    @Nullable
+    Object take(int position) {
+        final int index = mItems.indexOfKey(position);
+        if (index < 0) {
+            return null;
+        }
+        final Object data = mItems.valueAt(index);
+        if (data == null) {
+            // Still being prepared, the result may serve a later bind.
+            return null;
+        }
+        mItems.removeAt(index);
+        mPreparedCount--;
+        return data == NULL_DATA ? null : data;
+    }
+
+    /**
+     * Discards all the results, including those which are still being prepared.
+     */
+    void invalidate() {
+        mItems.clear();
+        mPreparedCount = 0;
+        mGeneration++;
+    }
+
+    void onPrepared(int generation, int position, @Nullable Object data) {
+        final int index = mItems.indexOfKey(position);
+        if (generation != mGeneration || index < 0) {
+            // Invalidated while it was being prepared.
+            return;
+        }
+        mItems.setValueAt(index, data == null ? NULL_DATA : data);
+        mPreparedCount++;
+        while (mPreparedCount > MAX_PREPARED_ITEMS) {
+            int furthest = -1;
+            for (int i = 0; i < mItems.size(); i++) {
+                if (mItems.valueAt(i) != null && (furthest == -1
+                        || Math.abs(mItems.keyAt(i) - position)
+                        > Math.abs(mItems.keyAt(furthest) - position))) {
+                    furthest = i;
+                }
+            }
+            mItems.removeAt(furthest);
+            mPreparedCount--;
+        }
+        mOnPreparedCallback.run();
+    }
+}
@@ -43,6 +43,8 @@ class NestedAdapterWrapper {
     // Instead, we always calculate this value based on notify events.
     @SuppressWarnings("WeakerAccess")
     int mCachedItemCount;
+    // index of this wrapper in the ConcatAdapterController, which keeps it up to date
+    int mIndex;
 
     private RecyclerView.AdapterDataObserver mAdapterObserver =
             new RecyclerView.AdapterDataObserver() {
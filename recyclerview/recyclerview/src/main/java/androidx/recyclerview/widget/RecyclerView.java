@@ -38,6 +38,8 @@ import android.graphics.drawable.Drawable;
 import android.graphics.drawable.StateListDrawable;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.os.SystemClock;
@@ -67,6 +69,7 @@ import androidx.annotation.Nullable;
 import androidx.annotation.Px;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 import androidx.core.os.TraceCompat;
 import androidx.core.util.Preconditions;
 import androidx.core.view.AccessibilityDelegateCompat;
@@ -93,6 +96,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * A flexible view for providing a limited window into a large data set.
@@ -567,6 +571,14 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
 
     private OnScrollListener mScrollListener;
     private List<OnScrollListener> mScrollListeners;
+    // Null when there are no listeners, so that RecyclerView doesn't measure anything for them.
+    // Replaced rather than modified, so that listeners can be added or removed while the
+    // listeners are being notified.
+    @Nullable
+    List<MetricsListener> mMetricsListeners;
+    // Null unless an executor was set to prepare the prefetched items with.
+    @Nullable
+    ItemPreparer mItemPreparer;
 
     // For use in item animations
     boolean mItemsAddedOrRemoved = false;
@@ -606,6 +618,16 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         }
     };
 
+    private final Runnable mItemPreparedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // Prefetches the items which were deferred until their data was prepared.
+            if (mGapWorker != null) {
+                mGapWorker.postFromPreparer(RecyclerView.this);
+            }
+        }
+    };
+
     static final Interpolator sQuinticInterpolator = new Interpolator() {
         @Override
         public float getInterpolation(float t) {
@@ -1236,6 +1258,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             removeAndRecycleViews();
         }
         mAdapterHelper.reset();
+        if (mItemPreparer != null) {
+            mItemPreparer.invalidate();
+        }
         final Adapter oldAdapter = mAdapter;
         mAdapter = adapter;
         if (adapter != null) {
@@ -1787,6 +1812,82 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         }
     }
 
+    /**
+     * Add a listener that will be notified of how long this RecyclerView takes to create, bind and
+     * lay out its views, per view type.
+     * <p>
+     * Adding a listener makes RecyclerView measure these durations even on platform versions where
+     * it doesn't prefetch, so listeners should only be added while the metrics are collected.
+     *
+     * @param listener listener to add
+     * @see RecyclerViewMetricsRecorder
+     */
+    public void addMetricsListener(@NonNull MetricsListener listener) {
+        List<MetricsListener> listeners = mMetricsListeners == null
+                ? new ArrayList<MetricsListener>(1)
+                : new ArrayList<>(mMetricsListeners);
+        listeners.add(listener);
+        mMetricsListeners = listeners;
+    }
+
+    /**
+     * Remove a listener that was notified of the metrics of this RecyclerView.
+     *
+     * @param listener listener to remove
+     */
+    public void removeMetricsListener(@NonNull MetricsListener listener) {
+        if (mMetricsListeners != null && mMetricsListeners.contains(listener)) {
+            List<MetricsListener> listeners = new ArrayList<>(mMetricsListeners);
+            listeners.remove(listener);
+            mMetricsListeners = listeners.isEmpty() ? null : listeners;
+        }
+    }
+
+    /**
+     * Set the executor on which {@link Adapter#onPrepareData(int)} prepares the data of the items
+     * which are about to be prefetched, so that binding them on the main thread only has to attach
+     * the prepared data to the views.
+     * <p>
+     * Once an executor is set, prefetch waits for the data of an item to be prepared before it
+     * binds the item, unless the item is needed for the next frame. Prefetch only happens on
+     * platform versions where RecyclerView prefetches at all, which are API 21 and above.
+     *
+     * @param executor executor to prepare the item data on, or null to not prepare the data
+     *                 ahead of binding, which is the default
+     * @see Adapter#onPrepareData(int)
+     */
+    public void setItemPrepareExecutor(@Nullable Executor executor) {
+        mItemPreparer = executor != null ? new ItemPreparer(executor, mItemPreparedRunnable) : null;
+    }
+
+    void dispatchOnViewHolderCreated(int viewType, long durationNs) {
+        final List<MetricsListener> listeners = mMetricsListeners;
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).onViewHolderCreated(this, viewType, durationNs);
+        }
+    }
+
+    void dispatchOnViewHolderBound(int viewType, long durationNs) {
+        final List<MetricsListener> listeners = mMetricsListeners;
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).onViewHolderBound(this, viewType, durationNs);
+        }
+    }
+
+    void dispatchOnRecycledViewPoolLookup(int viewType, boolean hit) {
+        final List<MetricsListener> listeners = mMetricsListeners;
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).onRecycledViewPoolLookup(this, viewType, hit);
+        }
+    }
+
+    void dispatchOnPrefetch(int viewType, boolean completed) {
+        final List<MetricsListener> listeners = mMetricsListeners;
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).onPrefetch(this, viewType, completed);
+        }
+    }
+
     /**
      * Remove all secondary listener that were notified of any changes in scroll state or position.
      */
@@ -4575,7 +4676,18 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         TraceCompat.beginSection(TRACE_ON_LAYOUT_TAG);
+        // Only layouts which were measured from their start are reported, not those during
+        // which the first listener was added.
+        final boolean measureLayout = mMetricsListeners != null;
+        long startNs = measureLayout ? getNanoTime() : 0;
         dispatchLayout();
+        final List<MetricsListener> listeners = mMetricsListeners;
+        if (measureLayout && listeners != null) {
+            long durationNs = getNanoTime() - startNs;
+            for (int i = listeners.size() - 1; i >= 0; i--) {
+                listeners.get(i).onLayoutCompleted(this, durationNs);
+            }
+        }
         TraceCompat.endSection();
         mFirstLayoutComplete = true;
     }
@@ -5710,6 +5822,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         public void onChanged() {
             assertNotInLayoutOrScroll(null);
             mState.mStructureChanged = true;
+            invalidatePreparedItems();
 
             processDataSetCompletelyChanged(true);
             if (!mAdapterHelper.hasPendingUpdates()) {
@@ -5720,6 +5833,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         @Override
         public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
             assertNotInLayoutOrScroll(null);
+            invalidatePreparedItems();
             if (mAdapterHelper.onItemRangeChanged(positionStart, itemCount, payload)) {
                 triggerUpdateProcessor();
             }
@@ -5728,6 +5842,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         @Override
         public void onItemRangeInserted(int positionStart, int itemCount) {
             assertNotInLayoutOrScroll(null);
+            invalidatePreparedItems();
             if (mAdapterHelper.onItemRangeInserted(positionStart, itemCount)) {
                 triggerUpdateProcessor();
             }
@@ -5736,6 +5851,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         @Override
         public void onItemRangeRemoved(int positionStart, int itemCount) {
             assertNotInLayoutOrScroll(null);
+            invalidatePreparedItems();
             if (mAdapterHelper.onItemRangeRemoved(positionStart, itemCount)) {
                 triggerUpdateProcessor();
             }
@@ -5744,11 +5860,18 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         @Override
         public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
             assertNotInLayoutOrScroll(null);
+            invalidatePreparedItems();
             if (mAdapterHelper.onItemRangeMoved(fromPosition, toPosition, itemCount)) {
                 triggerUpdateProcessor();
             }
         }
 
+        private void invalidatePreparedItems() {
+            if (mItemPreparer != null) {
+                mItemPreparer.invalidate();
+            }
+        }
+
         void triggerUpdateProcessor() {
             if (POST_UPDATES_ON_ANIMATION && mHasFixedSize && mIsAttached) {
                 ViewCompat.postOnAnimation(RecyclerView.this, mUpdateChildViewsRunnable);
@@ -5845,12 +5968,20 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             int mMaxScrap = DEFAULT_MAX_SCRAP;
             long mCreateRunningAverageNs = 0;
             long mBindRunningAverageNs = 0;
+            // Number of ViewHolders being created by prewarm() which haven't been added yet.
+            int mPrewarmCount = 0;
         }
 
         SparseArray<ScrapData> mScrap = new SparseArray<>();
 
         private int mAttachCount = 0;
 
+        // Incremented when the pool is cleared, so that ViewHolders prewarmed for the previous
+        // adapter are dropped instead of being added.
+        private int mPrewarmGeneration = 0;
+
+        private Handler mMainHandler;
+
         /**
          * Discard all ViewHolders.
          */
@@ -5858,7 +5989,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             for (int i = 0; i < mScrap.size(); i++) {
                 ScrapData data = mScrap.valueAt(i);
                 data.mScrapHeap.clear();
+                data.mPrewarmCount = 0;
             }
+            mPrewarmGeneration++;
         }
 
         /**
@@ -5941,6 +6074,134 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             scrapHeap.add(scrap);
         }
 
+        /**
+         * Creates ViewHolders of the given type on a background thread and adds them to the pool,
+         * so that the RecyclerView doesn't have to create them on the main thread when they are
+         * first needed, e.g. during the first scroll.
+         * <p>
+         * ViewHolders are created by the RecyclerView's current adapter until the pool holds
+         * {@code count} ViewHolders of the type, or as many as
+         * {@link #setMaxRecycledViews(int, int)} allows. ViewHolders which are already in the pool
+         * or are still being created count towards that target, so calling this again before the
+         * previous call has completed doesn't create extra ViewHolders.
+         * <p>
+         * {@link Adapter#onCreateViewHolder(ViewGroup, int)} is called on the executor, so it has
+         * the same constraints as inflating with {@code AsyncLayoutInflater}: it must only inflate
+         * views which don't create a {@link Handler} or depend on {@link Looper#myLooper()}, and
+         * must not modify the parent. The created ViewHolders are added to the pool on the main
+         * thread. If a ViewHolder can't be created, it is skipped and the RecyclerView will create
+         * it on the main thread as usual. ViewHolders which are created after the pool has been
+         * {@link #clear() cleared} are discarded.
+         * <p>
+         * This method must be called on the main thread.
+         *
+         * @param recyclerView The RecyclerView whose adapter creates the ViewHolders, which is
+         *                     also passed to it as the parent
+         * @param viewType     ViewHolder type
+         * @param count        Number of ViewHolders of the type to keep in the pool
+         * @param executor     Executor on which the ViewHolders are created
+         * @see #prewarm(RecyclerView, Executor)
+         */
+        public void prewarm(@NonNull RecyclerView recyclerView, int viewType, int count,
+                @NonNull Executor executor) {
+            Adapter<?> adapter = recyclerView.getAdapter();
+            if (adapter == null) {
+                return;
+            }
+            ScrapData scrapData = getScrapDataForType(viewType);
+            int missing = Math.min(count, scrapData.mMaxScrap)
+                    - scrapData.mScrapHeap.size() - scrapData.mPrewarmCount;
+            for (int i = 0; i < missing; i++) {
+                schedulePrewarm(recyclerView, adapter, viewType, executor);
+            }
+        }
+
+        /**
+         * Creates ViewHolders on a background thread for every view type which RecyclerViews
+         * using this pool have created so far, until the pool is full for each type.
+         * <p>
+         * The pool keeps track of how long ViewHolders of each type take to create, and types
+         * which are slower to create are scheduled first, so that they are ready soonest. This has
+         * the same constraints as {@link #prewarm(RecyclerView, int, int, Executor)}, which
+         * describes them in detail.
+         * <p>
+         * This method must be called on the main thread.
+         *
+         * @param recyclerView The RecyclerView whose adapter creates the ViewHolders, which is
+         *                     also passed to it as the parent
+         * @param executor     Executor on which the ViewHolders are created
+         */
+        public void prewarm(@NonNull RecyclerView recyclerView, @NonNull Executor executor) {
+            // Types which have never been created don't have a create time yet, and may not be
+            // used by this adapter at all.
+            int[] viewTypes = new int[mScrap.size()];
+            int typeCount = 0;
+            for (int i = 0; i < mScrap.size(); i++) {
+                if (mScrap.valueAt(i).mCreateRunningAverageNs > 0) {
+                    viewTypes[typeCount++] = mScrap.keyAt(i);
+                }
+            }
+            // Insertion sort by decreasing create time, there are only a few view types.
+            for (int i = 1; i < typeCount; i++) {
+                int viewType = viewTypes[i];
+                long createTimeNs = mScrap.get(viewType).mCreateRunningAverageNs;
+                int j = i - 1;
+                while (j >= 0 && mScrap.get(viewTypes[j]).mCreateRunningAverageNs < createTimeNs) {
+                    viewTypes[j + 1] = viewTypes[j];
+                    j--;
+                }
+                viewTypes[j + 1] = viewType;
+            }
+            for (int i = 0; i < typeCount; i++) {
+                prewarm(recyclerView, viewTypes[i], Integer.MAX_VALUE, executor);
+            }
+        }
+
+        private void schedulePrewarm(final RecyclerView parent, final Adapter<?> adapter,
+                final int viewType, Executor executor) {
+            if (mMainHandler == null) {
+                mMainHandler = new Handler(Looper.getMainLooper());
+            }
+            final Handler mainHandler = mMainHandler;
+            final int generation = mPrewarmGeneration;
+            getScrapDataForType(viewType).mPrewarmCount++;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ViewHolder holder = null;
+                    try {
+                        holder = adapter.createViewHolder(parent, viewType);
+                    } catch (RuntimeException e) {
+                        Log.w(TAG, "Could not prewarm a ViewHolder of type " + viewType, e);
+                    }
+                    final ViewHolder created = holder;
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onPrewarmed(viewType, created, generation);
+                        }
+                    });
+                }
+            });
+        }
+
+        void onPrewarmed(int viewType, @Nullable ViewHolder holder, int generation) {
+            if (generation != mPrewarmGeneration) {
+                return;
+            }
+            getScrapDataForType(viewType).mPrewarmCount--;
+            if (holder == null) {
+                return;
+            }
+            if (ALLOW_THREAD_GAP_WORK) {
+                RecyclerView innerView = findNestedRecyclerView(holder.itemView);
+                if (innerView != null) {
+                    holder.mNestedRecyclerView = new WeakReference<>(innerView);
+                }
+            }
+            putRecycledView(holder);
+        }
+
         long runningAverage(long oldAverage, long newValue) {
             if (oldAverage == 0) {
                 return newValue;
@@ -6059,13 +6320,13 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
     }
 
     /**
-     * Time base for deadline-aware work scheduling. Overridable for testing.
+     * Time base for deadline-aware work scheduling and metrics. Overridable for testing.
      *
-     * Will return 0 to avoid cost of System.nanoTime where deadline-aware work scheduling
-     * isn't relevant.
+     * Will return 0 to avoid cost of System.nanoTime where neither deadline-aware work scheduling
+     * nor metrics are relevant.
      */
     long getNanoTime() {
-        if (ALLOW_THREAD_GAP_WORK) {
+        if (ALLOW_THREAD_GAP_WORK || mMetricsListeners != null) {
             return System.nanoTime();
         } else {
             return 0;
@@ -6201,9 +6462,16 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
                 // abort - we have a deadline we can't meet
                 return false;
             }
+            if (mItemPreparer != null) {
+                holder.mPreparedData = mItemPreparer.take(offsetPosition);
+            }
             mAdapter.bindViewHolder(holder, offsetPosition);
+            holder.mPreparedData = null;
             long endBindNs = getNanoTime();
             mRecyclerPool.factorInBindTime(holder.getItemViewType(), endBindNs - startBindNs);
+            if (mMetricsListeners != null) {
+                dispatchOnViewHolderBound(viewType, endBindNs - startBindNs);
+            }
             attachAccessibilityDelegateOnBind(holder);
             if (mState.isPreLayout()) {
                 holder.mPreLayoutPosition = position;
@@ -6415,6 +6683,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
                             invalidateDisplayListInt(holder);
                         }
                     }
+                    if (mMetricsListeners != null) {
+                        dispatchOnRecycledViewPoolLookup(type, holder != null);
+                    }
                 }
                 if (holder == null) {
                     long start = getNanoTime();
@@ -6434,6 +6705,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
 
                     long end = getNanoTime();
                     mRecyclerPool.factorInCreateTime(type, end - start);
+                    if (mMetricsListeners != null) {
+                        dispatchOnViewHolderCreated(type, end - start);
+                    }
                     if (DEBUG) {
                         Log.d(TAG, "tryGetViewHolderForPositionByDeadline created new ViewHolder");
                     }
@@ -7263,6 +7537,33 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             onBindViewHolder(holder, position);
         }
 
+        /**
+         * Called on a background thread, ahead of binding, to prepare the data which the item at
+         * the given position needs to be bound, such as measured text or decoded images. The result
+         * is available from {@link ViewHolder#getPreparedData()} while the item is bound, so that
+         * {@link #onBindViewHolder(ViewHolder, int)} only has to attach it to the views.
+         * <p>
+         * This is only called for items which are about to be prefetched, once an executor is set
+         * with {@link RecyclerView#setItemPrepareExecutor(Executor)}. Items may still be bound
+         * before their data is prepared, in which case {@link ViewHolder#getPreparedData()} is
+         * null and the item must be bound in full.
+         * <p>
+         * This runs concurrently with the main thread, so it must not access any view, and may
+         * only read adapter data which is safe to read from another thread, such as an immutable
+         * list. The result is discarded if the adapter is notified of any change before the item
+         * is bound. If this throws, the item is bound in full, as if it had nothing to prepare.
+         * <p>
+         * The items of a {@link ConcatAdapter} are prepared by the adapters they come from.
+         *
+         * @param position The position of the item within the adapter's data set.
+         * @return The prepared data, or null if the item has nothing to prepare.
+         */
+        @WorkerThread
+        @Nullable
+        public Object onPrepareData(int position) {
+            return null;
+        }
+
         /**
          * Returns the position of the given {@link ViewHolder} in the given {@link Adapter}.
          *
@@ -11166,6 +11467,75 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         }
     }
 
+    /**
+     * A MetricsListener can be added to a RecyclerView to measure how long it takes to create, bind
+     * and lay out its views, and how often its views can be reused or prefetched, per view type.
+     * <p>
+     * All methods are called on the main thread, while RecyclerView is laying out or prefetching,
+     * so they should return quickly. {@link RecyclerViewMetricsRecorder} aggregates these
+     * callbacks into histograms and counters.
+     *
+     * @see RecyclerView#addMetricsListener(MetricsListener)
+     */
+    public abstract static class MetricsListener {
+        /**
+         * Called after the Adapter has created a ViewHolder.
+         *
+         * @param recyclerView The RecyclerView which requested the ViewHolder.
+         * @param viewType     The type of the ViewHolder.
+         * @param durationNs   The time {@link Adapter#createViewHolder(ViewGroup, int)} took.
+         */
+        public void onViewHolderCreated(@NonNull RecyclerView recyclerView, int viewType,
+                long durationNs) {
+        }
+
+        /**
+         * Called after the Adapter has bound a ViewHolder.
+         *
+         * @param recyclerView The RecyclerView which requested the binding.
+         * @param viewType     The type of the ViewHolder.
+         * @param durationNs   The time {@link Adapter#bindViewHolder(ViewHolder, int)} took.
+         */
+        public void onViewHolderBound(@NonNull RecyclerView recyclerView, int viewType,
+                long durationNs) {
+        }
+
+        /**
+         * Called when RecyclerView looks for a ViewHolder in its {@link RecycledViewPool}, because
+         * it couldn't reuse an attached, scrapped or cached one.
+         *
+         * @param recyclerView The RecyclerView which needed a ViewHolder.
+         * @param viewType     The type of ViewHolder it needed.
+         * @param hit          {@code true} if the pool had one, {@code false} if a ViewHolder has
+         *                     to be created instead.
+         */
+        public void onRecycledViewPoolLookup(@NonNull RecyclerView recyclerView, int viewType,
+                boolean hit) {
+        }
+
+        /**
+         * Called after RecyclerView has tried to prefetch a ViewHolder between frames.
+         *
+         * @param recyclerView The RecyclerView which prefetched.
+         * @param viewType     The type of the prefetched ViewHolder.
+         * @param completed    {@code true} if the ViewHolder was created and bound, {@code false}
+         *                     if creating or binding it was expected to miss the frame deadline,
+         *                     in which case it will be created or bound during a later layout.
+         */
+        public void onPrefetch(@NonNull RecyclerView recyclerView, int viewType,
+                boolean completed) {
+        }
+
+        /**
+         * Called after RecyclerView has completed a layout pass.
+         *
+         * @param recyclerView The RecyclerView which was laid out.
+         * @param durationNs   The time the layout pass took, including creating and binding views.
+         */
+        public void onLayoutCompleted(@NonNull RecyclerView recyclerView, long durationNs) {
+        }
+    }
+
     /**
      * A RecyclerListener can be set on a RecyclerView to receive messages whenever
      * a view is recycled.
@@ -11361,6 +11731,10 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         // The last adapter that bound this ViewHolder. It is cleaned before VH is recycled.
         Adapter<? extends ViewHolder> mBindingAdapter;
 
+        // Only set while the ViewHolder is bound to an item whose data was prepared.
+        @Nullable
+        Object mPreparedData;
+
         public ViewHolder(@NonNull View itemView) {
             if (itemView == null) {
                 throw new IllegalArgumentException("itemView may not be null");
@@ -11594,6 +11968,21 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             return mItemViewType;
         }
 
+        /**
+         * Returns the data which {@link Adapter#onPrepareData(int)} prepared on a background
+         * thread for the item this ViewHolder is being bound to.
+         * <p>
+         * This is only available from {@link Adapter#onBindViewHolder(ViewHolder, int, List)},
+         * and is null at any other time, or if the data was not prepared before the item was bound.
+         *
+         * @return The prepared data of the item being bound, or null
+         * @see RecyclerView#setItemPrepareExecutor(Executor)
+         */
+        @Nullable
+        public final Object getPreparedData() {
+            return mPreparedData;
+        }
+
         boolean isScrap() {
             return mScrapContainer != null;
         }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A {@link RecyclerView.MetricsListener} which aggregates the metrics of one or more
+ * RecyclerViews per view type, so that slow view types can be found in production.
+ * <p>
+ * Durations are counted in histograms of {@link #BUCKET_COUNT} buckets whose bounds grow
+ * exponentially from one microsecond, see {@link #getBucketLowerBoundNs(int)}. The last bucket
+ * counts every duration from about one frame at 60 frames per second upwards.
+ * <p>
+ * This class is not thread safe. It is updated on the main thread, so it should also be read and
+ * reset on the main thread.
+ * <pre>
+ * RecyclerViewMetricsRecorder recorder = new RecyclerViewMetricsRecorder();
+ * recyclerView.addMetricsListener(recorder);
+ * ...
+ * for (int viewType : recorder.getViewTypes()) {
+ *     long[] bindTimes = recorder.getBindTimeHistogram(viewType);
+ *     ...
+ * }
+ * </pre>
+ */
+public class RecyclerViewMetricsRecorder extends RecyclerView.MetricsListener {
+
+    /**
+     * The number of buckets in each histogram.
+     */
+    public static final int BUCKET_COUNT = 16;
+
+    private static class ViewTypeMetrics {
+        final long[] mCreateTimes = new long[BUCKET_COUNT];
+        final long[] mBindTimes = new long[BUCKET_COUNT];
+        long mPoolHits;
+        long mPoolMisses;
+        long mPrefetchesCompleted;
+        long mPrefetchesMissed;
+    }
+
+    private final SparseArray<ViewTypeMetrics> mViewTypes = new SparseArray<>();
+    private final long[] mLayoutTimes = new long[BUCKET_COUNT];
+
+    /**
+     * Returns the shortest duration which is counted in the given bucket. Bucket {@code 0}
+     * counts durations shorter than one microsecond, and bucket {@code i} counts durations from
+     * 2<sup>i-1</sup> microseconds up to the lower bound of bucket {@code i + 1}.
+     *
+     * @param bucket Index of the bucket, between {@code 0} and {@link #BUCKET_COUNT} - 1
+     * @return The lower bound of the bucket in nanoseconds
+     */
+    public static long getBucketLowerBoundNs(int bucket) {
+        if (bucket < 0 || bucket >= BUCKET_COUNT) {
+            throw new IndexOutOfBoundsException("Invalid bucket " + bucket);
+        }
+        return bucket == 0 ? 0 : (1L << (bucket - 1)) * 1000;
+    }
+
+    static int getBucket(long durationNs) {
+        long durationUs = durationNs / 1000;
+        if (durationUs <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(durationUs));
+    }
+
+    /**
+     * @return The view types for which metrics have been recorded, in ascending order
+     */
+    @NonNull
+    public int[] getViewTypes() {
+        int[] viewTypes = new int[mViewTypes.size()];
+        for (int i = 0; i < viewTypes.length; i++) {
+            viewTypes[i] = mViewTypes.keyAt(i);
+        }
+        return viewTypes;
+    }
+
+    /**
+     * @param viewType ViewHolder type
+     * @return A copy of the histogram of the times taken to create ViewHolders of the type
+     */
+    @NonNull
+    public long[] getCreateTimeHistogram(int viewType) {
+        ViewTypeMetrics metrics = mViewTypes.get(viewType);
+        return metrics == null ? new long[BUCKET_COUNT] : metrics.mCreateTimes.clone();
+    }
+
+    /**
+     * @param viewType ViewHolder type
+     * @return A copy of the histogram of the times taken to bind ViewHolders of the type
+     */
+    @NonNull
+    public long[] getBindTimeHistogram(int viewType) {
+        ViewTypeMetrics metrics = mViewTypes.get(viewType);
+        return metrics == null ? new long[BUCKET_COUNT] : metrics.mBindTimes.clone();
+    }
+
+    /**
+     * @param viewType ViewHolder type
+     * @return The number of times a ViewHolder of the type was found in the RecycledViewPool
+     */
+    public long getPoolHitCount(int viewType) {
+        ViewTypeMetrics metrics = mViewTypes.get(viewType);
+        return metrics == null ? 0 : metrics.mPoolHits;
+    }
+
+    /**
+     * @param viewType ViewHolder type
+     * @return The number of times a ViewHolder of the type had to be created because the
+     * RecycledViewPool had none
+     */
+    public long getPoolMissCount(int viewType) {
+        ViewTypeMetrics metrics = mViewTypes.get(viewType);
+        return metrics == null ? 0 : metrics.mPoolMisses;
+    }
+
+    /**
+     * @param viewType ViewHolder type
+     * @return The number of ViewHolders of the type which were prefetched before the frame
+     * deadline
+     */
+    public long getPrefetchCompletedCount(int viewType) {
+        ViewTypeMetrics metrics = mViewTypes.get(viewType);
+        return metrics == null ? 0 : metrics.mPrefetchesCompleted;
+    }
+
+    /**
+     * @param viewType ViewHolder type
+     * @return The number of ViewHolders of the type which couldn't be prefetched before the frame
+     * deadline
+     */
+    public long getPrefetchMissedCount(int viewType) {
+        ViewTypeMetrics metrics = mViewTypes.get(viewType);
+        return metrics == null ? 0 : metrics.mPrefetchesMissed;
+    }
+
+    /**
+     * @return A copy of the histogram of the times taken by layout passes
+     */
+    @NonNull
+    public long[] getLayoutTimeHistogram() {
+        return mLayoutTimes.clone();
+    }
+
+    /**
+     * Discards all the recorded metrics.
+     */
+    public void reset() {
+        mViewTypes.clear();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mLayoutTimes[i] = 0;
+        }
+    }
+
+    @Override
+    public void onViewHolderCreated(@NonNull RecyclerView recyclerView, int viewType,
+            long durationNs) {
+        getMetrics(viewType).mCreateTimes[getBucket(durationNs)]++;
+    }
+
+    @Override
+    public void onViewHolderBound(@NonNull RecyclerView recyclerView, int viewType,
+            long durationNs) {
+        getMetrics(viewType).mBindTimes[getBucket(durationNs)]++;
+    }
+
+    @Override
+    public void onRecycledViewPoolLookup(@NonNull RecyclerView recyclerView, int viewType,
+            boolean hit) {
+        ViewTypeMetrics metrics = getMetrics(viewType);
+        if (hit) {
+            metrics.mPoolHits++;
+        } else {
+            metrics.mPoolMisses++;
+        }
+    }
+
+    @Override
+    public void onPrefetch(@NonNull RecyclerView recyclerView, int viewType, boolean completed) {
+        ViewTypeMetrics metrics = getMetrics(viewType);
+        if (completed) {
+            metrics.mPrefetchesCompleted++;
+        } else {
+            metrics.mPrefetchesMissed++;
+        }
+    }
+
+    @Override
+    public void onLayoutCompleted(@NonNull RecyclerView recyclerView, long durationNs) {
+        mLayoutTimes[getBucket(durationNs)]++;
+    }
+
+    private ViewTypeMetrics getMetrics(int viewType) {
+        ViewTypeMetrics metrics = mViewTypes.get(viewType);
+        if (metrics == null) {
+            metrics = new ViewTypeMetrics();
+            mViewTypes.put(viewType, metrics);
+        }
+        return metrics;
+    }
+}
@@ -16,9 +16,15 @@
 
 package androidx.recyclerview.widget;
 
+import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
+
+import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Array;
 import java.util.Arrays;
 import java.util.Collection;
@@ -35,6 +41,10 @@ import java.util.Comparator;
  * call appropriate methods while editing them to avoid data inconsistencies.
  * <p>
  * You can control the order of items and change notifications via the {@link Callback} parameter.
+ * <p>
+ * By default, items are kept in a single array, so adding or removing an item moves all the items
+ * after it. For lists with many thousands of items which are updated one item at a time, use
+ * {@link #STORAGE_MODE_CHUNKED} to make those updates O(log n).
  */
 @SuppressWarnings("unchecked")
 public class SortedList<T> {
@@ -44,6 +54,29 @@ public class SortedList<T> {
      */
     public static final int INVALID_POSITION = -1;
 
+    /** @hide */
+    @RestrictTo(LIBRARY_GROUP_PREFIX)
+    @IntDef({STORAGE_MODE_ARRAY, STORAGE_MODE_CHUNKED})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface StorageMode {
+    }
+
+    /**
+     * Keeps the items in a single array. Adding or removing an item costs O(n), as the items after
+     * it are moved, but lookups are as fast as they can be and small lists use little memory.
+     * This is the default.
+     */
+    public static final int STORAGE_MODE_ARRAY = 0;
+
+    /**
+     * Keeps the items in chunks of a few hundred items, indexed by a tree of the chunk sizes.
+     * Adding, removing, updating and finding an item all cost O(log n), with only the items of
+     * one chunk being moved, which suits large lists which are updated an item at a time, such
+     * as chats or logs. Callbacks are dispatched the same way as with
+     * {@link #STORAGE_MODE_ARRAY}, but accessing an item by index costs O(log n) instead of O(1).
+     */
+    public static final int STORAGE_MODE_CHUNKED = 1;
+
     private static final int MIN_CAPACITY = 10;
     private static final int CAPACITY_GROWTH = MIN_CAPACITY;
     private static final int INSERTION = 1;
@@ -81,6 +114,14 @@ public class SortedList<T> {
     private int mSize;
     private final Class<T> mTClass;
 
+    /**
+     * The items when in {@link #STORAGE_MODE_CHUNKED}, in which case mData is unused. Batch
+     * operations update it in place, so mOldData is never set and mMerging tracks them instead.
+     */
+    @Nullable
+    private final ChunkedArray<T> mChunks;
+    private boolean mMerging;
+
     /**
      * Creates a new SortedList of type T.
      *
@@ -99,10 +140,33 @@ public class SortedList<T> {
      * @param initialCapacity The initial capacity to hold items.
      */
     public SortedList(@NonNull Class<T> klass, @NonNull Callback<T> callback, int initialCapacity) {
+        this(klass, callback, initialCapacity, STORAGE_MODE_ARRAY);
+    }
+
+    /**
+     * Creates a new SortedList of type T.
+     *
+     * @param klass           The class of the contents of the SortedList.
+     * @param callback        The callback that controls the behavior of SortedList.
+     * @param initialCapacity The initial capacity to hold items. Ignored in
+     *                        {@link #STORAGE_MODE_CHUNKED}.
+     * @param storageMode     How the items are stored, either {@link #STORAGE_MODE_ARRAY} or
+     *                        {@link #STORAGE_MODE_CHUNKED}.
+     */
+    public SortedList(@NonNull Class<T> klass, @NonNull Callback<T> callback, int initialCapacity,
+            @StorageMode int storageMode) {
         mTClass = klass;
-        mData = (T[]) Array.newInstance(klass, initialCapacity);
         mCallback = callback;
         mSize = 0;
+        if (storageMode == STORAGE_MODE_CHUNKED) {
+            mData = (T[]) Array.newInstance(klass, 0);
+            mChunks = new ChunkedArray<>();
+        } else if (storageMode == STORAGE_MODE_ARRAY) {
+            mData = (T[]) Array.newInstance(klass, initialCapacity);
+            mChunks = null;
+        } else {
+            throw new IllegalArgumentException("Unknown storage mode " + storageMode);
+        }
     }
 
     /**
@@ -255,7 +319,15 @@ public class SortedList<T> {
 
         final int newSize = sortAndDedup(newItems);
 
-        if (mSize == 0) {
+        if (mChunks != null) {
+            if (mSize == 0) {
+                mChunks.addAll(newItems, 0, newSize);
+                mSize = newSize;
+                mCallback.onInserted(0, newSize);
+            } else {
+                mergeChunked(newItems, newSize);
+            }
+        } else if (mSize == 0) {
             mData = newItems;
             mSize = newSize;
             mCallback.onInserted(0, newSize);
@@ -269,6 +341,13 @@ public class SortedList<T> {
         if (forceBatchedUpdates) {
             beginBatchedUpdates();
         }
+        if (mChunks != null) {
+            replaceAllChunked(newData);
+            if (forceBatchedUpdates) {
+                endBatchedUpdates();
+            }
+            return;
+        }
 
         mOldDataStart = 0;
         mOldDataSize = mSize;
@@ -330,6 +409,67 @@ public class SortedList<T> {
         }
     }
 
+    /**
+     * Same as the array based replace, except that the old items are replaced in place, so that
+     * the list is always consistent when callbacks are dispatched.
+     */
+    private void replaceAllChunked(@NonNull T[] newData) {
+        final ChunkedArray<T> chunks = mChunks;
+        final int newSize = sortAndDedup(newData);
+        mMerging = true;
+        // mSize is the new items before position followed by the old items which are left.
+        int position = 0;
+        int newDataStart = 0;
+        while (newDataStart < newSize || position < mSize) {
+            if (position >= mSize) {
+                int itemCount = newSize - newDataStart;
+                chunks.addAll(newData, newDataStart, itemCount);
+                mSize += itemCount;
+                mCallback.onInserted(position, itemCount);
+                break;
+            }
+            if (newDataStart >= newSize) {
+                int itemCount = mSize - position;
+                chunks.removeFrom(position);
+                mSize = position;
+                mCallback.onRemoved(position, itemCount);
+                break;
+            }
+
+            T oldItem = chunks.get(position);
+            T newItem = newData[newDataStart];
+
+            int result = mCallback.compare(oldItem, newItem);
+            if (result < 0) {
+                chunks.remove(position);
+                mSize--;
+                mCallback.onRemoved(position, 1);
+            } else if (result > 0) {
+                chunks.add(position, newItem);
+                mSize++;
+                newDataStart++;
+                mCallback.onInserted(position++, 1);
+            } else if (!mCallback.areItemsTheSame(oldItem, newItem)) {
+                chunks.remove(position);
+                mSize--;
+                mCallback.onRemoved(position, 1);
+                chunks.add(position, newItem);
+                mSize++;
+                newDataStart++;
+                mCallback.onInserted(position++, 1);
+            } else {
+                chunks.set(position, newItem);
+                newDataStart++;
+                position++;
+                if (!mCallback.areContentsTheSame(oldItem, newItem)) {
+                    mCallback.onChanged(position - 1, 1,
+                            mCallback.getChangePayload(oldItem, newItem));
+                }
+            }
+        }
+        mMerging = false;
+    }
+
     private void replaceAllInsert(T newItem) {
         mData[mNewDataStart] = newItem;
         mNewDataStart++;
@@ -471,12 +611,108 @@ public class SortedList<T> {
         }
     }
 
+    /**
+     * Same as the array based merge, except that the new items are inserted in place, each one
+     * after a binary search, instead of copying all the old items.
+     */
+    private void mergeChunked(T[] newData, int newDataSize) {
+        final boolean forceBatchedUpdates = !(mCallback instanceof BatchedCallback);
+        if (forceBatchedUpdates) {
+            beginBatchedUpdates();
+        }
+        final ChunkedArray<T> chunks = mChunks;
+        mMerging = true;
+
+        // Everything before position has been merged already.
+        int position = 0;
+        for (int newDataStart = 0; newDataStart < newDataSize; newDataStart++) {
+            T newItem = newData[newDataStart];
+            // Skip the old items which are lower than the new item. Old items which are equal to
+            // but not the same as it stay before it, unless one of them is the same.
+            int index = Math.max(position, findFirstNotLower(newItem));
+            boolean replaced = false;
+            while (index < mSize) {
+                T oldItem = chunks.get(index);
+                if (mCallback.compare(oldItem, newItem) != 0) {
+                    break;
+                }
+                if (mCallback.areItemsTheSame(oldItem, newItem)) {
+                    chunks.set(index, newItem);
+                    if (!mCallback.areContentsTheSame(oldItem, newItem)) {
+                        mCallback.onChanged(index, 1,
+                                mCallback.getChangePayload(oldItem, newItem));
+                    }
+                    replaced = true;
+                    break;
+                }
+                index++;
+            }
+            if (replaced) {
+                position = index + 1;
+                continue;
+            }
+            if (index == mSize) {
+                // All the old items have been merged, add the remaining new items.
+                int itemCount = newDataSize - newDataStart;
+                chunks.addAll(newData, newDataStart, itemCount);
+                mSize += itemCount;
+                mCallback.onInserted(index, itemCount);
+                break;
+            }
+            chunks.add(index, newItem);
+            mSize++;
+            mCallback.onInserted(index, 1);
+            position = index + 1;
+        }
+
+        mMerging = false;
+        if (forceBatchedUpdates) {
+            endBatchedUpdates();
+        }
+    }
+
+    /**
+     * @return The index of the first item which is not lower than the given item in
+     * {@link #STORAGE_MODE_CHUNKED}, or the size of the list if there is none.
+     */
+    private int findFirstNotLower(T item) {
+        final ChunkedArray<T> chunks = mChunks;
+        // Find the first chunk whose last item is not lower than the item.
+        int left = 0;
+        int right = chunks.getChunkCount();
+        while (left < right) {
+            final int middle = (left + right) / 2;
+            T last = (T) chunks.getChunk(middle)[chunks.getChunkSize(middle) - 1];
+            if (mCallback.compare(last, item) < 0) {
+                left = middle + 1;
+            } else {
+                right = middle;
+            }
+        }
+        if (left == chunks.getChunkCount()) {
+            return mSize;
+        }
+        final Object[] chunk = chunks.getChunk(left);
+        final int chunkIndex = left;
+        left = 0;
+        right = chunks.getChunkSize(chunkIndex);
+        while (left < right) {
+            final int middle = (left + right) / 2;
+            if (mCallback.compare((T) chunk[middle], item) < 0) {
+                left = middle + 1;
+            } else {
+                right = middle;
+            }
+        }
+        return chunks.getChunkStart(chunkIndex) + left;
+    }
+
     /**
      * Throws an exception if called while we are in the middle of a mutation operation (addAll or
      * replaceAll).
      */
     private void throwIfInMutationOperation() {
-        if (mOldData != null) {
+        if (mOldData != null || mMerging) {
             throw new IllegalStateException("Data cannot be mutated in the middle of a batch "
                     + "update operation such as addAll or replaceAll.");
         }
@@ -539,18 +775,19 @@ public class SortedList<T> {
     }
 
     private int add(T item, boolean notify) {
-        int index = findIndexOf(item, mData, 0, mSize, INSERTION);
+        int index = mChunks != null ? findIndexOfChunked(item, INSERTION)
+                : findIndexOf(item, mData, 0, mSize, INSERTION);
         if (index == INVALID_POSITION) {
             index = 0;
         } else if (index < mSize) {
-            T existing = mData[index];
+            T existing = get(index);
             if (mCallback.areItemsTheSame(existing, item)) {
                 if (mCallback.areContentsTheSame(existing, item)) {
                     //no change but still replace the item
-                    mData[index] = item;
+                    setItemAt(index, item);
                     return index;
                 } else {
-                    mData[index] = item;
+                    setItemAt(index, item);
                     mCallback.onChanged(index, 1, mCallback.getChangePayload(existing, item));
                     return index;
                 }
@@ -590,7 +827,8 @@ public class SortedList<T> {
     }
 
     private boolean remove(T item, boolean notify) {
-        int index = findIndexOf(item, mData, 0, mSize, DELETION);
+        int index = mChunks != null ? findIndexOfChunked(item, DELETION)
+                : findIndexOf(item, mData, 0, mSize, DELETION);
         if (index == INVALID_POSITION) {
             return false;
         }
@@ -599,9 +837,14 @@ public class SortedList<T> {
     }
 
     private void removeItemAtIndex(int index, boolean notify) {
-        System.arraycopy(mData, index + 1, mData, index, mSize - index - 1);
-        mSize--;
-        mData[mSize] = null;
+        if (mChunks != null) {
+            mChunks.remove(index);
+            mSize--;
+        } else {
+            System.arraycopy(mData, index + 1, mData, index, mSize - index - 1);
+            mSize--;
+            mData[mSize] = null;
+        }
         if (notify) {
             mCallback.onRemoved(index, 1);
         }
@@ -636,7 +879,7 @@ public class SortedList<T> {
             // different items, we can use comparison and may avoid lookup
             final int cmp = mCallback.compare(existing, item);
             if (cmp == 0) {
-                mData[index] = item;
+                setItemAt(index, item);
                 if (contentsChanged) {
                     mCallback.onChanged(index, 1, mCallback.getChangePayload(existing, item));
                 }
@@ -706,6 +949,9 @@ public class SortedList<T> {
             throw new IndexOutOfBoundsException("Asked to get item at " + index + " but size is "
                     + mSize);
         }
+        if (mChunks != null) {
+            return mChunks.get(index);
+        }
         if (mOldData != null) {
             // The call is made from a callback during addAll execution. The data is split
             // between mData and mOldData.
@@ -725,6 +971,9 @@ public class SortedList<T> {
      * list.
      */
     public int indexOf(T item) {
+        if (mChunks != null) {
+            return findIndexOfChunked(item, LOOKUP);
+        }
         if (mOldData != null) {
             int index = findIndexOf(item, mData, 0, mNewDataStart, LOOKUP);
             if (index != INVALID_POSITION) {
@@ -764,10 +1013,62 @@ public class SortedList<T> {
         return reason == INSERTION ? left : INVALID_POSITION;
     }
 
+    /**
+     * Same as {@link #findIndexOf(Object, Object[], int, int, int)} in
+     * {@link #STORAGE_MODE_CHUNKED}: finds the chunk which may contain the item by comparing the
+     * first item of each chunk, then searches that chunk.
+     */
+    private int findIndexOfChunked(T item, int reason) {
+        final ChunkedArray<T> chunks = mChunks;
+        final int chunkCount = chunks.getChunkCount();
+        if (chunkCount == 0) {
+            return reason == INSERTION ? 0 : INVALID_POSITION;
+        }
+        // Find the last chunk whose first item is not greater than the item.
+        int left = 0;
+        int right = chunkCount;
+        while (left < right) {
+            final int middle = (left + right) / 2;
+            if (mCallback.compare(chunks.getChunk(middle)[0], item) <= 0) {
+                left = middle + 1;
+            } else {
+                right = middle;
+            }
+        }
+        final int chunkIndex = Math.max(left - 1, 0);
+        final Object[] chunk = chunks.getChunk(chunkIndex);
+        final int chunkStart = chunks.getChunkStart(chunkIndex);
+        left = 0;
+        right = chunks.getChunkSize(chunkIndex);
+        while (left < right) {
+            final int middle = (left + right) / 2;
+            T myItem = (T) chunk[middle];
+            final int cmp = mCallback.compare(myItem, item);
+            if (cmp < 0) {
+                left = middle + 1;
+            } else if (cmp == 0) {
+                if (mCallback.areItemsTheSame(myItem, item)) {
+                    return chunkStart + middle;
+                } else {
+                    // Items which are equal may continue into the neighbouring chunks.
+                    int exact = linearEqualitySearch(item, chunkStart + middle, 0, mSize);
+                    if (reason == INSERTION) {
+                        return exact == INVALID_POSITION ? chunkStart + middle : exact;
+                    } else {
+                        return exact;
+                    }
+                }
+            } else {
+                right = middle;
+            }
+        }
+        return reason == INSERTION ? chunkStart + left : INVALID_POSITION;
+    }
+
     private int linearEqualitySearch(T item, int middle, int left, int right) {
         // go left
         for (int next = middle - 1; next >= left; next--) {
-            T nextItem = mData[next];
+            T nextItem = mChunks != null ? mChunks.get(next) : mData[next];
             int cmp = mCallback.compare(nextItem, item);
             if (cmp != 0) {
                 break;
@@ -777,7 +1078,7 @@ public class SortedList<T> {
             }
         }
         for (int next = middle + 1; next < right; next++) {
-            T nextItem = mData[next];
+            T nextItem = mChunks != null ? mChunks.get(next) : mData[next];
             int cmp = mCallback.compare(nextItem, item);
             if (cmp != 0) {
                 break;
@@ -794,7 +1095,9 @@ public class SortedList<T> {
             throw new IndexOutOfBoundsException(
                     "cannot add item to " + index + " because size is " + mSize);
         }
-        if (mSize == mData.length) {
+        if (mChunks != null) {
+            mChunks.add(index, item);
+        } else if (mSize == mData.length) {
             // we are at the limit enlarge
             T[] newData = (T[]) Array.newInstance(mTClass, mData.length + CAPACITY_GROWTH);
             System.arraycopy(mData, 0, newData, 0, index);
@@ -809,6 +1112,14 @@ public class SortedList<T> {
         mSize++;
     }
 
+    private void setItemAt(int index, T item) {
+        if (mChunks != null) {
+            mChunks.set(index, item);
+        } else {
+            mData[index] = item;
+        }
+    }
+
     private T[] copyArray(T[] items) {
         T[] copy = (T[]) Array.newInstance(mTClass, items.length);
         System.arraycopy(items, 0, copy, 0, items.length);
@@ -824,7 +1135,11 @@ public class SortedList<T> {
             return;
         }
         final int prevSize = mSize;
-        Arrays.fill(mData, 0, prevSize, null);
+        if (mChunks != null) {
+            mChunks.clear();
+        } else {
+            Arrays.fill(mData, 0, prevSize, null);
+        }
         mSize = 0;
         mCallback.onRemoved(0, prevSize);
     }
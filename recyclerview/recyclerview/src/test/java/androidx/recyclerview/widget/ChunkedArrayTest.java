@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class ChunkedArrayTest {
+    private final ChunkedArray<Integer> mArray = new ChunkedArray<>();
+
+    @Test
+    public void appendFillsChunks() {
+        for (int i = 0; i < ChunkedArray.CHUNK_CAPACITY * 2 + 1; i++) {
+            mArray.add(i, i);
+        }
+        assertEquals(3, mArray.getChunkCount());
+        assertEquals(ChunkedArray.CHUNK_CAPACITY, mArray.getChunkSize(0));
+        assertEquals(ChunkedArray.CHUNK_CAPACITY, mArray.getChunkSize(1));
+        assertEquals(1, mArray.getChunkSize(2));
+        assertEquals(ChunkedArray.CHUNK_CAPACITY * 2, mArray.getChunkStart(2));
+        assertEquals(Integer.valueOf(ChunkedArray.CHUNK_CAPACITY), mArray.get(
+                ChunkedArray.CHUNK_CAPACITY));
+    }
+
+    @Test
+    public void insertSplitsFullChunk() {
+        for (int i = 0; i < ChunkedArray.CHUNK_CAPACITY; i++) {
+            mArray.add(i, i);
+        }
+        mArray.add(0, -1);
+        assertEquals(2, mArray.getChunkCount());
+        assertEquals(ChunkedArray.CHUNK_CAPACITY + 1, mArray.size());
+        for (int i = 0; i < mArray.size(); i++) {
+            assertEquals(Integer.valueOf(i - 1), mArray.get(i));
+        }
+    }
+
+    @Test
+    public void addAllAndRemoveFrom() {
+        Integer[] items = new Integer[ChunkedArray.CHUNK_CAPACITY * 3];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i;
+        }
+        mArray.add(0, -1);
+        mArray.addAll(items, 1, items.length - 1);
+        assertEquals(items.length, mArray.size());
+        assertEquals(3, mArray.getChunkCount());
+        mArray.removeFrom(10);
+        assertEquals(10, mArray.size());
+        assertEquals(1, mArray.getChunkCount());
+        assertEquals(Integer.valueOf(9), mArray.get(9));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfBounds() {
+        mArray.add(0, 1);
+        mArray.get(1);
+    }
+
+    @Test
+    public void randomOperations() {
+        Random random = new Random(7);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            int op = random.nextInt(10);
+            if (op < 6 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, i);
+                mArray.add(index, i);
+            } else if (op < 9) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), mArray.remove(index));
+            } else {
+                int index = random.nextInt(expected.size());
+                expected.set(index, -i);
+                mArray.set(index, -i);
+            }
+            assertEquals(expected.size(), mArray.size());
+            if (i % 1000 == 0) {
+                assertContents(expected);
+            }
+        }
+        assertContents(expected);
+        mArray.clear();
+        assertEquals(0, mArray.size());
+        assertEquals(0, mArray.getChunkCount());
+    }
+
+    private void assertContents(List<Integer> expected) {
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), mArray.get(i));
+        }
+        for (int i = 0; i < mArray.getChunkCount(); i++) {
+            int size = mArray.getChunkSize(i);
+            assertTrue(size > 0 && size <= ChunkedArray.CHUNK_CAPACITY);
+        }
+    }
+}
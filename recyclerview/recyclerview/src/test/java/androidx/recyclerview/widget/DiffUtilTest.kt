@@ -333,6 +333,39 @@ class DiffUtilTest {
         )
     }
 
+    @Test
+    fun testKeyedDisableMoveDetection() {
+        initWithSize(5)
+        move(0, 4)
+        val applied = applyUpdates(
+            before,
+            DiffUtil.calculateKeyedDiff(callback, false)
+        )
+        assertThat(
+            applied.size,
+            `is`(5)
+        )
+        assertThat(
+            applied[4].newItem,
+            `is`(true)
+        )
+        assertThat(
+            applied.contains(before[0]),
+            `is`(false)
+        )
+    }
+
+    @Test
+    fun testKeyedShuffle() {
+        initWithSize(50)
+        after.shuffle(sRand)
+        update(3)
+        updateWithPayload(7)
+        delete(10)
+        add(20)
+        check()
+    }
+
     @Test(expected = IndexOutOfBoundsException::class)
     fun convertOldPositionToNew_tooSmall() {
         initWithSize(2)
@@ -409,7 +442,11 @@ class DiffUtilTest {
     }
 
     private fun check() {
-        val result = calculate()
+        check(calculate())
+        check(DiffUtil.calculateKeyedDiff(callback, true))
+    }
+
+    private fun check(result: DiffUtil.DiffResult) {
         log("before", before)
         log("after", after)
         // test diff dispatch
@@ -683,11 +720,15 @@ class DiffUtilTest {
         private val oldList: List<Item>,
         private val newList: List<Item>,
         private val assertCalls: Boolean = true
-    ) : DiffUtil.Callback() {
+    ) : DiffUtil.KeyedCallback() {
         override fun getOldListSize() = oldList.size
 
         override fun getNewListSize() = newList.size
 
+        override fun getOldItemKey(oldItemIndex: Int): Any = oldList[oldItemIndex].id
+
+        override fun getNewItemKey(newItemIndex: Int): Any = newList[newItemIndex].id
+
         override fun areItemsTheSame(
             oldItemIndex: Int,
             newItemIndex: Int
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class ItemCountIndexTest {
+    private final ItemCountIndex mIndex = new ItemCountIndex();
+
+    @Test
+    public void empty() {
+        assertEquals(0, mIndex.size());
+        assertEquals(0, mIndex.getTotal());
+        assertEquals(0, mIndex.countBefore(0));
+        assertEquals(-1, mIndex.indexOf(0));
+    }
+
+    @Test
+    public void insertAndFind() {
+        mIndex.insert(0, 3);
+        mIndex.insert(1, 2);
+        mIndex.insert(1, 4);
+        // 3, 4, 2
+        assertEquals(9, mIndex.getTotal());
+        assertEquals(0, mIndex.countBefore(0));
+        assertEquals(3, mIndex.countBefore(1));
+        assertEquals(7, mIndex.countBefore(2));
+        assertEquals(9, mIndex.countBefore(3));
+        assertEquals(0, mIndex.indexOf(2));
+        assertEquals(1, mIndex.indexOf(3));
+        assertEquals(1, mIndex.indexOf(6));
+        assertEquals(2, mIndex.indexOf(7));
+        assertEquals(-1, mIndex.indexOf(9));
+    }
+
+    @Test
+    public void skipsEmpty() {
+        mIndex.insert(0, 0);
+        mIndex.insert(1, 2);
+        mIndex.insert(2, 0);
+        mIndex.insert(3, 0);
+        mIndex.insert(4, 1);
+        assertEquals(1, mIndex.indexOf(0));
+        assertEquals(1, mIndex.indexOf(1));
+        assertEquals(4, mIndex.indexOf(2));
+    }
+
+    @Test
+    public void setAndRemove() {
+        mIndex.insert(0, 3);
+        mIndex.insert(1, 4);
+        mIndex.insert(2, 2);
+        mIndex.set(1, 1);
+        assertEquals(6, mIndex.getTotal());
+        assertEquals(4, mIndex.countBefore(2));
+        assertEquals(2, mIndex.indexOf(4));
+        mIndex.remove(0);
+        assertEquals(2, mIndex.size());
+        assertEquals(1, mIndex.get(0));
+        assertEquals(3, mIndex.getTotal());
+        assertEquals(1, mIndex.indexOf(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void insertOutOfBounds() {
+        mIndex.insert(1, 3);
+    }
+
+    @Test
+    public void randomOperations() {
+        Random random = new Random(42);
+        List<Integer> counts = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            int op = random.nextInt(10);
+            if (op < 2 || counts.isEmpty()) {
+                int index = random.nextInt(counts.size() + 1);
+                int count = random.nextInt(4);
+                counts.add(index, count);
+                mIndex.insert(index, count);
+            } else if (op < 3) {
+                int index = random.nextInt(counts.size());
+                counts.remove(index);
+                mIndex.remove(index);
+            } else {
+                int index = random.nextInt(counts.size());
+                int count = random.nextInt(5);
+                counts.set(index, count);
+                mIndex.set(index, count);
+            }
+            assertMatches(counts, random);
+        }
+    }
+
+    private void assertMatches(List<Integer> counts, Random random) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        assertEquals(total, mIndex.getTotal());
+
+        int index = random.nextInt(counts.size() + 1);
+        int before = 0;
+        for (int i = 0; i < index; i++) {
+            before += counts.get(i);
+        }
+        assertEquals(before, mIndex.countBefore(index));
+
+        int position = random.nextInt(total + 1);
+        int expected = -1;
+        int local = position;
+        for (int i = 0; i < counts.size(); i++) {
+            if (counts.get(i) > local) {
+                expected = i;
+                break;
+            }
+            local -= counts.get(i);
+        }
+        assertEquals(expected, mIndex.indexOf(position));
+    }
+}
@@ -30,7 +30,7 @@ import androidx.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.junit.runners.JUnit4;
+import org.junit.runners.Parameterized;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -43,9 +43,22 @@ import java.util.Queue;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
-@RunWith(JUnit4.class)
+@RunWith(Parameterized.class)
 public class SortedListTest {
 
+    @Parameterized.Parameters(name = "storageMode={0}")
+    public static List<Object[]> params() {
+        return Arrays.asList(
+                new Object[]{SortedList.STORAGE_MODE_ARRAY},
+                new Object[]{SortedList.STORAGE_MODE_CHUNKED});
+    }
+
+    private final int mStorageMode;
+
+    public SortedListTest(int storageMode) {
+        mStorageMode = storageMode;
+    }
+
     SortedList<Item> mList;
     List<Pair> mAdditions = new ArrayList<>();
     List<Pair> mRemovals = new ArrayList<>();
@@ -143,7 +156,7 @@ public class SortedListTest {
                 return null;
             }
         };
-        mList = new SortedList<Item>(Item.class, mCallback);
+        mList = new SortedList<Item>(Item.class, mCallback, 10, mStorageMode);
     }
 
     private void pollAndRun(Queue<AssertListStateRunnable> queue) {
@@ -321,11 +334,13 @@ public class SortedListTest {
                     assertTrue(copy.contains(mList.get(index)));
                 }
 
-                for (int index = 0; index < mList.size(); index++) {
-                    assertNotNull(mList.mData[index]);
-                }
-                for (int index = mList.size(); index < mList.mData.length; index++) {
-                    assertNull(mList.mData[index]);
+                if (mStorageMode == SortedList.STORAGE_MODE_ARRAY) {
+                    for (int index = 0; index < mList.size(); index++) {
+                        assertNotNull(mList.mData[index]);
+                    }
+                    for (int index = mList.size(); index < mList.mData.length; index++) {
+                        assertNull(mList.mData[index]);
+                    }
                 }
             }
         } catch (Throwable t) {
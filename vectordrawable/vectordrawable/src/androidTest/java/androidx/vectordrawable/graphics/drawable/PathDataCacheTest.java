@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.vectordrawable.graphics.drawable;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import androidx.core.graphics.PathParser;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class PathDataCacheTest {
+    private static final String PATH_DATA = "M12,2 L22,12 L12,22 L2,12 z";
+    private static final String MORPHED_PATH_DATA = "M12,4 L20,12 L12,20 L4,12 z";
+
+    @Test
+    public void createNodesFromPathData_matchesParsedNodes() {
+        assertNodesEquals(PathParser.createNodesFromPathData(PATH_DATA),
+                VectorDrawableCompat.createNodesFromPathData(PATH_DATA));
+    }
+
+    @Test
+    public void animatingNodes_doesNotChangeOtherInflations() {
+        final PathParser.PathDataNode[] nodes =
+                VectorDrawableCompat.createNodesFromPathData(PATH_DATA);
+        // Path data animations update the nodes of a path in place.
+        PathParser.updateNodes(nodes, PathParser.createNodesFromPathData(MORPHED_PATH_DATA));
+
+        assertNodesEquals(PathParser.createNodesFromPathData(PATH_DATA),
+                VectorDrawableCompat.createNodesFromPathData(PATH_DATA));
+    }
+
+    private static void assertNodesEquals(PathParser.PathDataNode[] expected,
+            PathParser.PathDataNode[] nodes) {
+        assertEquals(expected.length, nodes.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].mType, nodes[i].mType);
+            assertArrayEquals(expected[i].mParams, nodes[i].mParams, 0f);
+        }
+    }
+}
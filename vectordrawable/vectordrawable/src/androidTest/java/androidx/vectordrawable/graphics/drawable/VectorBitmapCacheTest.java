@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.vectordrawable.graphics.drawable;
+
+import static android.graphics.Color.TRANSPARENT;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.Resources.Theme;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+import androidx.vectordrawable.test.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class VectorBitmapCacheTest {
+    private static final int SIZE = 10;
+    // Size in bytes of a SIZE x SIZE bitmap.
+    private static final int ENTRY_SIZE = SIZE * SIZE * 4;
+
+    private Resources mResources;
+    private Theme mTheme;
+
+    @Before
+    public void setup() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        mResources = context.getResources();
+        mTheme = context.getTheme();
+        mTheme.applyStyle(R.style.VectorDrawableTestTheme, true);
+    }
+
+    @Test
+    public void acquire_sameTokenAndSize_sharesEntry() {
+        final VectorBitmapCache cache = new VectorBitmapCache(10 * ENTRY_SIZE);
+        final Object token = new Object();
+        final Object holder1 = new Object();
+        final Object holder2 = new Object();
+
+        final VectorBitmapCache.Entry entry = cache.acquire(token, SIZE, SIZE, holder1);
+        assertSame(entry, cache.acquire(token, SIZE, SIZE, holder2));
+        assertNotSame(entry, cache.acquire(token, SIZE, SIZE + 1, holder1));
+        assertNotSame(entry, cache.acquire(new Object(), SIZE, SIZE, holder1));
+    }
+
+    @Test
+    public void trim_evictsLeastRecentlyUsedUnreferencedEntry() {
+        final VectorBitmapCache cache = new VectorBitmapCache(2 * ENTRY_SIZE);
+        final Object token1 = new Object();
+        final Object token2 = new Object();
+        final Object holder = new Object();
+
+        final VectorBitmapCache.Entry entry1 = cache.acquire(token1, SIZE, SIZE, holder);
+        cache.release(entry1, holder);
+        final VectorBitmapCache.Entry entry2 = cache.acquire(token2, SIZE, SIZE, holder);
+        cache.release(entry2, holder);
+        // Makes the second entry the least recently used one.
+        cache.release(cache.acquire(token1, SIZE, SIZE, holder), holder);
+
+        cache.acquire(new Object(), SIZE, SIZE, holder);
+
+        assertSame(entry1, cache.acquire(token1, SIZE, SIZE, holder));
+        assertNotSame(entry2, cache.acquire(token2, SIZE, SIZE, holder));
+    }
+
+    @Test
+    public void trim_keepsReferencedEntries() {
+        final VectorBitmapCache cache = new VectorBitmapCache(ENTRY_SIZE);
+        final Object token1 = new Object();
+        final Object token2 = new Object();
+        final Object holder1 = new Object();
+        final Object holder2 = new Object();
+
+        final VectorBitmapCache.Entry entry1 = cache.acquire(token1, SIZE, SIZE, holder1);
+        final VectorBitmapCache.Entry entry2 = cache.acquire(token2, SIZE, SIZE, holder2);
+        assertSame(entry1, cache.acquire(token1, SIZE, SIZE, holder1));
+        assertSame(entry2, cache.acquire(token2, SIZE, SIZE, holder2));
+
+        // Once released, the first entry is evicted since the cache is still over its size.
+        cache.release(entry1, holder1);
+        assertNotSame(entry1, cache.acquire(token1, SIZE, SIZE, holder1));
+    }
+
+    @Test
+    public void mutatedCopy_sharesBitmapAndKeepsColorFilter() {
+        // Drawables created with create() delegate to the platform drawable on API 24+.
+        final VectorDrawableCompat d1 =
+                VectorDrawableCompat.createWithoutDelegate(mResources, R.drawable.heart, mTheme);
+        assertNotNull(d1);
+        final VectorDrawableCompat d2 =
+                (VectorDrawableCompat) d1.getConstantState().newDrawable(mResources).mutate();
+        d1.setBounds(0, 0, 64, 64);
+        d2.setBounds(0, 0, 64, 64);
+        d2.setColorFilter(Color.BLUE, PorterDuff.Mode.SRC_OVER);
+
+        final Bitmap bitmap = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        d1.draw(canvas);
+        assertEquals(0xff00fff0, bitmap.getPixel(32, 32));
+
+        bitmap.eraseColor(TRANSPARENT);
+        d2.draw(canvas);
+        assertEquals(Color.BLUE, bitmap.getPixel(32, 32));
+        assertNotNull(d1.getSharedBitmap());
+        assertSame(d1.getSharedBitmap(), d2.getSharedBitmap());
+
+        bitmap.eraseColor(TRANSPARENT);
+        d1.draw(canvas);
+        assertEquals(0xff00fff0, bitmap.getPixel(32, 32));
+    }
+
+    @Test
+    public void separateInflations_doNotShareBitmap() {
+        final VectorDrawableCompat d1 =
+                VectorDrawableCompat.createWithoutDelegate(mResources, R.drawable.heart, mTheme);
+        final VectorDrawableCompat d2 =
+                VectorDrawableCompat.createWithoutDelegate(mResources, R.drawable.heart, mTheme);
+        assertNotNull(d1);
+        assertNotNull(d2);
+        d1.setBounds(0, 0, 64, 64);
+        d2.setBounds(0, 0, 64, 64);
+
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888));
+        d1.draw(canvas);
+        d2.draw(canvas);
+        assertNotNull(d1.getSharedBitmap());
+        assertNotSame(d1.getSharedBitmap(), d2.getSharedBitmap());
+    }
+}
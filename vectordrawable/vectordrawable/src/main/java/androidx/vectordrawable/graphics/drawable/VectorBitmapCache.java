@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.vectordrawable.graphics.drawable;
+
+import android.graphics.Bitmap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.WeakHashMap;
+
+/**
+ * Process-wide cache of the bitmaps which {@link VectorDrawableCompat} draws its paths into, so
+ * that drawables with the same paths drawn at the same size share one bitmap, which is only
+ * drawn once.
+ * <p>
+ * The bitmaps are keyed by a token which identifies the paths, along with their size. Tint and
+ * alpha are applied when the bitmap is drawn, so drawables which only differ in those share the
+ * bitmap too. Each bitmap is referenced by the drawable states which draw it. Bitmaps which are
+ * no longer referenced are evicted in least recently used order, once the bitmaps take more
+ * than the maximum size.
+ */
+final class VectorBitmapCache {
+    // Maximum size in bytes of the cached bitmaps, above which unreferenced ones are evicted.
+    private static final int MAX_SIZE = 4 * 1024 * 1024;
+
+    private static final VectorBitmapCache sInstance = new VectorBitmapCache(MAX_SIZE);
+
+    /**
+     * A shared bitmap. Its content must be drawn by the first holder, while holding the lock of
+     * the entry, if {@link #mDrawn} is false.
+     */
+    static final class Entry {
+        final Key mKey;
+        final Bitmap mBitmap;
+        boolean mDrawn;
+        // Drawable states which currently draw this bitmap. Weakly held, since drawables are not
+        // released explicitly.
+        final WeakHashMap<Object, Boolean> mHolders = new WeakHashMap<>();
+
+        Entry(Key key) {
+            mKey = key;
+            mBitmap = Bitmap.createBitmap(key.mWidth, key.mHeight, Bitmap.Config.ARGB_8888);
+        }
+
+        boolean matches(Object token, int width, int height) {
+            return mKey.mToken == token && mKey.mWidth == width && mKey.mHeight == height;
+        }
+
+        int getSize() {
+            return mKey.mWidth * mKey.mHeight * 4;
+        }
+    }
+
+    private static final class Key {
+        final Object mToken;
+        final int mWidth;
+        final int mHeight;
+
+        Key(Object token, int width, int height) {
+            mToken = token;
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return mToken == key.mToken && mWidth == key.mWidth && mHeight == key.mHeight;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(mToken);
+            result = 31 * result + mWidth;
+            result = 31 * result + mHeight;
+            return result;
+        }
+    }
+
+    private final int mMaxSize;
+    // In access order, so that iteration starts at the least recently used entry.
+    private final LinkedHashMap<Key, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private int mSize;
+
+    VectorBitmapCache(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    static VectorBitmapCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Returns the bitmap for the given paths token and size, referenced by the given holder
+     * until it is released.
+     */
+    synchronized Entry acquire(Object token, int width, int height, Object holder) {
+        final Key key = new Key(token, width, height);
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            mEntries.put(key, entry);
+            mSize += entry.getSize();
+        }
+        entry.mHolders.put(holder, Boolean.TRUE);
+        trimToSize();
+        return entry;
+    }
+
+    /**
+     * Releases the reference of the given holder to the given bitmap, which can then be evicted.
+     */
+    synchronized void release(Entry entry, Object holder) {
+        entry.mHolders.remove(holder);
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        final Iterator<Entry> iterator = mEntries.values().iterator();
+        while (mSize > mMaxSize && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.mHolders.isEmpty()) {
+                iterator.remove();
+                mSize -= entry.getSize();
+            }
+        }
+    }
+}
@@ -58,6 +58,7 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.collection.ArrayMap;
+import androidx.collection.LruCache;
 import androidx.core.content.res.ComplexColorCompat;
 import androidx.core.content.res.ResourcesCompat;
 import androidx.core.content.res.TypedArrayUtils;
@@ -298,6 +299,25 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
     // The drawable will look blurry above this size.
     private static final int MAX_CACHED_BITMAP_SIZE = 2048;
 
+    // Maximum total number of nodes and node params kept by sPathDataCache, which amounts to
+    // about 128 KB of params.
+    private static final int MAX_CACHED_PATH_DATA_SIZE = 32 * 1024;
+
+    // Parsed nodes of recently inflated path data, so that inflating the same icons again
+    // doesn't parse their path data again. The nodes are copied for each path, since they
+    // can be changed by animations.
+    private static final LruCache<String, PathParser.PathDataNode[]> sPathDataCache =
+            new LruCache<String, PathParser.PathDataNode[]>(MAX_CACHED_PATH_DATA_SIZE) {
+                @Override
+                protected int sizeOf(String pathData, PathParser.PathDataNode[] nodes) {
+                    int size = nodes.length;
+                    for (PathParser.PathDataNode node : nodes) {
+                        size += node.mParams.length;
+                    }
+                    return size;
+                }
+            };
+
     private static final boolean DBG_VECTOR_DRAWABLE = false;
 
     private VectorDrawableCompatState mVectorState;
@@ -343,6 +363,11 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
         return mVectorState.mVPathRenderer.mVGTargetsMap.get(name);
     }
 
+    // The bitmap from VectorBitmapCache which this drawable was last drawn with, if any.
+    VectorBitmapCache.Entry getSharedBitmap() {
+        return mVectorState.mSharedBitmap;
+    }
+
     @Override
     public ConstantState getConstantState() {
         if (mDelegateDrawable != null && Build.VERSION.SDK_INT >= 24) {
@@ -412,13 +437,19 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
         // we offset to (0, 0);
         mTmpBounds.offsetTo(0, 0);
 
-        mVectorState.createCachedBitmapIfNeeded(scaledWidth, scaledHeight);
-        if (!mAllowCaching) {
-            mVectorState.updateCachedBitmap(scaledWidth, scaledHeight);
+        if (mAllowCaching && !mVectorState.isStateful()) {
+            // Drawables with the same paths share the bitmap at the same size.
+            mVectorState.updateSharedBitmap(scaledWidth, scaledHeight);
         } else {
-            if (!mVectorState.canReuseCache()) {
+            mVectorState.releaseSharedBitmap();
+            mVectorState.createCachedBitmapIfNeeded(scaledWidth, scaledHeight);
+            if (!mAllowCaching) {
                 mVectorState.updateCachedBitmap(scaledWidth, scaledHeight);
-                mVectorState.updateCacheStates();
+            } else {
+                if (!mVectorState.canReuseCache()) {
+                    mVectorState.updateCachedBitmap(scaledWidth, scaledHeight);
+                    mVectorState.updateCacheStates();
+                }
             }
         }
         mVectorState.drawCachedBitmapWithRootAlpha(canvas, colorFilter, mTmpBounds);
@@ -686,6 +717,15 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
         return drawable;
     }
 
+    static PathParser.PathDataNode[] createNodesFromPathData(String pathData) {
+        PathParser.PathDataNode[] nodes = sPathDataCache.get(pathData);
+        if (nodes == null) {
+            nodes = PathParser.createNodesFromPathData(pathData);
+            sPathDataCache.put(pathData, nodes);
+        }
+        return PathParser.deepCopyNodes(nodes);
+    }
+
     static int applyAlpha(int color, float alpha) {
         int alphaBytes = alpha(color);
         color &= 0x00FFFFFF;
@@ -723,6 +763,7 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
         a.recycle();
         state.mChangingConfigurations = getChangingConfigurations();
         state.mCacheDirty = true;
+        state.mPathsToken = new Object();
         inflateInternal(res, parser, attrs, theme);
 
         mTintFilter = updateTintFilter(mTintFilter, state.mTint, state.mTintMode);
@@ -903,6 +944,10 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
 
     void setAllowCaching(boolean allowCaching) {
         mAllowCaching = allowCaching;
+        if (!allowCaching) {
+            // The paths are about to be animated, so they can't share bitmaps with copies.
+            mVectorState.mPathsToken = new Object();
+        }
     }
 
     // We don't support RTL auto mirroring since the getLayoutDirection() is for API 17+.
@@ -1027,6 +1072,11 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
         boolean mCachedAutoMirrored;
         boolean mCacheDirty;
 
+        // Identifies the paths of this state, which are shared by its copies until they change,
+        // see VectorBitmapCache.
+        Object mPathsToken = new Object();
+        VectorBitmapCache.Entry mSharedBitmap;
+
         /**
          * Temporary paint object used to draw cached bitmaps.
          */
@@ -1046,6 +1096,7 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
                 mTint = copy.mTint;
                 mTintMode = copy.mTintMode;
                 mAutoMirrored = copy.mAutoMirrored;
+                mPathsToken = copy.mPathsToken;
             }
         }
 
@@ -1092,6 +1143,34 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
 
         }
 
+        public void updateSharedBitmap(int width, int height) {
+            VectorBitmapCache.Entry entry = mSharedBitmap;
+            if (entry == null || !entry.matches(mPathsToken, width, height)) {
+                final VectorBitmapCache cache = VectorBitmapCache.getInstance();
+                entry = cache.acquire(mPathsToken, width, height, this);
+                if (mSharedBitmap != null) {
+                    cache.release(mSharedBitmap, this);
+                }
+                mSharedBitmap = entry;
+                mCachedBitmap = entry.mBitmap;
+            }
+            synchronized (entry) {
+                if (!entry.mDrawn) {
+                    mVPathRenderer.draw(new Canvas(entry.mBitmap), width, height, null);
+                    entry.mDrawn = true;
+                }
+            }
+        }
+
+        public void releaseSharedBitmap() {
+            if (mSharedBitmap != null) {
+                VectorBitmapCache.getInstance().release(mSharedBitmap, this);
+                mSharedBitmap = null;
+                // The bitmap must not be drawn into by this state anymore.
+                mCachedBitmap = null;
+            }
+        }
+
         public boolean canReuseBitmap(int width, int height) {
             if (width == mCachedBitmap.getWidth()
                     && height == mCachedBitmap.getHeight()) {
@@ -1801,7 +1880,7 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
             final String pathData =
                     a.getString(AndroidResources.STYLEABLE_VECTOR_DRAWABLE_CLIP_PATH_PATH_DATA);
             if (pathData != null) {
-                mNodes = PathParser.createNodesFromPathData(pathData);
+                mNodes = createNodesFromPathData(pathData);
             }
             mFillRule = TypedArrayUtils.getNamedInt(a, parser, "fillType",
                     AndroidResources.STYLEABLE_VECTOR_DRAWABLE_CLIP_PATH_FILLTYPE,
@@ -1923,7 +2002,7 @@ public class VectorDrawableCompat extends VectorDrawableCommon {
             final String pathData =
                     a.getString(AndroidResources.STYLEABLE_VECTOR_DRAWABLE_PATH_PATH_DATA);
             if (pathData != null) {
-                mNodes = PathParser.createNodesFromPathData(pathData);
+                mNodes = createNodesFromPathData(pathData);
             }
 
             mFillColor = TypedArrayUtils.getNamedComplexColor(a, parser, theme, "fillColor",
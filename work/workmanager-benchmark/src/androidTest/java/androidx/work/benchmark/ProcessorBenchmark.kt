@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.benchmark
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.work.Configuration
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.impl.ExecutionListener
+import androidx.work.impl.Processor
+import androidx.work.impl.WorkDatabase
+import androidx.work.impl.model.WorkTag
+import androidx.work.impl.utils.taskexecutor.WorkManagerTaskExecutor
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures the throughput of [Processor] when starting a burst of work, with and without a
+ * concurrency limit on the tag shared by the work.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class ProcessorBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+    private lateinit var context: Context
+    private lateinit var executor: ExecutorService
+
+    @Before
+    fun setUp() {
+        context = ApplicationProvider.getApplicationContext()
+        executor = Executors.newFixedThreadPool(4)
+    }
+
+    @After
+    fun tearDown() {
+        executor.shutdownNow()
+    }
+
+    @Test
+    fun startWorkUnlimited() {
+        startWork(limit = null)
+    }
+
+    @Test
+    fun startWorkLimitedToOne() {
+        startWork(limit = 1)
+    }
+
+    @Test
+    fun startWorkLimitedToTwo() {
+        startWork(limit = 2)
+    }
+
+    private fun startWork(limit: Int?) {
+        val builder = Configuration.Builder().setExecutor(executor)
+        if (limit != null) {
+            builder.setMaxConcurrentWorkForTag(TAG, limit)
+        }
+        val configuration = builder.build()
+        benchmarkRule.measureRepeated {
+            val database = runWithTimingDisabled {
+                WorkDatabase.create(context, executor, true)
+            }
+            val ids = runWithTimingDisabled {
+                (0 until COUNT).map {
+                    val request = OneTimeWorkRequestBuilder<NoOpWorker>()
+                        .addTag(TAG)
+                        .build()
+                    database.workSpecDao().insertWorkSpec(request.workSpec)
+                    database.workTagDao().insert(WorkTag(TAG, request.stringId))
+                    request.stringId
+                }
+            }
+            val latch = CountDownLatch(COUNT)
+            val processor = Processor(
+                context,
+                configuration,
+                WorkManagerTaskExecutor(executor),
+                database,
+                emptyList()
+            )
+            processor.addExecutionListener(ExecutionListener { _, _ -> latch.countDown() })
+            ids.forEach { processor.startWork(it) }
+            latch.await(1, TimeUnit.MINUTES)
+            runWithTimingDisabled {
+                database.close()
+            }
+        }
+    }
+
+    companion object {
+        private const val TAG = "ProcessorBenchmark"
+        private const val COUNT = 50
+    }
+}
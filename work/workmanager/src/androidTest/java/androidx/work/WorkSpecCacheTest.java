@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import static androidx.work.WorkInfo.State.CANCELLED;
+import static androidx.work.WorkInfo.State.ENQUEUED;
+import static androidx.work.WorkInfo.State.RUNNING;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+import androidx.work.impl.model.WorkSpec;
+import androidx.work.impl.model.WorkSpecCache;
+import androidx.work.worker.TestWorker;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class WorkSpecCacheTest extends DatabaseTest {
+
+    @Test
+    @SmallTest
+    public void testInsert_isWrittenThrough() {
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        insertWork(work);
+
+        WorkSpec cached = mDatabase.getWorkSpecCache().get(work.getStringId());
+        assertThat(cached, is(notNullValue()));
+        assertThat(cached.state, is(ENQUEUED));
+    }
+
+    @Test
+    @SmallTest
+    public void testSetState_updatesAndEvictsFinishedWork() {
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        insertWork(work);
+        WorkSpecCache cache = mDatabase.getWorkSpecCache();
+
+        mDatabase.workSpecDao().setState(RUNNING, work.getStringId());
+        assertThat(cache.get(work.getStringId()).state, is(RUNNING));
+
+        mDatabase.workSpecDao().setState(CANCELLED, work.getStringId());
+        assertThat(cache.get(work.getStringId()), is(nullValue()));
+        assertThat(mDatabase.workSpecDao().getWorkSpec(work.getStringId()).state,
+                is(CANCELLED));
+    }
+
+    @Test
+    @SmallTest
+    public void testIgnoredInsert_doesNotOverwriteCache() {
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        insertWork(work);
+        mDatabase.workSpecDao().setState(RUNNING, work.getStringId());
+
+        // The WorkSpec already exists, so the insert is ignored.
+        long rowId = mDatabase.workSpecDao().insertWorkSpec(getWorkSpec(work));
+
+        assertThat(rowId, is(-1L));
+        assertThat(mDatabase.getWorkSpecCache().get(work.getStringId()).state, is(RUNNING));
+        assertThat(mDatabase.workSpecDao().getWorkSpec(work.getStringId()).state, is(RUNNING));
+    }
+
+    @Test
+    @SmallTest
+    public void testRunInTransaction_appliesWritesOnCommit() {
+        final OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        insertWork(work);
+        final WorkSpecCache cache = mDatabase.getWorkSpecCache();
+
+        mDatabase.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                mDatabase.workSpecDao().setState(RUNNING, work.getStringId());
+                assertThat(cache.get(work.getStringId()), is(nullValue()));
+            }
+        });
+
+        assertThat(cache.get(work.getStringId()).state, is(RUNNING));
+    }
+
+    @Test
+    @SmallTest
+    public void testRolledBackTransaction_isNotCached() {
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        mDatabase.beginTransaction();
+        try {
+            insertWork(work);
+            // Not marked as successful.
+        } finally {
+            mDatabase.endTransaction();
+        }
+        assertThat(mDatabase.getWorkSpecCache().get(work.getStringId()), is(nullValue()));
+        assertThat(mDatabase.workSpecDao().getWorkSpec(work.getStringId()), is(nullValue()));
+    }
+
+    @Test
+    @SmallTest
+    public void testPendingWrites_areNotVisibleUntilCommit() {
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        insertWork(work);
+        WorkSpecCache cache = mDatabase.getWorkSpecCache();
+
+        mDatabase.beginTransaction();
+        try {
+            mDatabase.workSpecDao().setState(RUNNING, work.getStringId());
+            // Reads inside the transaction must fall through to the database.
+            assertThat(cache.get(work.getStringId()), is(nullValue()));
+            assertThat(mDatabase.workSpecDao().getWorkSpec(work.getStringId()).state,
+                    is(RUNNING));
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+        assertThat(cache.get(work.getStringId()).state, is(RUNNING));
+    }
+
+    @Test
+    @SmallTest
+    public void testEnqueueMetadata_skipsPrerequisiteQuery() {
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(TestWorker.class)
+                .addTag("tag")
+                .build();
+        insertWork(work);
+        WorkSpecCache cache = mDatabase.getWorkSpecCache();
+        cache.putEnqueueMetadata(work.getStringId(), work.getTags(), false);
+
+        assertThat(cache.hasNoPrerequisites(work.getStringId()), is(true));
+        assertThat(cache.getTags(work.getStringId()), hasItem("tag"));
+        assertThat(mDatabase.workSpecDao().getInputsFromPrerequisites(work.getStringId())
+                .isEmpty(), is(true));
+    }
+
+    @Test
+    @SmallTest
+    public void testCache_isBounded() {
+        WorkSpecCache cache = new WorkSpecCache(2);
+        for (int i = 0; i < 3; i++) {
+            cache.put(new OneTimeWorkRequest.Builder(TestWorker.class).build().getWorkSpec());
+        }
+        assertThat(cache.size(), is(2));
+    }
+}
@@ -16,6 +16,9 @@
 
 package androidx.work.impl;
 
+import static androidx.work.WorkInfo.State.ENQUEUED;
+import static androidx.work.WorkInfo.State.RUNNING;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.mock;
@@ -30,6 +33,7 @@ import androidx.test.filters.SmallTest;
 import androidx.work.Configuration;
 import androidx.work.DatabaseTest;
 import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
 import androidx.work.impl.utils.taskexecutor.InstantWorkTaskExecutor;
 import androidx.work.worker.InfiniteTestWorker;
 
@@ -87,10 +91,154 @@ public class ProcessorTest extends DatabaseTest {
         assertThat(mProcessor.hasWork(), is(true));
     }
 
+    @Test
+    @SmallTest
+    public void testStartWork_respectsConcurrencyLimit() {
+        Processor processor = createProcessorWithLimit("upload", 1);
+        OneTimeWorkRequest upload1 = createInfiniteWork("upload");
+        OneTimeWorkRequest upload2 = createInfiniteWork("upload");
+        OneTimeWorkRequest sync = createInfiniteWork("sync");
+
+        assertThat(processor.startWork(upload1.getStringId()), is(true));
+        assertThat(processor.startWork(upload2.getStringId()), is(true));
+        assertThat(processor.startWork(sync.getStringId()), is(true));
+
+        // Work with other tags is not held back by the limited tag.
+        assertThat(processor.getPendingWorkCount(), is(1));
+        assertThat(getState(upload1), is(RUNNING));
+        assertThat(getState(upload2), is(ENQUEUED));
+        assertThat(getState(sync), is(RUNNING));
+        assertThat(processor.isEnqueued(upload2.getStringId()), is(true));
+    }
+
+    @Test
+    @SmallTest
+    public void testStopWork_promotesPendingWorkInOrder() {
+        Processor processor = createProcessorWithLimit("upload", 1);
+        OneTimeWorkRequest upload1 = createInfiniteWork("upload");
+        OneTimeWorkRequest upload2 = createInfiniteWork("upload");
+        OneTimeWorkRequest upload3 = createInfiniteWork("upload");
+        processor.startWork(upload1.getStringId());
+        processor.startWork(upload2.getStringId());
+        processor.startWork(upload3.getStringId());
+        assertThat(processor.getPendingWorkCount(), is(2));
+
+        processor.stopWork(upload1.getStringId());
+        assertThat(processor.getPendingWorkCount(), is(1));
+        assertThat(getState(upload2), is(RUNNING));
+        assertThat(getState(upload3), is(ENQUEUED));
+
+        processor.stopWork(upload2.getStringId());
+        assertThat(processor.getPendingWorkCount(), is(0));
+        assertThat(getState(upload3), is(RUNNING));
+    }
+
+    @Test
+    @SmallTest
+    public void testStopWork_removesPendingWork() {
+        Processor processor = createProcessorWithLimit("upload", 1);
+        OneTimeWorkRequest upload1 = createInfiniteWork("upload");
+        OneTimeWorkRequest upload2 = createInfiniteWork("upload");
+        processor.startWork(upload1.getStringId());
+        processor.startWork(upload2.getStringId());
+
+        assertThat(processor.stopWork(upload2.getStringId()), is(true));
+        assertThat(processor.getPendingWorkCount(), is(0));
+        assertThat(processor.isEnqueued(upload2.getStringId()), is(false));
+        assertThat(getState(upload1), is(RUNNING));
+    }
+
+    @Test
+    @SmallTest
+    public void testPendingWork_isNotOvertakenOnAnyOfItsTags() {
+        Configuration configuration = new Configuration.Builder()
+                .setMaxConcurrentWorkForTag("upload", 1)
+                .setMaxConcurrentWorkForTag("metered", 1)
+                .build();
+        Processor processor = createProcessor(configuration);
+        OneTimeWorkRequest upload = createInfiniteWork("upload");
+        OneTimeWorkRequest metered = createInfiniteWork("metered");
+        OneTimeWorkRequest meteredUpload = createInfiniteWork("upload", "metered");
+        OneTimeWorkRequest metered2 = createInfiniteWork("metered");
+        processor.startWork(upload.getStringId());
+        processor.startWork(metered.getStringId());
+        processor.startWork(meteredUpload.getStringId());
+        processor.startWork(metered2.getStringId());
+        assertThat(processor.getPendingWorkCount(), is(2));
+
+        // The "metered" slot is free, but earlier work is still waiting for it.
+        processor.stopWork(metered.getStringId());
+        assertThat(getState(meteredUpload), is(ENQUEUED));
+        assertThat(getState(metered2), is(ENQUEUED));
+
+        OneTimeWorkRequest metered3 = createInfiniteWork("metered");
+        processor.startWork(metered3.getStringId());
+        assertThat(processor.getPendingWorkCount(), is(3));
+        assertThat(getState(metered3), is(ENQUEUED));
+
+        processor.stopWork(upload.getStringId());
+        assertThat(processor.getPendingWorkCount(), is(2));
+        assertThat(getState(meteredUpload), is(RUNNING));
+        assertThat(getState(metered2), is(ENQUEUED));
+    }
+
+    @Test
+    @SmallTest
+    public void testStopWork_pendingWorkNoLongerHoldsBackLaterWork() {
+        Configuration configuration = new Configuration.Builder()
+                .setMaxConcurrentWorkForTag("upload", 1)
+                .setMaxConcurrentWorkForTag("metered", 1)
+                .build();
+        Processor processor = createProcessor(configuration);
+        OneTimeWorkRequest upload = createInfiniteWork("upload");
+        OneTimeWorkRequest meteredUpload = createInfiniteWork("upload", "metered");
+        OneTimeWorkRequest metered = createInfiniteWork("metered");
+        processor.startWork(upload.getStringId());
+        processor.startWork(meteredUpload.getStringId());
+        processor.startWork(metered.getStringId());
+        assertThat(getState(metered), is(ENQUEUED));
+
+        processor.stopWork(meteredUpload.getStringId());
+        assertThat(processor.getPendingWorkCount(), is(0));
+        assertThat(getState(metered), is(RUNNING));
+    }
+
     @Test
     @SmallTest
     public void testDontCancelWhenNeedsReschedule() {
         mProcessor.onExecuted("dummy", true);
         verify(mMockScheduler, never()).cancel("dummy");
     }
+
+    private Processor createProcessorWithLimit(String tag, int limit) {
+        return createProcessor(new Configuration.Builder()
+                .setMaxConcurrentWorkForTag(tag, limit)
+                .build());
+    }
+
+    private Processor createProcessor(Configuration configuration) {
+        Context appContext = ApplicationProvider.getApplicationContext().getApplicationContext();
+        return new Processor(
+                appContext,
+                configuration,
+                new InstantWorkTaskExecutor(),
+                mDatabase,
+                Collections.singletonList(mMockScheduler));
+    }
+
+    private OneTimeWorkRequest createInfiniteWork(String... tags) {
+        OneTimeWorkRequest.Builder builder =
+                new OneTimeWorkRequest.Builder(InfiniteTestWorker.class);
+        for (String tag : tags) {
+            builder.addTag(tag);
+        }
+        OneTimeWorkRequest work = builder.build();
+        insertWork(work);
+        insertTags(work);
+        return work;
+    }
+
+    private WorkInfo.State getState(OneTimeWorkRequest work) {
+        return mDatabase.workSpecDao().getState(work.getStringId());
+    }
 }
@@ -31,6 +31,9 @@ import androidx.work.impl.DefaultRunnableScheduler;
 import androidx.work.impl.Scheduler;
 import androidx.work.impl.utils.IdGenerator;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
@@ -73,6 +76,8 @@ public final class Configuration {
     final int mMaxJobSchedulerId;
     @SuppressWarnings("WeakerAccess")
     final int mMaxSchedulerLimit;
+    @SuppressWarnings("WeakerAccess")
+    final @NonNull Map<String, Integer> mConcurrencyLimits;
     private final boolean mIsUsingDefaultTaskExecutor;
 
     Configuration(@NonNull Configuration.Builder builder) {
@@ -115,6 +120,8 @@ public final class Configuration {
         mMinJobSchedulerId = builder.mMinJobSchedulerId;
         mMaxJobSchedulerId = builder.mMaxJobSchedulerId;
         mMaxSchedulerLimit = builder.mMaxSchedulerLimit;
+        mConcurrencyLimits = Collections.unmodifiableMap(
+                new HashMap<>(builder.mConcurrencyLimits));
         mExceptionHandler = builder.mExceptionHandler;
     }
 
@@ -224,6 +231,30 @@ public final class Configuration {
         }
     }
 
+    /**
+     * Gets the maximum number of {@link ListenableWorker}s with the given tag that
+     * {@link WorkManager} runs at the same time.
+     *
+     * @param tag The tag
+     * @return The maximum number of {@link ListenableWorker}s with the given tag that can run
+     *         concurrently, or {@link Integer#MAX_VALUE} if there is no limit for the tag
+     * @see Builder#setMaxConcurrentWorkForTag(String, int)
+     */
+    public int getMaxConcurrentWorkForTag(@NonNull String tag) {
+        Integer limit = mConcurrencyLimits.get(tag);
+        return limit == null ? Integer.MAX_VALUE : limit;
+    }
+
+    /**
+     * @return The concurrency limits keyed by tag
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    @NonNull
+    public Map<String, Integer> getConcurrencyLimits() {
+        return mConcurrencyLimits;
+    }
+
     /**
      * @return {@code true} If the default task {@link Executor} is being used
      * @hide
@@ -266,6 +297,7 @@ public final class Configuration {
         int mMinJobSchedulerId;
         int mMaxJobSchedulerId;
         int mMaxSchedulerLimit;
+        Map<String, Integer> mConcurrencyLimits;
 
         /**
          * Creates a new {@link Configuration.Builder}.
@@ -275,6 +307,7 @@ public final class Configuration {
             mMinJobSchedulerId = IdGenerator.INITIAL_ID;
             mMaxJobSchedulerId = Integer.MAX_VALUE;
             mMaxSchedulerLimit = MIN_SCHEDULER_LIMIT;
+            mConcurrencyLimits = new HashMap<>();
         }
 
         /**
@@ -296,6 +329,7 @@ public final class Configuration {
             mMinJobSchedulerId = configuration.mMinJobSchedulerId;
             mMaxJobSchedulerId = configuration.mMaxJobSchedulerId;
             mMaxSchedulerLimit = configuration.mMaxSchedulerLimit;
+            mConcurrencyLimits = new HashMap<>(configuration.mConcurrencyLimits);
             mRunnableScheduler = configuration.mRunnableScheduler;
             mExceptionHandler = configuration.mExceptionHandler;
         }
@@ -413,6 +447,37 @@ public final class Configuration {
             return this;
         }
 
+        /**
+         * Specifies the maximum number of {@link ListenableWorker}s with the given tag that
+         * {@link WorkManager} runs at the same time.
+         * <p>
+         * Work which would exceed this limit stays in an in-memory queue and does not occupy any
+         * threads until a running {@link ListenableWorker} with the same tag finishes. Queued work
+         * is started in the order it was queued. Work which has several limited tags only starts
+         * when all of its limits allow it, and until then, later work with any of those tags waits
+         * behind it.
+         * <p>
+         * Every {@link WorkRequest} is tagged with the fully qualified class name of its
+         * {@link ListenableWorker}, so this can also be used to limit a single worker class.
+         *
+         * @param tag               The tag to limit
+         * @param maxConcurrentWork The maximum number of {@link ListenableWorker}s with the tag
+         *                          that can run concurrently
+         * @return This {@link Builder} instance
+         * @throws IllegalArgumentException if {@code maxConcurrentWork} is less than {@code 1}
+         */
+        @NonNull
+        public Builder setMaxConcurrentWorkForTag(
+                @NonNull String tag,
+                @IntRange(from = 1) int maxConcurrentWork) {
+            if (maxConcurrentWork < 1) {
+                throw new IllegalArgumentException(
+                        "WorkManager needs to be able to run at least 1 Worker per tag.");
+            }
+            mConcurrencyLimits.put(tag, maxConcurrentWork);
+            return this;
+        }
+
         /**
          * Specifies the minimum logging level, corresponding to the constants found in
          * {@link android.util.Log}.  For example, specifying {@link android.util.Log#VERBOSE} will
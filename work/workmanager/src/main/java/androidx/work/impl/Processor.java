@@ -24,6 +24,7 @@ import android.os.PowerManager;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.content.ContextCompat;
 import androidx.work.Configuration;
 import androidx.work.ForegroundInfo;
@@ -37,8 +38,11 @@ import androidx.work.impl.utils.taskexecutor.TaskExecutor;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -67,6 +71,14 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
 
     private Set<String> mCancelledIds;
 
+    // Concurrency limits keyed by tag, and the number of running WorkerWrappers per limited tag.
+    private final Map<String, Integer> mConcurrencyLimits;
+    private final Map<String, Integer> mRunningCountsByTag;
+    // The limited tags of WorkerWrappers that currently hold a slot.
+    private final Map<String, List<String>> mLimitedTagsById;
+    // WorkerWrappers waiting for a slot, in the order they were started.
+    private final LinkedHashMap<String, PendingWork> mPendingWork;
+
     private final List<ExecutionListener> mOuterListeners;
     private final Object mLock;
 
@@ -84,6 +96,10 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
         mForegroundWorkMap = new HashMap<>();
         mSchedulers = schedulers;
         mCancelledIds = new HashSet<>();
+        mConcurrencyLimits = configuration.getConcurrencyLimits();
+        mRunningCountsByTag = new HashMap<>();
+        mLimitedTagsById = new HashMap<>();
+        mPendingWork = new LinkedHashMap<>();
         mOuterListeners = new ArrayList<>();
         mForegroundLock = null;
         mLock = new Object();
@@ -101,6 +117,10 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
 
     /**
      * Starts a given unit of work in the background.
+     * <p>
+     * If the work has a tag with a concurrency limit (see
+     * {@link Configuration.Builder#setMaxConcurrentWorkForTag(String, int)}) which is already
+     * reached, the work waits in an in-memory queue until a slot frees up.
      *
      * @param id The work id to execute.
      * @param runtimeExtras The {@link WorkerParameters.RuntimeExtras} for this work, if any.
@@ -110,6 +130,8 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
             @NonNull String id,
             @Nullable WorkerParameters.RuntimeExtras runtimeExtras) {
 
+        // Look up tags outside the lock, this may need to go to the database.
+        List<String> limitedTags = getLimitedTags(id);
         WorkerWrapper workWrapper;
         synchronized (mLock) {
             // Work may get triggered multiple times if they have passing constraints
@@ -137,6 +159,14 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
                     new FutureListener(this, id, future),
                     mWorkTaskExecutor.getMainThreadExecutor());
             mEnqueuedWorkMap.put(id, workWrapper);
+            // Work queued earlier for the same tags goes first, even if a slot is free.
+            if (!limitedTags.isEmpty() && (hasPendingWorkForTags(limitedTags)
+                    || !tryAcquireSlots(id, limitedTags))) {
+                mPendingWork.put(id, new PendingWork(workWrapper, limitedTags));
+                Logger.get().debug(TAG,
+                        String.format("Concurrency limit reached; queueing %s", id));
+                return true;
+            }
         }
         mWorkTaskExecutor.getBackgroundExecutor().execute(workWrapper);
         Logger.get().debug(TAG, String.format("%s: processing %s", getClass().getSimpleName(), id));
@@ -185,6 +215,8 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
         synchronized (mLock) {
             Logger.get().debug(TAG, String.format("Processor stopping background work %s", id));
             WorkerWrapper wrapper = mEnqueuedWorkMap.remove(id);
+            // Interrupting resolves the WorkerWrapper, even if it never ran.
+            mPendingWork.remove(id);
             return interrupt(id, wrapper);
         }
     }
@@ -206,6 +238,7 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
             if (wrapper == null) {
                 // Fallback to enqueued Work
                 wrapper = mEnqueuedWorkMap.remove(id);
+                mPendingWork.remove(id);
             }
             boolean interrupted = interrupt(id, wrapper);
             if (isForegroundWork) {
@@ -293,15 +326,132 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
             @NonNull final String workSpecId,
             boolean needsReschedule) {
 
+        List<WorkerWrapper> promoted;
         synchronized (mLock) {
             mEnqueuedWorkMap.remove(workSpecId);
             Logger.get().debug(TAG, String.format("%s %s executed; reschedule = %s",
                     getClass().getSimpleName(), workSpecId, needsReschedule));
 
+            promoted = releaseSlots(workSpecId);
+
             for (ExecutionListener executionListener : mOuterListeners) {
                 executionListener.onExecuted(workSpecId, needsReschedule);
             }
         }
+        for (WorkerWrapper wrapper : promoted) {
+            mWorkTaskExecutor.getBackgroundExecutor().execute(wrapper);
+        }
+    }
+
+    /**
+     * @return The number of {@link WorkerWrapper}s waiting for a concurrency slot
+     */
+    @VisibleForTesting
+    public int getPendingWorkCount() {
+        synchronized (mLock) {
+            return mPendingWork.size();
+        }
+    }
+
+    /**
+     * @param id The {@link androidx.work.impl.model.WorkSpec} id
+     * @return The tags of the work that have a concurrency limit
+     */
+    @NonNull
+    private List<String> getLimitedTags(@NonNull String id) {
+        if (mConcurrencyLimits.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> tags = mWorkDatabase.getWorkSpecCache().getTags(id);
+        if (tags == null) {
+            tags = mWorkDatabase.workTagDao().getTagsForWorkSpecId(id);
+        }
+        List<String> limitedTags = new ArrayList<>(1);
+        for (String tag : tags) {
+            if (mConcurrencyLimits.containsKey(tag)) {
+                limitedTags.add(tag);
+            }
+        }
+        return limitedTags;
+    }
+
+    /**
+     * Acquires a slot for each of the given tags, if all of them are available.
+     * Must be called while holding {@link #mLock}.
+     *
+     * @return {@code true} if the slots were acquired
+     */
+    private boolean tryAcquireSlots(@NonNull String id, @NonNull List<String> limitedTags) {
+        for (String tag : limitedTags) {
+            Integer running = mRunningCountsByTag.get(tag);
+            if (running != null && running >= mConcurrencyLimits.get(tag)) {
+                return false;
+            }
+        }
+        for (String tag : limitedTags) {
+            Integer running = mRunningCountsByTag.get(tag);
+            mRunningCountsByTag.put(tag, running == null ? 1 : running + 1);
+        }
+        mLimitedTagsById.put(id, limitedTags);
+        return true;
+    }
+
+    /**
+     * Must be called while holding {@link #mLock}.
+     *
+     * @return {@code true} if queued work is waiting for any of the given tags
+     */
+    private boolean hasPendingWorkForTags(@NonNull List<String> limitedTags) {
+        for (PendingWork pendingWork : mPendingWork.values()) {
+            if (!Collections.disjoint(pendingWork.mLimitedTags, limitedTags)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Releases the slots held by the given work, and picks the queued work that can start next.
+     * Queued work is visited in FIFO order, and work which can't start yet holds back all later
+     * work which shares one of its tags, so earlier work is never overtaken on any of its tags.
+     * Must be called while holding {@link #mLock}.
+     *
+     * @return The {@link WorkerWrapper}s that acquired a slot and need to be executed
+     */
+    @NonNull
+    private List<WorkerWrapper> releaseSlots(@NonNull String id) {
+        // Work which was stopped while queued holds no slot, but it may have held back later
+        // work, so the queue is visited either way.
+        List<String> limitedTags = mLimitedTagsById.remove(id);
+        if (limitedTags != null) {
+            for (String tag : limitedTags) {
+                Integer running = mRunningCountsByTag.get(tag);
+                if (running == null || running <= 1) {
+                    mRunningCountsByTag.remove(tag);
+                } else {
+                    mRunningCountsByTag.put(tag, running - 1);
+                }
+            }
+        }
+        if (mPendingWork.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<WorkerWrapper> promoted = new ArrayList<>();
+        // The tags which earlier queued work is still waiting for.
+        Set<String> blockedTags = new HashSet<>();
+        Iterator<Map.Entry<String, PendingWork>> iterator = mPendingWork.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, PendingWork> entry = iterator.next();
+            PendingWork pendingWork = entry.getValue();
+            if (Collections.disjoint(blockedTags, pendingWork.mLimitedTags)
+                    && tryAcquireSlots(entry.getKey(), pendingWork.mLimitedTags)) {
+                iterator.remove();
+                promoted.add(pendingWork.mWrapper);
+            } else {
+                blockedTags.addAll(pendingWork.mLimitedTags);
+            }
+        }
+        return promoted;
     }
 
     private void stopForegroundService() {
@@ -344,6 +494,19 @@ public class Processor implements ExecutionListener, ForegroundProcessor {
         }
     }
 
+    /**
+     * A {@link WorkerWrapper} waiting for its concurrency limits to allow it to run.
+     */
+    private static class PendingWork {
+        final @NonNull WorkerWrapper mWrapper;
+        final @NonNull List<String> mLimitedTags;
+
+        PendingWork(@NonNull WorkerWrapper wrapper, @NonNull List<String> limitedTags) {
+            mWrapper = wrapper;
+            mLimitedTags = limitedTags;
+        }
+    }
+
     /**
      * An {@link ExecutionListener} for the {@link ListenableFuture} returned by
      * {@link WorkerWrapper}.
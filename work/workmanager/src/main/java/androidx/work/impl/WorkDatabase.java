@@ -41,6 +41,7 @@ import androidx.sqlite.db.SupportSQLiteDatabase;
 import androidx.sqlite.db.SupportSQLiteOpenHelper;
 import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
 import androidx.work.Data;
+import androidx.work.impl.model.CachingWorkSpecDao;
 import androidx.work.impl.model.Dependency;
 import androidx.work.impl.model.DependencyDao;
 import androidx.work.impl.model.Preference;
@@ -53,6 +54,7 @@ import androidx.work.impl.model.WorkNameDao;
 import androidx.work.impl.model.WorkProgress;
 import androidx.work.impl.model.WorkProgressDao;
 import androidx.work.impl.model.WorkSpec;
+import androidx.work.impl.model.WorkSpecCache;
 import androidx.work.impl.model.WorkSpecDao;
 import androidx.work.impl.model.WorkTag;
 import androidx.work.impl.model.WorkTagDao;
@@ -93,6 +95,10 @@ public abstract class WorkDatabase extends RoomDatabase {
 
     private static final long PRUNE_THRESHOLD_MILLIS = TimeUnit.DAYS.toMillis(7);
 
+    // Set by create(), which also arranges for the cache to observe every transaction.
+    private WorkSpecCache mWorkSpecCache;
+    private volatile WorkSpecDao mCachingWorkSpecDao;
+
     /**
      * Creates an instance of the WorkDatabase.
      *
@@ -109,13 +115,15 @@ public abstract class WorkDatabase extends RoomDatabase {
             @NonNull Executor queryExecutor,
             boolean useTestDatabase) {
         RoomDatabase.Builder<WorkDatabase> builder;
+        SupportSQLiteOpenHelper.Factory openHelperFactory;
         if (useTestDatabase) {
             builder = Room.inMemoryDatabaseBuilder(context, WorkDatabase.class)
                     .allowMainThreadQueries();
+            openHelperFactory = new FrameworkSQLiteOpenHelperFactory();
         } else {
             String name = WorkDatabasePathHelper.getWorkDatabaseName();
             builder = Room.databaseBuilder(context, WorkDatabase.class, name);
-            builder.openHelperFactory(new SupportSQLiteOpenHelper.Factory() {
+            openHelperFactory = new SupportSQLiteOpenHelper.Factory() {
                 @NonNull
                 @Override
                 public SupportSQLiteOpenHelper create(
@@ -129,10 +137,13 @@ public abstract class WorkDatabase extends RoomDatabase {
                             new FrameworkSQLiteOpenHelperFactory();
                     return factory.create(configBuilder.build());
                 }
-            });
+            };
         }
 
-        return builder.setQueryExecutor(queryExecutor)
+        WorkSpecCache workSpecCache = new WorkSpecCache();
+        WorkDatabase database = builder.setQueryExecutor(queryExecutor)
+                .openHelperFactory(
+                        new WorkSpecCacheOpenHelperFactory(openHelperFactory, workSpecCache))
                 .addCallback(generateCleanupCallback())
                 .addMigrations(WorkDatabaseMigrations.MIGRATION_1_2)
                 .addMigrations(
@@ -152,6 +163,8 @@ public abstract class WorkDatabase extends RoomDatabase {
                                 VERSION_11))
                 .fallbackToDestructiveMigration()
                 .build();
+        database.mWorkSpecCache = workSpecCache;
+        return database;
     }
 
     static Callback generateCleanupCallback() {
@@ -182,11 +195,36 @@ public abstract class WorkDatabase extends RoomDatabase {
         return System.currentTimeMillis() - PRUNE_THRESHOLD_MILLIS;
     }
 
+    /**
+     * @return The {@link WorkSpecCache} which is kept coherent by {@link #workSpecDao()}.
+     */
+    @NonNull
+    public WorkSpecCache getWorkSpecCache() {
+        return mWorkSpecCache;
+    }
+
     /**
      * @return The Data Access Object for {@link WorkSpec}s.
      */
     @NonNull
-    public abstract WorkSpecDao workSpecDao();
+    public WorkSpecDao workSpecDao() {
+        if (mCachingWorkSpecDao == null) {
+            synchronized (this) {
+                if (mCachingWorkSpecDao == null) {
+                    mCachingWorkSpecDao =
+                            new CachingWorkSpecDao(this, uncachedWorkSpecDao(), mWorkSpecCache);
+                }
+            }
+        }
+        return mCachingWorkSpecDao;
+    }
+
+    /**
+     * @return The Data Access Object for {@link WorkSpec}s, bypassing the
+     * {@link WorkSpecCache}.
+     */
+    @NonNull
+    public abstract WorkSpecDao uncachedWorkSpecDao();
 
     /**
      * @return The Data Access Object for {@link Dependency}s.
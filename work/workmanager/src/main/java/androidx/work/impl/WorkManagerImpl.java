@@ -49,6 +49,7 @@ import androidx.work.impl.background.greedy.GreedyScheduler;
 import androidx.work.impl.background.systemjob.SystemJobScheduler;
 import androidx.work.impl.model.RawWorkInfoDao;
 import androidx.work.impl.model.WorkSpec;
+import androidx.work.impl.model.WorkSpecCache;
 import androidx.work.impl.model.WorkSpecDao;
 import androidx.work.impl.utils.CancelWorkRunnable;
 import androidx.work.impl.utils.ForceStopRunnable;
@@ -311,6 +312,17 @@ public class WorkManagerImpl extends WorkManager {
         return mWorkDatabase;
     }
 
+    /**
+     * @return The {@link WorkSpecCache} of active {@link WorkSpec}s, which is kept coherent by
+     * the write paths of {@link WorkDatabase#workSpecDao()}.
+     * @hide
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    @NonNull
+    public WorkSpecCache getWorkSpecCache() {
+        return mWorkDatabase.getWorkSpecCache();
+    }
+
     /**
      * @return The {@link Configuration} instance associated with this WorkManager.
      * @hide
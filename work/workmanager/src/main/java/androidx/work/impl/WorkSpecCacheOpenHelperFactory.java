@@ -0,0 +1,339 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.work.impl.model.WorkSpecCache;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A {@link SupportSQLiteOpenHelper.Factory} which tells a {@link WorkSpecCache} when
+ * transactions begin and end on the databases it opens, so that the writes buffered by the cache
+ * are applied when the outermost transaction commits and discarded when it rolls back.
+ * <p>
+ * This observes every transaction, whether it is started through the {@link WorkDatabase} or by
+ * Room itself.
+ */
+class WorkSpecCacheOpenHelperFactory implements SupportSQLiteOpenHelper.Factory {
+
+    private final SupportSQLiteOpenHelper.Factory mDelegate;
+    private final WorkSpecCache mWorkSpecCache;
+
+    WorkSpecCacheOpenHelperFactory(
+            @NonNull SupportSQLiteOpenHelper.Factory delegate,
+            @NonNull WorkSpecCache workSpecCache) {
+        mDelegate = delegate;
+        mWorkSpecCache = workSpecCache;
+    }
+
+    @NonNull
+    @Override
+    public SupportSQLiteOpenHelper create(
+            @NonNull SupportSQLiteOpenHelper.Configuration configuration) {
+        return new OpenHelper(mDelegate.create(configuration), mWorkSpecCache);
+    }
+
+    private static final class OpenHelper implements SupportSQLiteOpenHelper {
+        private final SupportSQLiteOpenHelper mDelegate;
+        private final WorkSpecCache mWorkSpecCache;
+        private volatile Database mDatabase;
+
+        OpenHelper(@NonNull SupportSQLiteOpenHelper delegate,
+                @NonNull WorkSpecCache workSpecCache) {
+            mDelegate = delegate;
+            mWorkSpecCache = workSpecCache;
+        }
+
+        @Override
+        public String getDatabaseName() {
+            return mDelegate.getDatabaseName();
+        }
+
+        @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+        @Override
+        public void setWriteAheadLoggingEnabled(boolean enabled) {
+            mDelegate.setWriteAheadLoggingEnabled(enabled);
+        }
+
+        @Override
+        public SupportSQLiteDatabase getWritableDatabase() {
+            return wrap(mDelegate.getWritableDatabase());
+        }
+
+        @Override
+        public SupportSQLiteDatabase getReadableDatabase() {
+            return wrap(mDelegate.getReadableDatabase());
+        }
+
+        @Override
+        public void close() {
+            mDelegate.close();
+        }
+
+        private SupportSQLiteDatabase wrap(@NonNull SupportSQLiteDatabase database) {
+            // The delegate keeps returning the same database until it is closed, so the wrapper
+            // is only replaced when the database is reopened.
+            Database wrapper = mDatabase;
+            if (wrapper == null || wrapper.mDelegate != database) {
+                wrapper = new Database(database, mWorkSpecCache);
+                mDatabase = wrapper;
+            }
+            return wrapper;
+        }
+    }
+
+    private static final class Database implements SupportSQLiteDatabase {
+        final SupportSQLiteDatabase mDelegate;
+        private final WorkSpecCache mWorkSpecCache;
+
+        Database(@NonNull SupportSQLiteDatabase delegate, @NonNull WorkSpecCache workSpecCache) {
+            mDelegate = delegate;
+            mWorkSpecCache = workSpecCache;
+        }
+
+        @Override
+        public void beginTransaction() {
+            mDelegate.beginTransaction();
+            mWorkSpecCache.onBeginTransaction();
+        }
+
+        @Override
+        public void beginTransactionNonExclusive() {
+            mDelegate.beginTransactionNonExclusive();
+            mWorkSpecCache.onBeginTransaction();
+        }
+
+        @Override
+        public void beginTransactionWithListener(SQLiteTransactionListener transactionListener) {
+            mDelegate.beginTransactionWithListener(transactionListener);
+            mWorkSpecCache.onBeginTransaction();
+        }
+
+        @Override
+        public void beginTransactionWithListenerNonExclusive(
+                SQLiteTransactionListener transactionListener) {
+            mDelegate.beginTransactionWithListenerNonExclusive(transactionListener);
+            mWorkSpecCache.onBeginTransaction();
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+            mDelegate.setTransactionSuccessful();
+            mWorkSpecCache.onTransactionSuccessful();
+        }
+
+        @Override
+        public void endTransaction() {
+            // Cached writes are applied before the commit, while this thread still holds the
+            // write lock. If the commit itself fails, the cache can no longer be trusted.
+            mWorkSpecCache.onEndTransaction();
+            try {
+                mDelegate.endTransaction();
+            } catch (RuntimeException exception) {
+                mWorkSpecCache.clear();
+                throw exception;
+            }
+        }
+
+        @Override
+        public SupportSQLiteStatement compileStatement(String sql) {
+            return mDelegate.compileStatement(sql);
+        }
+
+        @Override
+        public boolean inTransaction() {
+            return mDelegate.inTransaction();
+        }
+
+        @Override
+        public boolean isDbLockedByCurrentThread() {
+            return mDelegate.isDbLockedByCurrentThread();
+        }
+
+        @Override
+        public boolean yieldIfContendedSafely() {
+            return mDelegate.yieldIfContendedSafely();
+        }
+
+        @Override
+        public boolean yieldIfContendedSafely(long sleepAfterYieldDelay) {
+            return mDelegate.yieldIfContendedSafely(sleepAfterYieldDelay);
+        }
+
+        @Override
+        public int getVersion() {
+            return mDelegate.getVersion();
+        }
+
+        @Override
+        public void setVersion(int version) {
+            mDelegate.setVersion(version);
+        }
+
+        @Override
+        public long getMaximumSize() {
+            return mDelegate.getMaximumSize();
+        }
+
+        @Override
+        public long setMaximumSize(long numBytes) {
+            return mDelegate.setMaximumSize(numBytes);
+        }
+
+        @Override
+        public long getPageSize() {
+            return mDelegate.getPageSize();
+        }
+
+        @Override
+        public void setPageSize(long numBytes) {
+            mDelegate.setPageSize(numBytes);
+        }
+
+        @Override
+        public Cursor query(String query) {
+            return mDelegate.query(query);
+        }
+
+        @Override
+        public Cursor query(String query, Object[] bindArgs) {
+            return mDelegate.query(query, bindArgs);
+        }
+
+        @Override
+        public Cursor query(SupportSQLiteQuery query) {
+            return mDelegate.query(query);
+        }
+
+        @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+        @Override
+        public Cursor query(SupportSQLiteQuery query, CancellationSignal cancellationSignal) {
+            return mDelegate.query(query, cancellationSignal);
+        }
+
+        @Override
+        public long insert(String table, int conflictAlgorithm, ContentValues values)
+                throws SQLException {
+            return mDelegate.insert(table, conflictAlgorithm, values);
+        }
+
+        @Override
+        public int delete(String table, String whereClause, Object[] whereArgs) {
+            return mDelegate.delete(table, whereClause, whereArgs);
+        }
+
+        @Override
+        public int update(String table, int conflictAlgorithm, ContentValues values,
+                String whereClause, Object[] whereArgs) {
+            return mDelegate.update(table, conflictAlgorithm, values, whereClause, whereArgs);
+        }
+
+        @Override
+        public void execSQL(String sql) throws SQLException {
+            mDelegate.execSQL(sql);
+        }
+
+        @Override
+        public void execSQL(String sql, Object[] bindArgs) throws SQLException {
+            mDelegate.execSQL(sql, bindArgs);
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return mDelegate.isReadOnly();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return mDelegate.isOpen();
+        }
+
+        @Override
+        public boolean needUpgrade(int newVersion) {
+            return mDelegate.needUpgrade(newVersion);
+        }
+
+        @Override
+        public String getPath() {
+            return mDelegate.getPath();
+        }
+
+        @Override
+        public void setLocale(Locale locale) {
+            mDelegate.setLocale(locale);
+        }
+
+        @Override
+        public void setMaxSqlCacheSize(int cacheSize) {
+            mDelegate.setMaxSqlCacheSize(cacheSize);
+        }
+
+        @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+        @Override
+        public void setForeignKeyConstraintsEnabled(boolean enable) {
+            mDelegate.setForeignKeyConstraintsEnabled(enable);
+        }
+
+        @Override
+        public boolean enableWriteAheadLogging() {
+            return mDelegate.enableWriteAheadLogging();
+        }
+
+        @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+        @Override
+        public void disableWriteAheadLogging() {
+            mDelegate.disableWriteAheadLogging();
+        }
+
+        @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+        @Override
+        public boolean isWriteAheadLoggingEnabled() {
+            return mDelegate.isWriteAheadLoggingEnabled();
+        }
+
+        @Override
+        public List<Pair<String, String>> getAttachedDbs() {
+            return mDelegate.getAttachedDbs();
+        }
+
+        @Override
+        public boolean isDatabaseIntegrityOk() {
+            return mDelegate.isDatabaseIntegrityOk();
+        }
+
+        @Override
+        public void close() throws IOException {
+            mDelegate.close();
+        }
+    }
+}
@@ -131,7 +131,11 @@ public class WorkerWrapper implements Runnable {
     @WorkerThread
     @Override
     public void run() {
-        mTags = mWorkTagDao.getTagsForWorkSpecId(mWorkSpecId);
+        // Work which was enqueued recently has its tags cached; avoid going to the database.
+        mTags = mWorkDatabase.getWorkSpecCache().getTags(mWorkSpecId);
+        if (mTags == null) {
+            mTags = mWorkTagDao.getTagsForWorkSpecId(mWorkSpecId);
+        }
         mWorkDescription = createWorkDescription(mTags);
         runWorker();
     }
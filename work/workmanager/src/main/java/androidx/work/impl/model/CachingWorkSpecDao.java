@@ -0,0 +1,311 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl.model;
+
+import android.annotation.SuppressLint;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+import androidx.lifecycle.LiveData;
+import androidx.room.RoomDatabase;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link WorkSpecDao} which keeps a {@link WorkSpecCache} coherent with the database.
+ * <p>
+ * Every write is mirrored into the cache from within a transaction, so the cache observes writes
+ * in the same order as the database commits them. Reads of individual {@link WorkSpec}s are
+ * served from the cache when possible; all other queries go straight to the database.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+@SuppressLint("UnknownNullness")
+public class CachingWorkSpecDao implements WorkSpecDao {
+
+    private final RoomDatabase mDatabase;
+    private final WorkSpecDao mDelegate;
+    private final WorkSpecCache mCache;
+
+    public CachingWorkSpecDao(
+            @NonNull RoomDatabase database,
+            @NonNull WorkSpecDao delegate,
+            @NonNull WorkSpecCache cache) {
+        mDatabase = database;
+        mDelegate = delegate;
+        mCache = cache;
+    }
+
+    @Override
+    public long insertWorkSpec(WorkSpec workSpec) {
+        mDatabase.beginTransaction();
+        try {
+            long rowId = mDelegate.insertWorkSpec(workSpec);
+            // The insert is ignored if the id already exists, in which case the cache already
+            // mirrors the existing row.
+            if (rowId != -1) {
+                mCache.put(workSpec);
+            }
+            mDatabase.setTransactionSuccessful();
+            return rowId;
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+        mDatabase.beginTransaction();
+        try {
+            mDelegate.delete(id);
+            mCache.evict(id);
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public WorkSpec getWorkSpec(String id) {
+        WorkSpec workSpec = mCache.get(id);
+        if (workSpec != null) {
+            return workSpec;
+        }
+        return mDelegate.getWorkSpec(id);
+    }
+
+    @Override
+    public WorkSpec[] getWorkSpecs(List<String> ids) {
+        WorkSpec[] workSpecs = new WorkSpec[ids.size()];
+        for (int i = 0; i < workSpecs.length; i++) {
+            workSpecs[i] = mCache.get(ids.get(i));
+            if (workSpecs[i] == null) {
+                return mDelegate.getWorkSpecs(ids);
+            }
+        }
+        return workSpecs;
+    }
+
+    @Override
+    public List<WorkSpec.IdAndState> getWorkSpecIdAndStatesForName(String name) {
+        return mDelegate.getWorkSpecIdAndStatesForName(name);
+    }
+
+    @Override
+    public List<String> getAllWorkSpecIds() {
+        return mDelegate.getAllWorkSpecIds();
+    }
+
+    @Override
+    public LiveData<List<String>> getAllWorkSpecIdsLiveData() {
+        return mDelegate.getAllWorkSpecIdsLiveData();
+    }
+
+    @Override
+    public int setState(WorkInfo.State state, String... ids) {
+        mDatabase.beginTransaction();
+        try {
+            int updated = mDelegate.setState(state, ids);
+            mCache.setState(state, ids);
+            mDatabase.setTransactionSuccessful();
+            return updated;
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public void setOutput(String id, Data output) {
+        mDatabase.beginTransaction();
+        try {
+            mDelegate.setOutput(id, output);
+            mCache.setOutput(id, output);
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public void setPeriodStartTime(String id, long periodStartTime) {
+        mDatabase.beginTransaction();
+        try {
+            mDelegate.setPeriodStartTime(id, periodStartTime);
+            mCache.setPeriodStartTime(id, periodStartTime);
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public int incrementWorkSpecRunAttemptCount(String id) {
+        mDatabase.beginTransaction();
+        try {
+            int updated = mDelegate.incrementWorkSpecRunAttemptCount(id);
+            mCache.updateRunAttemptCount(id, false);
+            mDatabase.setTransactionSuccessful();
+            return updated;
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public int resetWorkSpecRunAttemptCount(String id) {
+        mDatabase.beginTransaction();
+        try {
+            int updated = mDelegate.resetWorkSpecRunAttemptCount(id);
+            mCache.updateRunAttemptCount(id, true);
+            mDatabase.setTransactionSuccessful();
+            return updated;
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public WorkInfo.State getState(String id) {
+        // State transitions are arbitrated by the database, so this is never served from the cache.
+        return mDelegate.getState(id);
+    }
+
+    @Override
+    public WorkSpec.WorkInfoPojo getWorkStatusPojoForId(String id) {
+        return mDelegate.getWorkStatusPojoForId(id);
+    }
+
+    @Override
+    public List<WorkSpec.WorkInfoPojo> getWorkStatusPojoForIds(List<String> ids) {
+        return mDelegate.getWorkStatusPojoForIds(ids);
+    }
+
+    @Override
+    public LiveData<List<WorkSpec.WorkInfoPojo>> getWorkStatusPojoLiveDataForIds(
+            List<String> ids) {
+        return mDelegate.getWorkStatusPojoLiveDataForIds(ids);
+    }
+
+    @Override
+    public List<WorkSpec.WorkInfoPojo> getWorkStatusPojoForTag(String tag) {
+        return mDelegate.getWorkStatusPojoForTag(tag);
+    }
+
+    @Override
+    public LiveData<List<WorkSpec.WorkInfoPojo>> getWorkStatusPojoLiveDataForTag(String tag) {
+        return mDelegate.getWorkStatusPojoLiveDataForTag(tag);
+    }
+
+    @Override
+    public List<WorkSpec.WorkInfoPojo> getWorkStatusPojoForName(String name) {
+        return mDelegate.getWorkStatusPojoForName(name);
+    }
+
+    @Override
+    public LiveData<List<WorkSpec.WorkInfoPojo>> getWorkStatusPojoLiveDataForName(String name) {
+        return mDelegate.getWorkStatusPojoLiveDataForName(name);
+    }
+
+    @Override
+    public List<Data> getInputsFromPrerequisites(String id) {
+        if (mCache.hasNoPrerequisites(id)) {
+            return new ArrayList<>();
+        }
+        return mDelegate.getInputsFromPrerequisites(id);
+    }
+
+    @Override
+    public List<String> getUnfinishedWorkWithTag(@NonNull String tag) {
+        return mDelegate.getUnfinishedWorkWithTag(tag);
+    }
+
+    @Override
+    public List<String> getUnfinishedWorkWithName(@NonNull String name) {
+        return mDelegate.getUnfinishedWorkWithName(name);
+    }
+
+    @Override
+    public List<String> getAllUnfinishedWork() {
+        return mDelegate.getAllUnfinishedWork();
+    }
+
+    @Override
+    public int markWorkSpecScheduled(@NonNull String id, long startTime) {
+        mDatabase.beginTransaction();
+        try {
+            int updated = mDelegate.markWorkSpecScheduled(id, startTime);
+            mCache.setScheduleRequestedAt(id, startTime);
+            mDatabase.setTransactionSuccessful();
+            return updated;
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public LiveData<Long> getScheduleRequestedAtLiveData(@NonNull String id) {
+        return mDelegate.getScheduleRequestedAtLiveData(id);
+    }
+
+    @Override
+    public int resetScheduledState() {
+        mDatabase.beginTransaction();
+        try {
+            int updated = mDelegate.resetScheduledState();
+            mCache.clear();
+            mDatabase.setTransactionSuccessful();
+            return updated;
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    @Override
+    public List<WorkSpec> getEligibleWorkForScheduling(int schedulerLimit) {
+        return mDelegate.getEligibleWorkForScheduling(schedulerLimit);
+    }
+
+    @Override
+    public List<WorkSpec> getAllEligibleWorkSpecsForScheduling() {
+        return mDelegate.getAllEligibleWorkSpecsForScheduling();
+    }
+
+    @Override
+    public List<WorkSpec> getScheduledWork() {
+        return mDelegate.getScheduledWork();
+    }
+
+    @Override
+    public List<WorkSpec> getRunningWork() {
+        return mDelegate.getRunningWork();
+    }
+
+    @Override
+    public List<WorkSpec> getRecentlyCompletedWork(long startingAt) {
+        return mDelegate.getRecentlyCompletedWork(startingAt);
+    }
+
+    @Override
+    public void pruneFinishedWorkWithZeroDependentsIgnoringKeepForAtLeast() {
+        // Only finished WorkSpecs are pruned, and those are never cached.
+        mDelegate.pruneFinishedWorkWithZeroDependentsIgnoringKeepForAtLeast();
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bounded, write-through cache of active {@link WorkSpec}s.
+ * <p>
+ * The cache is only ever populated by the write paths of {@link WorkSpecDao} (see
+ * {@link CachingWorkSpecDao}), so a freshly enqueued {@link WorkSpec} can be read back by
+ * {@code WorkerWrapper} without a database round trip.
+ * <p>
+ * Writes that happen inside a database transaction are buffered per thread and are only applied
+ * once the outermost transaction is about to commit successfully. Writes from a transaction
+ * that is rolled back are discarded. Reads on a thread which has buffered writes for a given id
+ * always miss, so they fall through to the database which reflects the uncommitted state.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class WorkSpecCache {
+
+    /**
+     * The default number of {@link WorkSpec}s to keep in the cache.
+     */
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    private final int mMaxSize;
+    private final Object mLock;
+    // Access ordered, so iteration starts with the least recently used entry.
+    private final LinkedHashMap<String, Entry> mEntries;
+    private final ThreadLocal<PendingTransaction> mTransactions;
+
+    public WorkSpecCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public WorkSpecCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        mMaxSize = maxSize;
+        mLock = new Object();
+        mEntries = new LinkedHashMap<>(0, 0.75f, true);
+        mTransactions = new ThreadLocal<>();
+    }
+
+    /**
+     * @param id The {@link WorkSpec} id
+     * @return A copy of the cached {@link WorkSpec}, or {@code null} if it is not cached
+     */
+    @Nullable
+    public WorkSpec get(@NonNull String id) {
+        if (isTouchedByCurrentTransaction(id)) {
+            return null;
+        }
+        synchronized (mLock) {
+            Entry entry = mEntries.get(id);
+            return entry == null ? null : new WorkSpec(entry.mWorkSpec);
+        }
+    }
+
+    /**
+     * @param id The {@link WorkSpec} id
+     * @return The cached tags for the {@link WorkSpec}, or {@code null} if they are unknown
+     */
+    @Nullable
+    public List<String> getTags(@NonNull String id) {
+        if (isTouchedByCurrentTransaction(id)) {
+            return null;
+        }
+        synchronized (mLock) {
+            Entry entry = mEntries.get(id);
+            return entry == null || entry.mTags == null ? null : new ArrayList<>(entry.mTags);
+        }
+    }
+
+    /**
+     * @param id The {@link WorkSpec} id
+     * @return {@code true} if the {@link WorkSpec} is known to have no prerequisites
+     */
+    public boolean hasNoPrerequisites(@NonNull String id) {
+        if (isTouchedByCurrentTransaction(id)) {
+            return false;
+        }
+        synchronized (mLock) {
+            Entry entry = mEntries.get(id);
+            return entry != null && entry.mHasNoPrerequisites;
+        }
+    }
+
+    /**
+     * @return The number of {@link WorkSpec}s currently cached
+     */
+    @VisibleForTesting
+    public int size() {
+        synchronized (mLock) {
+            return mEntries.size();
+        }
+    }
+
+    /**
+     * Caches a {@link WorkSpec} that was just inserted into the database.
+     *
+     * @param workSpec The inserted {@link WorkSpec}
+     */
+    public void put(@NonNull WorkSpec workSpec) {
+        final WorkSpec copy = new WorkSpec(workSpec);
+        write(copy.id, new PendingWrite() {
+            @Override
+            public void apply() {
+                if (copy.state.isFinished()) {
+                    mEntries.remove(copy.id);
+                    return;
+                }
+                mEntries.put(copy.id, new Entry(copy));
+                trimToSize();
+            }
+        });
+    }
+
+    /**
+     * Records the immutable metadata which is inserted alongside a {@link WorkSpec} when it is
+     * enqueued.
+     *
+     * @param id               The {@link WorkSpec} id
+     * @param tags             The tags of the {@link WorkSpec}
+     * @param hasPrerequisites {@code true} if the {@link WorkSpec} has prerequisites
+     */
+    public void putEnqueueMetadata(
+            @NonNull final String id,
+            @NonNull Set<String> tags,
+            final boolean hasPrerequisites) {
+        final List<String> tagList = Collections.unmodifiableList(new ArrayList<>(tags));
+        write(id, new PendingWrite() {
+            @Override
+            public void apply() {
+                Entry entry = mEntries.get(id);
+                if (entry != null) {
+                    entry.mTags = tagList;
+                    entry.mHasNoPrerequisites = !hasPrerequisites;
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the state of cached {@link WorkSpec}s. Finished {@link WorkSpec}s are evicted.
+     *
+     * @param state The new state
+     * @param ids   The {@link WorkSpec} ids
+     */
+    public void setState(@NonNull final WorkInfo.State state, @NonNull final String... ids) {
+        write(ids, new PendingWrite() {
+            @Override
+            public void apply() {
+                for (String id : ids) {
+                    if (state.isFinished()) {
+                        mEntries.remove(id);
+                    } else {
+                        Entry entry = mEntries.get(id);
+                        if (entry != null) {
+                            entry.mWorkSpec.state = state;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the output of a cached {@link WorkSpec}.
+     *
+     * @param id     The {@link WorkSpec} id
+     * @param output The new output
+     */
+    public void setOutput(@NonNull final String id, @NonNull final Data output) {
+        write(id, new PendingWrite() {
+            @Override
+            public void apply() {
+                Entry entry = mEntries.get(id);
+                if (entry != null) {
+                    entry.mWorkSpec.output = output;
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the period start time of a cached {@link WorkSpec}.
+     *
+     * @param id              The {@link WorkSpec} id
+     * @param periodStartTime The new period start time
+     */
+    public void setPeriodStartTime(@NonNull final String id, final long periodStartTime) {
+        write(id, new PendingWrite() {
+            @Override
+            public void apply() {
+                Entry entry = mEntries.get(id);
+                if (entry != null) {
+                    entry.mWorkSpec.periodStartTime = periodStartTime;
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the run attempt count of a cached {@link WorkSpec}.
+     *
+     * @param id    The {@link WorkSpec} id
+     * @param reset {@code true} to reset the count to {@code 0}, {@code false} to increment it
+     */
+    public void updateRunAttemptCount(@NonNull final String id, final boolean reset) {
+        write(id, new PendingWrite() {
+            @Override
+            public void apply() {
+                Entry entry = mEntries.get(id);
+                if (entry != null) {
+                    if (reset) {
+                        entry.mWorkSpec.runAttemptCount = 0;
+                    } else {
+                        entry.mWorkSpec.runAttemptCount++;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the time at which a cached {@link WorkSpec} was scheduled.
+     *
+     * @param id        The {@link WorkSpec} id
+     * @param startTime The time at which the {@link WorkSpec} was scheduled
+     */
+    public void setScheduleRequestedAt(@NonNull final String id, final long startTime) {
+        write(id, new PendingWrite() {
+            @Override
+            public void apply() {
+                Entry entry = mEntries.get(id);
+                if (entry != null) {
+                    entry.mWorkSpec.scheduleRequestedAt = startTime;
+                }
+            }
+        });
+    }
+
+    /**
+     * Evicts a {@link WorkSpec} from the cache.
+     *
+     * @param id The {@link WorkSpec} id
+     */
+    public void evict(@NonNull final String id) {
+        write(id, new PendingWrite() {
+            @Override
+            public void apply() {
+                mEntries.remove(id);
+            }
+        });
+    }
+
+    /**
+     * Evicts all {@link WorkSpec}s. Used by bulk write paths which can't be mirrored cheaply.
+     */
+    public void clear() {
+        PendingTransaction transaction = mTransactions.get();
+        PendingWrite write = new PendingWrite() {
+            @Override
+            public void apply() {
+                mEntries.clear();
+            }
+        };
+        if (transaction != null) {
+            transaction.mClearsAll = true;
+            transaction.mWrites.add(write);
+        } else {
+            synchronized (mLock) {
+                write.apply();
+            }
+        }
+    }
+
+    /**
+     * Called after the database begins a (possibly nested) transaction on the current thread.
+     */
+    public void onBeginTransaction() {
+        PendingTransaction transaction = mTransactions.get();
+        if (transaction == null) {
+            transaction = new PendingTransaction();
+            mTransactions.set(transaction);
+        }
+        transaction.mSuccessful.add(false);
+    }
+
+    /**
+     * Called after the current transaction is marked successful.
+     */
+    public void onTransactionSuccessful() {
+        PendingTransaction transaction = mTransactions.get();
+        if (transaction != null && !transaction.mSuccessful.isEmpty()) {
+            transaction.mSuccessful.set(transaction.mSuccessful.size() - 1, true);
+        }
+    }
+
+    /**
+     * Called before the current transaction ends. When the outermost transaction ends, the
+     * buffered writes are either applied (while the database still holds the write lock, which
+     * keeps the writes in commit order) or discarded if any nested transaction failed.
+     */
+    public void onEndTransaction() {
+        PendingTransaction transaction = mTransactions.get();
+        if (transaction == null || transaction.mSuccessful.isEmpty()) {
+            return;
+        }
+        boolean successful = transaction.mSuccessful.remove(transaction.mSuccessful.size() - 1);
+        if (!successful) {
+            transaction.mFailed = true;
+        }
+        if (!transaction.mSuccessful.isEmpty()) {
+            return;
+        }
+        mTransactions.remove();
+        if (!transaction.mFailed) {
+            synchronized (mLock) {
+                for (PendingWrite write : transaction.mWrites) {
+                    write.apply();
+                }
+            }
+        }
+    }
+
+    private void write(@NonNull String id, @NonNull PendingWrite write) {
+        PendingTransaction transaction = mTransactions.get();
+        if (transaction != null) {
+            transaction.mTouchedIds.add(id);
+            transaction.mWrites.add(write);
+        } else {
+            synchronized (mLock) {
+                write.apply();
+            }
+        }
+    }
+
+    private void write(@NonNull String[] ids, @NonNull PendingWrite write) {
+        PendingTransaction transaction = mTransactions.get();
+        if (transaction != null) {
+            Collections.addAll(transaction.mTouchedIds, ids);
+            transaction.mWrites.add(write);
+        } else {
+            synchronized (mLock) {
+                write.apply();
+            }
+        }
+    }
+
+    private boolean isTouchedByCurrentTransaction(@NonNull String id) {
+        PendingTransaction transaction = mTransactions.get();
+        return transaction != null
+                && (transaction.mClearsAll || transaction.mTouchedIds.contains(id));
+    }
+
+    // Must be called while holding mLock.
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void trimToSize() {
+        while (mEntries.size() > mMaxSize) {
+            Map.Entry<String, Entry> eldest = mEntries.entrySet().iterator().next();
+            mEntries.remove(eldest.getKey());
+        }
+    }
+
+    /**
+     * A mutation of the cache which is applied while holding the lock.
+     */
+    private interface PendingWrite {
+        void apply();
+    }
+
+    private static class Entry {
+        final WorkSpec mWorkSpec;
+        @Nullable List<String> mTags;
+        boolean mHasNoPrerequisites;
+
+        Entry(@NonNull WorkSpec workSpec) {
+            mWorkSpec = workSpec;
+        }
+    }
+
+    private static class PendingTransaction {
+        // One flag per nesting level.
+        final List<Boolean> mSuccessful = new ArrayList<>();
+        final List<PendingWrite> mWrites = new ArrayList<>();
+        final Set<String> mTouchedIds = new HashSet<>();
+        boolean mClearsAll;
+        boolean mFailed;
+    }
+}
@@ -42,9 +42,11 @@ public interface WorkSpecDao {
      * Attempts to insert a {@link WorkSpec} into the database.
      *
      * @param workSpec The WorkSpec to insert.
+     * @return The row id of the inserted WorkSpec, or {@code -1} if a WorkSpec with the same id
+     * already exists
      */
     @Insert(onConflict = IGNORE)
-    void insertWorkSpec(WorkSpec workSpec);
+    long insertWorkSpec(WorkSpec workSpec);
 
     /**
      * Deletes {@link WorkSpec}s from the database.
@@ -339,6 +339,9 @@ public class EnqueueRunnable implements Runnable {
             if (isNamed) {
                 workDatabase.workNameDao().insert(new WorkName(name, work.getStringId()));
             }
+
+            workDatabase.getWorkSpecCache().putEnqueueMetadata(
+                    work.getStringId(), work.getTags(), hasPrerequisite);
         }
         return needsScheduling;
     }